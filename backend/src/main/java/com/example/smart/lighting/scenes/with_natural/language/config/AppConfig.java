@@ -1,9 +1,12 @@
 package com.example.smart.lighting.scenes.with_natural.language.config;
 
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+
+import java.time.Clock;
+import java.time.ZoneId;
 
 /**
  * General application configuration for common beans.
@@ -11,7 +14,8 @@ import org.springframework.web.client.RestTemplate;
  * <p>Provides shared utility beans used across the application:</p>
  * <ul>
  *   <li>{@link ModelMapper} - Object-to-object mapping for DTO conversions</li>
- *   <li>{@link RestTemplate} - HTTP client for external API calls (e.g., OpenAI)</li>
+ *   <li>{@link Clock} - Wall clock in the application time zone; tests and simulations
+ *       can substitute a fixed or virtual clock</li>
  * </ul>
  *
 
@@ -30,12 +34,12 @@ public class AppConfig {
     }
 
     /**
-     * Creates a RestTemplate bean for making HTTP requests to external services.
+     * Creates the clock used for "now" in the application time zone.
      *
-     * @return configured RestTemplate instance
+     * @return system clock in {@code app.timezone}
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public Clock clock(@Value("${app.timezone}") String timezone) {
+        return Clock.system(ZoneId.of(timezone));
     }
 }
@@ -7,9 +7,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -73,11 +76,19 @@ public class AutomationController {
     }
 
     /**
-     * Reload automations from file.
+     * Reload automations from file. An invalid file leaves the running rules untouched.
      */
     @PostMapping("/reload")
     public ResponseEntity<?> reloadAutomations() {
-        automationService.reloadAutomations();
+        try {
+            automationService.reloadAutomations();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "error", e.getMessage(),
+                "count", automationService.getAllAutomations().size()
+            ));
+        }
         List<Automation> automations = automationService.getAllAutomations();
 
         return ResponseEntity.ok(Map.of(
@@ -86,4 +97,26 @@ public class AutomationController {
             "automations", automations.stream().map(Automation::getAlias).toList()
         ));
     }
+
+    /**
+     * Get the entity states automations are evaluated against.
+     */
+    @GetMapping("/states")
+    public ResponseEntity<Map<String, Object>> getEntityStates() {
+        return ResponseEntity.ok(automationService.getEntityStates());
+    }
+
+    /**
+     * Set an entity state, e.g. presence reported by a phone.
+     */
+    @PutMapping("/states/{entityId}")
+    @PreAuthorize("hasAnyRole('OWNER', 'RESIDENT')")
+    public ResponseEntity<?> setEntityState(@PathVariable String entityId, @RequestBody Map<String, String> body) {
+        String state = body.get("state");
+        if (state == null || state.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "state is required"));
+        }
+        automationService.setEntityState(entityId, state);
+        return ResponseEntity.ok(Map.of("entityId", entityId, "state", state));
+    }
 }
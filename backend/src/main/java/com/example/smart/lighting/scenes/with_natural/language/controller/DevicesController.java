@@ -9,6 +9,7 @@ import com.example.smart.lighting.scenes.with_natural.language.entity.SensorRead
 import com.example.smart.lighting.scenes.with_natural.language.repository.DeviceRepository;
 import com.example.smart.lighting.scenes.with_natural.language.repository.RoomRepository;
 import com.example.smart.lighting.scenes.with_natural.language.repository.SensorReadingRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -52,6 +53,7 @@ public class DevicesController {
     private final DeviceRepository deviceRepository;
     private final RoomRepository roomRepository;
     private final SensorReadingRepository sensorReadingRepository;
+    private final NameIndex nameIndex;
 
     /**
      * Get all devices.
@@ -104,6 +106,7 @@ public class DevicesController {
             .build();
 
         device = deviceRepository.save(device);
+        nameIndex.put(device);
         log.info("Device created: id={}, name={}, room={}", device.getId(), device.getName(), room.getName());
         return ResponseEntity.ok(toDto(device));
     }
@@ -157,6 +160,7 @@ public class DevicesController {
         }
 
         device = deviceRepository.save(device);
+        nameIndex.put(device);
         log.info("Device updated: id={}, name={}", device.getId(), device.getName());
         return ResponseEntity.ok(toDto(device));
     }
@@ -176,6 +180,7 @@ public class DevicesController {
         }
 
         deviceRepository.deleteById(deviceId);
+        nameIndex.remove(NameIndex.Kind.DEVICE, deviceId);
         log.info("Device deleted: id={}", deviceId);
         return ResponseEntity.noContent().build();
     }
@@ -1,20 +1,27 @@
 package com.example.smart.lighting.scenes.with_natural.language.controller;
 
+import com.example.smart.lighting.scenes.with_natural.language.dto.ConflictAnalysisDto;
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpBatchDto;
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpClassifierDto;
 import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto;
 import com.example.smart.lighting.scenes.with_natural.language.entity.User;
 import com.example.smart.lighting.scenes.with_natural.language.repository.UserRepository;
 import com.example.smart.lighting.scenes.with_natural.language.service.NlpService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
 
@@ -39,7 +46,7 @@ public class NlpController {
      * Returns a preview of what the command will do.
      * All authenticated users can parse commands.
      *
-     * @param request The request containing the text command
+     * @param request The request containing the text command and an optional requestId for early previews
      * @return Parsed command with preview
      */
     @PostMapping("/parse")
@@ -57,7 +64,7 @@ public class NlpController {
         }
 
         log.info("Parsing command: {}", text);
-        NlpCommandDto result = nlpService.parseCommand(text);
+        NlpCommandDto result = nlpService.parseCommand(text, request.get("requestId"));
 
         return ResponseEntity.ok(result);
     }
@@ -147,6 +154,78 @@ public class NlpController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Parse an utterance holding several commands without executing it.
+     * Returns a preview of each command.
+     * All authenticated users can parse commands.
+     *
+     * @param request The request containing the text command
+     * @return Parsed commands with previews
+     */
+    @PostMapping("/batch/parse")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<NlpBatchDto> parseBatch(@RequestBody Map<String, String> request) {
+        String text = request.get("text");
+
+        if (text == null || text.isBlank()) {
+            return ResponseEntity.badRequest().body(
+                NlpBatchDto.builder()
+                    .valid(false)
+                    .error("No command provided")
+                    .build()
+            );
+        }
+
+        log.info("Parsing command batch: {}", text);
+        return ResponseEntity.ok(nlpService.parseBatch(text));
+    }
+
+    /**
+     * Parse and execute an utterance holding several commands.
+     * Immediate commands are sent together in one MQTT message.
+     * Schedule creation requires OWNER or RESIDENT role (enforced in service layer).
+     *
+     * @param request The request containing the text command
+     * @param auth Authentication context
+     * @return Execution result for each command
+     */
+    @PostMapping("/batch/execute")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<NlpBatchDto> executeBatch(
+            @RequestBody Map<String, String> request,
+            Authentication auth) {
+
+        ResponseEntity<NlpBatchDto> parsed = parseBatch(request);
+        if (!parsed.getStatusCode().is2xxSuccessful() || !Boolean.TRUE.equals(parsed.getBody().getValid())) {
+            return parsed;
+        }
+
+        User user = getCurrentUser(auth);
+        return ResponseEntity.ok(nlpService.executeBatch(parsed.getBody(), user));
+    }
+
+    /**
+     * Confirm and execute a previously parsed batch of commands.
+     * Schedule creation requires OWNER or RESIDENT role (enforced in service layer).
+     *
+     * @param batch The parsed batch to execute
+     * @param auth Authentication context
+     * @return Execution result for each command
+     */
+    @PostMapping("/batch/confirm")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<NlpBatchDto> confirmBatch(
+            @RequestBody NlpBatchDto batch,
+            Authentication auth) {
+
+        if (!Boolean.TRUE.equals(batch.getValid())) {
+            return ResponseEntity.badRequest().body(batch);
+        }
+
+        User user = getCurrentUser(auth);
+        return ResponseEntity.ok(nlpService.executeBatch(batch, user));
+    }
+
     /**
      * Apply a conflict resolution for a schedule.
      * Only OWNER and RESIDENT can resolve schedule conflicts.
@@ -187,6 +266,51 @@ public class NlpController {
         }
     }
 
+    /**
+     * Get the state of an asynchronous conflict analysis.
+     * The parse response returns the deterministic conflicts with an
+     * analysis ID; the AI-ranked version is available here once ready.
+     *
+     * @param analysisId the analysis ID from the parse response
+     * @return the analysis, or 404 if unknown or expired
+     */
+    @GetMapping("/conflicts/{analysisId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ConflictAnalysisDto> getConflictAnalysis(@PathVariable String analysisId) {
+        return nlpService.getConflictAnalysis(analysisId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get the state of the local intent classifier.
+     * Only OWNER can view it.
+     *
+     * @return the mode and the loaded model's held-out accuracy and coverage
+     */
+    @GetMapping("/classifier")
+    @PreAuthorize("hasRole('OWNER')")
+    public ResponseEntity<NlpClassifierDto> getClassifierStatus() {
+        return ResponseEntity.ok(nlpService.getClassifierStatus());
+    }
+
+    /**
+     * Retrain the local intent classifier from executed command history.
+     * Only OWNER can train it.
+     *
+     * @return the state of the new model
+     */
+    @PostMapping("/classifier/train")
+    @PreAuthorize("hasRole('OWNER')")
+    public ResponseEntity<NlpClassifierDto> trainClassifier() {
+        try {
+            return ResponseEntity.ok(nlpService.trainClassifier());
+        } catch (IllegalStateException e) {
+            log.warn("Classifier training failed: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     /**
      * Get current user from authentication.
      */
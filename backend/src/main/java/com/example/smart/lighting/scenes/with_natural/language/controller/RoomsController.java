@@ -9,6 +9,7 @@ import com.example.smart.lighting.scenes.with_natural.language.entity.User;
 import com.example.smart.lighting.scenes.with_natural.language.repository.RoomRepository;
 import com.example.smart.lighting.scenes.with_natural.language.repository.UserRepository;
 import com.example.smart.lighting.scenes.with_natural.language.security.CustomOAuth2User;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -55,6 +56,7 @@ public class RoomsController {
 
     private final RoomRepository roomRepository;
     private final UserRepository userRepository;
+    private final NameIndex nameIndex;
 
     /**
      * Retrieves all rooms with their associated devices.
@@ -110,6 +112,7 @@ public class RoomsController {
             .build();
 
         room = roomRepository.save(room);
+        nameIndex.put(room);
         return ResponseEntity.ok(toDto(room));
     }
 
@@ -159,6 +162,7 @@ public class RoomsController {
         }
 
         room = roomRepository.save(room);
+        nameIndex.put(room);
         return ResponseEntity.ok(toDto(room));
     }
 
@@ -180,6 +184,9 @@ public class RoomsController {
             return ResponseEntity.badRequest().build();
         }
         roomRepository.deleteById(roomId);
+        // Devices are deleted with their room
+        room.getDevices().forEach(device -> nameIndex.remove(NameIndex.Kind.DEVICE, device.getId()));
+        nameIndex.remove(NameIndex.Kind.ROOM, roomId);
         return ResponseEntity.noContent().build();
     }
 
@@ -7,6 +7,8 @@ import com.example.smart.lighting.scenes.with_natural.language.repository.SceneR
 import com.example.smart.lighting.scenes.with_natural.language.repository.UserRepository;
 import com.example.smart.lighting.scenes.with_natural.language.service.MqttService;
 import com.example.smart.lighting.scenes.with_natural.language.service.SceneCommandTracker;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex;
 import com.example.smart.lighting.scenes.with_natural.language.websocket.WebSocketEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -48,6 +50,8 @@ public class ScenesController {
     private final UserRepository userRepository;
     private final MqttService mqttService;
     private final SceneCommandTracker sceneCommandTracker;
+    private final SceneCatalog sceneCatalog;
+    private final NameIndex nameIndex;
     private final WebSocketEventService webSocketEventService;
 
     /**
@@ -96,6 +100,8 @@ public class ScenesController {
             .build();
 
         scene = sceneRepository.save(scene);
+        sceneCatalog.reload();
+        nameIndex.put(scene);
         log.info("Scene created: {}", scene.getId());
 
         // Broadcast real-time event
@@ -132,6 +138,8 @@ public class ScenesController {
         }
 
         scene = sceneRepository.save(scene);
+        sceneCatalog.reload();
+        nameIndex.put(scene);
 
         // Broadcast real-time event
         webSocketEventService.broadcastSceneUpdated(scene.getId(), scene.getName());
@@ -155,6 +163,8 @@ public class ScenesController {
 
         scene.setIsActive(false);
         sceneRepository.save(scene);
+        sceneCatalog.reload();
+        nameIndex.remove(NameIndex.Kind.SCENE, sceneId);
 
         // Broadcast real-time event
         webSocketEventService.broadcastSceneDeleted(sceneId);
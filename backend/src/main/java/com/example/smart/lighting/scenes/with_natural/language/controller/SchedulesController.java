@@ -5,9 +5,17 @@ import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
 import com.example.smart.lighting.scenes.with_natural.language.entity.User;
 import com.example.smart.lighting.scenes.with_natural.language.repository.ScheduleRepository;
 import com.example.smart.lighting.scenes.with_natural.language.repository.UserRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictAnalysisResult;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleSimulator;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleSimulator.SimulationResult;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.WeeklyLedTimeline;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.WeeklyLedTimeline.Contradiction;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.WeeklyLedTimeline.LedWrite;
 import com.example.smart.lighting.scenes.with_natural.language.websocket.WebSocketEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,9 +29,12 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Clock;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -45,6 +56,10 @@ public class SchedulesController {
     private final ScheduleRepository scheduleRepository;
     private final UserRepository userRepository;
     private final WebSocketEventService webSocketEventService;
+    private final ScheduleSimulator scheduleSimulator;
+    private final ScheduleConflictService conflictService;
+    private final WeeklyLedTimeline ledTimeline;
+    private final Clock clock;
 
     /**
      * Get all schedules.
@@ -58,6 +73,70 @@ public class SchedulesController {
         return ResponseEntity.ok(dtos);
     }
 
+    /**
+     * Simulate enabled time and sun schedules over a range of days.
+     * Returns every firing and the resulting per-LED state timeline.
+     * Schedule conditions are not evaluated, so conditional schedules are
+     * shown firing at every trigger time even if they would be held back.
+     * {@code days} must be between 1 and {@code scheduler.simulation.max-days}.
+     * All authenticated users can run simulations.
+     */
+    @GetMapping("/simulate")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SimulationResult> simulateSchedules(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(defaultValue = "7") int days) {
+        List<Schedule> schedules = new ArrayList<>(scheduleRepository.findEnabledTimeSchedules());
+        schedules.addAll(scheduleRepository.findEnabledSunSchedules());
+
+        try {
+            SimulationResult result = from != null
+                ? scheduleSimulator.simulate(schedules, from, days)
+                : scheduleSimulator.simulate(schedules, days);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Audit all enabled time schedules for conflicting pairs.
+     * All authenticated users can view conflicts.
+     */
+    @GetMapping("/conflicts")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ConflictAnalysisResult> getScheduleConflicts() {
+        return ResponseEntity.ok(conflictService.auditAllConflicts());
+    }
+
+    /**
+     * Get the scheduled state of an LED and the schedule that last wrote it.
+     * All authenticated users can query the timeline.
+     */
+    @GetMapping("/timeline/leds/{led}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<LedWrite> getLedTimelineState(
+            @PathVariable int led,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        try {
+            return ledTimeline.lastWriteAt(led, at != null ? at : LocalDateTime.now(clock))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * List places where one schedule switches an LED and another reverses it
+     * shortly after. All authenticated users can view contradictions.
+     */
+    @GetMapping("/timeline/contradictions")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<Contradiction>> getTimelineContradictions() {
+        return ResponseEntity.ok(ledTimeline.findAllContradictions());
+    }
+
     /**
      * Get a schedule by ID.
      * All authenticated users can view schedules.
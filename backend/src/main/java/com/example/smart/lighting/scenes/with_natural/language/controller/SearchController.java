@@ -0,0 +1,65 @@
+package com.example.smart.lighting.scenes.with_natural.language.controller;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex.NameMatch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * REST controller for type-ahead search over scene, room and device names.
+ *
+
+ * @see NameIndex
+ */
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "${cors.allowed-origins}", allowCredentials = "true")
+public class SearchController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final NameIndex nameIndex;
+
+    /**
+     * Suggest names matching what the user has typed so far.
+     * All authenticated users can search.
+     *
+     * @param q the text typed so far; misspellings and missing spaces are tolerated
+     * @param types the kinds of names to search (scene, room, device); all when omitted
+     * @param limit the maximum number of suggestions, at most 50
+     * @return matches ordered by score, best first
+     */
+    @GetMapping("/names")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<NameMatch>> searchNames(
+            @RequestParam String q,
+            @RequestParam(required = false) List<String> types,
+            @RequestParam(defaultValue = "10") int limit) {
+        Set<NameIndex.Kind> kinds = EnumSet.allOf(NameIndex.Kind.class);
+        if (types != null && !types.isEmpty()) {
+            kinds = EnumSet.noneOf(NameIndex.Kind.class);
+            for (String type : types) {
+                try {
+                    kinds.add(NameIndex.Kind.valueOf(type.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown name type: " + type);
+                }
+            }
+        }
+        return ResponseEntity.ok(nameIndex.search(q, kinds, Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+}
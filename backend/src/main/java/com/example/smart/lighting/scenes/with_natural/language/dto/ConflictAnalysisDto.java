@@ -14,6 +14,10 @@ import java.util.Map;
  * <p>Contains information about scheduling conflicts detected between
  * automation rules, including severity and resolution options.</p>
  *
+ * <p>The status is "pending" while the AI ranking of resolutions is still
+ * running; the final analysis is then published under the same
+ * analysis ID.</p>
+ *
 
  */
 @Data
@@ -22,6 +26,8 @@ import java.util.Map;
 @AllArgsConstructor
 public class ConflictAnalysisDto {
 
+    private String analysisId;
+    private String status;
     private boolean hasConflicts;
     private String summary;
     private List<ConflictDto> conflicts;
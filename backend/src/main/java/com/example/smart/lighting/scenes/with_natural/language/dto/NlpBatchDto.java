@@ -0,0 +1,56 @@
+package com.example.smart.lighting.scenes.with_natural.language.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Transfer Object for an utterance holding several NLP commands.
+ *
+ * <p>Each command is parsed, validated and previewed on its own, but the
+ * batch is only executable when every command is valid. Immediate commands
+ * are then sent together in one MQTT message.</p>
+ *
+
+ * @see NlpCommandDto
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NlpBatchDto {
+
+    /**
+     * Request: The natural language input from the user.
+     */
+    private String text;
+
+    /**
+     * Response: The commands found in the input, in the order given.
+     */
+    private List<NlpCommandDto> commands;
+
+    /**
+     * Response: Whether every command is valid.
+     */
+    private Boolean valid;
+
+    /**
+     * Response: Error message if the batch is invalid.
+     */
+    private String error;
+
+    /**
+     * Response: Whether the batch was executed.
+     */
+    private Boolean executed;
+
+    /**
+     * Response: Timestamp of processing.
+     */
+    private LocalDateTime timestamp;
+}
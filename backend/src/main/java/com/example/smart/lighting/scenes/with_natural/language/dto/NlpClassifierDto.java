@@ -0,0 +1,60 @@
+package com.example.smart.lighting.scenes.with_natural.language.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object for the state of the local NLP intent classifier.
+ *
+ * <p>Held-out figures come from the one-in-ten history records kept out of
+ * training: coverage is the share the classifier was confident about, and
+ * accuracy is the share of those it got fully right.</p>
+ *
+
+ * @see NlpCommandDto
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NlpClassifierDto {
+
+    /**
+     * Whether the classifier is off, only measured against the LLM, or answering.
+     */
+    private String mode;
+
+    /**
+     * Whether a trained model is loaded.
+     */
+    private Boolean trained;
+
+    /**
+     * When the loaded model was trained.
+     */
+    private Instant trainedAt;
+
+    /**
+     * Number of history records the model was trained on.
+     */
+    private Integer examples;
+
+    /**
+     * Share of confident held-out predictions that matched the recorded parse.
+     */
+    private Double heldOutAccuracy;
+
+    /**
+     * Share of held-out records the classifier was confident about.
+     */
+    private Double heldOutCoverage;
+
+    /**
+     * Confidence below which the classifier defers to the LLM.
+     */
+    private Double minConfidence;
+}
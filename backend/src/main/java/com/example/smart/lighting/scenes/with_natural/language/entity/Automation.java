@@ -29,6 +29,7 @@ public class Automation {
     private String alias;
     private String description;
     private String mode = "single"; // single, restart, queued, parallel
+    private int max = 10; // Queued or parallel runs allowed at once
     private List<Trigger> triggers;
     private List<Condition> conditions;
     private List<Action> actions;
@@ -39,6 +40,7 @@ public class Automation {
      * Supports state, time, sun, numeric_state, event, and mqtt triggers.
      */
     @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Trigger {
         private String trigger; // state, time, sun, numeric_state, event, mqtt
 
@@ -51,6 +53,13 @@ public class Automation {
         private String event; // For sun trigger: sunrise, sunset
         private String offset; // Time offset like "-00:30:00"
         private String at; // For time trigger: "22:00:00"
+        private Double above; // For numeric_state trigger
+        private Double below; // For numeric_state trigger
+        private Double hysteresis; // For numeric_state trigger: margin to cross back before re-arming
+
+        @JsonProperty("for")
+        private String duration; // For numeric_state trigger: time in range before firing, "00:02:00"
+
         private Map<String, Object> data;
     }
 
@@ -67,8 +76,8 @@ public class Automation {
         private String entityId;
 
         private String state;
-        private Integer above;
-        private Integer below;
+        private Double above;
+        private Double below;
         private String after;
         private String before;
         private List<String> weekday; // List of: mon, tue, wed, thu, fri, sat, sun
@@ -91,5 +100,7 @@ public class Automation {
 
         @JsonProperty("entity_id")
         private String entityId; // Alternative to target
+
+        private String delay; // Pause before the next action: "00:00:30"
     }
 }
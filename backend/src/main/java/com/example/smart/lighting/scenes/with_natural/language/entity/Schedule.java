@@ -2,6 +2,7 @@ package com.example.smart.lighting.scenes.with_natural.language.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -44,6 +45,7 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "schedules", schema = "smartlighting")
+@EntityListeners(ScheduleEntityListener.class)
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,16 @@
+package com.example.smart.lighting.scenes.with_natural.language.entity;
+
+/**
+ * Application event published whenever a {@link Schedule} is created,
+ * updated or deleted through JPA.
+ *
+ * <p>Lets in-memory views of the schedule set (such as the conflict index)
+ * stay current without every save site having to notify them.</p>
+ *
+ * @param schedule the schedule after the change
+ * @param deleted true if the schedule was removed
+ *
+
+ * @see ScheduleEntityListener
+ */
+public record ScheduleChangedEvent(Schedule schedule, boolean deleted) {}
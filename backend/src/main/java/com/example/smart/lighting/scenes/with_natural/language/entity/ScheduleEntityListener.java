@@ -0,0 +1,47 @@
+package com.example.smart.lighting.scenes.with_natural.language.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that turns {@link Schedule} lifecycle callbacks into
+ * {@link ScheduleChangedEvent}s.
+ *
+ * <p>Bulk SQL updates (such as firing statistics) bypass JPA and do not
+ * publish events.</p>
+ *
+
+ * @see ScheduleChangedEvent
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduleEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    void onSaved(Schedule schedule) {
+        publish(new ScheduleChangedEvent(schedule, false));
+    }
+
+    @PostRemove
+    void onRemoved(Schedule schedule) {
+        publish(new ScheduleChangedEvent(schedule, true));
+    }
+
+    private void publish(ScheduleChangedEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (Exception e) {
+            // Never fail the surrounding transaction because of a listener
+            log.warn("Schedule change listener failed for {}: {}", event.schedule().getId(), e.getMessage());
+        }
+    }
+}
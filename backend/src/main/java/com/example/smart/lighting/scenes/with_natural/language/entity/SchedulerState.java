@@ -0,0 +1,48 @@
+package com.example.smart.lighting.scenes.with_natural.language.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording how far a scheduler has progressed.
+ *
+ * <p>The schedule runner stores the last minute it fully processed. After a
+ * restart or a long pause it compares this high-water mark with the current
+ * time to find the schedule firings it missed.</p>
+ *
+
+ */
+@Entity
+@Table(name = "scheduler_state")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerState {
+
+    @Id
+    @Column(name = "scheduler_name", length = 50)
+    private String name;
+
+    @Column(name = "last_processed_at", nullable = false)
+    private LocalDateTime lastProcessedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
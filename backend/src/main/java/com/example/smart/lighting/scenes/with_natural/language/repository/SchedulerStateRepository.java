@@ -0,0 +1,15 @@
+package com.example.smart.lighting.scenes.with_natural.language.repository;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.SchedulerState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for {@link SchedulerState} entity persistence operations.
+ *
+
+ * @see SchedulerState
+ */
+@Repository
+public interface SchedulerStateRepository extends JpaRepository<SchedulerState, String> {
+}
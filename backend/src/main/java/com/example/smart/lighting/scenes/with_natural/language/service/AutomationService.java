@@ -1,8 +1,14 @@
 package com.example.smart.lighting.scenes.with_natural.language.service;
 
 import com.example.smart.lighting.scenes.with_natural.language.entity.Automation;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationCompiler;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationEngine;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationSnapshot;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.CompiledAutomation;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,36 +21,46 @@ import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
 
 /**
  * Service for managing and executing Home Assistant-style automations.
  *
- * <p>Loads automation rules from YAML files and executes them based on
- * triggers and conditions. Supports light control and scene activation.</p>
+ * <p>Loads automation rules from YAML files, compiles them and hands them to
+ * the {@link AutomationEngine}, which runs them as sensor readings, state
+ * changes and time ticks arrive. Supports light control and scene activation.</p>
+ *
+ * <p>A reload parses and compiles the whole file before anything changes. If
+ * any rule is invalid the reload fails and the rules already running stay in
+ * place; otherwise the new rule set replaces the old one in a single swap.</p>
  *
  * <h3>Features:</h3>
  * <ul>
  *   <li>YAML-based automation configuration</li>
- *   <li>Hot-reload of automation files</li>
+ *   <li>Hot-reload of automation files, all or nothing</li>
  *   <li>Trigger, condition, and action evaluation</li>
  *   <li>Integration with MQTT for device control</li>
  * </ul>
  *
 
  * @see Automation
- * @see MqttService
+ * @see AutomationEngine
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AutomationService {
 
-    private final MqttService mqttService;
+    private final AutomationEngine automationEngine;
     private final ResourceLoader resourceLoader;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
 
     @Value("${rules.file-path}")
     private String rulesFilePath;
@@ -52,71 +68,117 @@ public class AutomationService {
     @Value("${rules.enabled}")
     private boolean rulesEnabled;
 
-    private final Map<String, Automation> automations = new ConcurrentHashMap<>();
     private final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
 
     @PostConstruct
     public void init() {
         if (rulesEnabled) {
-            loadAutomations();
+            try {
+                reloadAutomations();
+            } catch (IllegalStateException e) {
+                log.warn("Starting without automations until {} is fixed", rulesFilePath);
+            }
         }
     }
 
     /**
-     * Load automations from YAML file.
+     * Reload automations from file, replacing the running rules only if every
+     * rule in the file compiles.
+     *
+     * @return the number of automations now loaded
+     * @throws IllegalStateException if the file cannot be read or has invalid rules
      */
-    @SuppressWarnings("unchecked")
-    public void loadAutomations() {
+    public synchronized int reloadAutomations() {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            Resource resource = resourceLoader.getResource(rulesFilePath);
-            if (resource.exists()) {
-                List<Map<String, Object>> yamlList = yamlMapper.readValue(
-                    resource.getInputStream(),
-                    List.class
-                );
-
-                for (Map<String, Object> yamlMap : yamlList) {
-                    Automation automation = yamlMapper.convertValue(yamlMap, Automation.class);
-                    automations.put(automation.getId(), automation);
-                    log.info("Loaded automation: {} ({})", automation.getId(), automation.getAlias());
-                }
+            AutomationSnapshot next = AutomationSnapshot.of(compile(readRules()), clock.instant());
+            automationEngine.install(next);
+            sample.stop(meterRegistry.timer("automation.reload", "outcome", "success"));
+            log.info("Loaded {} automations from {}", next.size(), rulesFilePath);
+            return next.size();
+        } catch (IOException | IllegalArgumentException e) {
+            sample.stop(meterRegistry.timer("automation.reload", "outcome", "failure"));
+            log.error("Automations not reloaded, keeping {} running: {}",
+                automationEngine.getSnapshot().size(), e.getMessage());
+            throw new IllegalStateException("Automations not reloaded: " + e.getMessage(), e);
+        }
+    }
 
-                log.info("Loaded {} automations from {}", automations.size(), rulesFilePath);
-            } else {
-                log.warn("Automation file not found: {}", rulesFilePath);
-            }
+    /**
+     * The rules file on disk, if it is a plain file that can be watched.
+     */
+    public Optional<Path> getRulesFile() {
+        Resource resource = resourceLoader.getResource(rulesFilePath);
+        try {
+            return resource.isFile() ? Optional.of(resource.getFile().toPath()) : Optional.empty();
         } catch (IOException e) {
-            log.error("Failed to load automations: {}", e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Whether automations are loaded at all.
+     */
+    public boolean isRulesEnabled() {
+        return rulesEnabled;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> readRules() throws IOException {
+        Resource resource = resourceLoader.getResource(rulesFilePath);
+        if (!resource.exists()) {
+            throw new IOException("Automation file not found: " + rulesFilePath);
+        }
+        try (InputStream in = resource.getInputStream()) {
+            List<Map<String, Object>> yamlList = yamlMapper.readValue(in, List.class);
+            return yamlList != null ? yamlList : List.of();
         }
     }
 
     /**
-     * Reload automations from file.
+     * Compile every rule, reporting all invalid rules at once.
      */
-    public void reloadAutomations() {
-        automations.clear();
-        loadAutomations();
+    private List<CompiledAutomation> compile(List<Map<String, Object>> yamlList) {
+        List<CompiledAutomation> compiled = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (Map<String, Object> yamlMap : yamlList) {
+            try {
+                Automation automation = yamlMapper.convertValue(yamlMap, Automation.class);
+                compiled.add(AutomationCompiler.compile(automation));
+            } catch (IllegalArgumentException e) {
+                errors.add(e.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+        return compiled;
     }
 
     /**
      * Get all automations.
      */
     public List<Automation> getAllAutomations() {
-        return new ArrayList<>(automations.values());
+        return automationEngine.getSnapshot().automations().values().stream()
+            .map(CompiledAutomation::source)
+            .toList();
     }
 
     /**
      * Get automation by ID.
      */
     public Automation getAutomation(String id) {
-        return automations.get(id);
+        CompiledAutomation automation = automationEngine.getSnapshot().automations().get(id);
+        return automation != null ? automation.source() : null;
     }
 
     /**
-     * Execute automation action.
+     * Run an automation now, skipping its triggers and conditions.
+     *
+     * @param automationId the automation id
      */
     public void executeAutomation(String automationId) {
-        Automation automation = automations.get(automationId);
+        Automation automation = getAutomation(automationId);
         if (automation == null) {
             log.warn("Automation not found: {}", automationId);
             return;
@@ -128,141 +190,24 @@ public class AutomationService {
         }
 
         log.info("Executing automation: {} ({})", automationId, automation.getAlias());
-
-        for (Automation.Action action : automation.getActions()) {
-            executeAction(action);
-        }
-    }
-
-    /**
-     * Execute a single action.
-     */
-    private void executeAction(Automation.Action action) {
-        String service = action.getAction() != null ? action.getAction() : action.getService();
-
-        if (service == null) {
-            log.warn("Action has no service defined");
-            return;
-        }
-
-        try {
-            // Parse service call: domain.service (e.g., light.turn_on)
-            String[] parts = service.split("\\.");
-            if (parts.length != 2) {
-                log.warn("Invalid service format: {}", service);
-                return;
-            }
-
-            String domain = parts[0];
-            String serviceName = parts[1];
-
-            // Handle light domain
-            if ("light".equals(domain)) {
-                handleLightService(serviceName, action.getTarget(), action.getData());
-            } else if ("scene".equals(domain)) {
-                handleSceneService(serviceName, action.getTarget());
-            } else {
-                log.warn("Unknown service domain: {}", domain);
-            }
-        } catch (Exception e) {
-            log.error("Error executing action: {}", e.getMessage(), e);
-        }
-    }
-
-    /**
-     * Handle light service calls.
-     */
-    private void handleLightService(String service, Map<String, Object> target, Map<String, Object> data) {
-        // Extract controller ID from target if provided, otherwise use default
-        String controllerId = "esp32-001";
-        if (target != null && target.containsKey("controller_id")) {
-            controllerId = (String) target.get("controller_id");
-        }
-
-        switch (service) {
-            case "turn_on":
-                int[] rgb = data != null && data.containsKey("rgb_color")
-                    ? parseRgbColor(data.get("rgb_color"))
-                    : new int[]{255, 255, 255};
-
-                int brightness = data != null && data.containsKey("brightness")
-                    ? ((Number) data.get("brightness")).intValue()
-                    : 100;
-
-                mqttService.sendLedCommand(controllerId, 0, new MqttService.LedCommand(rgb, brightness, true));
-                log.info("Sent turn_on command: RGB={}, Brightness={}", rgb, brightness);
-                break;
-
-            case "turn_off":
-                mqttService.sendGlobalCommand(controllerId, new MqttService.GlobalCommand("off", null, null));
-                log.info("Sent turn_off command");
-                break;
-
-            default:
-                log.warn("Unknown light service: {}", service);
-        }
-    }
-
-    /**
-     * Handle scene service calls.
-     */
-    private void handleSceneService(String service, Map<String, Object> target) {
-        if ("turn_on".equals(service) && target != null) {
-            String sceneName = (String) target.get("entity_id");
-            if (sceneName != null) {
-                sceneName = sceneName.replace("scene.", "");
-                mqttService.sendSceneCommand("esp32-001", sceneName);
-                log.info("Activated scene: {}", sceneName);
-            }
-        }
-    }
-
-    /**
-     * Parse RGB color from various formats.
-     */
-    private int[] parseRgbColor(Object colorObj) {
-        if (colorObj instanceof List) {
-            List<?> list = (List<?>) colorObj;
-            return new int[]{
-                ((Number) list.get(0)).intValue(),
-                ((Number) list.get(1)).intValue(),
-                ((Number) list.get(2)).intValue()
-            };
-        }
-        return new int[]{255, 255, 255};
+        automationEngine.trigger(automationId);
     }
 
     /**
-     * Check if a trigger condition is met.
+     * The last known value of every entity automations can refer to.
      */
-    public boolean evaluateTrigger(Automation.Trigger trigger, Map<String, Object> context) {
-        // TODO: Implement trigger evaluation based on type
-        log.debug("Evaluating trigger: {}", trigger);
-        return false;
-    }
-
-    /**
-     * Check if all conditions are met.
-     */
-    public boolean evaluateConditions(List<Automation.Condition> conditions, Map<String, Object> context) {
-        if (conditions == null || conditions.isEmpty()) {
-            return true;
-        }
-
-        for (Automation.Condition condition : conditions) {
-            if (!evaluateCondition(condition)) {
-                return false;
-            }
-        }
-        return true;
+    public Map<String, Object> getEntityStates() {
+        return automationEngine.getStates();
     }
 
     /**
-     * Evaluate a single condition.
+     * Set the state of an entity the backend cannot observe itself, such as
+     * presence, firing any automations that trigger on it.
+     *
+     * @param entityId the entity id
+     * @param state the new state
      */
-    private boolean evaluateCondition(Automation.Condition condition) {
-        // TODO: Implement condition evaluation based on type
-        log.debug("Evaluating condition: {}", condition);
-        return true;
+    public void setEntityState(String entityId, String state) {
+        automationEngine.onStateChange(entityId, state, false);
     }
 }
@@ -15,6 +15,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,6 +34,7 @@ import java.util.Map;
  * <ul>
  *   <li>{@code {prefix}/command/{controllerId}/led/{index}} - LED commands</li>
  *   <li>{@code {prefix}/command/{controllerId}/scene} - Scene commands</li>
+ *   <li>{@code {prefix}/command/batch} - Commands for several LEDs in one message</li>
  *   <li>{@code {prefix}/status/{controllerId}} - Status updates</li>
  *   <li>{@code {prefix}/sensor/{sensorId}} - Sensor data</li>
  * </ul>
@@ -43,6 +48,9 @@ public class MqttService {
     @Value("${mqtt.topic.prefix}")
     private String topicPrefix;
 
+    @Value("${mqtt.batch-commands.enabled:true}")
+    private boolean batchCommandsEnabled;
+
     private final MessageChannel mqttOutputChannel;
     private final ObjectMapper objectMapper;
     private final MqttMessageHandler messageHandler;
@@ -158,6 +166,39 @@ public class MqttService {
         publish(topic, command);
     }
 
+    /**
+     * Publishes commands for several LEDs as one message sharing a correlation ID.
+     *
+     * <p>Each LED acknowledges separately with the shared ID. With
+     * {@code mqtt.batch-commands.enabled=false}, for controllers without batch
+     * support, every LED gets its own {@code set} message instead.</p>
+     *
+     * @param commandsByLed the command map for each LED index
+     * @param correlationId the correlation ID every LED acknowledges with
+     */
+    public void publishLedBatch(Map<Integer, Map<String, Object>> commandsByLed, String correlationId) {
+        if (!batchCommandsEnabled) {
+            commandsByLed.forEach((ledIndex, command) -> {
+                Map<String, Object> tracked = new HashMap<>(command);
+                tracked.put("correlationId", correlationId);
+                publishLedCommand(ledIndex, tracked);
+            });
+            return;
+        }
+
+        List<Map<String, Object>> leds = new ArrayList<>();
+        commandsByLed.forEach((ledIndex, command) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("led", ledIndex);
+            entry.putAll(command);
+            leds.add(entry);
+        });
+
+        String topic = String.format("%s/command/batch", topicPrefix);
+        log.info("Publishing batch command to {} for {} LEDs ({})", topic, leds.size(), correlationId);
+        publish(topic, Map.of("correlationId", correlationId, "leds", leds));
+    }
+
     /**
      * Publishes a scene command for a specific LED.
      *
@@ -1,21 +1,27 @@
 package com.example.smart.lighting.scenes.with_natural.language.service;
 
 import com.example.smart.lighting.scenes.with_natural.language.dto.ConflictAnalysisDto;
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpBatchDto;
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpClassifierDto;
 import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto;
 import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
 import com.example.smart.lighting.scenes.with_natural.language.entity.NlpCommand;
-import com.example.smart.lighting.scenes.with_natural.language.entity.Scene;
 import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
 import com.example.smart.lighting.scenes.with_natural.language.entity.User;
-import com.example.smart.lighting.scenes.with_natural.language.repository.NlpCommandRepository;
-import com.example.smart.lighting.scenes.with_natural.language.repository.SceneRepository;
-import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictAnalysisResult;
-import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictResolution;
-import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ScheduleConflict;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictDetection;
+import com.example.smart.lighting.scenes.with_natural.language.service.conflict.ConflictAnalysisTracker;
 import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpCommandExecutor;
 import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpCommandParser;
+import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpHistoryWriter;
+import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpIntentClassifier;
+import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpLocalParser;
 import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpOpenAiClient;
+import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpParseCache;
+import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpRequestCoalescer;
 import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpScheduleBuilder;
+import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpStreamingParser;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import com.example.smart.lighting.scenes.with_natural.language.websocket.WebSocketEventService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -25,7 +31,10 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Service for parsing natural language commands using OpenAI.
@@ -33,10 +42,15 @@ import java.util.UUID;
  *
  * <p>This service delegates to specialized components:</p>
  * <ul>
+ *   <li>{@link NlpLocalParser} - Local grammar for common commands, tried first</li>
+ *   <li>{@link NlpParseCache} - Cached OpenAI parses of repeated phrases</li>
+ *   <li>{@link NlpIntentClassifier} - Classifier trained from command history</li>
+ *   <li>{@link NlpRequestCoalescer} - One OpenAI call for concurrent identical commands</li>
  *   <li>{@link NlpOpenAiClient} - OpenAI API communication</li>
  *   <li>{@link NlpCommandParser} - Command parsing and validation</li>
  *   <li>{@link NlpCommandExecutor} - Command execution via MQTT</li>
  *   <li>{@link NlpScheduleBuilder} - Schedule creation from commands</li>
+ *   <li>{@link NlpHistoryWriter} - Background writes of command history</li>
  * </ul>
  *
 
@@ -47,13 +61,19 @@ import java.util.UUID;
 public class NlpService {
 
     private final ObjectMapper objectMapper;
-    private final NlpCommandRepository nlpCommandRepository;
-    private final SceneRepository sceneRepository;
+    private final SceneCatalog sceneCatalog;
     private final ScheduleConflictService conflictService;
+    private final ConflictAnalysisTracker conflictAnalysisTracker;
+    private final NlpLocalParser localParser;
+    private final NlpParseCache parseCache;
+    private final NlpIntentClassifier intentClassifier;
+    private final NlpRequestCoalescer requestCoalescer;
     private final NlpOpenAiClient openAiClient;
     private final NlpCommandParser commandParser;
     private final NlpCommandExecutor commandExecutor;
     private final NlpScheduleBuilder scheduleBuilder;
+    private final NlpHistoryWriter historyWriter;
+    private final WebSocketEventService webSocketEventService;
 
     /**
      * Parse a natural language command without executing it.
@@ -63,64 +83,81 @@ public class NlpService {
      * @return parsed command DTO with preview
      */
     public NlpCommandDto parseCommand(String text) {
-        log.info("Parsing NLP command: {}", text);
+        return parseCommand(text, null);
+    }
 
-        if (!openAiClient.isConfigured()) {
-            return NlpCommandDto.builder()
-                .text(text)
-                .valid(false)
-                .error("OpenAI API key not configured. Please set OPENAI_API_KEY environment variable.")
-                .timestamp(LocalDateTime.now())
-                .build();
-        }
+    /**
+     * Parse a natural language command without executing it.
+     *
+     * <p>With a request ID, the OpenAI response is streamed and a preview is
+     * pushed on {@code /topic/nlp} as soon as the intent and target are known,
+     * before the completion finishes. Such a request makes its own call rather
+     * than joining an identical one in flight, whose previews would go to the
+     * other request.</p>
+     *
+     * @param text the natural language command text
+     * @param requestId client-generated ID to tag early previews with, or null
+     * @return parsed command DTO with preview
+     */
+    public NlpCommandDto parseCommand(String text, String requestId) {
+        log.info("Parsing NLP command: {}", text);
 
         try {
-            List<Scene> scenes = sceneRepository.findByIsActiveTrue();
-            List<String> sceneNames = scenes.stream().map(Scene::getName).toList();
+            List<String> sceneNames = sceneCatalog.getActiveSceneNames();
 
-            String prompt = openAiClient.buildParsePrompt(text, sceneNames);
-            String response = openAiClient.callOpenAI(prompt);
-            log.debug("OpenAI response: {}", response);
-
-            ParsedCommand parsed = commandParser.parseOpenAIResponse(response);
+            // Common commands are understood locally; only the rest go to OpenAI
+            ParsedCommand parsed = localParser.parse(text, sceneNames).orElse(null);
+            String cacheKey = null;
+            if (parsed != null) {
+                log.debug("Parsed locally: {}", parsed);
+            } else {
+                cacheKey = parseCache.key(text, sceneCatalog.version());
+                parsed = parseCache.get(cacheKey).orElse(null);
+            }
+            if (parsed == null) {
+                // Household phrases seen often enough are classified without OpenAI
+                parsed = intentClassifier.classify(text).orElse(null);
+            }
 
+            boolean fromOpenAi = false;
             if (parsed == null) {
-                return NlpCommandDto.builder()
-                    .text(text)
-                    .valid(false)
-                    .error("Could not understand the command. Please try rephrasing.")
-                    .timestamp(LocalDateTime.now())
-                    .build();
+                if (!openAiClient.isConfigured()) {
+                    return NlpCommandDto.builder()
+                        .text(text)
+                        .valid(false)
+                        .error("OpenAI API key not configured. Please set OPENAI_API_KEY environment variable.")
+                        .timestamp(LocalDateTime.now())
+                        .build();
+                }
+
+                String prompt = openAiClient.buildParsePrompt(text, sceneNames);
+                // Identical commands arriving together share one OpenAI call. A streamed
+                // call only previews to its own request, so streamed requests do not share.
+                String coalesceKey = requestId != null ? cacheKey + "|stream|" + requestId : cacheKey;
+                String response = requestCoalescer.coalesce(coalesceKey, () -> requestId != null
+                    ? callOpenAIWithPreviews(prompt, requestId)
+                    : openAiClient.callOpenAI(prompt), openAiClient::chargeSharedCall);
+                log.debug("OpenAI response: {}", response);
+
+                parsed = commandParser.parseOpenAIResponse(response);
+                fromOpenAi = true;
             }
 
-            String validationError = commandParser.validateParsedCommand(parsed);
-            if (validationError != null) {
+            if (parsed == null) {
                 return NlpCommandDto.builder()
                     .text(text)
-                    .parsed(parsed)
                     .valid(false)
-                    .error(validationError)
+                    .error("Could not understand the command. Please try rephrasing.")
                     .timestamp(LocalDateTime.now())
                     .build();
             }
 
-            String preview = commandParser.generatePreview(parsed);
-            boolean isScheduled = parsed.getSchedule() != null;
-
-            ConflictAnalysisDto conflictAnalysis = null;
-            if (isScheduled) {
-                conflictAnalysis = checkForScheduleConflicts(parsed);
+            NlpCommandDto result = describe(text, parsed);
+            if (fromOpenAi && Boolean.TRUE.equals(result.getValid())) {
+                parseCache.put(cacheKey, parsed);
+                intentClassifier.shadow(text, parsed);
             }
-
-            return NlpCommandDto.builder()
-                .text(text)
-                .parsed(parsed)
-                .preview(preview)
-                .valid(true)
-                .isScheduled(isScheduled)
-                .conflictAnalysis(conflictAnalysis)
-                .timestamp(LocalDateTime.now())
-                .build();
+            return result;
 
         } catch (Exception e) {
             log.error("Error parsing NLP command: {}", e.getMessage(), e);
@@ -133,6 +170,81 @@ public class NlpService {
         }
     }
 
+    /**
+     * Train the local intent classifier from executed command history.
+     *
+     * @return the state of the new model
+     * @throws IllegalStateException if there is too little history
+     */
+    public NlpClassifierDto trainClassifier() {
+        return intentClassifier.train();
+    }
+
+    /**
+     * Get the state of the local intent classifier.
+     */
+    public NlpClassifierDto getClassifierStatus() {
+        return intentClassifier.status();
+    }
+
+    /**
+     * Parse an utterance that may hold several commands, such as "turn off
+     * the kitchen and dim the bedroom to 20%", without executing it.
+     *
+     * <p>The utterance is split locally when every clause is understood;
+     * otherwise OpenAI returns all commands from a single call. Each command
+     * is validated and previewed on its own.</p>
+     *
+     * @param text the natural language command text
+     * @return the parsed commands with previews
+     */
+    public NlpBatchDto parseBatch(String text) {
+        log.info("Parsing NLP batch: {}", text);
+
+        try {
+            List<String> sceneNames = sceneCatalog.getActiveSceneNames();
+
+            List<ParsedCommand> commands = localParser.parseAll(text, sceneNames)
+                .or(() -> localParser.parse(text, sceneNames).map(List::of))
+                .orElse(null);
+            if (commands != null) {
+                log.debug("Parsed batch locally: {}", commands);
+            } else {
+                if (!openAiClient.isConfigured()) {
+                    return invalidBatch(text,
+                        "OpenAI API key not configured. Please set OPENAI_API_KEY environment variable.");
+                }
+
+                String prompt = openAiClient.buildBatchParsePrompt(text, sceneNames);
+                String cacheKey = "batch|" + parseCache.key(text, sceneCatalog.version());
+                String response = requestCoalescer.coalesce(cacheKey,
+                    () -> openAiClient.callOpenAI(prompt), openAiClient::chargeSharedCall);
+                log.debug("OpenAI batch response: {}", response);
+
+                commands = commandParser.parseBatchResponse(response);
+            }
+
+            if (commands.isEmpty() || commands.stream().anyMatch(Objects::isNull)) {
+                return invalidBatch(text, "Could not understand the command. Please try rephrasing.");
+            }
+
+            List<NlpCommandDto> described = commands.stream().map(parsed -> describe(text, parsed)).toList();
+            boolean valid = described.stream().allMatch(command -> Boolean.TRUE.equals(command.getValid()));
+
+            return NlpBatchDto.builder()
+                .text(text)
+                .commands(described)
+                .valid(valid)
+                .error(valid ? null : "One or more commands are invalid.")
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        } catch (Exception e) {
+            log.error("Error parsing NLP batch: {}", e.getMessage(), e);
+            return invalidBatch(text, "Error processing command: " + e.getMessage());
+        }
+    }
+
     /**
      * Execute a parsed command.
      *
@@ -177,6 +289,54 @@ public class NlpService {
         return commandDto;
     }
 
+    /**
+     * Execute a parsed batch of commands.
+     *
+     * <p>All immediate commands are sent in one MQTT message under a single
+     * correlation ID; scheduled commands are created one by one as in
+     * {@link #executeCommand}.</p>
+     *
+     * @param batch the parsed batch
+     * @param user the user executing the commands
+     * @return updated batch with a result for each command
+     */
+    public NlpBatchDto executeBatch(NlpBatchDto batch, User user) {
+        if (!Boolean.TRUE.equals(batch.getValid()) || batch.getCommands() == null) {
+            return batch;
+        }
+
+        List<NlpCommandDto> immediate = batch.getCommands().stream()
+            .filter(command -> !Boolean.TRUE.equals(command.getIsScheduled()))
+            .toList();
+
+        if (!immediate.isEmpty()) {
+            try {
+                List<String> results = commandExecutor.executeBatch(
+                    immediate.stream().map(NlpCommandDto::getParsed).toList());
+                for (int i = 0; i < immediate.size(); i++) {
+                    NlpCommandDto command = immediate.get(i);
+                    command.setResult(results.get(i));
+                    command.setExecuted(true);
+                    saveCommandHistory(command, user);
+                }
+            } catch (Exception e) {
+                log.error("Error executing command batch: {}", e.getMessage(), e);
+                immediate.forEach(command -> {
+                    command.setExecuted(false);
+                    command.setResult("Error: " + e.getMessage());
+                });
+            }
+        }
+
+        batch.getCommands().stream()
+            .filter(command -> Boolean.TRUE.equals(command.getIsScheduled()))
+            .forEach(command -> executeCommand(command, user));
+
+        batch.setExecuted(batch.getCommands().stream()
+            .allMatch(command -> Boolean.TRUE.equals(command.getExecuted())));
+        return batch;
+    }
+
     /**
      * Apply a conflict resolution.
      *
@@ -189,24 +349,87 @@ public class NlpService {
         return conflictService.applyResolution(scheduleId, resolutionId, params);
     }
 
+    /**
+     * Get the latest state of an asynchronous conflict analysis.
+     *
+     * @param analysisId the analysis ID from a parse response
+     * @return the analysis, or empty if unknown or expired
+     */
+    public Optional<ConflictAnalysisDto> getConflictAnalysis(String analysisId) {
+        return conflictAnalysisTracker.get(analysisId);
+    }
+
+    private String callOpenAIWithPreviews(String prompt, String requestId) {
+        NlpStreamingParser streamingParser = new NlpStreamingParser(objectMapper.getFactory());
+        AtomicReference<String> lastPreview = new AtomicReference<>();
+
+        return openAiClient.callOpenAIStreaming(prompt, delta -> {
+            if (!streamingParser.feed(delta)) {
+                return;
+            }
+            ParsedCommand partial = commandParser.parsePartial(streamingParser.fields());
+            if (partial == null) {
+                return;
+            }
+            String preview = commandParser.generatePreview(partial);
+            if (!preview.equals(lastPreview.getAndSet(preview))) {
+                webSocketEventService.broadcastNlpPreview(requestId, partial, preview);
+            }
+        });
+    }
+
+    private NlpCommandDto describe(String text, ParsedCommand parsed) {
+        String validationError = commandParser.validateParsedCommand(parsed);
+        if (validationError != null) {
+            return NlpCommandDto.builder()
+                .text(text)
+                .parsed(parsed)
+                .valid(false)
+                .error(validationError)
+                .timestamp(LocalDateTime.now())
+                .build();
+        }
+
+        String preview = commandParser.generatePreview(parsed);
+        boolean isScheduled = parsed.getSchedule() != null;
+
+        ConflictAnalysisDto conflictAnalysis = null;
+        if (isScheduled) {
+            conflictAnalysis = checkForScheduleConflicts(parsed);
+        }
+
+        return NlpCommandDto.builder()
+            .text(text)
+            .parsed(parsed)
+            .preview(preview)
+            .valid(true)
+            .isScheduled(isScheduled)
+            .conflictAnalysis(conflictAnalysis)
+            .timestamp(LocalDateTime.now())
+            .build();
+    }
+
+    private static NlpBatchDto invalidBatch(String text, String error) {
+        return NlpBatchDto.builder()
+            .text(text)
+            .commands(List.of())
+            .valid(false)
+            .error(error)
+            .timestamp(LocalDateTime.now())
+            .build();
+    }
+
     private ConflictAnalysisDto checkForScheduleConflicts(ParsedCommand parsed) {
         try {
             Schedule tempSchedule = scheduleBuilder.buildTemporarySchedule(parsed);
-            ConflictAnalysisResult result = conflictService.detectConflicts(tempSchedule);
+            ConflictDetection detection = conflictService.detectBasicConflicts(tempSchedule);
 
-            if (!result.hasConflicts()) {
+            if (!detection.result().hasConflicts()) {
                 return null;
             }
 
-            List<ConflictAnalysisDto.ConflictDto> conflictDtos = result.conflicts().stream()
-                .map(this::toConflictDto)
-                .toList();
-
-            return ConflictAnalysisDto.builder()
-                .hasConflicts(true)
-                .summary(result.summary())
-                .conflicts(conflictDtos)
-                .build();
+            // AI ranking runs in the background and is pushed on /topic/conflicts
+            return conflictAnalysisTracker.track(tempSchedule, detection);
 
         } catch (Exception e) {
             log.warn("Error checking for schedule conflicts: {}", e.getMessage());
@@ -214,32 +437,6 @@ public class NlpService {
         }
     }
 
-    private ConflictAnalysisDto.ConflictDto toConflictDto(ScheduleConflict conflict) {
-        List<ConflictAnalysisDto.ResolutionDto> resolutionDtos = conflict.resolutions().stream()
-            .map(this::toResolutionDto)
-            .toList();
-
-        return ConflictAnalysisDto.ConflictDto.builder()
-            .scheduleId1(conflict.scheduleId1().toString())
-            .scheduleName1(conflict.scheduleName1())
-            .scheduleId2(conflict.scheduleId2().toString())
-            .scheduleName2(conflict.scheduleName2())
-            .conflictType(conflict.conflictType())
-            .description(conflict.description())
-            .severity(conflict.severity())
-            .resolutions(resolutionDtos)
-            .build();
-    }
-
-    private ConflictAnalysisDto.ResolutionDto toResolutionDto(ConflictResolution resolution) {
-        return ConflictAnalysisDto.ResolutionDto.builder()
-            .id(resolution.id())
-            .description(resolution.description())
-            .action(resolution.action())
-            .changes(resolution.changes())
-            .build();
-    }
-
     private void saveCommandHistory(NlpCommandDto commandDto, User user) {
         try {
             Map<String, Object> parsedMap = objectMapper.convertValue(
@@ -254,7 +451,8 @@ public class NlpService {
                 .user(user)
                 .build();
 
-            nlpCommandRepository.save(nlpCommand);
+            // Written in the background so the command returns as soon as it is sent
+            historyWriter.enqueue(nlpCommand);
         } catch (Exception e) {
             log.error("Error saving command history: {}", e.getMessage());
         }
@@ -1,24 +1,21 @@
 package com.example.smart.lighting.scenes.with_natural.language.service;
 
-import com.theokanning.openai.completion.chat.ChatCompletionRequest;
-import com.theokanning.openai.completion.chat.ChatMessage;
-import com.theokanning.openai.completion.chat.ChatMessageRole;
-import com.theokanning.openai.service.OpenAiService;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.ChatRequest;
 
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.util.List;
-import java.util.ArrayList;
 
 /**
  * Service for interacting with OpenAI API for natural language processing.
  *
  * <p>Uses GPT models to parse natural language lighting commands into
- * structured JSON format that can be executed by the system.</p>
+ * structured JSON format that can be executed by the system. Requests go
+ * through the configured {@link LlmProvider}.</p>
  *
  * <h3>Supported Commands:</h3>
  * <ul>
@@ -35,22 +32,19 @@ import java.util.ArrayList;
 @Service
 public class OpenAIService {
 
-    private final OpenAiService openAiService;
-    private final String model;
+    private final LlmProvider llmProvider;
     private final int maxTokens;
     private final double temperature;
 
     public OpenAIService(
-        @Value("${openai.api-key}") String apiKey,
-        @Value("${openai.model}") String model,
+        LlmProvider llmProvider,
         @Value("${openai.max-tokens}") int maxTokens,
         @Value("${openai.temperature}") double temperature
     ) {
-        this.openAiService = new OpenAiService(apiKey, Duration.ofSeconds(60));
-        this.model = model;
+        this.llmProvider = llmProvider;
         this.maxTokens = maxTokens;
         this.temperature = temperature;
-        log.info("OpenAI Service initialized with model: {}", model);
+        log.info("OpenAI Service initialized with model: {}", llmProvider.getModel());
     }
 
     /**
@@ -59,20 +53,10 @@ public class OpenAIService {
     public ParsedCommand parseCommand(String userInput, List<String> availableRooms) {
         String systemPrompt = buildSystemPrompt(availableRooms);
 
-        List<ChatMessage> messages = new ArrayList<>();
-        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), systemPrompt));
-        messages.add(new ChatMessage(ChatMessageRole.USER.value(), userInput));
-
-        ChatCompletionRequest request = ChatCompletionRequest.builder()
-            .model(model)
-            .messages(messages)
-            .maxTokens(maxTokens)
-            .temperature(temperature)
-            .build();
+        ChatRequest request = new ChatRequest(systemPrompt, userInput, temperature, maxTokens, false);
 
         try {
-            var response = openAiService.createChatCompletion(request);
-            String result = response.getChoices().get(0).getMessage().getContent();
+            String result = llmProvider.chat("openai.service", request);
             log.debug("OpenAI Response: {}", result);
             return parseResponse(result);
         } catch (Exception e) {
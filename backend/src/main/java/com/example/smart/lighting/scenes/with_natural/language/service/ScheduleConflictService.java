@@ -1,18 +1,23 @@
 package com.example.smart.lighting.scenes.with_natural.language.service;
 
 import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
-import com.example.smart.lighting.scenes.with_natural.language.repository.ScheduleRepository;
 import com.example.smart.lighting.scenes.with_natural.language.service.conflict.ConflictAiEnhancer;
 import com.example.smart.lighting.scenes.with_natural.language.service.conflict.ConflictDetector;
 import com.example.smart.lighting.scenes.with_natural.language.service.conflict.ConflictResolutionGenerator;
+import com.example.smart.lighting.scenes.with_natural.language.service.conflict.ScheduleIntervalIndex;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.WeeklyLedTimeline;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.WeeklyLedTimeline.Contradiction;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.WeeklyLedTimeline.LedWrite;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -25,6 +30,8 @@ import java.util.UUID;
  * <p>This service delegates to specialized components:</p>
  * <ul>
  *   <li>{@link ConflictDetector} - Detects conflicts between schedules</li>
+ *   <li>{@link ScheduleIntervalIndex} - Finds nearby schedules without a full scan</li>
+ *   <li>{@link WeeklyLedTimeline} - Finds on/off reversals on the LEDs actually driven</li>
  *   <li>{@link ConflictResolutionGenerator} - Generates resolution options</li>
  *   <li>{@link ConflictAiEnhancer} - AI-enhanced analysis</li>
  * </ul>
@@ -46,7 +53,8 @@ import java.util.UUID;
 @Slf4j
 public class ScheduleConflictService {
 
-    private final ScheduleRepository scheduleRepository;
+    private final ScheduleIntervalIndex intervalIndex;
+    private final WeeklyLedTimeline ledTimeline;
     private final ConflictDetector conflictDetector;
     private final ConflictResolutionGenerator resolutionGenerator;
     private final ConflictAiEnhancer aiEnhancer;
@@ -84,6 +92,17 @@ public class ScheduleConflictService {
         String summary
     ) {}
 
+    /**
+     * Deterministic conflicts for a schedule, before any AI enhancement.
+     *
+     * @param result the basic analysis result
+     * @param conflictingSchedules the existing schedules in conflict
+     */
+    public record ConflictDetection(
+        ConflictAnalysisResult result,
+        List<Schedule> conflictingSchedules
+    ) {}
+
     /**
      * Detect conflicts for a new or updated schedule.
      *
@@ -91,31 +110,83 @@ public class ScheduleConflictService {
      * @return conflict analysis result
      */
     public ConflictAnalysisResult detectConflicts(Schedule newSchedule) {
-        List<Schedule> existingSchedules = scheduleRepository.findByEnabledTrue();
-
-        existingSchedules = existingSchedules.stream()
-            .filter(s -> !s.getId().equals(newSchedule.getId()))
-            .toList();
+        ConflictDetection detection = detectBasicConflicts(newSchedule);
+        if (!detection.result().hasConflicts()) {
+            return detection.result();
+        }
+        return aiEnhancer.enhanceWithAI(
+            newSchedule, detection.result().conflicts(), detection.conflictingSchedules());
+    }
 
-        if (existingSchedules.isEmpty()) {
-            return new ConflictAnalysisResult(
-                false, List.of(), "No existing schedules to conflict with.");
+    /**
+     * Detect conflicts for a schedule without calling the AI.
+     *
+     * <p>Only the interval index and the resolution generator run, so this
+     * returns quickly. The AI ranking can be added later through
+     * {@link ConflictAiEnhancer}.</p>
+     *
+     * @param newSchedule the schedule to check for conflicts
+     * @return the basic analysis and the conflicting schedules
+     */
+    public ConflictDetection detectBasicConflicts(Schedule newSchedule) {
+        List<ConflictDetector.ConflictInfo> overlapping = new ArrayList<>(intervalIndex.findOverlapping(newSchedule));
+        addTimelineContradictions(newSchedule, overlapping);
+
+        if (overlapping.isEmpty()) {
+            String summary = intervalIndex.size() == 0
+                ? "No existing schedules to conflict with."
+                : "No conflicts detected.";
+            return new ConflictDetection(new ConflictAnalysisResult(false, List.of(), summary), List.of());
         }
 
-        List<ScheduleConflict> conflicts = new ArrayList<>();
+        List<ScheduleConflict> conflicts = overlapping.stream()
+            .map(resolutionGenerator::buildScheduleConflict)
+            .toList();
+        List<Schedule> conflictingSchedules = overlapping.stream()
+            .map(ConflictDetector.ConflictInfo::schedule2)
+            .toList();
+        return new ConflictDetection(aiEnhancer.basicResult(conflicts), conflictingSchedules);
+    }
 
-        for (Schedule existing : existingSchedules) {
-            Optional<ConflictDetector.ConflictInfo> conflictInfo =
-                conflictDetector.checkForConflict(newSchedule, existing);
-            conflictInfo.ifPresent(info ->
-                conflicts.add(resolutionGenerator.buildScheduleConflict(info)));
+    /**
+     * Add schedules the LED timeline sees reversing the new schedule, for
+     * example a scene whose default room differs from the action target or
+     * a sun schedule, which the target-name index cannot match.
+     */
+    private void addTimelineContradictions(Schedule newSchedule, List<ConflictDetector.ConflictInfo> overlapping) {
+        Set<UUID> known = new HashSet<>();
+        overlapping.forEach(info -> known.add(info.schedule2().getId()));
+
+        for (Contradiction contradiction : ledTimeline.findContradictions(newSchedule)) {
+            LedWrite other = Objects.equals(contradiction.earlier().scheduleId(), newSchedule.getId())
+                ? contradiction.later()
+                : contradiction.earlier();
+            if (!known.add(other.scheduleId())) {
+                continue;
+            }
+            ledTimeline.getSchedule(other.scheduleId()).ifPresent(schedule ->
+                overlapping.add(new ConflictDetector.ConflictInfo(
+                    newSchedule, schedule, contradiction.minutesApart(),
+                    conflictDetector.getTarget(newSchedule), conflictDetector.getTarget(schedule))));
         }
+    }
 
-        if (conflicts.isEmpty()) {
-            return new ConflictAnalysisResult(false, List.of(), "No conflicts detected.");
-        }
+    /**
+     * Audit the whole enabled schedule set for conflicting pairs.
+     *
+     * <p>Uses the interval index sweep line; no AI call is made.</p>
+     *
+     * @return every conflicting pair with its resolutions
+     */
+    public ConflictAnalysisResult auditAllConflicts() {
+        List<ScheduleConflict> conflicts = intervalIndex.auditAll().stream()
+            .map(resolutionGenerator::buildScheduleConflict)
+            .toList();
 
-        return aiEnhancer.enhanceWithAI(newSchedule, conflicts);
+        String summary = conflicts.isEmpty()
+            ? "No conflicts detected."
+            : String.format("Found %d conflicting schedule pair(s).", conflicts.size());
+        return new ConflictAnalysisResult(!conflicts.isEmpty(), conflicts, summary);
     }
 
     /**
@@ -2,30 +2,54 @@ package com.example.smart.lighting.scenes.with_natural.language.service;
 
 import com.example.smart.lighting.scenes.with_natural.language.entity.Scene;
 import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
-import com.example.smart.lighting.scenes.with_natural.language.repository.SceneRepository;
-import com.example.smart.lighting.scenes.with_natural.language.repository.ScheduleRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.MisfirePolicy;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleActionPlanner;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleConditions;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleDispatcher;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleHighWaterMark;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleIndex;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleMisfireResolver;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleMisfireResolver.MissedFiring;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleStatsBuffer;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SchedulerLeaderElection;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarEventService;
 import com.example.smart.lighting.scenes.with_natural.language.websocket.WebSocketEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.DayOfWeek;
+import java.time.Clock;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service that executes scheduled lighting automations.
  *
- * <p>Runs every minute to check for time-based schedules that should
- * be triggered. Supports weekday filtering and various lighting actions.</p>
+ * <p>Runs every minute to check for time-based and sun-based schedules
+ * that should be triggered. Supports weekday filtering and various
+ * lighting actions.</p>
+ *
+ * <p>The last processed minute is persisted, so firings missed during
+ * downtime or long pauses are caught up according to each schedule's
+ * {@link MisfirePolicy}.</p>
+ *
+ * <p>Due schedules are fired concurrently by the {@link ScheduleDispatcher},
+ * which keeps schedules that share LEDs in order.</p>
+ *
+ * <p>With several backend replicas only the {@link SchedulerLeaderElection}
+ * leader fires schedules; followers keep the {@link ScheduleIndex} warm.
+ * A schedule fires only if its {@link ScheduleConditions} hold, which can
+ * refer to the live sensor window statistics.</p>
  *
  * <h3>Supported Actions:</h3>
  * <ul>
@@ -45,134 +69,190 @@ import java.util.UUID;
 @Slf4j
 public class SchedulerService {
 
-    private final ScheduleRepository scheduleRepository;
-    private final SceneRepository sceneRepository;
     private final MqttService mqttService;
     private final WebSocketEventService webSocketEventService;
     private final SceneCommandTracker sceneCommandTracker;
+    private final ScheduleActionPlanner actionPlanner;
+    private final ScheduleMisfireResolver misfireResolver;
+    private final ScheduleHighWaterMark highWaterMark;
+    private final ScheduleDispatcher scheduleDispatcher;
+    private final ScheduleIndex scheduleIndex;
+    private final SchedulerLeaderElection leaderElection;
+    private final ScheduleStatsBuffer scheduleStatsBuffer;
+    private final ScheduleConditions scheduleConditions;
+    private final Clock clock;
+
+    /** Whether this instance was leader at the previous tick. */
+    private volatile boolean wasLeader;
+
+    /** Whether a firing of the current tick was skipped after losing leadership. */
+    private final AtomicBoolean firingSkipped = new AtomicBoolean();
+
+    @Value("${scheduler.misfire.max-catch-up-minutes:360}")
+    private long maxCatchUpMinutes;
 
-    private static final Map<String, DayOfWeek> DAY_MAP = Map.of(
-        "mon", DayOfWeek.MONDAY,
-        "tue", DayOfWeek.TUESDAY,
-        "wed", DayOfWeek.WEDNESDAY,
-        "thu", DayOfWeek.THURSDAY,
-        "fri", DayOfWeek.FRIDAY,
-        "sat", DayOfWeek.SATURDAY,
-        "sun", DayOfWeek.SUNDAY
-    );
+    @Value("${scheduler.misfire.batch-size:20}")
+    private int catchUpBatchSize;
 
-    /** Track the last processed minute to prevent duplicate executions. */
-    private volatile String lastProcessedMinute = "";
+    @Value("${scheduler.misfire.batch-pause-ms:250}")
+    private long catchUpBatchPauseMs;
 
     /**
      * Check and execute schedules every minute at second 0.
+     *
+     * <p>Time and sun schedules share the same fire-time lookup; sun event
+     * times come from the precomputed {@link SolarEventService} cache.</p>
      */
     @Scheduled(cron = "0 * * * * *", zone = "${app.timezone}")
     public void checkSchedules() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalTime currentTime = now.toLocalTime();
-        DayOfWeek currentDay = now.getDayOfWeek();
-
-        // Prevent duplicate execution within the same minute
-        String currentMinuteKey = String.format("%02d:%02d", currentTime.getHour(), currentTime.getMinute());
-        if (currentMinuteKey.equals(lastProcessedMinute)) {
-            log.debug("Skipping duplicate execution for minute {}", currentMinuteKey);
-            return;
+        LocalDateTime currentMinute = LocalDateTime.now(clock).truncatedTo(ChronoUnit.MINUTES);
+        try {
+            scheduleIndex.refresh(currentMinute.toLocalDate());
+        } catch (Exception e) {
+            log.error("Could not refresh schedule index: {}", e.getMessage(), e);
         }
-        lastProcessedMinute = currentMinuteKey;
-
-        log.info("=== Schedule Check at {}:{} ({}) ===",
-            String.format("%02d", currentTime.getHour()),
-            String.format("%02d", currentTime.getMinute()),
-            currentDay);
-
-        List<Schedule> timeSchedules = scheduleRepository.findEnabledTimeSchedules();
-        log.info("Found {} enabled time schedules", timeSchedules.size());
-
-        for (Schedule schedule : timeSchedules) {
-            Map<String, Object> config = schedule.getTriggerConfig();
-            String scheduleTime = (String) config.getOrDefault("at", config.get("time"));
-            log.info("Checking schedule '{}': scheduled for {}, weekdays: {}",
-                schedule.getName(), scheduleTime, config.get("weekdays"));
-
-            if (shouldTrigger(schedule, currentTime, currentDay)) {
-                try {
-                    log.info(">>> TRIGGERING schedule: {} <<<", schedule.getName());
-                    executeSchedule(schedule);
-                    updateScheduleStats(schedule);
-                } catch (Exception e) {
-                    log.error("Error executing schedule {}: {}", schedule.getId(), e.getMessage(), e);
-                }
-            } else {
-                log.debug("Schedule '{}' not triggered (time mismatch or wrong day)", schedule.getName());
-            }
+        if (isLeader()) {
+            processUpTo(currentMinute);
         }
     }
 
     /**
-     * Check if a schedule should be triggered now.
+     * Replay firings missed while the backend was down.
      */
-    private boolean shouldTrigger(Schedule schedule, LocalTime currentTime, DayOfWeek currentDay) {
-        Map<String, Object> config = schedule.getTriggerConfig();
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverMissedFirings() {
+        checkSchedules();
+    }
 
-        // Get scheduled time - support both "at" and "time" keys
-        String atTime = (String) config.get("at");
-        if (atTime == null) {
-            atTime = (String) config.get("time");
+    /**
+     * Check leadership; on taking over, re-read the high-water mark the
+     * previous leader persisted.
+     */
+    private boolean isLeader() {
+        boolean leader = leaderElection.isLeader();
+        if (leader && !wasLeader) {
+            log.info("Acting as scheduler leader (fencing token {})", leaderElection.getFencingToken());
+            highWaterMark.reload();
+        } else if (!leader && wasLeader) {
+            log.info("No longer scheduler leader; schedules will be fired by another instance");
         }
-        if (atTime == null) {
-            return false;
+        wasLeader = leader;
+        if (!leader) {
+            log.debug("Not scheduler leader; skipping schedule firing");
         }
+        return leader;
+    }
 
-        LocalTime scheduledTime;
-        try {
-            // Handle HH:MM or HH:MM:SS format
-            if (atTime.length() == 5) {
-                scheduledTime = LocalTime.parse(atTime, DateTimeFormatter.ofPattern("HH:mm"));
-            } else {
-                scheduledTime = LocalTime.parse(atTime, DateTimeFormatter.ofPattern("HH:mm:ss"));
-            }
-        } catch (Exception e) {
-            log.warn("Invalid time format in schedule {}: {}", schedule.getId(), atTime);
-            return false;
+    /**
+     * Process every minute since the high-water mark up to {@code currentMinute}.
+     *
+     * <p>Schedules due in the current minute fire normally. Firings that fell
+     * in minutes the scheduler never processed (downtime, a long GC or DB
+     * stall) are passed through their {@link MisfirePolicy} first and replayed
+     * in batches so a backlog does not flood the broker.</p>
+     *
+     * <p>The high-water mark only advances once every firing of the window
+     * was dispatched while this instance held the lease. If leadership was
+     * lost or the catch-up was interrupted, the mark stays put and the next
+     * leader replays the window.</p>
+     */
+    private synchronized void processUpTo(LocalDateTime currentMinute) {
+        Optional<LocalDateTime> lastProcessed = highWaterMark.get();
+        if (lastProcessed.isPresent() && !currentMinute.isAfter(lastProcessed.get())) {
+            log.debug("Skipping already processed minute {}", currentMinute);
+            return;
         }
 
-        // Check time (within the same minute)
-        if (currentTime.getHour() != scheduledTime.getHour() ||
-            currentTime.getMinute() != scheduledTime.getMinute()) {
-            return false;
+        log.info("=== Schedule Check at {} ({}) ===", currentMinute.toLocalTime(), currentMinute.getDayOfWeek());
+
+        List<Schedule> schedules = scheduleIndex.getSchedules();
+        log.info("Found {} enabled time/sun schedules", schedules.size());
+
+        List<Schedule> dueNow = scheduleIndex.getDueAt(currentMinute);
+        firingSkipped.set(false);
+
+        boolean caughtUp = true;
+        if (lastProcessed.isPresent() && lastProcessed.get().plusMinutes(1).isBefore(currentMinute)) {
+            caughtUp = catchUp(schedules, dueNow, lastProcessed.get(), currentMinute);
+        }
+
+        if (caughtUp) {
+            dueNow.forEach(schedule -> log.info(">>> TRIGGERING schedule: {} <<<", schedule.getName()));
+            scheduleDispatcher.dispatch(dueNow, this::fireSchedule);
+        }
+
+        scheduleStatsBuffer.flush();
+        if (!caughtUp || firingSkipped.get()) {
+            log.warn("Not every firing up to {} was dispatched; leaving the high-water mark at {}",
+                currentMinute, lastProcessed.orElse(null));
+            return;
         }
+        highWaterMark.advanceTo(currentMinute);
+    }
 
-        // Check day of week - support both "weekdays" and "days" keys
-        Object weekdaysObj = config.get("weekdays");
-        if (weekdaysObj == null) {
-            weekdaysObj = config.get("days");
+    /**
+     * Replay the missed firings in batches.
+     *
+     * @return false if the catch-up was interrupted before every batch ran
+     */
+    private boolean catchUp(List<Schedule> schedules, List<Schedule> dueNow,
+                         LocalDateTime lastProcessed, LocalDateTime currentMinute) {
+        LocalDateTime horizon = currentMinute.minusMinutes(maxCatchUpMinutes + 1);
+        LocalDateTime after = lastProcessed.isBefore(horizon) ? horizon : lastProcessed;
+        if (after.isAfter(lastProcessed)) {
+            log.warn("Scheduler was idle since {}; only catching up from {}", lastProcessed, after);
         }
 
-        if (weekdaysObj instanceof List<?> weekdays && !((List<?>) weekdays).isEmpty()) {
-            @SuppressWarnings("unchecked")
-            List<String> days = (List<String>) weekdays;
-            boolean dayMatches = days.stream()
-                .map(day -> {
-                    // Support both formats: "MONDAY" and "mon"
-                    String dayStr = day.toString().toLowerCase();
-                    if (dayStr.length() > 3) {
-                        dayStr = dayStr.substring(0, 3); // "monday" -> "mon"
-                    }
-                    return dayStr;
-                })
-                .map(DAY_MAP::get)
-                .filter(Objects::nonNull)
-                .anyMatch(d -> d == currentDay);
-            if (!dayMatches) {
+        List<MissedFiring> missed = misfireResolver.findMissed(schedules, after, currentMinute);
+        List<MissedFiring> firings = misfireResolver.selectFirings(missed, dueNow);
+        log.info("Scheduler gap {} -> {}: {} missed firings, replaying {}",
+            lastProcessed, currentMinute, missed.size(), firings.size());
+
+        int batchSize = Math.max(1, catchUpBatchSize);
+        for (int from = 0; from < firings.size(); from += batchSize) {
+            if (from > 0 && !pauseBetweenBatches()) {
                 return false;
             }
+            List<Schedule> batch = new ArrayList<>();
+            for (MissedFiring firing : firings.subList(from, Math.min(from + batchSize, firings.size()))) {
+                log.info(">>> CATCHING UP schedule: {} (due {}) <<<",
+                    firing.schedule().getName(), firing.scheduledAt());
+                batch.add(firing.schedule());
+            }
+            scheduleDispatcher.dispatch(batch, this::fireSchedule);
         }
-        // If no weekdays specified or empty list, assume every day
-
         return true;
     }
 
+    private boolean pauseBetweenBatches() {
+        try {
+            Thread.sleep(catchUpBatchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Schedule catch-up interrupted");
+            return false;
+        }
+    }
+
+    private void fireSchedule(Schedule schedule) {
+        if (!leaderElection.isLeader()) {
+            log.warn("Lost scheduler leadership; not firing schedule '{}'", schedule.getName());
+            firingSkipped.set(true);
+            return;
+        }
+        if (!scheduleConditions.hold(schedule, LocalDateTime.now(clock))) {
+            log.info("Conditions not met; not firing schedule '{}'", schedule.getName());
+            return;
+        }
+        try {
+            executeSchedule(schedule);
+            updateScheduleStats(schedule);
+        } catch (Exception e) {
+            log.error("Error executing schedule {}: {}", schedule.getId(), e.getMessage(), e);
+        }
+    }
+
     /**
      * Execute a schedule's actions.
      */
@@ -194,163 +274,46 @@ public class SchedulerService {
      * Execute a single action.
      */
     private void executeAction(Map<String, Object> action) {
-        String type = (String) action.get("type");
-        String intent = (String) action.get("intent");
-
-        if ("scene".equals(type)) {
-            // Apply a scene
-            Object sceneIdObj = action.get("scene_id");
-            if (sceneIdObj == null) {
-                sceneIdObj = action.get("scene");
-            }
-            if (sceneIdObj != null) {
-                Object targetRoom = action.get("target");
-                applyScene(sceneIdObj.toString(), targetRoom);
-            }
-            return;
-        }
-
-        // Light control action
-        if (intent == null) {
-            intent = "light.on"; // Default
-        }
-
-        Object target = action.get("target");
-        @SuppressWarnings("unchecked")
-        Map<String, Object> params = (Map<String, Object>) action.get("params");
-
-        Map<String, Object> command = new HashMap<>();
-
-        // Scheduled actions don't set mode - sensors continue working
-        switch (intent) {
-            case "light.on" -> command.put("on", true);
-            case "light.off" -> command.put("on", false);
-            case "light.brightness" -> {
-                command.put("on", true);
-                if (params != null && params.containsKey("brightness")) {
-                    command.put("brightness", params.get("brightness"));
-                }
-            }
-            case "light.color" -> {
-                command.put("on", true);
-                if (params != null && params.containsKey("rgb")) {
-                    command.put("rgb", params.get("rgb"));
-                }
-            }
-            case "light.color_temp" -> {
-                command.put("on", true);
-                if (params != null && params.containsKey("color_temp")) {
-                    command.put("color_temp", params.get("color_temp"));
-                }
-            }
-            default -> log.warn("Unknown intent: {}", intent);
-        }
+        actionPlanner.plan(action).ifPresent(planned -> {
+            // Send to LEDs with tracking
+            List<Integer> ledIndices = planned.ledIndices();
+            String correlationId = sceneCommandTracker.registerCommand(
+                planned.sceneId(), planned.name(), ledIndices.size());
 
-        // Send to LEDs with tracking
-        List<Integer> ledIndices = getLedIndicesForTarget(target);
-        String commandName = "Schedule: " + intent;
-        String correlationId = sceneCommandTracker.registerCommand(null, commandName, ledIndices.size());
-
-        for (int ledIndex : ledIndices) {
-            Map<String, Object> trackedCommand = new HashMap<>(command);
-            trackedCommand.put("correlationId", correlationId);
-            mqttService.publishLedCommand(ledIndex, trackedCommand);
-        }
+            publishTracked(ledIndices, planned.command(), correlationId);
 
-        log.info("Executed action {} on {} LEDs (correlationId={})", intent, ledIndices.size(), correlationId);
+            log.info("Executed '{}' on {} (LEDs: {}, correlationId={})",
+                planned.name(), planned.target(), ledIndices, correlationId);
+        });
     }
 
     /**
-     * Apply a scene by ID or name to a specific target (or all if not specified).
-     * @param sceneIdOrName the scene ID or name
-     * @param targetRoom the target room (null means use scene's default or "all")
+     * Publish a command to each LED, stamped with the correlation ID and the
+     * leader's fencing token.
      */
-    private void applyScene(String sceneIdOrName, Object targetRoom) {
-        Optional<Scene> sceneOpt;
-
-        try {
-            UUID sceneId = UUID.fromString(sceneIdOrName);
-            sceneOpt = sceneRepository.findById(sceneId);
-        } catch (IllegalArgumentException e) {
-            // Not a UUID, try by name
-            sceneOpt = sceneRepository.findByNameIgnoreCaseAndIsActiveTrue(sceneIdOrName);
-        }
-
-        if (sceneOpt.isEmpty()) {
-            log.warn("Scene not found: {}", sceneIdOrName);
-            return;
-        }
-
-        Scene scene = sceneOpt.get();
-        Map<String, Object> settings = scene.getSettingsJson();
-
-        Map<String, Object> command = new HashMap<>();
-        command.put("on", true);
-        // Scenes don't set mode - sensors continue working with scene settings as base
-
-        if (settings.containsKey("brightness")) {
-            command.put("brightness", settings.get("brightness"));
-        }
-        if (settings.containsKey("rgb")) {
-            command.put("rgb", settings.get("rgb"));
-        }
-        if (settings.containsKey("color_temp")) {
-            command.put("color_temp", settings.get("color_temp"));
-        }
-
-        // Use specified target room, or fall back to scene's default, or "all"
-        Object effectiveTarget;
-        if (targetRoom != null && !targetRoom.toString().isBlank()) {
-            effectiveTarget = targetRoom;
-        } else {
-            effectiveTarget = settings.getOrDefault("target", "all");
-        }
-
-        List<Integer> ledIndices = getLedIndicesForTarget(effectiveTarget);
-
-        // Register for tracking and add correlationId
-        String correlationId = sceneCommandTracker.registerCommand(
-            scene.getId(), "Schedule: " + scene.getName(), ledIndices.size());
-
+    private void publishTracked(List<Integer> ledIndices, Map<String, Object> command, String correlationId) {
+        long fencingToken = leaderElection.getFencingToken();
         for (int ledIndex : ledIndices) {
             Map<String, Object> trackedCommand = new HashMap<>(command);
             trackedCommand.put("correlationId", correlationId);
+            if (fencingToken > 0) {
+                trackedCommand.put("fencingToken", fencingToken);
+            }
             mqttService.publishLedCommand(ledIndex, trackedCommand);
         }
-
-        log.info("Applied scene '{}' to {} (LEDs: {}, correlationId={})",
-            scene.getName(), effectiveTarget, ledIndices, correlationId);
-    }
-
-    /**
-     * Get LED indices for a target.
-     */
-    private List<Integer> getLedIndicesForTarget(Object target) {
-        if (target == null || "all".equalsIgnoreCase(target.toString())) {
-            return List.of(0, 1, 2, 3, 4);
-        }
-
-        String room = target.toString().toLowerCase().replace(" ", "_").replace("-", "_");
-
-        return switch (room) {
-            case "kitchen" -> List.of(0);
-            case "bedroom" -> List.of(1);
-            case "bathroom", "bath" -> List.of(2);
-            case "hallway" -> List.of(3);
-            case "living_room", "living" -> List.of(4);
-            default -> List.of(0, 1, 2, 3, 4);
-        };
     }
 
     /**
-     * Update schedule statistics after execution and broadcast event.
+     * Record schedule statistics after execution and broadcast event.
      */
     private void updateScheduleStats(Schedule schedule) {
-        schedule.setLastTriggeredAt(LocalDateTime.now());
+        LocalDateTime triggeredAt = LocalDateTime.now(clock);
+        schedule.setLastTriggeredAt(triggeredAt);
         Integer currentCount = schedule.getTriggerCount();
         int newCount = currentCount != null ? currentCount + 1 : 1;
         schedule.setTriggerCount(newCount);
-        scheduleRepository.save(schedule);
+        // Written in bulk at the end of the tick; the broadcast does not wait for it
+        scheduleStatsBuffer.record(schedule.getId(), triggeredAt);
 
         // Broadcast WebSocket event for real-time notifications
         webSocketEventService.broadcastScheduleTriggered(
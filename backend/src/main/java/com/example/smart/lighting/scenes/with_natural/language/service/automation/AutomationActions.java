@@ -0,0 +1,147 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Automation;
+import com.example.smart.lighting.scenes.with_natural.language.service.MqttService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the actions of an automation.
+ *
+ * <p>Actions run in order. A {@code delay} action pauses the run; an
+ * interrupt during the pause, as sent when a {@code restart} automation is
+ * triggered again, ends the run before its remaining actions.</p>
+ *
+
+ * @see AutomationRunner
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AutomationActions {
+
+    private final MqttService mqttService;
+
+    /**
+     * Run every action of an automation.
+     *
+     * @param automation the automation
+     * @throws InterruptedException if the run was cancelled during a delay
+     */
+    public void run(Automation automation) throws InterruptedException {
+        for (Automation.Action action : automation.getActions()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Automation " + automation.getId() + " cancelled");
+            }
+            if (action.getDelay() != null) {
+                Thread.sleep(AutomationCompiler.parseOffset(action.getDelay()).toMillis());
+            } else {
+                executeAction(action);
+            }
+        }
+    }
+
+    /**
+     * Execute a single action.
+     */
+    private void executeAction(Automation.Action action) {
+        String service = action.getAction() != null ? action.getAction() : action.getService();
+
+        if (service == null) {
+            log.warn("Action has no service defined");
+            return;
+        }
+
+        try {
+            // Parse service call: domain.service (e.g., light.turn_on)
+            String[] parts = service.split("\\.");
+            if (parts.length != 2) {
+                log.warn("Invalid service format: {}", service);
+                return;
+            }
+
+            String domain = parts[0];
+            String serviceName = parts[1];
+
+            // Handle light domain
+            if ("light".equals(domain)) {
+                handleLightService(serviceName, action.getTarget(), action.getData());
+            } else if ("scene".equals(domain)) {
+                handleSceneService(serviceName, action.getTarget());
+            } else {
+                log.warn("Unknown service domain: {}", domain);
+            }
+        } catch (Exception e) {
+            log.error("Error executing action: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Handle light service calls.
+     */
+    private void handleLightService(String service, Map<String, Object> target, Map<String, Object> data) {
+        // Extract controller ID from target if provided, otherwise use default
+        String controllerId = "esp32-001";
+        if (target != null && target.containsKey("controller_id")) {
+            controllerId = (String) target.get("controller_id");
+        }
+
+        switch (service) {
+            case "turn_on":
+                int[] rgb = data != null && data.containsKey("rgb_color")
+                    ? parseRgbColor(data.get("rgb_color"))
+                    : new int[]{255, 255, 255};
+
+                int brightness = data != null && data.containsKey("brightness")
+                    ? ((Number) data.get("brightness")).intValue()
+                    : 100;
+
+                mqttService.sendLedCommand(controllerId, 0, new MqttService.LedCommand(rgb, brightness, true));
+                log.info("Sent turn_on command: RGB={}, Brightness={}", rgb, brightness);
+                break;
+
+            case "turn_off":
+                mqttService.sendGlobalCommand(controllerId, new MqttService.GlobalCommand("off", null, null));
+                log.info("Sent turn_off command");
+                break;
+
+            default:
+                log.warn("Unknown light service: {}", service);
+        }
+    }
+
+    /**
+     * Handle scene service calls.
+     */
+    private void handleSceneService(String service, Map<String, Object> target) {
+        if ("turn_on".equals(service) && target != null) {
+            String sceneName = (String) target.get("entity_id");
+            if (sceneName != null) {
+                sceneName = sceneName.replace("scene.", "");
+                mqttService.sendSceneCommand("esp32-001", sceneName);
+                log.info("Activated scene: {}", sceneName);
+            }
+        }
+    }
+
+    /**
+     * Parse RGB color from various formats.
+     */
+    private int[] parseRgbColor(Object colorObj) {
+        if (colorObj instanceof List) {
+            List<?> list = (List<?>) colorObj;
+            return new int[]{
+                ((Number) list.get(0)).intValue(),
+                ((Number) list.get(1)).intValue(),
+                ((Number) list.get(2)).intValue()
+            };
+        }
+        return new int[]{255, 255, 255};
+    }
+}
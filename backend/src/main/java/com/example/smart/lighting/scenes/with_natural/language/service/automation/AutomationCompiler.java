@@ -0,0 +1,227 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Automation;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.CompiledAutomation.RunMode;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarEvent;
+import com.example.smart.lighting.scenes.with_natural.language.service.sensor.ThresholdDetector;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles YAML automations into indexed triggers and condition predicates.
+ *
+ * <p>Everything that can be checked up front is checked here, so a broken
+ * rule is reported when the file is loaded rather than silently never
+ * firing. Template conditions and event or MQTT triggers are not supported
+ * and are rejected.</p>
+ *
+
+ * @see AutomationEngine
+ */
+public final class AutomationCompiler {
+
+    private static final Map<String, DayOfWeek> WEEKDAYS = Map.of(
+        "mon", DayOfWeek.MONDAY, "tue", DayOfWeek.TUESDAY, "wed", DayOfWeek.WEDNESDAY,
+        "thu", DayOfWeek.THURSDAY, "fri", DayOfWeek.FRIDAY, "sat", DayOfWeek.SATURDAY,
+        "sun", DayOfWeek.SUNDAY);
+
+    private AutomationCompiler() {
+    }
+
+    /**
+     * Compile one automation.
+     *
+     * @param automation the automation as loaded from YAML
+     * @return the compiled automation
+     * @throws IllegalArgumentException if the automation is invalid or unsupported
+     */
+    public static CompiledAutomation compile(Automation automation) {
+        if (automation.getId() == null || automation.getId().isBlank()) {
+            throw new IllegalArgumentException("Automation has no id");
+        }
+        try {
+            if (automation.getTriggers() == null || automation.getTriggers().isEmpty()) {
+                throw new IllegalArgumentException("no triggers");
+            }
+            if (automation.getActions() == null || automation.getActions().isEmpty()) {
+                throw new IllegalArgumentException("no actions");
+            }
+            List<AutomationTrigger> triggers = new ArrayList<>();
+            for (Automation.Trigger trigger : automation.getTriggers()) {
+                triggers.add(compileTrigger(trigger));
+            }
+            List<AutomationCondition> conditions = new ArrayList<>();
+            if (automation.getConditions() != null) {
+                for (Automation.Condition condition : automation.getConditions()) {
+                    conditions.add(compileCondition(condition));
+                }
+            }
+            for (Automation.Action action : automation.getActions()) {
+                if (action.getDelay() != null && parseOffset(action.getDelay()).isNegative()) {
+                    throw new IllegalArgumentException("negative delay '" + action.getDelay() + "'");
+                }
+            }
+            if (automation.getMax() < 1) {
+                throw new IllegalArgumentException("max must be at least 1");
+            }
+            return new CompiledAutomation(automation, List.copyOf(triggers), List.copyOf(conditions),
+                parseMode(automation.getMode()), automation.getMax());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Automation '" + automation.getId() + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The entity a time trigger at the given time subscribes to.
+     */
+    public static String timeEntity(LocalTime time) {
+        return String.format("time.%02d:%02d", time.getHour(), time.getMinute());
+    }
+
+    /**
+     * The entity a trigger on the given solar event subscribes to.
+     */
+    public static String sunEntity(SolarEvent event) {
+        return "sun." + event.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static AutomationTrigger compileTrigger(Automation.Trigger trigger) {
+        String type = trigger.getTrigger() != null ? trigger.getTrigger() : trigger.getPlatform();
+        if (type == null) {
+            throw new IllegalArgumentException("trigger has no type");
+        }
+        return switch (type) {
+            case "state" -> new AutomationTrigger.State(requireEntity(trigger.getEntityId(), type),
+                trigger.getFrom(), trigger.getTo());
+            case "numeric_state" -> {
+                requireBound(trigger.getAbove(), trigger.getBelow(), type);
+                String entity = requireEntity(trigger.getEntityId(), type);
+                if (trigger.getHysteresis() == null && trigger.getDuration() == null) {
+                    yield new AutomationTrigger.NumericState(entity, trigger.getAbove(), trigger.getBelow());
+                }
+                Duration hold = parseOffset(trigger.getDuration());
+                double hysteresis = trigger.getHysteresis() != null ? trigger.getHysteresis() : 0;
+                if (hold.isNegative() || hysteresis < 0) {
+                    throw new IllegalArgumentException("negative for or hysteresis");
+                }
+                yield new AutomationTrigger.Threshold(entity,
+                    new ThresholdDetector(trigger.getAbove(), trigger.getBelow(), hysteresis, hold));
+            }
+            case "time" -> {
+                if (trigger.getAt() == null) {
+                    throw new IllegalArgumentException("time trigger needs at");
+                }
+                yield new AutomationTrigger.Time(timeEntity(LocalTime.parse(trigger.getAt())));
+            }
+            case "sun" -> {
+                SolarEvent event = SolarEvent.fromName(trigger.getEvent())
+                    .orElseThrow(() -> new IllegalArgumentException("unknown sun event '" + trigger.getEvent() + "'"));
+                yield new AutomationTrigger.Sun(sunEntity(event), parseOffset(trigger.getOffset()));
+            }
+            default -> throw new IllegalArgumentException("unsupported trigger type '" + type + "'");
+        };
+    }
+
+    /**
+     * Compile one condition. Schedules use this for their conditions too.
+     *
+     * @param condition the condition as loaded from YAML or JSON
+     * @return the compiled condition
+     * @throws IllegalArgumentException if the condition is invalid or unsupported
+     */
+    public static AutomationCondition compileCondition(Automation.Condition condition) {
+        String type = condition.getCondition();
+        if (type == null) {
+            throw new IllegalArgumentException("condition has no type");
+        }
+        return switch (type) {
+            case "state" -> {
+                if (condition.getState() == null) {
+                    throw new IllegalArgumentException("state condition needs state");
+                }
+                yield new AutomationCondition.State(requireEntity(condition.getEntityId(), type),
+                    condition.getState());
+            }
+            case "numeric_state" -> {
+                requireBound(condition.getAbove(), condition.getBelow(), type);
+                yield new AutomationCondition.NumericState(requireEntity(condition.getEntityId(), type),
+                    condition.getAbove(), condition.getBelow());
+            }
+            case "time" -> new AutomationCondition.Time(
+                condition.getAfter() != null ? LocalTime.parse(condition.getAfter()) : null,
+                condition.getBefore() != null ? LocalTime.parse(condition.getBefore()) : null,
+                parseWeekdays(condition.getWeekday()));
+            default -> throw new IllegalArgumentException("unsupported condition type '" + type + "'");
+        };
+    }
+
+    private static String requireEntity(String entityId, String type) {
+        if (entityId == null || entityId.isBlank()) {
+            throw new IllegalArgumentException(type + " needs entity_id");
+        }
+        return entityId;
+    }
+
+    private static void requireBound(Double above, Double below, String type) {
+        if (above == null && below == null) {
+            throw new IllegalArgumentException(type + " needs above or below");
+        }
+    }
+
+    private static RunMode parseMode(String mode) {
+        try {
+            return RunMode.valueOf((mode != null ? mode : "single").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown mode '" + mode + "'");
+        }
+    }
+
+    /**
+     * Parse an offset or delay such as {@code -00:30:00} or {@code 01:15}.
+     */
+    static Duration parseOffset(String offset) {
+        if (offset == null || offset.isBlank()) {
+            return Duration.ZERO;
+        }
+        String value = offset.trim();
+        boolean negative = value.startsWith("-");
+        if (negative || value.startsWith("+")) {
+            value = value.substring(1);
+        }
+        String[] parts = value.split(":");
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("invalid offset '" + offset + "'");
+        }
+        try {
+            Duration duration = Duration.ofHours(Long.parseLong(parts[0]))
+                .plusMinutes(Long.parseLong(parts[1]))
+                .plusSeconds(parts.length == 3 ? Long.parseLong(parts[2]) : 0);
+            return negative ? duration.negated() : duration;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid offset '" + offset + "'");
+        }
+    }
+
+    private static Set<DayOfWeek> parseWeekdays(List<String> weekdays) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        if (weekdays != null) {
+            for (String day : weekdays) {
+                DayOfWeek parsed = WEEKDAYS.get(day.trim().toLowerCase(Locale.ROOT));
+                if (parsed == null) {
+                    throw new IllegalArgumentException("unknown weekday '" + day + "'");
+                }
+                days.add(parsed);
+            }
+        }
+        return days;
+    }
+}
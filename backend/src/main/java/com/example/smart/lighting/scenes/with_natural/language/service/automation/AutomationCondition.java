@@ -0,0 +1,83 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A compiled automation condition.
+ *
+ * <p>Conditions read entity states from the engine's in-memory store, never
+ * from the database, so checking them costs no more than a map lookup.</p>
+ *
+
+ * @see AutomationCompiler
+ */
+public interface AutomationCondition {
+
+    /**
+     * Whether the condition holds.
+     *
+     * @param states the current state of each entity, or null if unknown
+     * @param now the local time of the triggering event
+     * @return true if the automation may run
+     */
+    boolean test(Function<String, Object> states, LocalDateTime now);
+
+    /**
+     * Holds while an entity is in the given state.
+     *
+     * @param entity the entity id
+     * @param state the required state
+     */
+    record State(String entity, String state) implements AutomationCondition {
+
+        @Override
+        public boolean test(Function<String, Object> states, LocalDateTime now) {
+            return state.equals(Objects.toString(states.apply(entity), null));
+        }
+    }
+
+    /**
+     * Holds while a reading lies between {@code above} and {@code below}.
+     *
+     * @param entity the sensor entity
+     * @param above the exclusive lower bound, or null
+     * @param below the exclusive upper bound, or null
+     */
+    record NumericState(String entity, Double above, Double below) implements AutomationCondition {
+
+        @Override
+        public boolean test(Function<String, Object> states, LocalDateTime now) {
+            return AutomationTrigger.NumericState.inRange(states.apply(entity), above, below);
+        }
+    }
+
+    /**
+     * Holds within a time window on the given weekdays. A window whose start
+     * is later than its end wraps past midnight.
+     *
+     * @param after the start of the window, or null
+     * @param before the end of the window, or null
+     * @param weekdays the allowed days, or empty for every day
+     */
+    record Time(LocalTime after, LocalTime before, Set<DayOfWeek> weekdays) implements AutomationCondition {
+
+        @Override
+        public boolean test(Function<String, Object> states, LocalDateTime now) {
+            if (!weekdays.isEmpty() && !weekdays.contains(now.getDayOfWeek())) {
+                return false;
+            }
+            LocalTime time = now.toLocalTime();
+            boolean afterStart = after == null || !time.isBefore(after);
+            boolean beforeEnd = before == null || time.isBefore(before);
+            if (after != null && before != null && after.isAfter(before)) {
+                return afterStart || beforeEnd;
+            }
+            return afterStart && beforeEnd;
+        }
+    }
+}
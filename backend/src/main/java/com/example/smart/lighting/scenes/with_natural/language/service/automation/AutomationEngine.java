@@ -0,0 +1,220 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationSnapshot.Subscription;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SchedulerLeaderElection;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarEvent;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarEventService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates compiled automations against the live event stream.
+ *
+ * <p>Triggers are indexed by the entity they subscribe to, so each sensor
+ * reading or state change is only shown to the rules that care about it.
+ * The latest value of every entity is kept in memory for edge detection and
+ * for conditions; nothing on the event path reads the database. Time and sun
+ * triggers are driven by a tick at the start of every minute.</p>
+ *
+ * <p>Retained MQTT messages only seed the state store: they describe the past
+ * and must not fire rules again after a restart. Like schedules, automations
+ * fire only on the scheduler leader so a cluster does not act twice.</p>
+ *
+
+ * @see AutomationCompiler
+ * @see AutomationRunner
+ */
+@Component
+@Slf4j
+public class AutomationEngine {
+
+    /** Entity that is "on" while any light is on. */
+    public static final String ALL_LIGHTS = "light.all";
+
+    private final AutomationRunner runner;
+    private final SolarEventService solarEventService;
+    private final SchedulerLeaderElection leaderElection;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final Timer evaluation;
+
+    private final Map<String, Object> states = new ConcurrentHashMap<>();
+    private final Set<String> lightsOn = ConcurrentHashMap.newKeySet();
+
+    private volatile AutomationSnapshot snapshot = AutomationSnapshot.EMPTY;
+
+    public AutomationEngine(
+            AutomationRunner runner,
+            SolarEventService solarEventService,
+            SchedulerLeaderElection leaderElection,
+            Clock clock,
+            MeterRegistry meterRegistry) {
+        this.runner = runner;
+        this.solarEventService = solarEventService;
+        this.leaderElection = leaderElection;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        this.evaluation = Timer.builder("automation.evaluate")
+            .description("Time to match an event against the automations subscribed to it")
+            .register(meterRegistry);
+        meterRegistry.gauge("automation.rules", this, engine -> engine.snapshot.size());
+        meterRegistry.gauge("automation.subscriptions", this, engine -> engine.snapshot.subscriptions().size());
+    }
+
+    /**
+     * Swap in a new rule set. Events already being matched finish against the
+     * old one.
+     *
+     * @param next the compiled rule set
+     */
+    public void install(AutomationSnapshot next) {
+        snapshot = next;
+        log.info("Installed {} automations subscribed to {} entities",
+            next.size(), next.subscriptions().size());
+    }
+
+    /**
+     * The rule set events are currently matched against.
+     */
+    public AutomationSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Feed a sensor reading. It updates both {@code sensor.<metric>}, which
+     * follows the latest reading of any sensor, and
+     * {@code sensor.<sensorId>.<metric>}.
+     *
+     * @param sensorId the sensor id from the MQTT topic
+     * @param metric the metric name, e.g. {@code luminosity}
+     * @param value the reading
+     * @param retained whether the reading is a retained message from the broker
+     */
+    public void onSensorReading(String sensorId, String metric, double value, boolean retained) {
+        Double reading = value;
+        update("sensor." + metric, reading, retained);
+        update("sensor." + sensorId + "." + metric, reading, retained);
+    }
+
+    /**
+     * Feed a derived value, such as the window mean of a sensor.
+     *
+     * @param entityId the entity id
+     * @param value the value
+     */
+    public void onMeasurement(String entityId, double value) {
+        update(entityId, value, false);
+    }
+
+    /**
+     * Feed a state change, such as {@code light.3} turning {@code on} or a
+     * presence entity becoming {@code not_home}. Light states also maintain
+     * {@value #ALL_LIGHTS}.
+     *
+     * @param entityId the entity id
+     * @param state the new state
+     * @param retained whether the state is a retained message from the broker
+     */
+    public void onStateChange(String entityId, String state, boolean retained) {
+        update(entityId, state, retained);
+        if (entityId.startsWith("light.") && !ALL_LIGHTS.equals(entityId)) {
+            if ("on".equals(state)) {
+                lightsOn.add(entityId);
+            } else {
+                lightsOn.remove(entityId);
+            }
+            update(ALL_LIGHTS, lightsOn.isEmpty() ? "off" : "on", retained);
+        }
+    }
+
+    /**
+     * Fire the time and sun triggers of the current minute.
+     */
+    @Scheduled(cron = "0 * * * * *", zone = "${app.timezone}")
+    public void tick() {
+        LocalDateTime now = LocalDateTime.now(clock).truncatedTo(ChronoUnit.MINUTES);
+        dispatch(new AutomationEvent(AutomationCompiler.timeEntity(now.toLocalTime()), now, null, now));
+        for (SolarEvent event : SolarEvent.values()) {
+            String entity = AutomationCompiler.sunEntity(event);
+            if (snapshot.subscriptions().containsKey(entity)) {
+                solarEventService.getEventTime(event, now.toLocalDate(), solarEventService.getDefaultLocation())
+                    .ifPresent(time -> dispatch(new AutomationEvent(entity, time, null, now)));
+            }
+        }
+    }
+
+    /**
+     * Run an automation now, skipping its triggers and conditions but not its mode.
+     *
+     * @param automationId the automation id
+     * @return what became of the run, or empty if the automation is not installed
+     */
+    public Optional<AutomationRunner.Outcome> trigger(String automationId) {
+        CompiledAutomation automation = snapshot.automations().get(automationId);
+        return Optional.ofNullable(automation).map(runner::submit);
+    }
+
+    /**
+     * The last known value of every entity, sorted by entity.
+     */
+    public Map<String, Object> getStates() {
+        return new TreeMap<>(states);
+    }
+
+    /**
+     * The last known value of an entity, or null if it has none.
+     */
+    public Object getState(String entityId) {
+        return states.get(entityId);
+    }
+
+    private void update(String entity, Object value, boolean retained) {
+        Object previous = states.put(entity, value);
+        if (!retained) {
+            dispatch(new AutomationEvent(entity, value, previous, LocalDateTime.now(clock)));
+        }
+    }
+
+    private void dispatch(AutomationEvent event) {
+        List<Subscription> subscribed = snapshot.subscriptions().get(event.entity());
+        if (subscribed == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<CompiledAutomation> fired = new ArrayList<>(1);
+        for (Subscription subscription : subscribed) {
+            CompiledAutomation automation = subscription.automation();
+            // Every trigger sees the event, as threshold triggers track it
+            if (subscription.trigger().matches(event) && !fired.contains(automation)
+                    && automation.conditionsHold(states::get, event.time())) {
+                fired.add(automation);
+            }
+        }
+        evaluation.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        for (CompiledAutomation automation : fired) {
+            if (!leaderElection.isLeader()) {
+                log.debug("Automation {} triggered by {} but not scheduler leader", automation.id(), event.entity());
+                continue;
+            }
+            log.info("Automation {} triggered by {} = {}", automation.id(), event.entity(), event.value());
+            meterRegistry.counter("automation.triggers", "automation", automation.id()).increment();
+            runner.submit(automation);
+        }
+    }
+}
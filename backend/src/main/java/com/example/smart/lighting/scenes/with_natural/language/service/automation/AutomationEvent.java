@@ -0,0 +1,19 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change that automations can trigger on.
+ *
+ * <p>Entities are named the way rules refer to them: {@code sensor.luminosity}
+ * or {@code sensor.<sensorId>.luminosity} for readings, {@code light.3} or
+ * {@code light.all} for LED states, {@code time.22:00} for the minute tick
+ * and {@code sun.sunset} for solar events.</p>
+ *
+
+ * @param entity the entity that changed
+ * @param value its new value, or for sun events the event time today
+ * @param previous its value before this event, or null if unknown
+ * @param time when the event happened
+ */
+public record AutomationEvent(String entity, Object value, Object previous, LocalDateTime time) {}
@@ -0,0 +1,132 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.AutomationService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads automations when the rules file changes on disk.
+ *
+ * <p>The file's directory is watched rather than the file itself, because
+ * editors often save by writing a new file and renaming it over the old one.
+ * A save usually produces several events, so the reload waits until the
+ * file has been quiet for {@code rules.watch.debounce-ms}. Rules bundled in
+ * the jar are not on disk and are not watched.</p>
+ *
+
+ * @see AutomationService#reloadAutomations()
+ */
+@Component
+@Slf4j
+public class AutomationRulesWatcher {
+
+    private final AutomationService automationService;
+    private final boolean enabled;
+    private final long debounceMs;
+
+    private volatile WatchService watchService;
+    private volatile Thread thread;
+
+    public AutomationRulesWatcher(
+            AutomationService automationService,
+            @Value("${rules.watch.enabled:true}") boolean enabled,
+            @Value("${rules.watch.debounce-ms:500}") long debounceMs) {
+        this.automationService = automationService;
+        this.enabled = enabled;
+        this.debounceMs = debounceMs;
+    }
+
+    /**
+     * Start watching the rules file, if it is on disk.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || !automationService.isRulesEnabled()) {
+            return;
+        }
+        Optional<Path> rulesFile = automationService.getRulesFile();
+        if (rulesFile.isEmpty()) {
+            log.info("Automation rules are not a file on disk; changes will not be picked up automatically");
+            return;
+        }
+        Path file = rulesFile.get().toAbsolutePath();
+        try {
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warn("Cannot watch {} for changes: {}", file, e.getMessage());
+            return;
+        }
+        thread = new Thread(() -> watch(file), "automation-rules-watch");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} for automation changes", file);
+    }
+
+    private void watch(Path file) {
+        Path name = file.getFileName();
+        boolean changed = false;
+        try {
+            while (true) {
+                WatchKey key = changed ? watchService.poll(debounceMs, TimeUnit.MILLISECONDS) : watchService.take();
+                if (key == null) {
+                    // Quiet for the debounce period since the last change
+                    changed = false;
+                    reload(file);
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (!key.reset()) {
+                    log.warn("Stopped watching {}: directory is no longer accessible", file.getParent());
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Stopped watching {}", file);
+        }
+    }
+
+    private void reload(Path file) {
+        try {
+            int count = automationService.reloadAutomations();
+            log.info("Reloaded {} automations after {} changed", count, file.getFileName());
+        } catch (IllegalStateException e) {
+            log.debug("Reload after change failed; keeping running automations");
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (thread != null) {
+            thread.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Error closing rules watch service: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.CompiledAutomation.RunMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs triggered automations off the event thread, honouring each
+ * automation's {@link RunMode}.
+ *
+ * <p>Every automation has a slot holding its runs in progress and, for
+ * {@code queued} automations, the runs waiting behind them. A run frees its
+ * slot when it finishes or is cancelled, which starts the next queued run.</p>
+ *
+
+ * @see AutomationEngine
+ */
+@Component
+@Slf4j
+public class AutomationRunner {
+
+    /**
+     * What became of a trigger.
+     */
+    public enum Outcome {
+        /** A run started. */
+        STARTED,
+        /** The runs in progress were cancelled and a new run started. */
+        RESTARTED,
+        /** The run will start when the runs in progress finish. */
+        QUEUED,
+        /** The trigger was dropped because of the mode or its {@code max}. */
+        SKIPPED
+    }
+
+    private final AutomationActions actions;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    public AutomationRunner(
+            AutomationActions actions,
+            MeterRegistry meterRegistry,
+            @Value("${automations.runner.pool-size:4}") int poolSize) {
+        this.actions = actions;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, poolSize), runnable -> {
+            Thread thread = new Thread(runnable, "automation-run-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run an automation, or queue or drop it according to its mode.
+     *
+     * @param automation the triggered automation
+     * @return what became of the trigger
+     */
+    public Outcome submit(CompiledAutomation automation) {
+        Slot slot = slots.computeIfAbsent(automation.id(), id -> new Slot());
+        Outcome outcome;
+        synchronized (slot) {
+            boolean busy = !slot.running.isEmpty();
+            outcome = switch (automation.mode()) {
+                case SINGLE -> busy ? Outcome.SKIPPED : start(slot, automation, Outcome.STARTED);
+                case RESTART -> {
+                    slot.queue.clear();
+                    List.copyOf(slot.running).forEach(run -> run.cancel(true));
+                    yield start(slot, automation, busy ? Outcome.RESTARTED : Outcome.STARTED);
+                }
+                case QUEUED -> {
+                    if (!busy) {
+                        yield start(slot, automation, Outcome.STARTED);
+                    }
+                    if (slot.running.size() + slot.queue.size() >= automation.max()) {
+                        yield Outcome.SKIPPED;
+                    }
+                    slot.queue.add(automation);
+                    yield Outcome.QUEUED;
+                }
+                case PARALLEL -> slot.running.size() >= automation.max()
+                    ? Outcome.SKIPPED : start(slot, automation, Outcome.STARTED);
+            };
+        }
+        if (outcome == Outcome.SKIPPED) {
+            log.debug("Automation {} already running in {} mode, trigger dropped", automation.id(),
+                automation.mode());
+        }
+        meterRegistry.counter("automation.runs", "outcome", outcome.name().toLowerCase(Locale.ROOT)).increment();
+        return outcome;
+    }
+
+    /**
+     * Number of runs of an automation in progress.
+     */
+    public int running(String automationId) {
+        Slot slot = slots.get(automationId);
+        if (slot == null) {
+            return 0;
+        }
+        synchronized (slot) {
+            return slot.running.size();
+        }
+    }
+
+    private Outcome start(Slot slot, CompiledAutomation automation, Outcome outcome) {
+        FutureTask<Void> run = new FutureTask<>(() -> {
+            execute(automation);
+            return null;
+        }) {
+            @Override
+            protected void done() {
+                finished(slot, this);
+            }
+        };
+        slot.running.add(run);
+        executor.execute(run);
+        return outcome;
+    }
+
+    private void finished(Slot slot, Future<?> run) {
+        synchronized (slot) {
+            slot.running.remove(run);
+            if (slot.running.isEmpty() && !slot.queue.isEmpty()) {
+                start(slot, slot.queue.poll(), Outcome.STARTED);
+            }
+        }
+    }
+
+    private void execute(CompiledAutomation automation) {
+        log.info("Running automation: {} ({})", automation.id(), automation.source().getAlias());
+        try {
+            actions.run(automation.source());
+        } catch (InterruptedException e) {
+            log.info("Automation {} cancelled", automation.id());
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Automation {} failed: {}", automation.id(), e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Slot {
+        private final List<Future<?>> running = new ArrayList<>();
+        private final Deque<CompiledAutomation> queue = new ArrayDeque<>();
+    }
+}
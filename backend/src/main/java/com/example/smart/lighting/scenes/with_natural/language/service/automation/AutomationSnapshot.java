@@ -0,0 +1,73 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, fully compiled set of automations.
+ *
+ * <p>The engine holds exactly one snapshot and replaces it in a single write,
+ * so an event is always matched against one complete rule set: never a
+ * half-loaded file, and never no rules at all while a reload is running.</p>
+ *
+
+ * @param automations the compiled automations by id, in file order
+ * @param subscriptions the triggers of enabled automations, by entity
+ * @param loadedAt when the rules were loaded
+ * @see AutomationEngine
+ */
+public record AutomationSnapshot(Map<String, CompiledAutomation> automations,
+                                 Map<String, List<Subscription>> subscriptions,
+                                 Instant loadedAt) {
+
+    /** The snapshot before any rules are loaded. */
+    public static final AutomationSnapshot EMPTY = new AutomationSnapshot(Map.of(), Map.of(), Instant.EPOCH);
+
+    /**
+     * A trigger of an automation, as filed under its entity.
+     *
+     * @param automation the automation to run
+     * @param trigger the trigger that runs it
+     */
+    public record Subscription(CompiledAutomation automation, AutomationTrigger trigger) {}
+
+    /**
+     * Index compiled automations. Disabled automations are kept but not
+     * subscribed to anything.
+     *
+     * @param compiled the compiled automations
+     * @param loadedAt when the rules were loaded
+     * @return the snapshot
+     * @throws IllegalArgumentException if two automations share an id
+     */
+    public static AutomationSnapshot of(Collection<CompiledAutomation> compiled, Instant loadedAt) {
+        Map<String, CompiledAutomation> byId = new LinkedHashMap<>();
+        Map<String, List<Subscription>> index = new HashMap<>();
+        for (CompiledAutomation automation : compiled) {
+            if (byId.putIfAbsent(automation.id(), automation) != null) {
+                throw new IllegalArgumentException("Duplicate automation id '" + automation.id() + "'");
+            }
+            if (automation.source().isEnabled()) {
+                for (AutomationTrigger trigger : automation.triggers()) {
+                    index.computeIfAbsent(trigger.entity(), entity -> new ArrayList<>())
+                        .add(new Subscription(automation, trigger));
+                }
+            }
+        }
+        index.replaceAll((entity, subscribed) -> List.copyOf(subscribed));
+        return new AutomationSnapshot(Collections.unmodifiableMap(byId), Map.copyOf(index), loadedAt);
+    }
+
+    /**
+     * Number of automations, enabled or not.
+     */
+    public int size() {
+        return automations.size();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.sensor.ThresholdDetector;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * A compiled automation trigger.
+ *
+ * <p>{@link #entity()} is the key the trigger is indexed under, so an event
+ * is only ever shown to the triggers subscribed to its entity.</p>
+ *
+
+ * @see AutomationCompiler
+ */
+public interface AutomationTrigger {
+
+    /**
+     * The entity this trigger subscribes to.
+     */
+    String entity();
+
+    /**
+     * Whether the event fires this trigger.
+     *
+     * @param event an event for {@link #entity()}
+     * @return true if the automation should run
+     */
+    boolean matches(AutomationEvent event);
+
+    /**
+     * Fires when a state changes, optionally only from or to given values.
+     *
+     * @param entity the entity id
+     * @param from the required previous state, or null for any
+     * @param to the required new state, or null for any
+     */
+    record State(String entity, String from, String to) implements AutomationTrigger {
+
+        @Override
+        public boolean matches(AutomationEvent event) {
+            String value = Objects.toString(event.value(), null);
+            String previous = Objects.toString(event.previous(), null);
+            return !Objects.equals(value, previous)
+                && (from == null || from.equals(previous))
+                && (to == null || to.equals(value));
+        }
+    }
+
+    /**
+     * Fires when a reading crosses into the range between {@code above} and
+     * {@code below}, not on every reading inside it.
+     *
+     * @param entity the sensor entity
+     * @param above the exclusive lower bound, or null
+     * @param below the exclusive upper bound, or null
+     */
+    record NumericState(String entity, Double above, Double below) implements AutomationTrigger {
+
+        @Override
+        public boolean matches(AutomationEvent event) {
+            return inRange(event.value(), above, below) && !inRange(event.previous(), above, below);
+        }
+
+        static boolean inRange(Object value, Double above, Double below) {
+            if (!(value instanceof Number number)) {
+                return false;
+            }
+            double v = number.doubleValue();
+            return (above == null || v > above) && (below == null || v < below);
+        }
+    }
+
+    /**
+     * Fires once a reading has stayed in the range between {@code above} and
+     * {@code below} for a hold time, and again only after it has left the
+     * range by more than a hysteresis margin. Unlike the other triggers it has
+     * state, which starts afresh when the rules are reloaded.
+     */
+    final class Threshold implements AutomationTrigger {
+
+        private final String entity;
+        private final ThresholdDetector detector;
+
+        /**
+         * Create a threshold trigger.
+         *
+         * @param entity the sensor entity
+         * @param detector the detector holding the thresholds
+         */
+        public Threshold(String entity, ThresholdDetector detector) {
+            this.entity = entity;
+            this.detector = detector;
+        }
+
+        @Override
+        public String entity() {
+            return entity;
+        }
+
+        @Override
+        public boolean matches(AutomationEvent event) {
+            return event.value() instanceof Number number
+                && detector.update(number.doubleValue(), event.time()) == ThresholdDetector.Edge.ENTERED;
+        }
+    }
+
+    /**
+     * Fires on the minute tick of a time of day.
+     *
+     * @param entity the tick entity, {@code time.HH:mm}
+     */
+    record Time(String entity) implements AutomationTrigger {
+
+        @Override
+        public boolean matches(AutomationEvent event) {
+            return true;
+        }
+    }
+
+    /**
+     * Fires on the minute of a solar event plus an offset.
+     *
+     * @param entity the solar event entity, {@code sun.<event>}
+     * @param offset the offset from the event, negative for before
+     */
+    record Sun(String entity, Duration offset) implements AutomationTrigger {
+
+        @Override
+        public boolean matches(AutomationEvent event) {
+            return event.value() instanceof LocalDateTime eventTime
+                && eventTime.plus(offset).truncatedTo(ChronoUnit.MINUTES)
+                    .equals(event.time().truncatedTo(ChronoUnit.MINUTES));
+        }
+    }
+}
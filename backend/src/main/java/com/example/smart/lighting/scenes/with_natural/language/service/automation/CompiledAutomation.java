@@ -0,0 +1,58 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Automation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An automation with its triggers and conditions compiled into predicates.
+ *
+
+ * @param source the automation as loaded from YAML
+ * @param triggers the compiled triggers
+ * @param conditions the compiled conditions, all of which must hold
+ * @param mode what to do when triggered while already running
+ * @param max the most runs queued or running in parallel at once
+ */
+public record CompiledAutomation(Automation source, List<AutomationTrigger> triggers,
+                                 List<AutomationCondition> conditions, RunMode mode, int max) {
+
+    /**
+     * How a triggered automation interacts with runs already in progress.
+     */
+    public enum RunMode {
+        /** Ignore the trigger while a run is in progress. */
+        SINGLE,
+        /** Cancel the run in progress and start again. */
+        RESTART,
+        /** Start after the runs in progress have finished. */
+        QUEUED,
+        /** Start alongside the runs in progress. */
+        PARALLEL
+    }
+
+    /**
+     * The automation id.
+     */
+    public String id() {
+        return source.getId();
+    }
+
+    /**
+     * Whether every condition holds.
+     *
+     * @param states the current state of each entity
+     * @param now the local time of the triggering event
+     * @return true if the automation may run
+     */
+    public boolean conditionsHold(Function<String, Object> states, LocalDateTime now) {
+        for (AutomationCondition condition : conditions) {
+            if (!condition.test(states, now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
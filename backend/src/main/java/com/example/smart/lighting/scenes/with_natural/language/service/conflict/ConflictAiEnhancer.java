@@ -4,28 +4,30 @@ import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
 import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictAnalysisResult;
 import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictResolution;
 import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ScheduleConflict;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.ChatRequest;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Enhances conflict analysis using AI for smarter resolutions.
  *
+ * <p>Results are memoized in {@link ConflictEnhancementCache}, so an
+ * unchanged conflict set does not trigger another OpenAI call.</p>
+ *
 
  */
 @Component
@@ -33,19 +35,18 @@ import java.util.Map;
 @Slf4j
 public class ConflictAiEnhancer {
 
-    private final ObjectMapper objectMapper;
-
-    @Value("${openai.api.key:}")
-    private String openaiApiKey;
+    private static final String SYSTEM_PROMPT =
+        "You are a smart home assistant specializing in schedule optimization.";
 
-    @Value("${openai.model:gpt-4o-mini}")
-    private String openaiModel;
+    private final ObjectMapper objectMapper;
+    private final LlmProvider llmProvider;
+    private final ConflictEnhancementCache enhancementCache;
 
     /**
      * Check if AI enhancement is available.
      */
     public boolean isConfigured() {
-        return openaiApiKey != null && !openaiApiKey.isBlank();
+        return llmProvider.isConfigured();
     }
 
     /**
@@ -57,26 +58,74 @@ public class ConflictAiEnhancer {
      */
     public ConflictAnalysisResult enhanceWithAI(
             Schedule newSchedule, List<ScheduleConflict> basicConflicts) {
+        return enhanceWithAI(newSchedule, basicConflicts, List.of());
+    }
+
+    /**
+     * Enhance conflict analysis, reusing a cached result when the schedule
+     * and the conflicting schedules are unchanged since the last call.
+     *
+     * @param newSchedule the new schedule
+     * @param basicConflicts detected conflicts
+     * @param conflictingSchedules the existing schedules in conflict
+     * @return enhanced analysis result
+     */
+    public ConflictAnalysisResult enhanceWithAI(
+            Schedule newSchedule, List<ScheduleConflict> basicConflicts, List<Schedule> conflictingSchedules) {
         if (!isConfigured()) {
-            String summary = String.format(
-                "Found %d potential conflict(s). Review the suggested resolutions.",
-                basicConflicts.size());
-            return new ConflictAnalysisResult(true, basicConflicts, summary);
+            return basicResult(basicConflicts);
+        }
+
+        String signature = enhancementCache.signature(newSchedule, basicConflicts, conflictingSchedules);
+        Optional<ConflictAnalysisResult> cached = enhancementCache.get(signature);
+        if (cached.isPresent()) {
+            log.debug("Using cached AI conflict analysis {}", signature);
+            return cached.get();
         }
 
         try {
             String prompt = buildAIPrompt(newSchedule, basicConflicts);
             String aiResponse = callOpenAI(prompt);
-            return parseAIResponse(aiResponse, basicConflicts);
+            ConflictAnalysisResult result = parseAIResponse(aiResponse, basicConflicts);
+            Set<UUID> scheduleIds = new HashSet<>();
+            conflictingSchedules.forEach(schedule -> scheduleIds.add(schedule.getId()));
+            enhancementCache.put(signature, result, scheduleIds);
+            return result;
         } catch (Exception e) {
             log.warn("AI enhancement failed, using basic analysis: {}", e.getMessage());
-            String summary = String.format(
-                "Found %d potential conflict(s). Review the suggested resolutions.",
-                basicConflicts.size());
-            return new ConflictAnalysisResult(true, basicConflicts, summary);
+            return basicResult(basicConflicts);
         }
     }
 
+    /**
+     * Look up a cached AI analysis without calling OpenAI.
+     *
+     * @param newSchedule the new schedule
+     * @param basicConflicts detected conflicts
+     * @param conflictingSchedules the existing schedules in conflict
+     * @return the cached result, or empty if none is cached
+     */
+    public Optional<ConflictAnalysisResult> findCached(
+            Schedule newSchedule, List<ScheduleConflict> basicConflicts, List<Schedule> conflictingSchedules) {
+        if (!isConfigured()) {
+            return Optional.empty();
+        }
+        return enhancementCache.get(enhancementCache.signature(newSchedule, basicConflicts, conflictingSchedules));
+    }
+
+    /**
+     * Build the analysis result used when no AI ranking is available.
+     *
+     * @param basicConflicts detected conflicts
+     * @return the result with a generic summary
+     */
+    public ConflictAnalysisResult basicResult(List<ScheduleConflict> basicConflicts) {
+        String summary = String.format(
+            "Found %d potential conflict(s). Review the suggested resolutions.",
+            basicConflicts.size());
+        return new ConflictAnalysisResult(true, basicConflicts, summary);
+    }
+
     private String buildAIPrompt(Schedule newSchedule, List<ScheduleConflict> conflicts) {
         StringBuilder sb = new StringBuilder();
         sb.append("""
@@ -130,38 +179,7 @@ public class ConflictAiEnhancer {
     }
 
     private String callOpenAI(String prompt) {
-        RestTemplate restTemplate = new RestTemplate();
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(openaiApiKey);
-
-        Map<String, Object> requestBody = Map.of(
-            "model", openaiModel,
-            "messages", List.of(
-                Map.of("role", "system",
-                       "content", "You are a smart home assistant specializing in schedule optimization."),
-                Map.of("role", "user", "content", prompt)
-            ),
-            "temperature", 0.3,
-            "response_format", Map.of("type", "json_object")
-        );
-
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-
-        ResponseEntity<String> response = restTemplate.exchange(
-            "https://api.openai.com/v1/chat/completions",
-            HttpMethod.POST,
-            request,
-            String.class
-        );
-
-        try {
-            JsonNode root = objectMapper.readTree(response.getBody());
-            return root.path("choices").get(0).path("message").path("content").asText();
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to parse OpenAI response", e);
-        }
+        return llmProvider.chat("conflict.rank", new ChatRequest(SYSTEM_PROMPT, prompt, 0.3, null, true));
     }
 
     private ConflictAnalysisResult parseAIResponse(
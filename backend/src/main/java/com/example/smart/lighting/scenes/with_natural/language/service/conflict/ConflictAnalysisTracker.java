@@ -0,0 +1,185 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.conflict;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.ConflictAnalysisDto;
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictAnalysisResult;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictDetection;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictResolution;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ScheduleConflict;
+import com.example.smart.lighting.scenes.with_natural.language.websocket.WebSocketEventService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the AI part of a conflict analysis in the background.
+ *
+ * <p>The deterministic conflicts are returned to the caller at once with a
+ * "pending" status and an analysis ID. The AI ranking then runs on a small
+ * bounded pool; when it finishes, the final analysis is stored under the
+ * same ID and broadcast on {@code /topic/conflicts}. Clients that are not
+ * connected to the WebSocket can poll {@link #get(String)} instead.</p>
+ *
+ * <p>When the AI is not configured, the result is already cached, or the
+ * pool is saturated, the analysis is returned as "complete" straight
+ * away.</p>
+ *
+
+ * @see ConflictAiEnhancer
+ */
+@Component
+@Slf4j
+public class ConflictAnalysisTracker {
+
+    static final String STATUS_PENDING = "pending";
+    static final String STATUS_COMPLETE = "complete";
+
+    private final ConflictAiEnhancer aiEnhancer;
+    private final WebSocketEventService webSocketEventService;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, ConflictAnalysisDto> analyses;
+
+    public ConflictAnalysisTracker(
+            ConflictAiEnhancer aiEnhancer,
+            WebSocketEventService webSocketEventService,
+            @Value("${conflict.ai-async.pool-size:2}") int poolSize,
+            @Value("${conflict.ai-async.queue-capacity:50}") int queueCapacity,
+            @Value("${conflict.ai-async.retention-minutes:10}") long retentionMinutes) {
+        this.aiEnhancer = aiEnhancer;
+        this.webSocketEventService = webSocketEventService;
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, poolSize);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                Thread thread = new Thread(runnable, "conflict-ai-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.analyses = CacheBuilder.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(retentionMinutes))
+            .build();
+    }
+
+    /**
+     * Return the basic analysis now and start the AI ranking if needed.
+     *
+     * @param newSchedule the schedule being checked
+     * @param detection the deterministic conflicts
+     * @return the analysis to show immediately
+     */
+    public ConflictAnalysisDto track(Schedule newSchedule, ConflictDetection detection) {
+        ConflictAnalysisResult basic = detection.result();
+        if (!basic.hasConflicts() || !aiEnhancer.isConfigured()) {
+            return toDto(basic, null, STATUS_COMPLETE);
+        }
+
+        Optional<ConflictAnalysisResult> cached = aiEnhancer.findCached(
+            newSchedule, basic.conflicts(), detection.conflictingSchedules());
+        if (cached.isPresent()) {
+            return toDto(cached.get(), null, STATUS_COMPLETE);
+        }
+
+        String analysisId = UUID.randomUUID().toString();
+        ConflictAnalysisDto pending = toDto(basic, analysisId, STATUS_PENDING);
+        analyses.put(analysisId, pending);
+
+        try {
+            CompletableFuture
+                .supplyAsync(() -> aiEnhancer.enhanceWithAI(
+                    newSchedule, basic.conflicts(), detection.conflictingSchedules()), executor)
+                .whenComplete((result, error) -> complete(analysisId, error == null ? result : basic));
+        } catch (RejectedExecutionException e) {
+            log.warn("Conflict AI pool is saturated, returning basic analysis");
+            analyses.invalidate(analysisId);
+            return toDto(basic, null, STATUS_COMPLETE);
+        }
+        return pending;
+    }
+
+    /**
+     * Get the latest state of a tracked analysis.
+     *
+     * @param analysisId the analysis ID
+     * @return the analysis, or empty if unknown or expired
+     */
+    public Optional<ConflictAnalysisDto> get(String analysisId) {
+        return Optional.ofNullable(analyses.getIfPresent(analysisId));
+    }
+
+    private void complete(String analysisId, ConflictAnalysisResult result) {
+        ConflictAnalysisDto done = toDto(result, analysisId, STATUS_COMPLETE);
+        analyses.put(analysisId, done);
+        try {
+            webSocketEventService.broadcastConflictAnalysis(analysisId, done);
+        } catch (Exception e) {
+            log.warn("Could not broadcast conflict analysis {}: {}", analysisId, e.getMessage());
+        }
+    }
+
+    /**
+     * Convert an analysis result to its DTO.
+     *
+     * @param result the analysis result
+     * @param analysisId the analysis ID, or null when nothing is pending
+     * @param status the analysis status
+     * @return the DTO
+     */
+    static ConflictAnalysisDto toDto(ConflictAnalysisResult result, String analysisId, String status) {
+        List<ConflictAnalysisDto.ConflictDto> conflictDtos = result.conflicts().stream()
+            .map(ConflictAnalysisTracker::toConflictDto)
+            .toList();
+
+        return ConflictAnalysisDto.builder()
+            .analysisId(analysisId)
+            .status(status)
+            .hasConflicts(result.hasConflicts())
+            .summary(result.summary())
+            .conflicts(conflictDtos)
+            .build();
+    }
+
+    private static ConflictAnalysisDto.ConflictDto toConflictDto(ScheduleConflict conflict) {
+        List<ConflictAnalysisDto.ResolutionDto> resolutionDtos = conflict.resolutions().stream()
+            .map(ConflictAnalysisTracker::toResolutionDto)
+            .toList();
+
+        return ConflictAnalysisDto.ConflictDto.builder()
+            .scheduleId1(conflict.scheduleId1().toString())
+            .scheduleName1(conflict.scheduleName1())
+            .scheduleId2(conflict.scheduleId2().toString())
+            .scheduleName2(conflict.scheduleName2())
+            .conflictType(conflict.conflictType())
+            .description(conflict.description())
+            .severity(conflict.severity())
+            .resolutions(resolutionDtos)
+            .build();
+    }
+
+    private static ConflictAnalysisDto.ResolutionDto toResolutionDto(ConflictResolution resolution) {
+        return ConflictAnalysisDto.ResolutionDto.builder()
+            .id(resolution.id())
+            .description(resolution.description())
+            .action(resolution.action())
+            .changes(resolution.changes())
+            .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
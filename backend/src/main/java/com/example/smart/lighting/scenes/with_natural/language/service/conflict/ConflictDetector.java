@@ -1,12 +1,15 @@
 package com.example.smart.lighting.scenes.with_natural.language.service.conflict;
 
 import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleTriggerResolver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashSet;
+import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -15,62 +18,122 @@ import java.util.Set;
 /**
  * Detects conflicts between schedules based on timing and targets.
  *
+ * <p>Two time schedules conflict when they fire within
+ * {@value #CONFLICT_WINDOW_MINUTES} minutes of each other on the weekly
+ * clock and their targets overlap.</p>
+ *
 
  */
 @Component
 @Slf4j
 public class ConflictDetector {
 
-    private static final int CONFLICT_WINDOW_MINUTES = 30;
+    /** Schedules firing within this many minutes of each other conflict. */
+    public static final int CONFLICT_WINDOW_MINUTES = 30;
+
+    /** Minutes in a week; fire times are compared on a weekly circle. */
+    public static final int MINUTES_PER_WEEK = 7 * 24 * 60;
+
+    private static final Map<String, DayOfWeek> DAY_MAP = Map.of(
+        "mon", DayOfWeek.MONDAY,
+        "tue", DayOfWeek.TUESDAY,
+        "wed", DayOfWeek.WEDNESDAY,
+        "thu", DayOfWeek.THURSDAY,
+        "fri", DayOfWeek.FRIDAY,
+        "sat", DayOfWeek.SATURDAY,
+        "sun", DayOfWeek.SUNDAY
+    );
+
+    /**
+     * A time schedule reduced to the data conflict checks need.
+     *
+     * @param schedule the schedule
+     * @param target the first action's target as written
+     * @param targetKey the normalized target, "all" for every room
+     * @param minutesOfWeek sorted fire minutes counted from Monday 00:00
+     */
+    public record TimeSlot(Schedule schedule, String target, String targetKey, int[] minutesOfWeek) {}
 
     /**
      * Check if two schedules conflict.
      *
+     * <p>Fire times are compared as minutes of the week, so a schedule at
+     * 23:50 on Monday and one at 00:10 on Tuesday are 20 minutes apart.</p>
+     *
      * @param schedule1 the first schedule
      * @param schedule2 the second schedule
      * @return conflict info if detected, empty otherwise
      */
     public Optional<ConflictInfo> checkForConflict(Schedule schedule1, Schedule schedule2) {
-        if (!"time".equals(schedule1.getTriggerType())
-            || !"time".equals(schedule2.getTriggerType())) {
+        Optional<TimeSlot> slot1 = toTimeSlot(schedule1);
+        Optional<TimeSlot> slot2 = toTimeSlot(schedule2);
+        if (slot1.isEmpty() || slot2.isEmpty() || !targetsOverlap(slot1.get(), slot2.get())) {
             return Optional.empty();
         }
 
-        Map<String, Object> config1 = schedule1.getTriggerConfig();
-        Map<String, Object> config2 = schedule2.getTriggerConfig();
-
-        String time1Str = (String) config1.get("at");
-        String time2Str = (String) config2.get("at");
-
-        if (time1Str == null || time2Str == null) {
+        long minutesDiff = weeklyDistance(slot1.get().minutesOfWeek(), slot2.get().minutesOfWeek());
+        if (minutesDiff > CONFLICT_WINDOW_MINUTES) {
             return Optional.empty();
         }
 
-        LocalTime time1 = parseTime(time1Str);
-        LocalTime time2 = parseTime(time2Str);
+        return Optional.of(new ConflictInfo(
+            schedule1, schedule2, minutesDiff, slot1.get().target(), slot2.get().target()));
+    }
 
-        if (time1 == null || time2 == null) {
+    /**
+     * Reduce a time schedule to its weekly fire minutes and target.
+     *
+     * @param schedule the schedule
+     * @return the slot, or empty for non-time schedules or invalid times
+     */
+    public Optional<TimeSlot> toTimeSlot(Schedule schedule) {
+        if (!"time".equals(schedule.getTriggerType()) || schedule.getTriggerConfig() == null) {
             return Optional.empty();
         }
 
-        long minutesDiff = Math.abs(time1.toSecondOfDay() - time2.toSecondOfDay()) / 60;
-        if (minutesDiff > CONFLICT_WINDOW_MINUTES) {
-            return Optional.empty();
+        Map<String, Object> config = schedule.getTriggerConfig();
+        LocalTime time;
+        try {
+            time = ScheduleTriggerResolver.configuredTime(config).orElse(null);
+        } catch (DateTimeParseException e) {
+            time = null;
         }
-
-        if (!daysOverlap(config1, config2)) {
+        if (time == null) {
             return Optional.empty();
         }
 
-        String target1 = getTarget(schedule1);
-        String target2 = getTarget(schedule2);
+        int minuteOfDay = time.getHour() * 60 + time.getMinute();
+        int[] minutes = parseWeekdays(config).stream()
+            .mapToInt(day -> (day.getValue() - 1) * 1440 + minuteOfDay)
+            .sorted()
+            .toArray();
 
-        if (!targetsOverlap(target1, target2)) {
-            return Optional.empty();
-        }
+        String target = getTarget(schedule);
+        return Optional.of(new TimeSlot(schedule, target, normalizeTarget(target), minutes));
+    }
 
-        return Optional.of(new ConflictInfo(
-            schedule1, schedule2, minutesDiff, target1, target2));
+    /**
+     * Check whether two slots can affect the same lights.
+     */
+    public boolean targetsOverlap(TimeSlot slot1, TimeSlot slot2) {
+        return "all".equals(slot1.targetKey())
+            || "all".equals(slot2.targetKey())
+            || slot1.targetKey().equals(slot2.targetKey());
+    }
+
+    /**
+     * Shortest distance in minutes between two sets of weekly fire minutes,
+     * wrapping from Sunday night to Monday morning.
+     */
+    public static long weeklyDistance(int[] minutes1, int[] minutes2) {
+        long best = Long.MAX_VALUE;
+        for (int m1 : minutes1) {
+            for (int m2 : minutes2) {
+                int diff = Math.abs(m1 - m2);
+                best = Math.min(best, Math.min(diff, MINUTES_PER_WEEK - diff));
+            }
+        }
+        return best;
     }
 
     /**
@@ -88,31 +151,31 @@ public class ConflictDetector {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private boolean daysOverlap(Map<String, Object> config1, Map<String, Object> config2) {
-        Object days1 = config1.get("weekdays");
-        Object days2 = config2.get("weekdays");
-
-        if (days1 == null || days2 == null) {
-            return true;
+    private Set<DayOfWeek> parseWeekdays(Map<String, Object> config) {
+        // Support both "weekdays" and "days" keys, and "mon" or "MONDAY"
+        Object days = config.get("weekdays");
+        if (days == null) {
+            days = config.get("days");
         }
 
-        if (days1 instanceof List<?> list1 && days2 instanceof List<?> list2) {
-            Set<String> set1 = new HashSet<>();
-            list1.forEach(d -> set1.add(d.toString().toLowerCase()));
-
-            for (Object d : list2) {
-                if (set1.contains(d.toString().toLowerCase())) {
-                    return true;
+        Set<DayOfWeek> result = EnumSet.noneOf(DayOfWeek.class);
+        if (days instanceof List<?> list) {
+            for (Object d : list) {
+                if (d != null) {
+                    String day = d.toString().toLowerCase();
+                    Optional.ofNullable(DAY_MAP.get(day.length() > 3 ? day.substring(0, 3) : day))
+                        .ifPresent(result::add);
                 }
             }
-            return false;
         }
-
-        return true;
+        // No weekdays (or none recognised) means every day
+        return result.isEmpty() ? EnumSet.allOf(DayOfWeek.class) : result;
     }
 
-    private String getTarget(Schedule schedule) {
+    /**
+     * Get the first action's target, "all" when there is none.
+     */
+    public String getTarget(Schedule schedule) {
         List<Map<String, Object>> actions = schedule.getActions();
         if (actions == null || actions.isEmpty()) {
             return "all";
@@ -121,11 +184,9 @@ public class ConflictDetector {
         return target != null ? target.toString() : "all";
     }
 
-    private boolean targetsOverlap(String target1, String target2) {
-        if ("all".equalsIgnoreCase(target1) || "all".equalsIgnoreCase(target2)) {
-            return true;
-        }
-        return target1.equalsIgnoreCase(target2);
+    private String normalizeTarget(String target) {
+        String key = target.trim().toLowerCase().replace(" ", "_").replace("-", "_");
+        return key.isEmpty() ? "all" : key;
     }
 
     /**
@@ -0,0 +1,133 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.conflict;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.entity.ScheduleChangedEvent;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictAnalysisResult;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ScheduleConflict;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Bounded LRU cache with TTL for AI-enhanced conflict analyses.
+ *
+ * <p>Entries are keyed by a signature of the new schedule's content plus the
+ * ID and last update time of every schedule it conflicts with, so repeating
+ * a preview with an unchanged conflict set is answered without an OpenAI
+ * call. Entries involving a schedule are dropped as soon as that schedule
+ * changes.</p>
+ *
+
+ * @see ConflictAiEnhancer
+ */
+@Component
+@Slf4j
+public class ConflictEnhancementCache {
+
+    private final Cache<String, CachedAnalysis> cache;
+    private final ObjectMapper canonicalMapper;
+
+    private record CachedAnalysis(ConflictAnalysisResult result, Set<UUID> scheduleIds) {}
+
+    public ConflictEnhancementCache(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${conflict.ai-cache.max-size:500}") long maxSize,
+            @Value("${conflict.ai-cache.ttl-minutes:60}") long ttlMinutes) {
+        this.canonicalMapper = objectMapper.copy()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .recordStats()
+            .build();
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "conflict.ai");
+    }
+
+    /**
+     * Build the cache key for a schedule and its conflicts.
+     *
+     * @param newSchedule the schedule being checked
+     * @param conflicts the deterministic conflicts found for it
+     * @param conflictingSchedules the existing schedules involved
+     * @return a stable signature
+     */
+    public String signature(Schedule newSchedule, List<ScheduleConflict> conflicts,
+                            List<Schedule> conflictingSchedules) {
+        Map<String, Object> canonical = new LinkedHashMap<>();
+        canonical.put("triggerType", newSchedule.getTriggerType());
+        canonical.put("trigger", newSchedule.getTriggerConfig());
+        canonical.put("actions", newSchedule.getActions());
+        canonical.put("name", newSchedule.getName());
+
+        Set<String> versions = new TreeSet<>();
+        for (Schedule schedule : conflictingSchedules) {
+            versions.add(schedule.getId() + "@" + schedule.getUpdatedAt());
+        }
+        canonical.put("conflicting", versions);
+        canonical.put("types", conflicts.stream().map(c -> c.conflictType() + "/" + c.severity()).toList());
+
+        try {
+            byte[] bytes = canonicalMapper.writeValueAsBytes(canonical);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            return String.valueOf(Objects.hash(canonical.toString()));
+        }
+    }
+
+    /**
+     * Get a cached analysis.
+     */
+    public Optional<ConflictAnalysisResult> get(String signature) {
+        return Optional.ofNullable(cache.getIfPresent(signature)).map(CachedAnalysis::result);
+    }
+
+    /**
+     * Cache an analysis.
+     *
+     * @param signature the key from {@link #signature}
+     * @param result the AI-enhanced result
+     * @param scheduleIds existing schedules the result depends on
+     */
+    public void put(String signature, ConflictAnalysisResult result, Set<UUID> scheduleIds) {
+        cache.put(signature, new CachedAnalysis(result, Set.copyOf(scheduleIds)));
+    }
+
+    /**
+     * Drop cached analyses that involve a changed schedule.
+     */
+    @EventListener
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        UUID changedId = event.schedule().getId();
+        if (changedId == null) {
+            return;
+        }
+        int before = cache.asMap().size();
+        cache.asMap().values().removeIf(cached -> cached.scheduleIds().contains(changedId));
+        int evicted = before - cache.asMap().size();
+        if (evicted > 0) {
+            log.debug("Evicted {} cached conflict analyses after schedule {} changed", evicted, changedId);
+        }
+    }
+}
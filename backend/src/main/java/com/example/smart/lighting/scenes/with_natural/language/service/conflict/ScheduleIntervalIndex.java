@@ -0,0 +1,274 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.conflict;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.entity.ScheduleChangedEvent;
+import com.example.smart.lighting.scenes.with_natural.language.repository.ScheduleRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.conflict.ConflictDetector.ConflictInfo;
+import com.example.smart.lighting.scenes.with_natural.language.service.conflict.ConflictDetector.TimeSlot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Interval index of enabled time schedules, keyed by target and minute of week.
+ *
+ * <p>Each target has a sorted map from weekly fire minute to the schedules
+ * firing then, so "which schedules fire near this one" is a range lookup
+ * (O(log n + k)) instead of a scan over every schedule. Lookups wrap from
+ * Sunday night to Monday morning.</p>
+ *
+ * <p>The index is built at startup, updated incrementally from
+ * {@link ScheduleChangedEvent}s, and rebuilt periodically to pick up changes
+ * made by other backend instances.</p>
+ *
+
+ * @see ConflictDetector
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduleIntervalIndex {
+
+    private static final String ALL_TARGETS = "all";
+    private static final int CONFLICT_WINDOW_MINUTES = ConflictDetector.CONFLICT_WINDOW_MINUTES;
+    private static final int MINUTES_PER_WEEK = ConflictDetector.MINUTES_PER_WEEK;
+
+    private final ScheduleRepository scheduleRepository;
+    private final ConflictDetector conflictDetector;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, TimeSlot> slots = new HashMap<>();
+    private final Map<String, NavigableMap<Integer, List<TimeSlot>>> byTarget = new HashMap<>();
+
+    private record Point(int minute, TimeSlot slot) {}
+
+    /**
+     * Rebuild the index from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${conflict.index.rebuild-interval-ms:300000}",
+        initialDelayString = "${conflict.index.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        List<Schedule> schedules = scheduleRepository.findByEnabledTrue();
+        lock.writeLock().lock();
+        try {
+            slots.clear();
+            byTarget.clear();
+            schedules.forEach(this::addLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Conflict index rebuilt with {} time schedules", slots.size());
+    }
+
+    /**
+     * Keep the index in step with schedule edits once they are committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        Schedule schedule = event.schedule();
+        if (schedule.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(schedule.getId());
+            if (!event.deleted() && Boolean.TRUE.equals(schedule.getEnabled())) {
+                addLocked(schedule);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find indexed schedules that fire within the conflict window of a schedule.
+     *
+     * @param schedule the schedule to check (need not be saved)
+     * @return conflicts ordered by time distance
+     */
+    public List<ConflictInfo> findOverlapping(Schedule schedule) {
+        Optional<TimeSlot> probe = conflictDetector.toTimeSlot(schedule);
+        if (probe.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, ConflictInfo> found = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (NavigableMap<Integer, List<TimeSlot>> targetMap : candidateMaps(probe.get())) {
+                for (int minute : probe.get().minutesOfWeek()) {
+                    collectAround(targetMap, minute, probe.get(), found);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<ConflictInfo> result = new ArrayList<>(found.values());
+        result.sort(Comparator.comparingLong(ConflictInfo::minutesDiff));
+        return result;
+    }
+
+    /**
+     * Find every conflicting pair among the indexed schedules with a sweep line.
+     *
+     * <p>All weekly fire minutes are sorted once (O(n log n)); a window of
+     * {@value ConflictDetector#CONFLICT_WINDOW_MINUTES} minutes then slides
+     * over them, so only schedules that are actually close are compared.</p>
+     *
+     * @return one conflict per pair, at its closest distance
+     */
+    public List<ConflictInfo> auditAll() {
+        List<Point> points = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (TimeSlot slot : slots.values()) {
+                for (int minute : slot.minutesOfWeek()) {
+                    points.add(new Point(minute, slot));
+                    if (minute < CONFLICT_WINDOW_MINUTES) {
+                        // Repeat early Monday minutes after Sunday to close the weekly circle
+                        points.add(new Point(minute + MINUTES_PER_WEEK, slot));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        points.sort(Comparator.comparingInt(Point::minute));
+
+        Map<String, ConflictInfo> pairs = new LinkedHashMap<>();
+        int windowStart = 0;
+        for (int i = 0; i < points.size(); i++) {
+            Point current = points.get(i);
+            while (points.get(windowStart).minute() < current.minute() - CONFLICT_WINDOW_MINUTES) {
+                windowStart++;
+            }
+            for (int j = windowStart; j < i; j++) {
+                Point earlier = points.get(j);
+                if (earlier.slot() != current.slot()
+                    && conflictDetector.targetsOverlap(earlier.slot(), current.slot())) {
+                    recordPair(pairs, earlier.slot(), current.slot(), current.minute() - earlier.minute());
+                }
+            }
+        }
+
+        List<ConflictInfo> result = new ArrayList<>(pairs.values());
+        result.sort(Comparator.comparingLong(ConflictInfo::minutesDiff));
+        return result;
+    }
+
+    /**
+     * Number of indexed schedules.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<NavigableMap<Integer, List<TimeSlot>>> candidateMaps(TimeSlot probe) {
+        if (ALL_TARGETS.equals(probe.targetKey())) {
+            return new ArrayList<>(byTarget.values());
+        }
+        List<NavigableMap<Integer, List<TimeSlot>>> maps = new ArrayList<>(2);
+        Optional.ofNullable(byTarget.get(probe.targetKey())).ifPresent(maps::add);
+        Optional.ofNullable(byTarget.get(ALL_TARGETS)).ifPresent(maps::add);
+        return maps;
+    }
+
+    private void collectAround(NavigableMap<Integer, List<TimeSlot>> targetMap, int minute,
+                               TimeSlot probe, Map<UUID, ConflictInfo> found) {
+        int from = minute - CONFLICT_WINDOW_MINUTES;
+        int to = minute + CONFLICT_WINDOW_MINUTES;
+        List<NavigableMap<Integer, List<TimeSlot>>> ranges = new ArrayList<>(2);
+        ranges.add(targetMap.subMap(Math.max(from, 0), true, Math.min(to, MINUTES_PER_WEEK - 1), true));
+        if (from < 0) {
+            ranges.add(targetMap.subMap(from + MINUTES_PER_WEEK, true, MINUTES_PER_WEEK - 1, true));
+        }
+        if (to >= MINUTES_PER_WEEK) {
+            ranges.add(targetMap.subMap(0, true, to - MINUTES_PER_WEEK, true));
+        }
+
+        UUID probeId = probe.schedule().getId();
+        for (NavigableMap<Integer, List<TimeSlot>> range : ranges) {
+            for (List<TimeSlot> atMinute : range.values()) {
+                for (TimeSlot other : atMinute) {
+                    UUID otherId = other.schedule().getId();
+                    if (otherId.equals(probeId)) {
+                        continue;
+                    }
+                    long distance = ConflictDetector.weeklyDistance(probe.minutesOfWeek(), other.minutesOfWeek());
+                    found.putIfAbsent(otherId, new ConflictInfo(
+                        probe.schedule(), other.schedule(), distance, probe.target(), other.target()));
+                }
+            }
+        }
+    }
+
+    private void recordPair(Map<String, ConflictInfo> pairs, TimeSlot a, TimeSlot b, long distance) {
+        boolean aFirst = a.schedule().getId().compareTo(b.schedule().getId()) < 0;
+        TimeSlot first = aFirst ? a : b;
+        TimeSlot second = aFirst ? b : a;
+        String key = first.schedule().getId() + ":" + second.schedule().getId();
+        ConflictInfo existing = pairs.get(key);
+        if (existing == null || existing.minutesDiff() > distance) {
+            pairs.put(key, new ConflictInfo(
+                first.schedule(), second.schedule(), distance, first.target(), second.target()));
+        }
+    }
+
+    private void addLocked(Schedule schedule) {
+        conflictDetector.toTimeSlot(schedule).ifPresent(slot -> {
+            slots.put(schedule.getId(), slot);
+            NavigableMap<Integer, List<TimeSlot>> targetMap =
+                byTarget.computeIfAbsent(slot.targetKey(), key -> new TreeMap<>());
+            for (int minute : slot.minutesOfWeek()) {
+                targetMap.computeIfAbsent(minute, m -> new ArrayList<>()).add(slot);
+            }
+        });
+    }
+
+    private void removeLocked(UUID scheduleId) {
+        TimeSlot slot = slots.remove(scheduleId);
+        if (slot == null) {
+            return;
+        }
+        NavigableMap<Integer, List<TimeSlot>> targetMap = byTarget.get(slot.targetKey());
+        if (targetMap == null) {
+            return;
+        }
+        for (int minute : slot.minutesOfWeek()) {
+            List<TimeSlot> atMinute = targetMap.get(minute);
+            if (atMinute != null) {
+                atMinute.remove(slot);
+                if (atMinute.isEmpty()) {
+                    targetMap.remove(minute);
+                }
+            }
+        }
+        if (targetMap.isEmpty()) {
+            byTarget.remove(slot.targetKey());
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Protective wrapper around the configured {@link LlmProvider}.
+ *
+ * <p>This is the primary {@code LlmProvider} bean; the OpenAI or local
+ * provider behind it is injected by the {@value #BACKEND} qualifier. Every
+ * call passes, in order:</p>
+ * <ul>
+ *   <li>{@link LlmUserQuota} - per-user token bucket for the signed-in user</li>
+ *   <li>Bulkhead - at most {@code llm.bulkhead.max-concurrent} calls in
+ *       flight; a caller waits up to {@code llm.bulkhead.max-wait-ms} for a
+ *       slot, so a slow provider cannot tie up every web thread</li>
+ *   <li>{@link LlmCircuitBreaker} - fails fast while the provider is failing
+ *       or slow</li>
+ * </ul>
+ *
+ * <p>Rejected calls fail with an {@link LlmRejectedException} explaining
+ * why, and are counted in {@code llm.rejected}, tagged with the reason.
+ * A caller sharing another caller's answer is charged to its own quota
+ * through {@link #chargeShared(String)}.</p>
+ *
+ * <p>With {@code llm.hedging.enabled}, a non-streamed call still running after
+ * the p95 latency of its last successful calls is sent a second time, and the
+ * first answer wins. Hedges need a free bulkhead slot and are not charged to
+ * the user's quota; {@code llm.hedged} counts them.</p>
+ *
+
+ * @see OpenAiLlmProvider
+ * @see LocalLlmProvider
+ */
+@Component
+@Primary
+@Slf4j
+public class GuardedLlmProvider implements LlmProvider {
+
+    /**
+     * Qualifier of the provider that makes the actual calls.
+     */
+    public static final String BACKEND = "llmBackend";
+
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    private final LlmProvider delegate;
+    private final LlmCircuitBreaker circuitBreaker;
+    private final LlmUserQuota userQuota;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore bulkhead;
+    private final long maxWaitMs;
+    private final boolean hedgingEnabled;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    public GuardedLlmProvider(
+            @Qualifier(BACKEND) LlmProvider delegate,
+            LlmCircuitBreaker circuitBreaker,
+            LlmUserQuota userQuota,
+            MeterRegistry meterRegistry,
+            @Value("${llm.bulkhead.max-concurrent:16}") int maxConcurrent,
+            @Value("${llm.bulkhead.max-wait-ms:250}") long maxWaitMs,
+            @Value("${llm.hedging.enabled:false}") boolean hedgingEnabled) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.userQuota = userQuota;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(Math.max(1, maxConcurrent));
+        this.maxWaitMs = maxWaitMs;
+        this.hedgingEnabled = hedgingEnabled;
+        int slots = Math.max(1, maxConcurrent);
+        meterRegistry.gauge("llm.bulkhead.in-flight", bulkhead, semaphore -> slots - semaphore.availablePermits());
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return delegate.isConfigured();
+    }
+
+    @Override
+    public String getModel() {
+        return delegate.getModel();
+    }
+
+    @Override
+    public CompletableFuture<String> chatAsync(String operation, ChatRequest request) {
+        try {
+            admit(operation, currentUser());
+        } catch (LlmException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<String> primary = attempt(operation, () -> delegate.chatAsync(operation, request));
+        return hedgingEnabled ? hedge(operation, request, primary) : primary;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Streamed calls are never hedged, since both streams would reach
+     * {@code onDelta}.</p>
+     */
+    @Override
+    public CompletableFuture<String> chatStreamAsync(String operation, ChatRequest request,
+                                                     Consumer<String> onDelta) {
+        try {
+            admit(operation, currentUser());
+        } catch (LlmException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return attempt(operation, () -> delegate.chatStreamAsync(operation, request, onDelta));
+    }
+
+    @Override
+    public void chargeShared(String operation) {
+        chargeQuota(operation, currentUser());
+    }
+
+    private void chargeQuota(String operation, String user) {
+        try {
+            userQuota.acquire(user);
+        } catch (LlmException e) {
+            rejected(operation, "quota").increment();
+            throw e;
+        }
+    }
+
+    private void admit(String operation, String user) {
+        chargeQuota(operation, user);
+
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmException("Interrupted while waiting for an LLM slot", e);
+        }
+        if (!acquired) {
+            rejected(operation, "bulkhead").increment();
+            throw new LlmRejectedException("The AI service is busy; please try again shortly");
+        }
+
+        try {
+            circuitBreaker.acquirePermission();
+        } catch (LlmException e) {
+            bulkhead.release();
+            rejected(operation, "circuit_open").increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Make an admitted call, releasing its slot and recording its outcome when done.
+     */
+    private CompletableFuture<String> attempt(String operation, Supplier<CompletableFuture<String>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<String> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((content, error) -> {
+            bulkhead.release();
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            circuitBreaker.record(durationMs, error == null);
+            if (error == null) {
+                latencies.computeIfAbsent(operation, op -> new LatencyWindow()).add(durationMs);
+            }
+        });
+    }
+
+    private CompletableFuture<String> hedge(String operation, ChatRequest request, CompletableFuture<String> primary) {
+        LatencyWindow window = latencies.get(operation);
+        long delayMs = window != null ? window.percentile95() : -1;
+        if (delayMs < 0) {
+            return primary;
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<Throwable> lastError = new AtomicReference<>();
+        Runnable abandon = () -> {
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(lastError.get());
+            }
+        };
+        BiConsumer<String, Throwable> settle = (content, error) -> {
+            if (error == null) {
+                result.complete(content);
+            } else {
+                lastError.set(error);
+                abandon.run();
+            }
+        };
+        primary.whenComplete(settle);
+
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            pending.incrementAndGet();
+            if (!bulkhead.tryAcquire()) {
+                abandon.run();
+                return;
+            }
+            try {
+                circuitBreaker.acquirePermission();
+            } catch (LlmException e) {
+                bulkhead.release();
+                abandon.run();
+                return;
+            }
+            meterRegistry.counter("llm.hedged", "operation", operation).increment();
+            log.debug("Hedging {} call after {}ms", operation, delayMs);
+            attempt(operation, () -> delegate.chatAsync(operation, request)).whenComplete(settle);
+        });
+        return result;
+    }
+
+    private Counter rejected(String operation, String reason) {
+        return meterRegistry.counter("llm.rejected", "operation", operation, "reason", reason);
+    }
+
+    private static String currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return auth.getName();
+    }
+
+    /**
+     * Latencies of the most recent successful calls of one operation.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples = new long[LATENCY_SAMPLES];
+        private int count;
+        private int next;
+
+        synchronized void add(long durationMs) {
+            samples[next] = durationMs;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * Get the 95th percentile, or -1 if there are too few samples.
+         */
+        synchronized long percentile95() {
+            if (count < MIN_HEDGE_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(0.95 * count) - 1];
+        }
+    }
+}
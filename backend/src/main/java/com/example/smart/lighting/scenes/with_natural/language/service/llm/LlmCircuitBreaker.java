@@ -0,0 +1,156 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.LlmRejectedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+
+/**
+ * Circuit breaker for LLM calls.
+ *
+ * <p>Keeps the outcomes of the last {@code llm.circuit.window-size} calls; a
+ * call counts as failed if it threw or took at least
+ * {@code llm.circuit.slow-call-ms}. Once at least
+ * {@code llm.circuit.minimum-calls} are recorded and the failed share reaches
+ * {@code llm.circuit.failure-rate-threshold}, the circuit opens and every call
+ * fails immediately for {@code llm.circuit.open-ms}. After that a single
+ * trial call is let through: success closes the circuit, failure opens it
+ * again.</p>
+ *
+ * <p>The state is exported as the {@code llm.circuit.state} gauge (0 closed,
+ * 1 half-open, 2 open).</p>
+ *
+
+ * @see GuardedLlmProvider
+ */
+@Component
+@Slf4j
+public class LlmCircuitBreaker {
+
+    /**
+     * Circuit breaker state.
+     */
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final Clock clock;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallMs;
+    private final long openMs;
+
+    private final boolean[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public LlmCircuitBreaker(
+            Clock clock,
+            MeterRegistry meterRegistry,
+            @Value("${llm.circuit.window-size:20}") int windowSize,
+            @Value("${llm.circuit.minimum-calls:10}") int minimumCalls,
+            @Value("${llm.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${llm.circuit.slow-call-ms:10000}") long slowCallMs,
+            @Value("${llm.circuit.open-ms:30000}") long openMs) {
+        this.clock = clock;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallMs = slowCallMs;
+        this.openMs = openMs;
+        meterRegistry.gauge("llm.circuit.state", this, breaker -> breaker.state().ordinal());
+    }
+
+    /**
+     * Check that a call may be made.
+     *
+     * @throws LlmRejectedException if the circuit is open, or half-open with a trial
+     *         call already in flight
+     */
+    public synchronized void acquirePermission() {
+        if (state == State.OPEN) {
+            long remainingMs = openedAt + openMs - clock.millis();
+            if (remainingMs > 0) {
+                throw new LlmRejectedException("LLM provider is unavailable after repeated failures; retry in "
+                    + Math.max(1, (remainingMs + 999) / 1000) + "s");
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+            log.info("LLM circuit half-open, letting a trial call through");
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                throw new LlmRejectedException("LLM provider is recovering; retry in a moment");
+            }
+            trialInFlight = true;
+        }
+    }
+
+    /**
+     * Record the outcome of a permitted call.
+     *
+     * @param durationMs how long the call took
+     * @param success whether the call returned a response
+     */
+    public synchronized void record(long durationMs, boolean success) {
+        boolean failed = !success || durationMs >= slowCallMs;
+        switch (state) {
+            case HALF_OPEN -> {
+                trialInFlight = false;
+                if (failed) {
+                    open();
+                } else {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                if (recorded == window.length) {
+                    failures -= window[next] ? 1 : 0;
+                } else {
+                    recorded++;
+                }
+                window[next] = failed;
+                failures += failed ? 1 : 0;
+                next = (next + 1) % window.length;
+                if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                    open();
+                }
+            }
+            case OPEN -> {
+                // A call started before the circuit opened
+            }
+        }
+    }
+
+    /**
+     * Get the current state.
+     */
+    public synchronized State state() {
+        return state;
+    }
+
+    private void open() {
+        log.warn("LLM circuit open: {} of the last {} calls failed or were slow", failures, recorded);
+        state = State.OPEN;
+        openedAt = clock.millis();
+        reset();
+    }
+
+    private void close() {
+        log.info("LLM circuit closed after a successful trial call");
+        state = State.CLOSED;
+        reset();
+    }
+
+    private void reset() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Source of LLM chat completions.
+ *
+ * <p>NLP parsing, conflict ranking and the legacy {@code OpenAIService} all
+ * depend on this interface rather than on OpenAI. {@code llm.provider}
+ * selects the implementation: {@link OpenAiLlmProvider} ({@code openai}, the
+ * default) calls the chat completions API, and {@link LocalLlmProvider}
+ * ({@code local}) answers in-process with templated JSON, so the
+ * {@code /api/nlp} endpoints can be benchmarked without network access.
+ * Callers receive {@link GuardedLlmProvider}, which wraps the selected
+ * provider with quotas, a bulkhead and a circuit breaker.</p>
+ *
+ * <p>Both providers record the {@code llm.request} timer tagged with the
+ * operation and outcome.</p>
+ *
+
+ */
+public interface LlmProvider {
+
+    /**
+     * A single-turn chat completion request.
+     *
+     * @param systemPrompt the system message
+     * @param userPrompt the user message
+     * @param temperature sampling temperature
+     * @param maxTokens completion token limit, or null for the provider default
+     * @param jsonResponse whether to ask for a JSON object
+     */
+    record ChatRequest(String systemPrompt, String userPrompt, double temperature,
+                       Integer maxTokens, boolean jsonResponse) {}
+
+    /**
+     * An LLM call that failed or returned no usable content.
+     */
+    class LlmException extends RuntimeException {
+
+        public LlmException(String message) {
+            super(message);
+        }
+
+        public LlmException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * An LLM call refused before it was made, by a quota, the bulkhead or the
+     * circuit breaker.
+     */
+    class LlmRejectedException extends LlmException {
+
+        public LlmRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Check if the provider is ready to take requests.
+     *
+     * @return true if the provider is configured
+     */
+    boolean isConfigured();
+
+    /**
+     * Get the configured model name.
+     */
+    String getModel();
+
+    /**
+     * Charge the current caller for a call whose answer it shares with
+     * another caller, without making a call.
+     *
+     * @param operation short name of the calling feature, used as a metric tag
+     * @throws LlmRejectedException if the caller may not make another call
+     */
+    default void chargeShared(String operation) {
+    }
+
+    /**
+     * Send a chat completion without blocking the caller.
+     *
+     * @param operation short name of the calling feature, used as a metric tag
+     * @param request the request
+     * @return the content of the first choice
+     */
+    CompletableFuture<String> chatAsync(String operation, ChatRequest request);
+
+    /**
+     * Stream a chat completion without blocking the caller.
+     *
+     * <p>{@code onDelta} is called once per content fragment, in order. An
+     * exception thrown by it is logged and does not abort the stream.</p>
+     *
+     * @param operation short name of the calling feature, used as a metric tag
+     * @param request the request
+     * @param onDelta receives each content fragment as it arrives
+     * @return the full content of the first choice
+     */
+    CompletableFuture<String> chatStreamAsync(String operation, ChatRequest request, Consumer<String> onDelta);
+
+    /**
+     * Send a chat completion and wait for the result.
+     *
+     * @param operation short name of the calling feature, used as a metric tag
+     * @param request the request
+     * @return the content of the first choice
+     * @throws LlmException if the call fails
+     */
+    default String chat(String operation, ChatRequest request) {
+        return join(chatAsync(operation, request));
+    }
+
+    /**
+     * Stream a chat completion and wait for the full result.
+     *
+     * @param operation short name of the calling feature, used as a metric tag
+     * @param request the request
+     * @param onDelta receives each content fragment as it arrives
+     * @return the full content of the first choice
+     * @throws LlmException if the call fails
+     */
+    default String chatStream(String operation, ChatRequest request, Consumer<String> onDelta) {
+        return join(chatStreamAsync(operation, request, onDelta));
+    }
+
+    private static String join(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof LlmException llmException) {
+                throw llmException;
+            }
+            throw new LlmException("LLM request failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.LlmRejectedException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Per-user token bucket quota for LLM calls.
+ *
+ * <p>Each user has a bucket of {@code llm.quota.capacity} tokens, refilled at
+ * {@code llm.quota.refill-per-minute}; every LLM call made on their behalf
+ * takes one. Calls without a user, such as background conflict ranking, are
+ * not limited. A capacity of 0 disables the quota.</p>
+ *
+
+ * @see GuardedLlmProvider
+ */
+@Component
+public class LlmUserQuota {
+
+    private final Clock clock;
+    private final int capacity;
+    private final double refillPerMs;
+    private final Cache<String, Bucket> buckets;
+    private final Counter exceeded;
+
+    public LlmUserQuota(
+            Clock clock,
+            MeterRegistry meterRegistry,
+            @Value("${llm.quota.capacity:30}") int capacity,
+            @Value("${llm.quota.refill-per-minute:20}") double refillPerMinute) {
+        this.clock = clock;
+        this.capacity = capacity;
+        this.refillPerMs = refillPerMinute / Duration.ofMinutes(1).toMillis();
+        this.buckets = CacheBuilder.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+        this.exceeded = meterRegistry.counter("llm.quota.exceeded");
+    }
+
+    /**
+     * Take one token from a user's bucket.
+     *
+     * @param user the user name, or null for calls made by the system
+     * @throws LlmRejectedException if the user's bucket is empty
+     */
+    public void acquire(String user) {
+        if (user == null || capacity <= 0) {
+            return;
+        }
+        long now = clock.millis();
+        long waitMs = buckets.asMap().computeIfAbsent(user, key -> new Bucket(capacity, now)).take(now);
+        if (waitMs > 0) {
+            exceeded.increment();
+            throw new LlmRejectedException(
+                "Too many AI requests; try again in " + Math.max(1, (waitMs + 999) / 1000) + "s");
+        }
+    }
+
+    private final class Bucket {
+
+        private double tokens;
+        private long updatedAt;
+
+        Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+
+        /**
+         * Take a token, returning 0, or the milliseconds until one is available.
+         */
+        synchronized long take(long now) {
+            tokens = Math.min(capacity, tokens + Math.max(0, now - updatedAt) * refillPerMs);
+            updatedAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return refillPerMs > 0 ? (long) Math.ceil((1 - tokens) / refillPerMs) : Long.MAX_VALUE / 2;
+        }
+    }
+}
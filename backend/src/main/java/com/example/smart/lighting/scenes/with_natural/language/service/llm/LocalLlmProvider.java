@@ -0,0 +1,144 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-process {@link LlmProvider} stand-in for load tests and CI.
+ *
+ * <p>Enabled with {@code llm.provider=local}. Each operation answers with a
+ * fixed JSON template, overridable with
+ * {@code llm.local.responses.<operation>}; {@code {{input}}} in a template is
+ * replaced by the JSON-escaped user prompt. Responses are delayed by a
+ * log-normal latency with the configured median and p99 (equal values give a
+ * fixed latency), and {@code llm.local.error-rate} of calls fail as an HTTP
+ * 503 would. Latencies and failures come from a seeded random source, so runs
+ * are repeatable.</p>
+ *
+ * <p>Streamed calls deliver the response in short fragments once the latency
+ * has elapsed.</p>
+ *
+
+ * @see OpenAiLlmProvider
+ */
+@Component
+@Qualifier(GuardedLlmProvider.BACKEND)
+@ConditionalOnProperty(name = "llm.provider", havingValue = "local")
+@Slf4j
+public class LocalLlmProvider implements LlmProvider {
+
+    private static final String MODEL = "local-stand-in";
+    private static final double P99_Z_SCORE = 2.3263;
+    private static final int STREAM_FRAGMENT_LENGTH = 8;
+
+    private static final Map<String, String> DEFAULT_RESPONSES = Map.of(
+        "nlp.parse", """
+            {"intent": "light.on", "target": "all", "params": {}, "scene": null, \
+            "schedule": null, "confidence": 0.9}""",
+        "conflict.rank", """
+            {"summary": "Conflicts ranked by the local stand-in.", "enhanced_resolutions": []}""",
+        "openai.service", """
+            {"action": "turn_on", "room": null, "color": null, "brightness": null, "rgb": null}""");
+    private static final String DEFAULT_RESPONSE = "{}";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final double logMedianMs;
+    private final double logSigma;
+    private final double errorRate;
+    private final Random random;
+
+    public LocalLlmProvider(
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${llm.local.latency.median-ms:300}") long medianLatencyMs,
+            @Value("${llm.local.latency.p99-ms:1500}") long p99LatencyMs,
+            @Value("${llm.local.error-rate:0.0}") double errorRate,
+            @Value("${llm.local.seed:42}") long seed) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.logMedianMs = Math.log(Math.max(1, medianLatencyMs));
+        this.logSigma = Math.max(0, Math.log(Math.max(1, p99LatencyMs)) - logMedianMs) / P99_Z_SCORE;
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+        log.warn("Using the local LLM stand-in (median {} ms, p99 {} ms, error rate {})",
+            medianLatencyMs, p99LatencyMs, errorRate);
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    @Override
+    public String getModel() {
+        return MODEL;
+    }
+
+    @Override
+    public CompletableFuture<String> chatAsync(String operation, ChatRequest request) {
+        return respond(operation, request, content -> { });
+    }
+
+    @Override
+    public CompletableFuture<String> chatStreamAsync(String operation, ChatRequest request,
+                                                     Consumer<String> onDelta) {
+        return respond(operation, request, content -> {
+            for (int i = 0; i < content.length(); i += STREAM_FRAGMENT_LENGTH) {
+                try {
+                    onDelta.accept(content.substring(i, Math.min(content.length(), i + STREAM_FRAGMENT_LENGTH)));
+                } catch (RuntimeException e) {
+                    log.warn("Stream consumer failed for {}: {}", operation, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private CompletableFuture<String> respond(String operation, ChatRequest request, Consumer<String> deliver) {
+        long latencyMs;
+        boolean fail;
+        synchronized (random) {
+            latencyMs = Math.round(Math.exp(logMedianMs + logSigma * random.nextGaussian()));
+            fail = random.nextDouble() < errorRate;
+        }
+
+        Timer.Sample total = Timer.start(meterRegistry);
+        return CompletableFuture.supplyAsync(() -> {
+            if (fail) {
+                throw new LlmException("Local LLM stand-in returned HTTP 503");
+            }
+            String content = render(operation, request);
+            deliver.accept(content);
+            return content;
+        }, CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS))
+            .whenComplete((content, error) ->
+                total.stop(timer(operation, error == null ? "success" : "error")));
+    }
+
+    private String render(String operation, ChatRequest request) {
+        String template = environment.getProperty("llm.local.responses." + operation,
+            DEFAULT_RESPONSES.getOrDefault(operation, DEFAULT_RESPONSE));
+        String input = request.userPrompt() != null ? request.userPrompt() : "";
+        return template.replace("{{input}}", new String(JsonStringEncoder.getInstance().quoteAsString(input)));
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("llm.request")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
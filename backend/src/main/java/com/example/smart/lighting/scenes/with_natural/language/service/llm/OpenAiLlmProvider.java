@@ -0,0 +1,310 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * {@link LlmProvider} backed by the OpenAI chat completions API.
+ *
+ * <p>All OpenAI calls (NLP parsing, conflict ranking and the legacy
+ * {@code OpenAIService}) go through this one client, so they share a single
+ * HTTP/2-capable connection pool with keep-alive instead of opening a new
+ * TLS connection per request. Connect and request timeouts bound every
+ * call, and calls are non-blocking: {@link #chatAsync} returns a
+ * {@link CompletableFuture} completed on the client's own threads.</p>
+ *
+ * <p>Each call records two timers tagged with the operation and outcome:
+ * {@code llm.response.headers} (time until the response headers arrive) and
+ * {@code llm.request} (time until the full body is read), plus the token
+ * usage reported by the API in {@code llm.tokens}.</p>
+ *
+ * <p>{@link #chatStreamAsync} requests a server-sent-event stream instead and
+ * hands each content delta to the caller as it arrives, so callers can act on
+ * a partial answer; streamed calls also record
+ * {@code llm.response.first-token}.</p>
+ *
+ * <p>{@code openai.base-url} can point at any OpenAI-compatible server, such
+ * as a self-hosted model or a mock.</p>
+ *
+
+ */
+@Component
+@Qualifier(GuardedLlmProvider.BACKEND)
+@ConditionalOnProperty(name = "llm.provider", havingValue = "openai", matchIfMissing = true)
+@Slf4j
+public class OpenAiLlmProvider implements LlmProvider {
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final HttpClient httpClient;
+    private final URI completionsUri;
+    private final String apiKey;
+    private final String model;
+    private final Duration requestTimeout;
+
+    public OpenAiLlmProvider(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${openai.api-key:}") String apiKey,
+            @Value("${openai.model:gpt-4o}") String model,
+            @Value("${openai.base-url:https://api.openai.com/v1}") String baseUrl,
+            @Value("${openai.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+            @Value("${openai.http.request-timeout-ms:30000}") long requestTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.apiKey = apiKey;
+        this.model = model;
+        this.completionsUri = URI.create(baseUrl.replaceAll("/+$", "") + "/chat/completions");
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .build();
+    }
+
+    /**
+     * Check if an API key is configured.
+     *
+     * @return true if API key is configured
+     */
+    @Override
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isBlank();
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public CompletableFuture<String> chatAsync(String operation, ChatRequest request) {
+        if (!isConfigured()) {
+            return CompletableFuture.failedFuture(new LlmException("OpenAI API key not configured"));
+        }
+
+        HttpRequest httpRequest;
+        try {
+            httpRequest = httpRequest(request, false);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new LlmException("Could not serialize LLM request", e));
+        }
+
+        Timer.Sample total = Timer.start(meterRegistry);
+        Timer.Sample headers = Timer.start(meterRegistry);
+        BodyHandler<String> handler = info -> {
+            headers.stop(timer("llm.response.headers", operation, info.statusCode() < 400 ? "success" : "error"));
+            return BodySubscribers.ofString(StandardCharsets.UTF_8);
+        };
+
+        return httpClient.sendAsync(httpRequest, handler)
+            .thenApply(response -> extractContent(operation, response))
+            .whenComplete((content, error) ->
+                total.stop(timer("llm.request", operation, error == null ? "success" : "error")));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>{@code onDelta} runs on the HTTP client's own threads.</p>
+     */
+    @Override
+    public CompletableFuture<String> chatStreamAsync(String operation, ChatRequest request,
+                                                     Consumer<String> onDelta) {
+        if (!isConfigured()) {
+            return CompletableFuture.failedFuture(new LlmException("OpenAI API key not configured"));
+        }
+
+        HttpRequest httpRequest;
+        try {
+            httpRequest = httpRequest(request, true);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new LlmException("Could not serialize LLM request", e));
+        }
+
+        Timer.Sample total = Timer.start(meterRegistry);
+        Timer.Sample headers = Timer.start(meterRegistry);
+        Timer.Sample firstToken = Timer.start(meterRegistry);
+        BodyHandler<String> handler = info -> {
+            if (info.statusCode() >= 400) {
+                headers.stop(timer("llm.response.headers", operation, "error"));
+                return BodySubscribers.ofString(StandardCharsets.UTF_8);
+            }
+            headers.stop(timer("llm.response.headers", operation, "success"));
+            EventStreamSubscriber subscriber = new EventStreamSubscriber(operation, delta -> {
+                if (delta.first()) {
+                    firstToken.stop(timer("llm.response.first-token", operation, "success"));
+                }
+                onDelta.accept(delta.content());
+            });
+            return BodySubscribers.fromLineSubscriber(
+                subscriber, EventStreamSubscriber::content, StandardCharsets.UTF_8, null);
+        };
+
+        return httpClient.sendAsync(httpRequest, handler)
+            .thenApply(response -> {
+                if (response.statusCode() >= 400) {
+                    throw new LlmException("OpenAI returned HTTP " + response.statusCode());
+                }
+                if (response.body().isEmpty()) {
+                    throw new LlmException("No response from OpenAI");
+                }
+                return response.body();
+            })
+            .whenComplete((content, error) ->
+                total.stop(timer("llm.request", operation, error == null ? "success" : "error")));
+    }
+
+    private HttpRequest httpRequest(ChatRequest request, boolean stream) throws JsonProcessingException {
+        return HttpRequest.newBuilder(completionsUri)
+            .timeout(requestTimeout)
+            .header("Content-Type", "application/json")
+            .header("Authorization", "Bearer " + apiKey)
+            .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody(request, stream))))
+            .build();
+    }
+
+    private Map<String, Object> requestBody(ChatRequest request, boolean stream) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", model);
+        body.put("messages", List.of(
+            Map.of("role", "system", "content", request.systemPrompt()),
+            Map.of("role", "user", "content", request.userPrompt())
+        ));
+        body.put("temperature", request.temperature());
+        if (request.maxTokens() != null) {
+            body.put("max_tokens", request.maxTokens());
+        }
+        if (request.jsonResponse()) {
+            body.put("response_format", Map.of("type", "json_object"));
+        }
+        if (stream) {
+            body.put("stream", true);
+            body.put("stream_options", Map.of("include_usage", true));
+        }
+        return body;
+    }
+
+    private String extractContent(String operation, HttpResponse<String> response) {
+        if (response.statusCode() >= 400) {
+            throw new LlmException("OpenAI returned HTTP " + response.statusCode());
+        }
+        try {
+            JsonNode root = objectMapper.readTree(response.body());
+            countTokens(operation, root);
+            JsonNode content = root.path("choices").path(0).path("message").path("content");
+            if (!content.isTextual()) {
+                throw new LlmException("No response from OpenAI");
+            }
+            return content.asText();
+        } catch (JsonProcessingException e) {
+            throw new LlmException("Failed to parse OpenAI response", e);
+        }
+    }
+
+    private void countTokens(String operation, JsonNode root) {
+        JsonNode tokens = root.path("usage").path("total_tokens");
+        if (tokens.isNumber()) {
+            meterRegistry.counter("llm.tokens", "operation", operation).increment(tokens.asDouble());
+        }
+    }
+
+    private Timer timer(String name, String operation, String outcome) {
+        return Timer.builder(name)
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private record Delta(String content, boolean first) {}
+
+    /**
+     * Collects the content deltas of a server-sent-event completion stream.
+     * Lines arrive in order from a single subscription, so no locking is needed.
+     */
+    private final class EventStreamSubscriber implements Flow.Subscriber<String> {
+
+        private final String operation;
+        private final Consumer<Delta> onDelta;
+        private final StringBuilder content = new StringBuilder();
+
+        EventStreamSubscriber(String operation, Consumer<Delta> onDelta) {
+            this.operation = operation;
+            this.onDelta = onDelta;
+        }
+
+        String content() {
+            return content.toString();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            String data = line.substring("data:".length()).trim();
+            if (data.isEmpty() || "[DONE]".equals(data)) {
+                return;
+            }
+
+            JsonNode event;
+            try {
+                event = objectMapper.readTree(data);
+            } catch (JsonProcessingException e) {
+                log.debug("Skipping unreadable stream event: {}", e.getMessage());
+                return;
+            }
+            countTokens(operation, event);
+
+            JsonNode delta = event.path("choices").path(0).path("delta").path("content");
+            if (!delta.isTextual() || delta.asText().isEmpty()) {
+                return;
+            }
+            boolean first = content.isEmpty();
+            content.append(delta.asText());
+            try {
+                onDelta.accept(new Delta(delta.asText(), first));
+            } catch (RuntimeException e) {
+                log.warn("Stream consumer failed for {}: {}", operation, e.getMessage());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Surfaced through the response future
+        }
+
+        @Override
+        public void onComplete() {
+            // The finisher reads the collected content
+        }
+    }
+}
@@ -7,6 +7,8 @@ import com.example.smart.lighting.scenes.with_natural.language.repository.Device
 import com.example.smart.lighting.scenes.with_natural.language.repository.SensorReadingRepository;
 import com.example.smart.lighting.scenes.with_natural.language.service.ConfigService;
 import com.example.smart.lighting.scenes.with_natural.language.service.SceneCommandTracker;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationEngine;
+import com.example.smart.lighting.scenes.with_natural.language.service.sensor.SensorAggregator;
 import com.example.smart.lighting.scenes.with_natural.language.websocket.WebSocketEventService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -45,6 +47,19 @@ public class MqttMessageHandler {
     @Autowired
     private SceneCommandTracker sceneCommandTracker;
 
+    @Lazy
+    @Autowired
+    private AutomationEngine automationEngine;
+
+    @Lazy
+    @Autowired
+    private SensorAggregator sensorAggregator;
+
+    /** Full metric names for the short payload keys sent by the ESP32. */
+    private static final Map<String, String> SENSOR_METRICS = Map.of(
+        "t", "temperature", "h", "humidity", "l", "luminosity", "light", "luminosity",
+        "p", "pressure", "a", "audio");
+
     public MqttMessageHandler(ObjectMapper objectMapper,
                               DeviceRepository deviceRepository,
                               DeviceStateRepository deviceStateRepository,
@@ -181,6 +196,9 @@ public class MqttMessageHandler {
             int ledIndex = Integer.parseInt(topicParts[2]);
 
             Map<String, Object> state = objectMapper.readValue(payload, new TypeReference<>() {});
+            if (automationEngine != null && state.get("on") instanceof Boolean on) {
+                automationEngine.onStateChange("light." + ledIndex, on ? "on" : "off", isRetained);
+            }
 
             Optional<Device> deviceOpt = deviceRepository.findByLedIndex(ledIndex);
             if (deviceOpt.isEmpty()) {
@@ -262,6 +280,9 @@ public class MqttMessageHandler {
                 return;
             }
 
+            // Automations run from memory, ahead of the device lookup
+            publishSensorReadings(sensorName, sensorData, isRetained);
+
             Optional<Device> deviceOpt = deviceRepository.findBySensorId(sensorName);
             if (deviceOpt.isEmpty()) {
                 log.debug("No device found for sensor {}", sensorName);
@@ -292,6 +313,18 @@ public class MqttMessageHandler {
         }
     }
 
+    private void publishSensorReadings(String sensorName, Map<String, Object> sensorData, boolean isRetained) {
+        if (sensorAggregator == null) {
+            return;
+        }
+        sensorData.forEach((key, value) -> {
+            if (value instanceof Number number) {
+                sensorAggregator.record(sensorName, SENSOR_METRICS.getOrDefault(key, key),
+                    number.doubleValue(), isRetained);
+            }
+        });
+    }
+
     @SuppressWarnings("unchecked")
     private Map<String, Object> parseSensorPayload(String payload) {
         try {
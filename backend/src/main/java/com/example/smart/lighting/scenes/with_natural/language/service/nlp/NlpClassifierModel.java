@@ -0,0 +1,262 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Hashed n-gram softmax model behind {@link NlpIntentClassifier}.
+ *
+ * <p>Text is lowercased and split into words, with every run of digits
+ * replaced by {@code #}. Features are words, word pairs and the character
+ * trigrams of each word, which tolerates misspellings, hashed into
+ * {@value #BUCKETS} buckets.
+ * Each head (intent, target, scene, params) is an independent multinomial
+ * logistic regression over those features, trained by stochastic gradient
+ * descent. Weights are stored only for buckets seen in training, so the model
+ * stays small enough to save as JSON.</p>
+ *
+ * <p>Bucket numbers come from {@link String#hashCode()}, whose value is fixed by
+ * the language specification, so a saved model stays valid across JVMs.</p>
+ *
+
+ * @param trainedAt when the model was trained
+ * @param examples the number of history records it was trained on
+ * @param heldOutAccuracy the share of confident held-out predictions that were right
+ * @param heldOutCoverage the share of held-out examples predicted confidently
+ * @param heads the classifier for each slot, by name
+ */
+public record NlpClassifierModel(Instant trainedAt, int examples, double heldOutAccuracy,
+                                 double heldOutCoverage, Map<String, Head> heads) {
+
+    static final int BUCKETS = 1 << 20;
+
+    private static final int EPOCHS = 30;
+    private static final double LEARNING_RATE = 2.0;
+    private static final long SEED = 47L;
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+    /**
+     * A labelled training example.
+     *
+     * @param text the raw command text
+     * @param labels the expected label of each head
+     */
+    public record Example(String text, Map<String, String> labels) {}
+
+    /**
+     * The most probable label of one head.
+     *
+     * @param label the label
+     * @param probability its softmax probability
+     */
+    public record Prediction(String label, double probability) {}
+
+    /**
+     * One multinomial logistic regression.
+     *
+     * @param labels the class labels
+     * @param bias the bias of each class
+     * @param weights the weight of each class, by feature bucket
+     */
+    public record Head(List<String> labels, double[] bias, Map<Integer, double[]> weights) {
+
+        Prediction predict(int[] features) {
+            double[] probabilities = probabilities(features);
+            int best = 0;
+            for (int c = 1; c < probabilities.length; c++) {
+                if (probabilities[c] > probabilities[best]) {
+                    best = c;
+                }
+            }
+            return new Prediction(labels.get(best), probabilities[best]);
+        }
+
+        private double[] probabilities(int[] features) {
+            double[] logits = bias.clone();
+            double value = featureValue(features);
+            for (int feature : features) {
+                double[] w = weights.get(feature);
+                if (w != null) {
+                    for (int c = 0; c < logits.length; c++) {
+                        logits[c] += w[c] * value;
+                    }
+                }
+            }
+            return softmax(logits);
+        }
+
+        private static Head train(List<int[]> features, List<String> targets) {
+            List<String> labels = new ArrayList<>(new TreeSet<>(targets));
+            Map<String, Integer> index = new HashMap<>();
+            for (int c = 0; c < labels.size(); c++) {
+                index.put(labels.get(c), c);
+            }
+            Head head = new Head(List.copyOf(labels), new double[labels.size()], new HashMap<>());
+
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < features.size(); i++) {
+                order.add(i);
+            }
+            Random random = new Random(SEED);
+            for (int epoch = 0; epoch < EPOCHS; epoch++) {
+                Collections.shuffle(order, random);
+                double rate = LEARNING_RATE / (1 + 0.1 * epoch);
+                for (int i : order) {
+                    head.step(features.get(i), index.get(targets.get(i)), rate);
+                }
+            }
+            return head;
+        }
+
+        private void step(int[] features, int target, double rate) {
+            double[] gradient = probabilities(features);
+            gradient[target] -= 1;
+            double value = featureValue(features);
+            for (int c = 0; c < bias.length; c++) {
+                bias[c] -= rate * gradient[c];
+            }
+            for (int feature : features) {
+                double[] w = weights.computeIfAbsent(feature, f -> new double[bias.length]);
+                for (int c = 0; c < w.length; c++) {
+                    w[c] -= rate * gradient[c] * value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Train a model on history, holding out one example in ten to measure it.
+     *
+     * @param examples the labelled history
+     * @param minConfidence the confidence below which the classifier abstains
+     * @param now the training time
+     * @return the trained model
+     */
+    public static NlpClassifierModel train(List<Example> examples, double minConfidence, Instant now) {
+        List<Example> training = new ArrayList<>();
+        List<Example> heldOut = new ArrayList<>();
+        for (Example example : examples) {
+            // Split on the text so repeats of a phrase land on the same side
+            (Math.floorMod(example.text().hashCode(), 10) == 0 ? heldOut : training).add(example);
+        }
+
+        int confident = 0;
+        int correct = 0;
+        if (!training.isEmpty() && !heldOut.isEmpty()) {
+            Map<String, Head> trial = trainHeads(training);
+            for (Example example : heldOut) {
+                Map<String, Prediction> predictions = predict(trial, example.text());
+                if (confidence(predictions) >= minConfidence) {
+                    confident++;
+                    if (predictions.entrySet().stream()
+                            .allMatch(p -> p.getValue().label().equals(example.labels().get(p.getKey())))) {
+                        correct++;
+                    }
+                }
+            }
+        }
+
+        return new NlpClassifierModel(now, examples.size(),
+            confident == 0 ? 0 : (double) correct / confident,
+            heldOut.isEmpty() ? 0 : (double) confident / heldOut.size(),
+            trainHeads(examples));
+    }
+
+    /**
+     * Predict the label of every head.
+     *
+     * @param text the command text
+     * @return the most probable label of each head, by head name
+     */
+    public Map<String, Prediction> predict(String text) {
+        return predict(heads, text);
+    }
+
+    /**
+     * Combine head predictions into one confidence.
+     *
+     * @return the probability that every head is right, assuming independence
+     */
+    public static double confidence(Map<String, Prediction> predictions) {
+        return predictions.values().stream().mapToDouble(Prediction::probability).reduce(1.0, (a, b) -> a * b);
+    }
+
+    private static Map<String, Head> trainHeads(List<Example> examples) {
+        List<int[]> features = examples.stream().map(example -> features(example.text())).toList();
+        Map<String, Head> heads = new LinkedHashMap<>();
+        for (String name : examples.get(0).labels().keySet()) {
+            heads.put(name, Head.train(features, examples.stream().map(e -> e.labels().get(name)).toList()));
+        }
+        return heads;
+    }
+
+    private static Map<String, Prediction> predict(Map<String, Head> heads, String text) {
+        int[] features = features(text);
+        Map<String, Prediction> predictions = new LinkedHashMap<>();
+        heads.forEach((name, head) -> predictions.put(name, head.predict(features)));
+        return predictions;
+    }
+
+    /**
+     * Hash the words, word pairs and word trigrams of a text into buckets.
+     */
+    static int[] features(String text) {
+        List<String> words = tokens(text);
+        TreeSet<Integer> buckets = new TreeSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            buckets.add(bucket("w:" + word));
+            if (i > 0) {
+                buckets.add(bucket("b:" + words.get(i - 1) + ' ' + word));
+            }
+            String padded = '<' + word + '>';
+            for (int j = 0; j + 3 <= padded.length(); j++) {
+                buckets.add(bucket("c:" + padded.substring(j, j + 3)));
+            }
+        }
+        return buckets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Split text into lowercase words, replacing every run of digits with {@code #}.
+     */
+    static List<String> tokens(String text) {
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+            .filter(word -> !word.isEmpty())
+            .map(word -> DIGITS.matcher(word).replaceAll("#"))
+            .toList();
+    }
+
+    private static int bucket(String feature) {
+        return Math.floorMod(feature.hashCode(), BUCKETS);
+    }
+
+    private static double featureValue(int[] features) {
+        // L2-normalised binary features
+        return features.length == 0 ? 0 : 1 / Math.sqrt(features.length);
+    }
+
+    private static double[] softmax(double[] logits) {
+        double max = Arrays.stream(logits).max().orElse(0);
+        double sum = 0;
+        double[] result = new double[logits.length];
+        for (int c = 0; c < logits.length; c++) {
+            result[c] = Math.exp(logits[c] - max);
+            sum += result[c];
+        }
+        for (int c = 0; c < result.length; c++) {
+            result[c] /= sum;
+        }
+        return result;
+    }
+}
@@ -2,9 +2,9 @@ package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
 
 import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
 import com.example.smart.lighting.scenes.with_natural.language.entity.Scene;
-import com.example.smart.lighting.scenes.with_natural.language.repository.SceneRepository;
 import com.example.smart.lighting.scenes.with_natural.language.service.MqttService;
 import com.example.smart.lighting.scenes.with_natural.language.service.SceneCommandTracker;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -13,6 +13,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Executes parsed NLP commands via MQTT.
@@ -25,10 +28,16 @@ import java.util.Optional;
 public class NlpCommandExecutor {
 
     private final MqttService mqttService;
-    private final SceneRepository sceneRepository;
+    private final SceneCatalog sceneCatalog;
     private final SceneCommandTracker sceneCommandTracker;
     private final NlpColorUtils colorUtils;
 
+    /**
+     * An immediate command resolved to an LED payload but not yet published.
+     */
+    private record PlannedCommand(UUID sceneId, String name, List<Integer> ledIndices,
+                                  Map<String, Object> command, String description) {}
+
     /**
      * Execute an immediate (non-scheduled) command.
      *
@@ -36,6 +45,53 @@ public class NlpCommandExecutor {
      * @return result message
      */
     public String executeImmediateCommand(ParsedCommand parsed) {
+        PlannedCommand plan = planImmediateCommand(parsed);
+        publish(plan);
+        return plan.description();
+    }
+
+    /**
+     * Execute several immediate commands as one batched MQTT publish.
+     *
+     * <p>The commands are merged per LED in order, so a later command
+     * overrides an earlier one for the LEDs they share, and every LED is
+     * acknowledged under a single correlation ID.</p>
+     *
+     * @param commands the parsed commands, in utterance order
+     * @return one result message per command
+     */
+    public List<String> executeBatch(List<ParsedCommand> commands) {
+        List<PlannedCommand> plans = commands.stream().map(this::planImmediateCommand).toList();
+
+        Map<Integer, Map<String, Object>> commandsByLed = new TreeMap<>();
+        for (PlannedCommand plan : plans) {
+            for (int ledIndex : plan.ledIndices()) {
+                commandsByLed.computeIfAbsent(ledIndex, led -> new HashMap<>()).putAll(plan.command());
+            }
+        }
+
+        String commandName = "NLP batch: "
+            + plans.stream().map(PlannedCommand::name).collect(Collectors.joining(", "));
+        String correlationId = sceneCommandTracker.registerCommand(null, commandName, commandsByLed.size());
+        mqttService.publishLedBatch(commandsByLed, correlationId);
+
+        return plans.stream().map(PlannedCommand::description).toList();
+    }
+
+    /**
+     * Apply a scene by name to a specific target.
+     *
+     * @param sceneName the scene name
+     * @param userTarget the target room (or null for all)
+     * @return result message
+     */
+    public String applyScene(String sceneName, String userTarget) {
+        PlannedCommand plan = planScene(sceneName, userTarget);
+        publish(plan);
+        return plan.description();
+    }
+
+    private PlannedCommand planImmediateCommand(ParsedCommand parsed) {
         String intent = parsed.getIntent();
         Object target = parsed.getTarget();
         Map<String, Object> params = parsed.getParams() != null
@@ -65,33 +121,18 @@ public class NlpCommandExecutor {
                 command.put("color_temp", params.get("color_temp"));
             }
             case "scene.apply" -> {
-                return applyScene(parsed.getScene(), target != null ? target.toString() : null);
+                return planScene(parsed.getScene(), target != null ? target.toString() : null);
             }
             default -> throw new IllegalArgumentException("Unknown intent: " + intent);
         }
 
         List<Integer> ledIndices = getLedIndicesForTarget(target);
-
-        String commandName = "NLP: " + intent;
-        String correlationId = sceneCommandTracker.registerCommand(null, commandName, ledIndices.size());
-
-        for (int ledIndex : ledIndices) {
-            command.put("correlationId", correlationId);
-            mqttService.publishLedCommand(ledIndex, new HashMap<>(command));
-        }
-
-        return "Command sent to " + ledIndices.size() + " light(s)";
+        return new PlannedCommand(null, "NLP: " + intent, ledIndices, command,
+            "Command sent to " + ledIndices.size() + " light(s)");
     }
 
-    /**
-     * Apply a scene by name to a specific target.
-     *
-     * @param sceneName the scene name
-     * @param userTarget the target room (or null for all)
-     * @return result message
-     */
-    public String applyScene(String sceneName, String userTarget) {
-        Optional<Scene> sceneOpt = sceneRepository.findByNameIgnoreCaseAndIsActiveTrue(sceneName);
+    private PlannedCommand planScene(String sceneName, String userTarget) {
+        Optional<Scene> sceneOpt = sceneCatalog.findByName(sceneName);
         if (sceneOpt.isEmpty()) {
             throw new IllegalArgumentException("Scene not found: " + sceneName);
         }
@@ -120,18 +161,22 @@ public class NlpCommandExecutor {
 
         List<Integer> ledIndices = getLedIndicesForTarget(effectiveTarget);
 
+        String targetDesc = "all".equalsIgnoreCase(effectiveTarget.toString())
+            ? "all lights"
+            : effectiveTarget + " (" + ledIndices.size() + " light(s))";
+        return new PlannedCommand(scene.getId(), scene.getName(), ledIndices, command,
+            "Applied scene '" + scene.getName() + "' to " + targetDesc);
+    }
+
+    private void publish(PlannedCommand plan) {
         String correlationId = sceneCommandTracker.registerCommand(
-            scene.getId(), scene.getName(), ledIndices.size());
+            plan.sceneId(), plan.name(), plan.ledIndices().size());
 
-        for (int ledIndex : ledIndices) {
+        Map<String, Object> command = new HashMap<>(plan.command());
+        for (int ledIndex : plan.ledIndices()) {
             command.put("correlationId", correlationId);
             mqttService.publishLedCommand(ledIndex, new HashMap<>(command));
         }
-
-        String targetDesc = "all".equalsIgnoreCase(effectiveTarget.toString())
-            ? "all lights"
-            : effectiveTarget + " (" + ledIndices.size() + " light(s))";
-        return "Applied scene '" + scene.getName() + "' to " + targetDesc;
     }
 
     /**
@@ -139,6 +184,7 @@ public class NlpCommandExecutor {
      *
      * @param target the target room or "all"
      * @return list of LED indices
+     * @throws IllegalArgumentException if no LED is mapped to the room
      */
     public List<Integer> getLedIndicesForTarget(Object target) {
         if (target == null || "all".equalsIgnoreCase(target.toString())) {
@@ -154,7 +200,7 @@ public class NlpCommandExecutor {
             case "bathroom", "bath" -> List.of(2);
             case "hallway" -> List.of(3);
             case "living_room", "living" -> List.of(4);
-            default -> List.of(0, 1, 2, 3, 4);
+            default -> throw new IllegalArgumentException("No lights mapped to room: " + target);
         };
     }
 }
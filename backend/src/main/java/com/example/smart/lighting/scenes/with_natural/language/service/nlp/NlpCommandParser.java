@@ -2,14 +2,20 @@ package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
 
 import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
 import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ScheduleConfig;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex.NameMatch;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Parses and validates NLP commands from OpenAI responses.
@@ -23,9 +29,10 @@ public class NlpCommandParser {
 
     private final ObjectMapper objectMapper;
     private final NlpColorUtils colorUtils;
+    private final NameIndex nameIndex;
 
-    private static final List<String> AVAILABLE_ROOMS = List.of(
-        "bedroom", "living_room", "living-room", "kitchen", "bathroom", "hallway", "all"
+    private static final List<String> PARAM_INTENTS = List.of(
+        "light.brightness", "light.color", "light.color_temp"
     );
 
     /**
@@ -34,45 +41,113 @@ public class NlpCommandParser {
      * @param response the OpenAI response
      * @return parsed command or null if parsing failed
      */
-    @SuppressWarnings("unchecked")
     public ParsedCommand parseOpenAIResponse(String response) {
         try {
-            String json = response.trim();
-            if (json.startsWith("```")) {
-                json = json.replaceAll("```json\\s*", "").replaceAll("```\\s*", "");
-            }
-
-            Map<String, Object> map = objectMapper.readValue(json, new TypeReference<>() {});
+            Map<String, Object> map = objectMapper.readValue(stripCodeFence(response), new TypeReference<>() {});
+            return fromMap(map);
 
-            ParsedCommand.ParsedCommandBuilder builder = ParsedCommand.builder()
-                .intent((String) map.get("intent"))
-                .target(map.get("target"))
-                .scene((String) map.get("scene"))
-                .confidence(map.get("confidence") != null
-                    ? ((Number) map.get("confidence")).doubleValue() : 0.8);
+        } catch (Exception e) {
+            log.error("Error parsing OpenAI response: {}", e.getMessage());
+            return null;
+        }
+    }
 
-            if (map.get("params") != null) {
-                builder.params((Map<String, Object>) map.get("params"));
+    /**
+     * Parse a batch response from OpenAI into its commands.
+     *
+     * <p>Accepts {@code {"commands": [...]}}, a bare array, or a single
+     * command object.</p>
+     *
+     * @param response the OpenAI response
+     * @return the commands in order, or an empty list if parsing failed
+     */
+    @SuppressWarnings("unchecked")
+    public List<ParsedCommand> parseBatchResponse(String response) {
+        try {
+            JsonNode root = objectMapper.readTree(stripCodeFence(response));
+            JsonNode commands = root.isArray() ? root : root.path("commands");
+            if (!commands.isArray()) {
+                return List.of(fromMap(objectMapper.convertValue(root, Map.class)));
             }
 
-            if (map.get("schedule") != null) {
-                Map<String, Object> scheduleMap = (Map<String, Object>) map.get("schedule");
-                ScheduleConfig schedule = ScheduleConfig.builder()
-                    .time((String) scheduleMap.get("time"))
-                    .trigger((String) scheduleMap.get("trigger"))
-                    .offsetMinutes(scheduleMap.get("offsetMinutes") != null
-                        ? ((Number) scheduleMap.get("offsetMinutes")).intValue() : null)
-                    .recurrence(scheduleMap.get("recurrence"))
-                    .build();
-                builder.schedule(schedule);
+            List<ParsedCommand> parsed = new ArrayList<>();
+            for (JsonNode command : commands) {
+                parsed.add(fromMap(objectMapper.convertValue(command, Map.class)));
             }
-
-            return builder.build();
+            return parsed;
 
         } catch (Exception e) {
-            log.error("Error parsing OpenAI response: {}", e.getMessage());
+            log.error("Error parsing OpenAI batch response: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Build a command from a partially streamed response, if enough of it has
+     * arrived to show a valid preview.
+     *
+     * <p>The intent and target (or scene) must be complete, plus the params
+     * for intents that need them. A schedule is included once it is complete.</p>
+     *
+     * @param fields the completed top-level fields
+     * @return a validated partial command, or null if not ready or invalid
+     */
+    public ParsedCommand parsePartial(Map<String, Object> fields) {
+        if (!(fields.get("intent") instanceof String intent)) {
             return null;
         }
+        String required = intent.startsWith("scene.") ? "scene" : "target";
+        if (!fields.containsKey(required)) {
+            return null;
+        }
+        if (PARAM_INTENTS.contains(intent) && !fields.containsKey("params")) {
+            return null;
+        }
+
+        try {
+            ParsedCommand parsed = fromMap(fields);
+            return validateParsedCommand(parsed) == null ? parsed : null;
+        } catch (RuntimeException e) {
+            log.debug("Partial response not previewable yet: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String stripCodeFence(String response) {
+        String json = response.trim();
+        if (json.startsWith("```")) {
+            json = json.replaceAll("```json\\s*", "").replaceAll("```\\s*", "");
+        }
+        return json;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ParsedCommand fromMap(Map<String, Object> map) {
+        ParsedCommand.ParsedCommandBuilder builder = ParsedCommand.builder()
+            .intent((String) map.get("intent"))
+            .target(map.get("target"))
+            .scene((String) map.get("scene"))
+            .confidence(map.get("confidence") != null
+                ? ((Number) map.get("confidence")).doubleValue() : 0.8);
+
+        if (map.get("params") != null) {
+            // Copied so validation can normalize colours without touching the source
+            builder.params(new LinkedHashMap<>((Map<String, Object>) map.get("params")));
+        }
+
+        if (map.get("schedule") != null) {
+            Map<String, Object> scheduleMap = (Map<String, Object>) map.get("schedule");
+            ScheduleConfig schedule = ScheduleConfig.builder()
+                .time((String) scheduleMap.get("time"))
+                .trigger((String) scheduleMap.get("trigger"))
+                .offsetMinutes(scheduleMap.get("offsetMinutes") != null
+                    ? ((Number) scheduleMap.get("offsetMinutes")).intValue() : null)
+                .recurrence(scheduleMap.get("recurrence"))
+                .build();
+            builder.schedule(schedule);
+        }
+
+        return builder.build();
     }
 
     /**
@@ -93,11 +168,17 @@ public class NlpCommandParser {
                 return "Please specify which room or 'all lights'.";
             }
 
-            String targetStr = target.toString().toLowerCase()
-                .replace(" ", "_").replace("-", "_");
-            if (!targetStr.equals("all") && !AVAILABLE_ROOMS.contains(targetStr)) {
-                return "Unknown room: '" + target
-                    + "'. Available rooms: bedroom, living room, kitchen, bathroom, hallway, or 'all'.";
+            if (!NameIndex.roomKey(target.toString()).equals("all")) {
+                Optional<NameMatch> room = nameIndex.resolve(NameIndex.Kind.ROOM, target.toString());
+                if (room.isEmpty()) {
+                    return "Unknown room: '" + target + "'. " + availableRooms();
+                }
+                if (!NameIndex.isLedRoom(room.get().key())) {
+                    // Known to the database but not wired to any LED
+                    return "There are no lights I can control in '" + room.get().name() + "'. " + availableRooms();
+                }
+                // Canonicalise so the executor and previews see the indexed room
+                parsed.setTarget(room.get().key());
             }
         }
 
@@ -115,6 +196,11 @@ public class NlpCommandParser {
             if (parsed.getScene() == null || parsed.getScene().isBlank()) {
                 return "Please specify which scene to apply.";
             }
+            Optional<NameMatch> scene = nameIndex.resolve(NameIndex.Kind.SCENE, parsed.getScene());
+            if (scene.isEmpty()) {
+                return "Unknown scene: '" + parsed.getScene() + "'.";
+            }
+            parsed.setScene(scene.get().name());
         }
 
         if (parsed.getConfidence() != null && parsed.getConfidence() < 0.5) {
@@ -124,6 +210,10 @@ public class NlpCommandParser {
         return null;
     }
 
+    private String availableRooms() {
+        return "Available rooms: " + String.join(", ", nameIndex.ledRoomNames()) + ", or 'all'.";
+    }
+
     private String validateBrightness(ParsedCommand parsed) {
         if ("light.brightness".equals(parsed.getIntent())) {
             Map<String, Object> params = parsed.getParams();
@@ -0,0 +1,144 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.NlpCommand;
+import com.example.smart.lighting.scenes.with_natural.language.repository.NlpCommandRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for NLP command history.
+ *
+ * <p>Executing a command only puts its history record on a bounded in-memory
+ * queue; a background thread saves queued records in batches every
+ * {@code nlp.history.flush-interval-ms}, so the user's request never waits on
+ * the database. History is an audit trail, not part of the command, so under
+ * overload records are dropped rather than slowing commands down: a full
+ * queue or a failed batch write increments {@code nlp.history.dropped},
+ * tagged with the reason.</p>
+ *
+ * <p>Each batch goes to the database as JDBC insert batches sized by
+ * {@code hibernate.jdbc.batch_size}, which follows
+ * {@code nlp.history.batch-size}.</p>
+ *
+ * <p>Records still queued at shutdown are written before the application
+ * stops.</p>
+ *
+
+ * @see NlpCommand
+ */
+@Component
+@Slf4j
+public class NlpHistoryWriter {
+
+    private final NlpCommandRepository nlpCommandRepository;
+    private final BlockingQueue<NlpCommand> queue;
+    private final int batchSize;
+    private final ScheduledExecutorService writer;
+    private final Counter droppedQueueFull;
+    private final Counter droppedWriteFailed;
+    private final Counter written;
+
+    public NlpHistoryWriter(
+            NlpCommandRepository nlpCommandRepository,
+            MeterRegistry meterRegistry,
+            @Value("${nlp.history.queue-capacity:10000}") int queueCapacity,
+            @Value("${nlp.history.batch-size:200}") int batchSize,
+            @Value("${nlp.history.flush-interval-ms:500}") long flushIntervalMs) {
+        this.nlpCommandRepository = nlpCommandRepository;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.droppedQueueFull = meterRegistry.counter("nlp.history.dropped", "reason", "queue_full");
+        this.droppedWriteFailed = meterRegistry.counter("nlp.history.dropped", "reason", "write_failed");
+        this.written = meterRegistry.counter("nlp.history.written");
+        meterRegistry.gaugeCollectionSize("nlp.history.queue", Tags.empty(), queue);
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nlp-history-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (flushIntervalMs > 0) {
+            writer.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queue a history record for writing without blocking.
+     *
+     * @param nlpCommand the record to write
+     * @return false if the queue was full and the record was dropped
+     */
+    public boolean enqueue(NlpCommand nlpCommand) {
+        if (queue.offer(nlpCommand)) {
+            return true;
+        }
+        droppedQueueFull.increment();
+        log.debug("NLP history queue full, dropped record for: {}", nlpCommand.getRawInput());
+        return false;
+    }
+
+    /**
+     * Write all queued records in batches.
+     *
+     * @return the number of records written
+     */
+    public int flush() {
+        int total = 0;
+        List<NlpCommand> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                nlpCommandRepository.saveAll(batch);
+                written.increment(batch.size());
+                total += batch.size();
+            } catch (Exception e) {
+                log.warn("Could not write {} NLP history records, dropping them: {}", batch.size(), e.getMessage());
+                droppedWriteFailed.increment(batch.size());
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+        if (total > 0) {
+            log.debug("Wrote {} NLP history records", total);
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of records waiting to be written.
+     */
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Keep the periodic task alive
+            log.error("NLP history flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpClassifierDto;
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
+import com.example.smart.lighting.scenes.with_natural.language.entity.NlpCommand;
+import com.example.smart.lighting.scenes.with_natural.language.repository.NlpCommandRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpClassifierModel.Example;
+import com.example.smart.lighting.scenes.with_natural.language.service.nlp.NlpClassifierModel.Prediction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local intent and slot classifier trained from command history, tried
+ * before OpenAI.
+ *
+ * <p>An owner trains it on demand from executed commands in
+ * {@code nlp_commands}: each raw input is labelled with the intent, target,
+ * scene and params of its recorded parse. The model is saved to
+ * {@code nlp.classifier.model-path} and loaded again at startup. Scheduled
+ * commands are learned as a single "scheduled" intent so the classifier can
+ * recognise them and leave them to OpenAI. A brightness that matches a number
+ * in the text is learned as "the number in the text", so "dim the bedroom to
+ * 25%" is understood after seeing "dim the bedroom to 40%". Any other
+ * number, such as a colour temperature, cannot be read back from the text:
+ * such commands are not learned, and the classifier abstains on them.</p>
+ *
+ * <p>In {@code shadow} mode the classifier never answers; every OpenAI parse is
+ * compared with what it would have said and counted in
+ * {@code nlp.classifier.shadow} as agree, disagree or abstain. In
+ * {@code active} mode a prediction that reaches
+ * {@code nlp.classifier.min-confidence} and passes validation is used without
+ * calling OpenAI and counted in {@code nlp.classifier.served}; the rest are
+ * still compared.</p>
+ *
+
+ * @see NlpClassifierModel
+ * @see NlpLocalParser
+ */
+@Component
+@Slf4j
+public class NlpIntentClassifier {
+
+    static final String INTENT = "intent";
+    static final String TARGET = "target";
+    static final String SCENE = "scene";
+    static final String PARAMS = "params";
+
+    static final String SCHEDULED = "<scheduled>";
+    static final String BRIGHTNESS_FROM_TEXT = "brightness=#";
+    private static final String NONE = "";
+    private static final String NO_PARAMS = "{}";
+
+    private static final Pattern NUMBER = Pattern.compile("\\b(\\d{1,3})\\b");
+    private static final Pattern DIGIT = Pattern.compile("\\d");
+    private static final int PAGE_SIZE = 500;
+
+    /**
+     * Whether the classifier answers commands.
+     */
+    public enum Mode {
+        OFF, SHADOW, ACTIVE
+    }
+
+    private final ObjectMapper objectMapper;
+    private final NlpCommandRepository nlpCommandRepository;
+    private final NlpCommandParser commandParser;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Mode mode;
+    private final Path modelPath;
+
+    @Value("${nlp.classifier.min-confidence:0.8}")
+    private double minConfidence = 0.8;
+
+    @Value("${nlp.classifier.min-examples:50}")
+    private int minExamples = 50;
+
+    @Value("${nlp.classifier.max-examples:20000}")
+    private int maxExamples = 20000;
+
+    private volatile NlpClassifierModel model;
+
+    public NlpIntentClassifier(
+            ObjectMapper objectMapper,
+            NlpCommandRepository nlpCommandRepository,
+            NlpCommandParser commandParser,
+            MeterRegistry meterRegistry,
+            Clock clock,
+            @Value("${nlp.classifier.mode:shadow}") String mode,
+            @Value("${nlp.classifier.model-path:data/nlp-classifier.json}") String modelPath) {
+        this.objectMapper = objectMapper;
+        this.nlpCommandRepository = nlpCommandRepository;
+        this.commandParser = commandParser;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.modelPath = Path.of(modelPath);
+    }
+
+    /**
+     * Load the saved model, if there is one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (mode == Mode.OFF || !Files.isRegularFile(modelPath)) {
+            return;
+        }
+        try {
+            model = objectMapper.readValue(modelPath.toFile(), NlpClassifierModel.class);
+            log.info("Loaded NLP classifier trained on {} commands ({}% held-out accuracy)",
+                model.examples(), Math.round(model.heldOutAccuracy() * 100));
+        } catch (IOException e) {
+            log.warn("Could not load NLP classifier from {}: {}", modelPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Train a new model from command history, save it and start using it.
+     *
+     * @return the state of the new model
+     * @throws IllegalStateException if there is too little history to train on
+     */
+    public synchronized NlpClassifierDto train() {
+        List<Example> examples = loadExamples();
+        if (examples.size() < minExamples) {
+            throw new IllegalStateException("Need at least " + minExamples
+                + " executed commands to train the classifier; found " + examples.size());
+        }
+
+        NlpClassifierModel trained = NlpClassifierModel.train(examples, minConfidence, clock.instant());
+        save(trained);
+        model = trained;
+        log.info("Trained NLP classifier on {} commands: {}% held-out coverage, {}% accuracy",
+            trained.examples(), Math.round(trained.heldOutCoverage() * 100),
+            Math.round(trained.heldOutAccuracy() * 100));
+        return status();
+    }
+
+    /**
+     * Get the mode and the loaded model's training figures.
+     */
+    public NlpClassifierDto status() {
+        NlpClassifierModel current = model;
+        NlpClassifierDto.NlpClassifierDtoBuilder status = NlpClassifierDto.builder()
+            .mode(mode.name().toLowerCase(Locale.ROOT))
+            .trained(current != null)
+            .minConfidence(minConfidence);
+        if (current != null) {
+            status.trainedAt(current.trainedAt())
+                .examples(current.examples())
+                .heldOutAccuracy(current.heldOutAccuracy())
+                .heldOutCoverage(current.heldOutCoverage());
+        }
+        return status.build();
+    }
+
+    /**
+     * Classify a command without OpenAI.
+     *
+     * @param text the command text
+     * @return a validated command in active mode when the model is confident, otherwise empty
+     */
+    public Optional<ParsedCommand> classify(String text) {
+        NlpClassifierModel current = model;
+        if (mode != Mode.ACTIVE || current == null) {
+            return Optional.empty();
+        }
+        Optional<ParsedCommand> parsed = predict(current, text)
+            .filter(command -> commandParser.validateParsedCommand(command) == null);
+        parsed.ifPresent(command -> meterRegistry.counter("nlp.classifier.served").increment());
+        return parsed;
+    }
+
+    /**
+     * Compare the model with a validated OpenAI parse of the same text.
+     *
+     * @param text the command text
+     * @param parsed what OpenAI returned
+     */
+    public void shadow(String text, ParsedCommand parsed) {
+        NlpClassifierModel current = model;
+        if (mode == Mode.OFF || current == null || parsed == null) {
+            return;
+        }
+        Map<String, Prediction> predictions = current.predict(text);
+        String outcome;
+        if (NlpClassifierModel.confidence(predictions) < minConfidence) {
+            outcome = "abstain";
+        } else {
+            Map<String, String> expected = labels(text, parsed);
+            outcome = predictions.entrySet().stream()
+                .allMatch(p -> p.getValue().label().equals(expected.get(p.getKey()))) ? "agree" : "disagree";
+        }
+        meterRegistry.counter("nlp.classifier.shadow", "outcome", outcome).increment();
+    }
+
+    /**
+     * Label a parsed command for training or comparison.
+     */
+    Map<String, String> labels(String text, ParsedCommand parsed) {
+        Map<String, String> labels = new LinkedHashMap<>();
+        labels.put(INTENT, parsed.getSchedule() != null ? SCHEDULED : nullToNone(parsed.getIntent()));
+        labels.put(TARGET, parsed.getTarget() != null ? parsed.getTarget().toString() : NONE);
+        labels.put(SCENE, nullToNone(parsed.getScene()));
+        labels.put(PARAMS, paramsLabel(text, parsed.getParams()));
+        return labels;
+    }
+
+    private Optional<ParsedCommand> predict(NlpClassifierModel current, String text) {
+        Map<String, Prediction> predictions = current.predict(text);
+        double confidence = NlpClassifierModel.confidence(predictions);
+        String intent = predictions.get(INTENT).label();
+        if (confidence < minConfidence || intent.isEmpty() || SCHEDULED.equals(intent)) {
+            return Optional.empty();
+        }
+
+        String paramsLabel = predictions.get(PARAMS).label();
+        if (hasLiteralNumbers(text, paramsLabel)) {
+            return Optional.empty();
+        }
+        Map<String, Object> params = params(text, paramsLabel);
+        if (params == null) {
+            return Optional.empty();
+        }
+        return Optional.of(ParsedCommand.builder()
+            .intent(intent)
+            .target(noneToNull(predictions.get(TARGET).label()))
+            .scene(noneToNull(predictions.get(SCENE).label()))
+            .params(params)
+            .confidence(confidence)
+            .build());
+    }
+
+    private List<Example> loadExamples() {
+        List<Example> examples = new ArrayList<>();
+        Map<String, Map<String, String>> labelsByText = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        int[] literalNumbers = {0};
+        int page = 0;
+        while (examples.size() < maxExamples) {
+            Page<NlpCommand> commands = nlpCommandRepository.findAllByOrderByCreatedAtDesc(
+                PageRequest.of(page++, PAGE_SIZE));
+            for (NlpCommand command : commands) {
+                toExample(command).ifPresent(example -> {
+                    if (!SCHEDULED.equals(example.labels().get(INTENT))
+                            && hasLiteralNumbers(example.text(), example.labels().get(PARAMS))) {
+                        literalNumbers[0]++;
+                        return;
+                    }
+                    Map<String, String> seen = labelsByText.putIfAbsent(example.text(), example.labels());
+                    if (seen != null && !seen.equals(example.labels())) {
+                        ambiguous.add(example.text());
+                    }
+                    examples.add(example);
+                });
+            }
+            if (!commands.hasNext()) {
+                break;
+            }
+        }
+        if (literalNumbers[0] > 0) {
+            // Every number looks alike to the model, so a learned "color_temp: 2700" would answer "6500k" too
+            log.info("Not training on {} commands whose numbers are not read from the text", literalNumbers[0]);
+        }
+        if (!ambiguous.isEmpty()) {
+            // A multi-command utterance is saved once per command, every row with the whole text
+            log.info("Not training on {} texts whose history rows disagree", ambiguous.size());
+            examples.removeIf(example -> ambiguous.contains(example.text()));
+        }
+        return examples.size() > maxExamples ? examples.subList(0, maxExamples) : examples;
+    }
+
+    private Optional<Example> toExample(NlpCommand command) {
+        // Only executed commands: the user confirmed the parse was what they meant
+        if (!Boolean.TRUE.equals(command.getExecuted()) || command.getRawInput() == null
+                || command.getParsedJson() == null || command.getParsedJson().get(INTENT) == null) {
+            return Optional.empty();
+        }
+        try {
+            ParsedCommand parsed = objectMapper.convertValue(command.getParsedJson(), ParsedCommand.class);
+            return Optional.of(new Example(command.getRawInput(), labels(command.getRawInput(), parsed)));
+        } catch (IllegalArgumentException e) {
+            log.debug("Skipping unreadable history record {}: {}", command.getId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void save(NlpClassifierModel trained) {
+        try {
+            Path parent = modelPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, "nlp-classifier", ".json");
+            objectMapper.writeValue(temp.toFile(), trained);
+            // Readers at startup never see a half-written model
+            Files.move(temp, modelPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not save the classifier to " + modelPath + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String paramsLabel(String text, Map<String, Object> params) {
+        if (params == null || params.isEmpty()) {
+            return NO_PARAMS;
+        }
+        if (params.size() == 1 && params.get("brightness") instanceof Number brightness
+                && firstNumber(text).filter(n -> n == brightness.intValue()).isPresent()) {
+            return BRIGHTNESS_FROM_TEXT;
+        }
+        try {
+            return objectMapper.writeValueAsString(new TreeMap<>(params));
+        } catch (JsonProcessingException e) {
+            return NO_PARAMS;
+        }
+    }
+
+    private Map<String, Object> params(String text, String label) {
+        if (NO_PARAMS.equals(label)) {
+            return new HashMap<>();
+        }
+        if (BRIGHTNESS_FROM_TEXT.equals(label)) {
+            return firstNumber(text).filter(n -> n <= 100)
+                .<Map<String, Object>>map(n -> new HashMap<>(Map.of("brightness", n)))
+                .orElse(null);
+        }
+        try {
+            return objectMapper.readValue(label, new TypeReference<>() {});
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the text holds a number that the params label stores as a
+     * literal value instead of reading it from the text.
+     */
+    private static boolean hasLiteralNumbers(String text, String paramsLabel) {
+        return !NO_PARAMS.equals(paramsLabel) && !BRIGHTNESS_FROM_TEXT.equals(paramsLabel)
+            && DIGIT.matcher(text).find();
+    }
+
+    private static Optional<Integer> firstNumber(String text) {
+        Matcher matcher = NUMBER.matcher(text);
+        return matcher.find() ? Optional.of(Integer.parseInt(matcher.group(1))) : Optional.empty();
+    }
+
+    private static String nullToNone(String value) {
+        return value != null ? value : NONE;
+    }
+
+    private static String noneToNull(String label) {
+        return NONE.equals(label) ? null : label;
+    }
+}
@@ -0,0 +1,534 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ScheduleConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic grammar for common lighting commands, tried before OpenAI.
+ *
+ * <p>Recognises on/off, brightness percentages, colour names from
+ * {@link NlpColorUtils}, colour temperatures, scene names, rooms and simple
+ * time, sun and recurrence phrases, and produces the same
+ * {@link ParsedCommand} the LLM would. Every recognised phrase is cut out of
+ * the input; each remaining word that is not filler ("the", "please",
+ * "lights") lowers the confidence. Anything below the configured threshold,
+ * or any contradictory command such as "turn off to 30%", returns empty so
+ * the caller falls back to the LLM.</p>
+ *
+
+ * @see NlpOpenAiClient
+ */
+@Component
+@Slf4j
+public class NlpLocalParser {
+
+    private static final double FULL_CONFIDENCE = 0.95;
+    private static final double UNKNOWN_WORD_PENALTY = 0.2;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern POSSESSIVE = Pattern.compile("'s\\b");
+    private static final Pattern PUNCTUATION = Pattern.compile("[^a-z0-9%:,\\s]");
+
+    private static final Pattern SUN = Pattern.compile(
+        "\\b(?:(\\d{1,3})\\s*(minutes?|mins?|hours?|hrs?)\\s+(before|after)\\s+)?"
+            + "(?:at\\s+)?(sunrise|sunset|dawn|dusk)\\b");
+    private static final Pattern TIME_AMPM = Pattern.compile(
+        "\\b(?:at\\s+)?(\\d{1,2})(?::(\\d{2}))?\\s*(am|pm)\\b");
+    private static final Pattern TIME_24H = Pattern.compile("\\bat\\s+(\\d{1,2})(?::(\\d{2}))?\\b(?!\\s*%)");
+    private static final Pattern EVENING_RECURRENCE = Pattern.compile("\\b(?:every (?:evening|night)|nightly)\\b");
+    private static final Pattern TIME_NAMED = Pattern.compile("\\bat\\s+(noon|midday|midnight)\\b");
+    private static final Pattern BRIGHTNESS = Pattern.compile("\\b(\\d{1,3})\\s*(?:%|percent\\b)");
+    private static final Pattern FULL_BRIGHTNESS = Pattern.compile("\\b(?:full|max|maximum)\\s+brightness\\b");
+    private static final Pattern KELVIN = Pattern.compile("\\b(\\d{4})\\s*(?:k|kelvin)\\b");
+    private static final Pattern CLAUSE_SEPARATOR = Pattern.compile("\\s*(?:[,;]|\\b(?:and )?then\\b|\\band\\b)\\s*");
+    private static final Pattern ON = Pattern.compile("\\bon\\b");
+    private static final Pattern OFF = Pattern.compile("\\b(?:off|out)\\b");
+
+    private static final Map<String, Object> RECURRENCES = orderedMap(
+        "every weekday", "weekdays",
+        "on weekdays", "weekdays",
+        "weekdays", "weekdays",
+        "every weekend", "weekends",
+        "on weekends", "weekends",
+        "weekends", "weekends",
+        "every day", "daily",
+        "each day", "daily",
+        "every night", "daily",
+        "every morning", "daily",
+        "every evening", "daily",
+        "everyday", "daily",
+        "daily", "daily",
+        "nightly", "daily");
+
+    private static final Map<String, String> DAYS = orderedStringMap(
+        "monday", "mon", "tuesday", "tue", "wednesday", "wed", "thursday", "thu",
+        "friday", "fri", "saturday", "sat", "sunday", "sun");
+
+    private static final Pattern DAY_LIST = Pattern.compile(
+        "\\b(?:every|on)\\s+((?:(?:monday|tuesday|wednesday|thursday|friday|saturday|sunday)s?"
+            + "(?:\\s*(?:,|and|or)\\s*)*)+)");
+
+    private static final Map<String, String> ROOMS = orderedStringMap(
+        "whole house", "all",
+        "everywhere", "all",
+        "everything", "all",
+        "all", "all",
+        "living room", "living_room",
+        "livingroom", "living_room",
+        "lounge", "living_room",
+        "bedroom", "bedroom",
+        "kitchen", "kitchen",
+        "bathroom", "bathroom",
+        "hallway", "hallway",
+        "hall", "hallway");
+
+    private static final Map<String, Integer> COLOR_TEMPS = orderedMap(
+        "warm white", 2700,
+        "soft white", 2700,
+        "neutral white", 4000,
+        "cool white", 6500,
+        "cold white", 6500,
+        "daylight", 6500,
+        "warm", 2700,
+        "neutral", 4000,
+        "cool", 6500,
+        "cold", 6500);
+
+    private static final Set<String> FILLER = Set.of(
+        "a", "an", "the", "my", "our", "please", "can", "you", "could", "would", "and", "of",
+        "turn", "switch", "put", "set", "make", "change", "dim", "brighten", "light", "lights",
+        "lamp", "lamps", "to", "in", "at", "into", "for", "me", "us", "color", "colour",
+        "brightness", "scene", "mode", "apply", "activate", "start", "enable", "run", "room",
+        "temperature", "temp", "it", "them", "up", "down");
+
+    private final NlpColorUtils colorUtils;
+    private final boolean enabled;
+    private final double minConfidence;
+
+    public NlpLocalParser(
+            NlpColorUtils colorUtils,
+            @Value("${nlp.local-parser.enabled:true}") boolean enabled,
+            @Value("${nlp.local-parser.min-confidence:0.9}") double minConfidence) {
+        this.colorUtils = colorUtils;
+        this.enabled = enabled;
+        this.minConfidence = minConfidence;
+    }
+
+    /**
+     * Parse a command locally.
+     *
+     * @param text the natural language command text
+     * @param sceneNames active scene names
+     * @return the parsed command, or empty if the grammar is not confident
+     */
+    public Optional<ParsedCommand> parse(String text, List<String> sceneNames) {
+        return parse(text, sceneNames, "all");
+    }
+
+    /**
+     * Parse one command, using {@code defaultTarget} when it names no room.
+     *
+     * @param defaultTarget the target of a light command without a room, or
+     *                      null to give up on such a command
+     */
+    private Optional<ParsedCommand> parse(String text, List<String> sceneNames, Object defaultTarget) {
+        if (!enabled || text == null || text.isBlank()) {
+            return Optional.empty();
+        }
+
+        Input input = new Input(normalize(text));
+        ScheduleConfig schedule;
+        String scene;
+        Object target;
+        Light light;
+        try {
+            schedule = extractSchedule(input);
+            scene = extractScene(input, sceneNames);
+            target = extractRoom(input);
+            light = extractLight(input);
+        } catch (AmbiguousCommandException e) {
+            log.debug("Local parser found an ambiguous command: {}", text);
+            return Optional.empty();
+        }
+
+        String intent;
+        Map<String, Object> params = light.params();
+        if (scene != null) {
+            // A scene already sets brightness and colour; extra settings or "off" need the LLM
+            if (!params.isEmpty() || light.off()) {
+                return Optional.empty();
+            }
+            intent = "scene.apply";
+        } else if (light.intent() != null) {
+            intent = light.intent();
+            if (target == null) {
+                if (defaultTarget == null) {
+                    return Optional.empty();
+                }
+                target = defaultTarget;
+            }
+        } else {
+            return Optional.empty();
+        }
+
+        double confidence = FULL_CONFIDENCE - UNKNOWN_WORD_PENALTY * input.unknownWords();
+        if (confidence < minConfidence) {
+            log.debug("Local parser not confident ({}) for: {}", confidence, text);
+            return Optional.empty();
+        }
+
+        return Optional.of(ParsedCommand.builder()
+            .intent(intent)
+            .target(target)
+            .params(params)
+            .scene(scene)
+            .schedule(schedule)
+            .confidence(confidence)
+            .build());
+    }
+
+    /**
+     * Parse an utterance holding several commands locally, such as "turn off
+     * the kitchen and dim the bedroom to 20%".
+     *
+     * <p>The utterance is split on commas, "and" and "then"; every clause must
+     * parse on its own. Phrases where "and" joins parts of one command, such
+     * as "on monday and friday", parse as a whole first. A clause without a
+     * room applies to the room of the clause before it ("turn on the kitchen
+     * and set it to 50%"); if no earlier clause names one, the utterance is
+     * left to the LLM rather than applied to every light.</p>
+     *
+     * @param text the natural language command text
+     * @param sceneNames active scene names
+     * @return two or more commands in utterance order, or empty if the
+     *         utterance is a single command or any clause is not understood
+     */
+    public Optional<List<ParsedCommand>> parseAll(String text, List<String> sceneNames) {
+        if (!enabled || text == null || text.isBlank() || parse(text, sceneNames).isPresent()) {
+            return Optional.empty();
+        }
+
+        List<ParsedCommand> commands = new ArrayList<>();
+        Object previousTarget = null;
+        for (String clause : CLAUSE_SEPARATOR.split(text.trim())) {
+            if (clause.isBlank()) {
+                continue;
+            }
+            Optional<ParsedCommand> parsed = parse(clause, sceneNames, previousTarget);
+            if (parsed.isEmpty()) {
+                return Optional.empty();
+            }
+            commands.add(parsed.get());
+            if (parsed.get().getTarget() != null) {
+                previousTarget = parsed.get().getTarget();
+            }
+        }
+        return commands.size() > 1 ? Optional.of(commands) : Optional.empty();
+    }
+
+    private ScheduleConfig extractSchedule(Input input) {
+        String time = null;
+        String trigger = null;
+        Integer offsetMinutes = null;
+
+        Matcher sun = input.find(SUN);
+        if (sun != null) {
+            trigger = sun.group(4);
+            if (sun.group(1) != null) {
+                int amount = Integer.parseInt(sun.group(1));
+                int minutes = sun.group(2).startsWith("h") ? amount * 60 : amount;
+                offsetMinutes = "before".equals(sun.group(3)) ? -minutes : minutes;
+            }
+        }
+
+        Matcher ampm = input.find(TIME_AMPM);
+        if (ampm != null) {
+            int hour = Integer.parseInt(ampm.group(1));
+            if (hour < 1 || hour > 12) {
+                throw new AmbiguousCommandException();
+            }
+            time = formatTime(hour % 12 + ("pm".equals(ampm.group(3)) ? 12 : 0), ampm.group(2));
+        }
+        Matcher named = input.find(TIME_NAMED);
+        if (named != null) {
+            time = formatTime("midnight".equals(named.group(1)) ? 0 : 12, null);
+        }
+        boolean evening = input.contains(EVENING_RECURRENCE);
+        Matcher clock = input.find(TIME_24H);
+        if (clock != null) {
+            time = formatTime(clockHour(Integer.parseInt(clock.group(1)), evening), clock.group(2));
+        }
+
+        Object recurrence = extractRecurrence(input);
+
+        int triggers = (sun != null ? 1 : 0) + (ampm != null ? 1 : 0) + (named != null ? 1 : 0)
+            + (clock != null ? 1 : 0);
+        if (triggers > 1) {
+            throw new AmbiguousCommandException();
+        }
+        if (triggers == 0) {
+            // "every day" alone says how often, not at what time
+            if (recurrence != null) {
+                throw new AmbiguousCommandException();
+            }
+            return null;
+        }
+
+        return ScheduleConfig.builder()
+            .time(time)
+            .trigger(trigger)
+            .offsetMinutes(offsetMinutes)
+            .recurrence(recurrence != null ? recurrence : "once")
+            .build();
+    }
+
+    private Object extractRecurrence(Input input) {
+        Matcher dayList = input.find(DAY_LIST);
+        if (dayList != null) {
+            Set<String> days = new LinkedHashSet<>();
+            for (Map.Entry<String, String> day : DAYS.entrySet()) {
+                if (dayList.group(1).contains(day.getKey())) {
+                    days.add(day.getValue());
+                }
+            }
+            return new ArrayList<>(days);
+        }
+
+        Object recurrence = null;
+        for (Map.Entry<String, Object> phrase : RECURRENCES.entrySet()) {
+            if (input.remove(phrase.getKey())) {
+                if (recurrence != null && !recurrence.equals(phrase.getValue())) {
+                    throw new AmbiguousCommandException();
+                }
+                recurrence = phrase.getValue();
+            }
+        }
+        return recurrence;
+    }
+
+    private String extractScene(Input input, List<String> sceneNames) {
+        if (sceneNames == null) {
+            return null;
+        }
+        // Longest names first so "movie night" wins over "movie"
+        List<String> candidates = sceneNames.stream()
+            .filter(name -> name != null && !name.isBlank())
+            .sorted(Comparator.comparingInt(String::length).reversed())
+            .toList();
+        for (String name : candidates) {
+            if (input.remove(normalize(name))) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private Object extractRoom(Input input) {
+        Set<String> rooms = new LinkedHashSet<>();
+        for (Map.Entry<String, String> room : ROOMS.entrySet()) {
+            if (input.remove(room.getKey())) {
+                rooms.add(room.getValue());
+            }
+        }
+        if (rooms.size() > 1) {
+            throw new AmbiguousCommandException();
+        }
+        return rooms.isEmpty() ? null : rooms.iterator().next();
+    }
+
+    private Light extractLight(Input input) {
+        Map<String, Object> params = new HashMap<>();
+        List<String> intents = new ArrayList<>();
+
+        Matcher percent = input.find(BRIGHTNESS);
+        if (percent != null) {
+            params.put("brightness", Integer.parseInt(percent.group(1)));
+            intents.add("light.brightness");
+        } else if (input.find(FULL_BRIGHTNESS) != null) {
+            params.put("brightness", 100);
+            intents.add("light.brightness");
+        }
+
+        Matcher kelvin = input.find(KELVIN);
+        if (kelvin != null) {
+            params.put("color_temp", Integer.parseInt(kelvin.group(1)));
+            intents.add("light.color_temp");
+        } else {
+            for (Map.Entry<String, Integer> temp : COLOR_TEMPS.entrySet()) {
+                if (input.remove(temp.getKey())) {
+                    params.put("color_temp", temp.getValue());
+                    intents.add("light.color_temp");
+                    break;
+                }
+            }
+        }
+
+        extractColor(input).ifPresent(color -> {
+            params.put("color", color);
+            params.put("rgb", colorUtils.colorNameToRgb(color));
+            intents.add("light.color");
+        });
+
+        boolean off = input.find(OFF) != null;
+        boolean on = input.find(ON) != null;
+
+        if (intents.size() > 1 || (off && (on || !intents.isEmpty()))) {
+            throw new AmbiguousCommandException();
+        }
+        String intent = !intents.isEmpty() ? intents.get(0) : off ? "light.off" : on ? "light.on" : null;
+        return new Light(intent, params, off);
+    }
+
+    private Optional<String> extractColor(Input input) {
+        String[] words = input.words();
+        // Two-word names such as "warm white" before single words
+        for (int i = 0; i + 1 < words.length; i++) {
+            String pair = words[i] + " " + words[i + 1];
+            if (colorUtils.colorNameToRgb(pair) != null && input.remove(pair)) {
+                return Optional.of(pair);
+            }
+        }
+        for (String word : words) {
+            if (colorUtils.colorNameToRgb(word) != null && input.remove(word)) {
+                return Optional.of(word);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Read a clock hour without am/pm. With an evening or night recurrence,
+     * "at 5" to "at 11" mean the evening; "at 12" or "at 1" to "at 4" could
+     * be either side of midnight and go to the LLM.
+     */
+    private static int clockHour(int hour, boolean evening) {
+        if (!evening || hour == 0 || hour > 12) {
+            return hour;
+        }
+        if (hour >= 5 && hour <= 11) {
+            return hour + 12;
+        }
+        throw new AmbiguousCommandException();
+    }
+
+    private static String formatTime(int hour, String minutes) {
+        int minute = minutes != null ? Integer.parseInt(minutes) : 0;
+        if (hour > 23 || minute > 59) {
+            throw new AmbiguousCommandException();
+        }
+        return String.format("%02d:%02d", hour, minute);
+    }
+
+    /**
+     * Lower-case the text and fold punctuation, hyphens and whitespace,
+     * keeping the characters the grammar matches on ("%" and ":").
+     */
+    static String normalize(String text) {
+        String folded = text.toLowerCase(Locale.ROOT).replace('\u2019', '\'');
+        folded = POSSESSIVE.matcher(folded).replaceAll("");
+        folded = PUNCTUATION.matcher(folded).replaceAll(" ").replace(",", " , ");
+        return WHITESPACE.matcher(folded).replaceAll(" ").trim();
+    }
+
+    private static <V> Map<String, V> orderedMap(Object... pairs) {
+        Map<String, V> map = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            @SuppressWarnings("unchecked")
+            V value = (V) pairs[i + 1];
+            map.put((String) pairs[i], value);
+        }
+        return map;
+    }
+
+    private static Map<String, String> orderedStringMap(String... pairs) {
+        return orderedMap((Object[]) pairs);
+    }
+
+    private record Light(String intent, Map<String, Object> params, boolean off) {}
+
+    /**
+     * A command the grammar matched in more than one incompatible way.
+     */
+    private static final class AmbiguousCommandException extends RuntimeException {
+
+        AmbiguousCommandException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * The input text with recognised phrases cut out as they are matched.
+     */
+    private static final class Input {
+
+        private String text;
+
+        Input(String text) {
+            this.text = " " + text + " ";
+        }
+
+        Matcher find(Pattern pattern) {
+            Matcher matcher = pattern.matcher(text);
+            if (!matcher.find()) {
+                return null;
+            }
+            cut(matcher.start(), matcher.end());
+            return matcher;
+        }
+
+        boolean contains(Pattern pattern) {
+            return pattern.matcher(text).find();
+        }
+
+        boolean remove(String phrase) {
+            String padded = " " + phrase + " ";
+            int index = text.indexOf(padded);
+            if (index < 0) {
+                return false;
+            }
+            cut(index, index + padded.length());
+            return true;
+        }
+
+        private void cut(int start, int end) {
+            text = WHITESPACE.matcher(text.substring(0, start) + " " + text.substring(end)).replaceAll(" ");
+            if (!text.startsWith(" ")) {
+                text = " " + text;
+            }
+            if (!text.endsWith(" ")) {
+                text = text + " ";
+            }
+        }
+
+        String[] words() {
+            String trimmed = text.trim();
+            return trimmed.isEmpty() ? new String[0] : trimmed.split(" ");
+        }
+
+        int unknownWords() {
+            int unknown = 0;
+            for (String word : words()) {
+                if (!word.equals(",") && !FILLER.contains(word)) {
+                    unknown++;
+                }
+            }
+            return unknown;
+        }
+    }
+}
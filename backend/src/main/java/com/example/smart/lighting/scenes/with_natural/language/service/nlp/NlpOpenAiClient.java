@@ -1,36 +1,31 @@
 package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
 
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.ChatRequest;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Client for communicating with OpenAI API for NLP command parsing.
  *
+ * <p>Requests go through the configured {@link LlmProvider}.</p>
+ *
 
  */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class NlpOpenAiClient {
 
-    private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
-
-    @Value("${openai.api-key:}")
-    private String openaiApiKey;
+    private static final String SYSTEM_PROMPT =
+        "You are a JSON-only response bot. Never include markdown or explanations.";
 
-    @Value("${openai.model:gpt-4o}")
-    private String openaiModel;
-
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final LlmProvider llmProvider;
 
     /**
      * Check if OpenAI API is configured.
@@ -38,7 +33,16 @@ public class NlpOpenAiClient {
      * @return true if API key is configured
      */
     public boolean isConfigured() {
-        return openaiApiKey != null && !openaiApiKey.isBlank();
+        return llmProvider.isConfigured();
+    }
+
+    /**
+     * Charge the current user for a parse answered by another request's call.
+     *
+     * @throws LlmProvider.LlmRejectedException if the user is over their quota
+     */
+    public void chargeSharedCall() {
+        llmProvider.chargeShared("nlp.parse");
     }
 
     /**
@@ -47,42 +51,49 @@ public class NlpOpenAiClient {
      * @param prompt the prompt to send
      * @return the response content
      */
-    @SuppressWarnings("unchecked")
     public String callOpenAI(String prompt) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(openaiApiKey);
-
-        Map<String, Object> requestBody = Map.of(
-            "model", openaiModel,
-            "messages", List.of(
-                Map.of("role", "system",
-                       "content", "You are a JSON-only response bot. Never include markdown or explanations."),
-                Map.of("role", "user", "content", prompt)
-            ),
-            "temperature", 0.3,
-            "max_tokens", 500
-        );
-
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-
-        ResponseEntity<Map> response = restTemplate.exchange(
-            OPENAI_API_URL,
-            HttpMethod.POST,
-            request,
-            Map.class
-        );
-
-        if (response.getBody() != null) {
-            List<Map<String, Object>> choices =
-                (List<Map<String, Object>>) response.getBody().get("choices");
-            if (choices != null && !choices.isEmpty()) {
-                Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                return (String) message.get("content");
-            }
-        }
+        return llmProvider.chat("nlp.parse", parseRequest(prompt));
+    }
+
+    /**
+     * Call OpenAI API without blocking the caller.
+     *
+     * @param prompt the prompt to send
+     * @return the response content
+     */
+    public CompletableFuture<String> callOpenAIAsync(String prompt) {
+        return llmProvider.chatAsync("nlp.parse", parseRequest(prompt));
+    }
+
+    /**
+     * Call OpenAI API and receive the response as it is generated.
+     *
+     * @param prompt the prompt to send
+     * @param onDelta receives each fragment of the response as it arrives
+     * @return the full response content
+     */
+    public String callOpenAIStreaming(String prompt, Consumer<String> onDelta) {
+        return llmProvider.chatStream("nlp.parse", parseRequest(prompt), onDelta);
+    }
+
+    private ChatRequest parseRequest(String prompt) {
+        return new ChatRequest(SYSTEM_PROMPT, prompt, 0.3, 500, false);
+    }
+
+    /**
+     * Build the prompt for parsing an utterance that may hold several commands.
+     *
+     * @param userInput the user's command text
+     * @param sceneNames available scene names
+     * @return the formatted prompt
+     */
+    public String buildBatchParsePrompt(String userInput, List<String> sceneNames) {
+        return buildParsePrompt(userInput, sceneNames) + """
 
-        throw new RuntimeException("No response from OpenAI");
+            The command may contain several actions, such as "turn off the kitchen and dim the bedroom to 20%".
+            Instead of a single object, respond with {"commands": [...]} holding one object in the format
+            above for each action, in the order they were given.
+            """;
     }
 
     /**
@@ -132,7 +143,7 @@ public class NlpOpenAiClient {
               "confidence": 0.9
             }
 
-            For sun-based triggers (sunset/sunrise):
+            For sun-based triggers (sunrise/sunset/dawn/dusk):
             {
               "schedule": {
                 "time": null,
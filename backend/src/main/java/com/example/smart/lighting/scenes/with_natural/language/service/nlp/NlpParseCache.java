@@ -0,0 +1,178 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded LRU cache with TTL for commands parsed by OpenAI.
+ *
+ * <p>Entries are keyed by the input text with case, whitespace and
+ * punctuation folded, plus the {@link SceneCatalog} version. Creating,
+ * renaming or deleting a scene changes that version, so stale parses are
+ * never returned and age out on their own.</p>
+ *
+ * <p>Parses are stored as JSON, so every hit returns a fresh copy that
+ * validation can modify. With {@code nlp.cache.redis.enabled=true} entries
+ * are also written to Redis, so they survive restarts and are shared by
+ * every backend instance; a Redis failure only costs the lookup.</p>
+ *
+
+ * @see NlpOpenAiClient
+ */
+@Component
+@Slf4j
+public class NlpParseCache {
+
+    private static final String REDIS_PREFIX = "smartlighting:nlp:parse:";
+    private static final Pattern PUNCTUATION = Pattern.compile("[^\\p{L}\\p{N}%:\\s]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Cache<String, String> cache;
+    private final ObjectMapper objectMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final boolean redisEnabled;
+    private final Duration ttl;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public NlpParseCache(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            StringRedisTemplate redisTemplate,
+            @Value("${nlp.cache.max-size:1000}") long maxSize,
+            @Value("${nlp.cache.ttl-minutes:1440}") long ttlMinutes,
+            @Value("${nlp.cache.redis.enabled:false}") boolean redisEnabled) {
+        this.objectMapper = objectMapper;
+        this.redisTemplate = redisTemplate;
+        this.redisEnabled = redisEnabled;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "nlp.parse");
+        this.redisHits = meterRegistry.counter("nlp.parse.redis", "result", "hit");
+        this.redisMisses = meterRegistry.counter("nlp.parse.redis", "result", "miss");
+    }
+
+    /**
+     * Build the cache key for a command.
+     *
+     * @param text the natural language command text
+     * @param catalogVersion the {@link SceneCatalog#version()} the prompt was built from
+     * @return a stable key
+     */
+    public String key(String text, String catalogVersion) {
+        return normalize(text) + "|" + catalogVersion;
+    }
+
+    /**
+     * Get a cached parse, checking Redis when the local cache misses.
+     *
+     * @param key the key from {@link #key}
+     * @return a copy of the cached command, or empty on a miss
+     */
+    public Optional<ParsedCommand> get(String key) {
+        String json = cache.getIfPresent(key);
+        if (json == null && redisEnabled) {
+            json = getFromRedis(key);
+            if (json != null) {
+                cache.put(key, json);
+            }
+        }
+        return Optional.ofNullable(json).flatMap(this::fromJson);
+    }
+
+    /**
+     * Cache a successfully validated parse.
+     *
+     * @param key the key from {@link #key}
+     * @param parsed the parsed command
+     */
+    public void put(String key, ParsedCommand parsed) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(parsed);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not cache parsed command: {}", e.getMessage());
+            return;
+        }
+        cache.put(key, json);
+        if (redisEnabled) {
+            try {
+                redisTemplate.opsForValue().set(redisKey(key), json, ttl);
+            } catch (Exception e) {
+                log.debug("Could not write parsed command to Redis: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fold case, punctuation and whitespace so trivially different phrasings
+     * share an entry. Digits, "%" and ":" are kept because they carry
+     * brightness levels and times.
+     */
+    static String normalize(String text) {
+        String folded = PUNCTUATION.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return WHITESPACE.matcher(folded).replaceAll(" ").trim();
+    }
+
+    private String getFromRedis(String key) {
+        try {
+            String json = redisTemplate.opsForValue().get(redisKey(key));
+            if (json != null) {
+                redisHits.increment();
+            } else {
+                redisMisses.increment();
+            }
+            return json;
+        } catch (Exception e) {
+            log.debug("Could not read parsed command from Redis: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Optional<ParsedCommand> fromJson(String json) {
+        try {
+            return Optional.of(objectMapper.readValue(json, ParsedCommand.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable cached parse: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static String redisKey(String key) {
+        // Keys hold raw user text, so Redis gets a fixed-length digest instead
+        return REDIS_PREFIX + sha256(key);
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
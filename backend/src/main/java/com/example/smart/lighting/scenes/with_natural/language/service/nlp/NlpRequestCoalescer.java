@@ -0,0 +1,123 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.LlmRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical OpenAI parse requests into one call.
+ *
+ * <p>The first request for a key makes the call; requests for the same key
+ * that arrive while it is in flight wait for the same future instead of
+ * calling OpenAI again. Only the raw response text is shared, so every caller
+ * still parses and validates its own copy. Keys are removed as soon as the
+ * call finishes, after which {@link NlpParseCache} serves repeats.</p>
+ *
+ * <p>The shared future is completed however the call ends, even with an
+ * {@link Error}, and followers wait for it only up to a bound, so a leader
+ * that dies or hangs never strands the requests queued behind it.</p>
+ *
+ * <p>Each follower is charged before it joins, so callers over their own
+ * quota are refused even when someone else's call is in flight. A call
+ * refused at admission (quota, bulkhead or circuit breaker) is not handed
+ * on: its followers retry, and one of them makes the call itself.</p>
+ *
+
+ * @see NlpParseCache#key
+ */
+@Component
+@Slf4j
+public class NlpRequestCoalescer {
+
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+    private final long waitMs;
+
+    public NlpRequestCoalescer(
+            MeterRegistry meterRegistry,
+            @Value("${nlp.coalesce.wait-ms:35000}") long waitMs) {
+        this.coalesced = meterRegistry.counter("nlp.parse.coalesced");
+        this.waitMs = waitMs;
+    }
+
+    /**
+     * Run the call, or join an identical one already in flight.
+     *
+     * @param key the parse cache key of the command
+     * @param call the OpenAI call to make if none is in flight
+     * @param onJoin charges the caller before it joins a call in flight
+     * @return the response of the shared call
+     */
+    public String coalesce(String key, Supplier<String> call, Runnable onJoin) {
+        boolean charged = false;
+        while (true) {
+            CompletableFuture<String> own = new CompletableFuture<>();
+            CompletableFuture<String> existing = inFlight.putIfAbsent(key, own);
+            if (existing == null) {
+                return lead(key, own, call);
+            }
+
+            if (!charged) {
+                onJoin.run();
+                charged = true;
+            }
+            coalesced.increment();
+            log.debug("Joining in-flight parse for: {}", key);
+            try {
+                return await(existing);
+            } catch (LlmRejectedException e) {
+                // The leader was refused for its own reasons; try again without it
+                inFlight.remove(key, existing);
+                log.debug("In-flight parse was refused ({}); retrying: {}", e.getMessage(), key);
+            }
+        }
+    }
+
+    private String lead(String key, CompletableFuture<String> own, Supplier<String> call) {
+        try {
+            String response = call.get();
+            own.complete(response);
+            return response;
+        } catch (Throwable e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Get the number of calls currently in flight.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private String await(CompletableFuture<String> future) {
+        try {
+            return future.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // Followers see the same exception the leader threw
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("In-flight parse failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out after " + waitMs + "ms waiting for an in-flight parse", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for an in-flight parse", e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental parser for a JSON command object streamed from OpenAI.
+ *
+ * <p>Fragments are fed as they arrive and run through Jackson's non-blocking
+ * parser, so each top-level field becomes available as soon as its value is
+ * complete instead of after the whole completion. Anything before the opening
+ * brace (such as a markdown fence) and after the closing one is ignored.</p>
+ *
+ * <p>One instance parses one response and is not thread-safe. Malformed input
+ * just stops the incremental parse; the caller still parses the full response
+ * with {@link NlpCommandParser#parseOpenAIResponse}.</p>
+ *
+
+ * @see NlpCommandParser#parsePartial
+ */
+@Slf4j
+public class NlpStreamingParser {
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    private boolean started;
+    private boolean finished;
+
+    private static final class Frame {
+        private final Map<String, Object> object;
+        private final List<Object> array;
+        private String name;
+
+        private Frame(Map<String, Object> object, List<Object> array) {
+            this.object = object;
+            this.array = array;
+        }
+
+        private Object value() {
+            return object != null ? object : array;
+        }
+    }
+
+    public NlpStreamingParser(JsonFactory jsonFactory) {
+        try {
+            this.parser = jsonFactory.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create non-blocking JSON parser", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Feed the next fragment of the response.
+     *
+     * @param fragment the next piece of text
+     * @return true if at least one more top-level field is now complete
+     */
+    public boolean feed(String fragment) {
+        if (finished || fragment.isEmpty()) {
+            return false;
+        }
+        if (!started) {
+            int brace = fragment.indexOf('{');
+            if (brace < 0) {
+                return false;
+            }
+            fragment = fragment.substring(brace);
+            started = true;
+        }
+
+        int before = fields.size();
+        try {
+            byte[] bytes = fragment.getBytes(StandardCharsets.UTF_8);
+            feeder.feedInput(bytes, 0, bytes.length);
+            readAvailableTokens();
+        } catch (IOException e) {
+            log.debug("Stopping incremental parse: {}", e.getMessage());
+            finished = true;
+        }
+        return fields.size() > before;
+    }
+
+    /**
+     * Get the top-level fields whose values are complete so far.
+     *
+     * @return a read-only view of the completed fields, in arrival order
+     */
+    public Map<String, Object> fields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Check whether the top-level object has been closed.
+     *
+     * @return true once the whole object has been read
+     */
+    public boolean isComplete() {
+        return finished && stack.isEmpty() && started;
+    }
+
+    private void readAvailableTokens() throws IOException {
+        JsonToken token;
+        while (!finished && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT -> stack.push(new Frame(new LinkedHashMap<>(), null));
+                case START_ARRAY -> stack.push(new Frame(null, new ArrayList<>()));
+                case FIELD_NAME -> stack.peek().name = parser.currentName();
+                case END_OBJECT, END_ARRAY -> {
+                    Frame done = stack.pop();
+                    if (stack.isEmpty()) {
+                        finished = true;
+                    } else {
+                        addValue(done.value());
+                    }
+                }
+                case VALUE_STRING -> addValue(parser.getText());
+                case VALUE_NUMBER_INT -> addValue(parser.getNumberValue());
+                case VALUE_NUMBER_FLOAT -> addValue(parser.getDoubleValue());
+                case VALUE_TRUE -> addValue(Boolean.TRUE);
+                case VALUE_FALSE -> addValue(Boolean.FALSE);
+                case VALUE_NULL -> addValue(null);
+                default -> {
+                    // Embedded objects do not occur in text input
+                }
+            }
+        }
+    }
+
+    private void addValue(Object value) {
+        Frame frame = stack.peek();
+        if (frame == null) {
+            // A scalar at the root is not a command
+            finished = true;
+            return;
+        }
+        if (frame.object == null) {
+            frame.array.add(value);
+            return;
+        }
+        frame.object.put(frame.name, value);
+        if (stack.size() == 1) {
+            fields.put(frame.name, value);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.scene;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Scene;
+import com.example.smart.lighting.scenes.with_natural.language.repository.SceneRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * In-memory catalog of scenes, indexed by ID and by normalised name.
+ *
+ * <p>The catalog is an immutable snapshot swapped in atomically on reload, so
+ * readers never lock and never see a half-built index. It is loaded at
+ * startup, reloaded by {@code ScenesController} after every create, update or
+ * delete, and reloaded periodically to pick up changes made by other backend
+ * instances.</p>
+ *
+ * <p>Every scene is indexed by ID, so schedules that still reference a
+ * deleted scene keep working; only active scenes are listed and resolvable by
+ * name. Scenes are detached copies with read-only settings and no creator.</p>
+ *
+ * <p>{@link #version()} is a hash of the active scenes' IDs, names and update
+ * times, so caches derived from the catalog can key on it.</p>
+ *
+
+ * @see Scene
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SceneCatalog {
+
+    private final SceneRepository sceneRepository;
+
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(Map<UUID, Scene> byId, Map<String, Scene> byName,
+                            List<Scene> active, List<String> activeNames, String version) {}
+
+    /**
+     * Reload the catalog from the database and swap it in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${scenes.catalog.reload-interval-ms:300000}",
+        initialDelayString = "${scenes.catalog.reload-interval-ms:300000}")
+    public synchronized void reload() {
+        snapshot = build(sceneRepository.findAll());
+        log.info("Scene catalog loaded with {} active scenes", snapshot.active().size());
+    }
+
+    /**
+     * Get all active scenes, ordered by name.
+     */
+    public List<Scene> getActiveScenes() {
+        return current().active();
+    }
+
+    /**
+     * Get the names of all active scenes, ordered by name.
+     */
+    public List<String> getActiveSceneNames() {
+        return current().activeNames();
+    }
+
+    /**
+     * Find a scene by ID, including deleted ones.
+     *
+     * @param sceneId the scene ID
+     * @return the scene, or empty if unknown
+     */
+    public Optional<Scene> findById(UUID sceneId) {
+        return Optional.ofNullable(current().byId().get(sceneId));
+    }
+
+    /**
+     * Find an active scene by name, ignoring case and surrounding whitespace.
+     *
+     * @param name the scene name
+     * @return the scene, or empty if no active scene has that name
+     */
+    public Optional<Scene> findByName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(current().byName().get(normalize(name)));
+    }
+
+    /**
+     * Get the catalog version.
+     *
+     * @return a hash that changes whenever an active scene is added, renamed,
+     *         updated or removed
+     */
+    public String version() {
+        return current().version();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // First use before ApplicationReadyEvent
+            reload();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    private static Snapshot build(List<Scene> scenes) {
+        Map<UUID, Scene> byId = new HashMap<>();
+        Map<String, Scene> byName = new LinkedHashMap<>();
+        List<Scene> active = scenes.stream()
+            .filter(scene -> Boolean.TRUE.equals(scene.getIsActive()))
+            .sorted(Comparator.comparing(Scene::getName, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(scene -> scene.getId().toString()))
+            .map(SceneCatalog::detach)
+            .toList();
+
+        StringBuilder fingerprint = new StringBuilder();
+        for (Scene scene : active) {
+            byId.put(scene.getId(), scene);
+            // Names are not unique in the database; the first in catalog order wins
+            byName.putIfAbsent(normalize(scene.getName()), scene);
+            fingerprint.append(scene.getId()).append('|').append(scene.getName())
+                .append('|').append(scene.getUpdatedAt()).append('\n');
+        }
+        for (Scene scene : scenes) {
+            byId.computeIfAbsent(scene.getId(), id -> detach(scene));
+        }
+
+        return new Snapshot(Map.copyOf(byId), Collections.unmodifiableMap(byName), active,
+            active.stream().map(Scene::getName).toList(), sha256(fingerprint.toString()));
+    }
+
+    private static Scene detach(Scene scene) {
+        Map<String, Object> settings = scene.getSettingsJson() != null
+            ? Collections.unmodifiableMap(new HashMap<>(scene.getSettingsJson()))
+            : Map.of();
+        return Scene.builder()
+            .id(scene.getId())
+            .name(scene.getName())
+            .description(scene.getDescription())
+            .icon(scene.getIcon())
+            .settingsJson(settings)
+            .isPreset(scene.getIsPreset())
+            .isActive(scene.getIsActive())
+            .createdAt(scene.getCreatedAt())
+            .updatedAt(scene.getUpdatedAt())
+            .build();
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
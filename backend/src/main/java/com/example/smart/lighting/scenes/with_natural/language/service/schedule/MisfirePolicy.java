@@ -0,0 +1,47 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * What to do with schedule firings missed while the scheduler was not running.
+ *
+ * <p>Set per schedule with the "misfire_policy" key of its trigger config,
+ * for example {@code "misfire_policy": "skip"}.</p>
+ *
+
+ * @see ScheduleMisfireResolver
+ */
+public enum MisfirePolicy {
+
+    /** Fire the schedule once on recovery, however many firings were missed. */
+    FIRE_ONCE_NOW,
+
+    /** Drop missed firings; wait for the next regular firing. */
+    SKIP,
+
+    /**
+     * Fire only if no later firing (missed or due now) covers the same LEDs,
+     * so the lights end up in the state the latest schedule intended.
+     */
+    FIRE_LATEST_PER_TARGET;
+
+    /**
+     * Parse a policy name such as "skip" or "fire-once-now".
+     *
+     * @param name the policy name, may be null
+     * @return the policy, or empty if the name is unknown
+     */
+    public static Optional<MisfirePolicy> fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return Optional.empty();
+        }
+        String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_').replace(' ', '_');
+        for (MisfirePolicy policy : values()) {
+            if (policy.name().equals(normalized)) {
+                return Optional.of(policy);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Scene;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Turns a schedule action into the LED command it produces.
+ *
+ * <p>Shared by the live scheduler, which publishes the command over MQTT,
+ * and the simulator, which applies it to a virtual LED state.</p>
+ *
+
+ * @see ScheduleTargetResolver
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduleActionPlanner {
+
+    private final ScheduleTargetResolver targetResolver;
+
+    /**
+     * The LED command an action resolves to.
+     *
+     * @param sceneId the applied scene, or null for light actions
+     * @param name display name used for command tracking
+     * @param target the effective target room
+     * @param ledIndices the LEDs to send the command to
+     * @param command the LED command payload
+     */
+    public record PlannedCommand(UUID sceneId, String name, Object target,
+                                 List<Integer> ledIndices, Map<String, Object> command) {}
+
+    /**
+     * Plan a single action.
+     *
+     * @param action the action from a schedule
+     * @return the command, or empty if the action refers to an unknown scene
+     */
+    public Optional<PlannedCommand> plan(Map<String, Object> action) {
+        if ("scene".equals(action.get("type"))) {
+            // Apply a scene
+            Object sceneIdObj = action.get("scene_id");
+            if (sceneIdObj == null) {
+                sceneIdObj = action.get("scene");
+            }
+            if (sceneIdObj == null) {
+                return Optional.empty();
+            }
+            return planScene(sceneIdObj.toString(), action.get("target"));
+        }
+        return Optional.of(planLight(action));
+    }
+
+    private PlannedCommand planLight(Map<String, Object> action) {
+        String intent = (String) action.get("intent");
+        if (intent == null) {
+            intent = "light.on"; // Default
+        }
+
+        Object target = action.get("target");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> params = (Map<String, Object>) action.get("params");
+
+        Map<String, Object> command = new HashMap<>();
+
+        // Scheduled actions don't set mode - sensors continue working
+        switch (intent) {
+            case "light.on" -> command.put("on", true);
+            case "light.off" -> command.put("on", false);
+            case "light.brightness" -> {
+                command.put("on", true);
+                if (params != null && params.containsKey("brightness")) {
+                    command.put("brightness", params.get("brightness"));
+                }
+            }
+            case "light.color" -> {
+                command.put("on", true);
+                if (params != null && params.containsKey("rgb")) {
+                    command.put("rgb", params.get("rgb"));
+                }
+            }
+            case "light.color_temp" -> {
+                command.put("on", true);
+                if (params != null && params.containsKey("color_temp")) {
+                    command.put("color_temp", params.get("color_temp"));
+                }
+            }
+            default -> log.warn("Unknown intent: {}", intent);
+        }
+
+        return new PlannedCommand(null, "Schedule: " + intent, target,
+            targetResolver.getLedIndicesForTarget(target), command);
+    }
+
+    /**
+     * Plan a scene by ID or name for a specific target (or the scene's default).
+     */
+    private Optional<PlannedCommand> planScene(String sceneIdOrName, Object targetRoom) {
+        Optional<Scene> sceneOpt = targetResolver.findScene(sceneIdOrName);
+        if (sceneOpt.isEmpty()) {
+            log.warn("Scene not found: {}", sceneIdOrName);
+            return Optional.empty();
+        }
+
+        Scene scene = sceneOpt.get();
+        Map<String, Object> settings = scene.getSettingsJson();
+
+        Map<String, Object> command = new HashMap<>();
+        command.put("on", true);
+        // Scenes don't set mode - sensors continue working with scene settings as base
+
+        if (settings.containsKey("brightness")) {
+            command.put("brightness", settings.get("brightness"));
+        }
+        if (settings.containsKey("rgb")) {
+            command.put("rgb", settings.get("rgb"));
+        }
+        if (settings.containsKey("color_temp")) {
+            command.put("color_temp", settings.get("color_temp"));
+        }
+
+        // Use specified target room, or fall back to scene's default, or "all"
+        Object effectiveTarget;
+        if (targetRoom != null && !targetRoom.toString().isBlank()) {
+            effectiveTarget = targetRoom;
+        } else {
+            effectiveTarget = settings.getOrDefault("target", "all");
+        }
+
+        return Optional.of(new PlannedCommand(scene.getId(), "Schedule: " + scene.getName(), effectiveTarget,
+            targetResolver.getLedIndicesForScene(scene, targetRoom), command));
+    }
+}
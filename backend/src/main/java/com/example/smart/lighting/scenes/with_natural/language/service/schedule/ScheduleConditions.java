@@ -0,0 +1,80 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Automation;
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationCompiler;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Checks a schedule's conditions when it fires.
+ *
+ * <p>Conditions use the automation condition syntax with {@code type} in
+ * place of {@code condition}:</p>
+ * <ul>
+ *   <li><b>time</b> - {@code after}, {@code before} and {@code weekday}</li>
+ *   <li><b>sensor</b> - {@code entity_id} with {@code above} and/or
+ *       {@code below}, e.g. {@code sensor.luminosity.mean} from the sensor
+ *       windows</li>
+ *   <li><b>state</b> - {@code entity_id} and {@code state}</li>
+ * </ul>
+ *
+ * <p>States come from the {@link AutomationEngine}'s memory, so checking a
+ * condition never reads the database. A sensor without a reading yet does
+ * not meet its condition. Other condition types are ignored.</p>
+ *
+
+ * @see AutomationCompiler#compileCondition(Automation.Condition)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduleConditions {
+
+    private static final Map<String, String> CONDITION_TYPES = Map.of(
+        "time", "time", "sensor", "numeric_state", "numeric_state", "numeric_state", "state", "state");
+
+    private final AutomationEngine automationEngine;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Whether every condition of a schedule holds.
+     *
+     * @param schedule the schedule about to fire
+     * @param now the current local time
+     * @return true if the schedule should run
+     */
+    public boolean hold(Schedule schedule, LocalDateTime now) {
+        List<Map<String, Object>> conditions = schedule.getConditions();
+        if (conditions == null) {
+            return true;
+        }
+        for (Map<String, Object> condition : conditions) {
+            String type = CONDITION_TYPES.get(Objects.toString(condition.get("type"), ""));
+            if (type == null) {
+                log.debug("Ignoring condition {} of schedule {}", condition.get("type"), schedule.getId());
+                continue;
+            }
+            try {
+                Automation.Condition parsed = objectMapper.convertValue(condition, Automation.Condition.class);
+                parsed.setCondition(type);
+                if (!AutomationCompiler.compileCondition(parsed).test(automationEngine::getState, now)) {
+                    return false;
+                }
+            } catch (IllegalArgumentException | DateTimeException e) {
+                log.warn("Invalid condition {} on schedule {}: {}", condition, schedule.getId(), e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+}
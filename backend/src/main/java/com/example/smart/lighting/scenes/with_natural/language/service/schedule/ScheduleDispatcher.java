@@ -0,0 +1,230 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Fires the schedules of one scheduler tick concurrently.
+ *
+ * <p>Schedules are grouped into lanes: two schedules share a lane when they
+ * touch at least one common LED. Lanes run in parallel on a bounded pool,
+ * while the schedules inside a lane run one after the other in the given
+ * order, so the last schedule for a target always wins.</p>
+ *
+ * <p>Each schedule gets its own timeout. A schedule that hangs (for example
+ * on a blocked MQTT publish) is interrupted after the timeout. Its lane only
+ * moves on once it has actually returned, so a hung schedule can never
+ * publish after the one that follows it; other lanes are not held up.</p>
+ *
+ * <p>The tick itself never waits longer than the longest lane's share of
+ * timeouts plus a margin. A lane still stuck in a schedule that ignores the
+ * interrupt is counted in {@code scheduler.dispatch.overruns} and left
+ * behind; it skips its remaining schedules once the stuck one returns, so
+ * they cannot land on top of a later tick.</p>
+ *
+
+ * @see ScheduleTargetResolver
+ */
+@Component
+@Slf4j
+public class ScheduleDispatcher {
+
+    private static final long OVERRUN_MARGIN_MS = 1000;
+
+    private final ScheduleTargetResolver targetResolver;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final long scheduleTimeoutMs;
+    private final Timer fireSpread;
+    private final Counter timeouts;
+    private final Counter overruns;
+
+    public ScheduleDispatcher(
+            ScheduleTargetResolver targetResolver,
+            MeterRegistry meterRegistry,
+            @Value("${scheduler.dispatch.pool-size:8}") int poolSize,
+            @Value("${scheduler.dispatch.schedule-timeout-ms:15000}") long scheduleTimeoutMs) {
+        this.targetResolver = targetResolver;
+        this.scheduleTimeoutMs = scheduleTimeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, poolSize), runnable -> {
+            Thread thread = new Thread(runnable, "schedule-dispatch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "schedule-dispatch-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.fireSpread = Timer.builder("scheduler.fire.spread")
+            .description("Time between the first and last schedule firing of a tick")
+            .register(meterRegistry);
+        this.timeouts = Counter.builder("scheduler.schedule.timeouts")
+            .description("Schedules abandoned after exceeding their timeout")
+            .register(meterRegistry);
+        this.overruns = Counter.builder("scheduler.dispatch.overruns")
+            .description("Lanes left running after the tick stopped waiting for them")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Fire schedules concurrently and wait until every lane has finished, or
+     * until the longest lane has used up its timeouts.
+     *
+     * @param schedules schedules to fire, in the order they should apply
+     * @param fire the action run for each schedule
+     */
+    public void dispatch(List<Schedule> schedules, Consumer<Schedule> fire) {
+        if (schedules.isEmpty()) {
+            return;
+        }
+
+        AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+        AtomicLong lastStart = new AtomicLong(Long.MIN_VALUE);
+
+        List<List<Schedule>> lanes = buildLanes(schedules);
+        AtomicBoolean abandoned = new AtomicBoolean();
+        List<CompletableFuture<Void>> laneFutures = new ArrayList<>(lanes.size());
+        for (List<Schedule> lane : lanes) {
+            laneFutures.add(CompletableFuture.runAsync(() -> {
+                for (Schedule schedule : lane) {
+                    if (abandoned.get()) {
+                        log.warn("Skipping schedule '{}' of an overrun lane", schedule.getName());
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    firstStart.accumulateAndGet(start, Math::min);
+                    lastStart.accumulateAndGet(start, Math::max);
+                    fireWithTimeout(schedule, fire);
+                }
+            }, executor));
+        }
+
+        int longestLane = lanes.stream().mapToInt(List::size).max().orElse(0);
+        long waitMs = longestLane * scheduleTimeoutMs + OVERRUN_MARGIN_MS;
+        try {
+            CompletableFuture.allOf(laneFutures.toArray(CompletableFuture[]::new))
+                .get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandoned.set(true);
+            for (int i = 0; i < lanes.size(); i++) {
+                if (!laneFutures.get(i).isDone()) {
+                    overruns.increment();
+                    log.error("Lane of {} schedules starting with '{}' still running after {}ms; not waiting for it",
+                        lanes.get(i).size(), lanes.get(i).get(0).getName(), waitMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            abandoned.set(true);
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for schedules to fire");
+        } catch (ExecutionException e) {
+            log.error("Schedule lane failed: {}", e.getCause().getMessage(), e.getCause());
+        }
+
+        if (firstStart.get() != Long.MAX_VALUE) {
+            Duration spread = Duration.ofNanos(lastStart.get() - firstStart.get());
+            fireSpread.record(spread);
+            log.info("Fired {} schedules in {} lanes (spread {}ms)",
+                schedules.size(), lanes.size(), spread.toMillis());
+        }
+    }
+
+    /**
+     * Fire one schedule on the calling lane thread, interrupting it if it
+     * runs past the timeout. Returns only once the schedule has returned.
+     */
+    private void fireWithTimeout(Schedule schedule, Consumer<Schedule> fire) {
+        Thread lane = Thread.currentThread();
+        // Guards the interrupt so it can never land on the next schedule
+        AtomicBoolean settled = new AtomicBoolean();
+        ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+            synchronized (settled) {
+                if (settled.compareAndSet(false, true)) {
+                    lane.interrupt();
+                }
+            }
+        }, scheduleTimeoutMs, TimeUnit.MILLISECONDS);
+
+        try {
+            fire.accept(schedule);
+        } catch (RuntimeException e) {
+            log.error("Error executing schedule {}: {}", schedule.getId(), e.getMessage(), e);
+        } finally {
+            timeout.cancel(false);
+            synchronized (settled) {
+                if (!settled.compareAndSet(false, true)) {
+                    // Clear the watchdog's interrupt before the next schedule
+                    Thread.interrupted();
+                    timeouts.increment();
+                    log.error("Schedule '{}' timed out after {}ms and was interrupted",
+                        schedule.getName(), scheduleTimeoutMs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Group schedules whose LED sets overlap, keeping their relative order.
+     */
+    List<List<Schedule>> buildLanes(List<Schedule> schedules) {
+        int[] parent = new int[schedules.size()];
+        Map<Integer, Integer> ledOwner = new HashMap<>();
+        for (int i = 0; i < schedules.size(); i++) {
+            parent[i] = i;
+            for (Integer led : targetResolver.getAffectedLeds(schedules.get(i))) {
+                Integer owner = ledOwner.putIfAbsent(led, i);
+                if (owner != null) {
+                    parent[find(parent, i)] = find(parent, owner);
+                }
+            }
+        }
+
+        Map<Integer, List<Schedule>> lanes = new LinkedHashMap<>();
+        for (int i = 0; i < schedules.size(); i++) {
+            lanes.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(schedules.get(i));
+        }
+        return new ArrayList<>(lanes.values());
+    }
+
+    private int find(int[] parent, int i) {
+        int root = i;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        parent[i] = root;
+        return root;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.SchedulerState;
+import com.example.smart.lighting.scenes.with_natural.language.repository.SchedulerStateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Persistent record of the last minute the schedule runner processed.
+ *
+ * <p>The value is read from the database once and then kept in memory.
+ * A failed write is logged and retried on the next advance, so a database
+ * hiccup never stops schedules from firing.</p>
+ *
+
+ * @see SchedulerState
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduleHighWaterMark {
+
+    private static final String SCHEDULER_NAME = "schedules";
+
+    private final SchedulerStateRepository schedulerStateRepository;
+
+    private volatile boolean loaded;
+    private volatile LocalDateTime lastProcessed;
+
+    /**
+     * Get the last processed minute.
+     *
+     * @return the minute, or empty if the scheduler has never run
+     */
+    public synchronized Optional<LocalDateTime> get() {
+        if (!loaded) {
+            try {
+                lastProcessed = schedulerStateRepository.findById(SCHEDULER_NAME)
+                    .map(SchedulerState::getLastProcessedAt)
+                    .orElse(null);
+                loaded = true;
+                log.info("Loaded scheduler high-water mark: {}", lastProcessed);
+            } catch (Exception e) {
+                log.warn("Could not load scheduler high-water mark: {}", e.getMessage());
+            }
+        }
+        return Optional.ofNullable(lastProcessed);
+    }
+
+    /**
+     * Forget the in-memory value so the next {@link #get()} reads the
+     * database, e.g. after another instance may have advanced it.
+     */
+    public synchronized void reload() {
+        loaded = false;
+    }
+
+    /**
+     * Record that every minute up to and including {@code minute} is processed.
+     *
+     * @param minute the processed minute
+     */
+    public synchronized void advanceTo(LocalDateTime minute) {
+        lastProcessed = minute;
+        loaded = true;
+        try {
+            schedulerStateRepository.save(SchedulerState.builder()
+                .name(SCHEDULER_NAME)
+                .lastProcessedAt(minute)
+                .build());
+        } catch (Exception e) {
+            log.warn("Could not persist scheduler high-water mark {}: {}", minute, e.getMessage());
+        }
+    }
+}
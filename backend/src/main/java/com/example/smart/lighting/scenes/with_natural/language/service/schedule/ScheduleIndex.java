@@ -0,0 +1,88 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.repository.ScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of enabled time and sun schedules, keyed by fire minute.
+ *
+ * <p>Every instance refreshes the index on each scheduler tick, whether it
+ * is the leader or not, so a follower that takes over already has the
+ * schedules loaded and today's and tomorrow's fire times resolved.</p>
+ *
+
+ * @see SchedulerLeaderElection
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduleIndex {
+
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleTriggerResolver triggerResolver;
+
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of(), null);
+
+    private record Snapshot(List<Schedule> schedules, Map<LocalDateTime, List<Schedule>> byMinute,
+                            LocalDate compiledFrom) {}
+
+    /**
+     * Reload schedules and resolve fire times for {@code today} and the day after.
+     *
+     * @param today the current local date
+     */
+    public void refresh(LocalDate today) {
+        List<Schedule> schedules = new ArrayList<>(scheduleRepository.findEnabledTimeSchedules());
+        schedules.addAll(scheduleRepository.findEnabledSunSchedules());
+
+        Map<LocalDateTime, List<Schedule>> byMinute = new HashMap<>();
+        for (Schedule schedule : schedules) {
+            for (LocalDate date = today; !date.isAfter(today.plusDays(1)); date = date.plusDays(1)) {
+                triggerResolver.resolveFireTime(schedule, date)
+                    .map(time -> time.truncatedTo(ChronoUnit.MINUTES))
+                    .ifPresent(minute -> byMinute.computeIfAbsent(minute, m -> new ArrayList<>()).add(schedule));
+            }
+        }
+
+        snapshot = new Snapshot(Collections.unmodifiableList(schedules), byMinute, today);
+        log.debug("Schedule index refreshed: {} schedules, {} fire minutes", schedules.size(), byMinute.size());
+    }
+
+    /**
+     * Get all indexed schedules.
+     */
+    public List<Schedule> getSchedules() {
+        return snapshot.schedules();
+    }
+
+    /**
+     * Get the schedules that fire in a given minute.
+     *
+     * @param minute the local minute
+     * @return the due schedules
+     */
+    public List<Schedule> getDueAt(LocalDateTime minute) {
+        Snapshot current = snapshot;
+        LocalDate date = minute.toLocalDate();
+        if (current.compiledFrom() == null
+            || date.isBefore(current.compiledFrom())
+            || date.isAfter(current.compiledFrom().plusDays(1))) {
+            return current.schedules().stream()
+                .filter(schedule -> triggerResolver.isDueAt(schedule, minute))
+                .toList();
+        }
+        return current.byMinute().getOrDefault(minute.truncatedTo(ChronoUnit.MINUTES), List.of());
+    }
+}
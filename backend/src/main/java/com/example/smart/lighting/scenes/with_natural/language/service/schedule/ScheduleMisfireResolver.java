@@ -0,0 +1,140 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Works out which schedule firings were missed and which to replay.
+ *
+ * <p>Missed firings are the fire times that fall strictly after the
+ * scheduler's high-water mark and strictly before the minute being
+ * processed. Each schedule's {@link MisfirePolicy} then decides whether
+ * its latest missed firing is replayed, dropped, or replayed only when no
+ * later firing overrides the same LEDs.</p>
+ *
+
+ * @see ScheduleHighWaterMark
+ */
+@Component
+@Slf4j
+public class ScheduleMisfireResolver {
+
+    private final ScheduleTriggerResolver triggerResolver;
+    private final ScheduleTargetResolver targetResolver;
+    private final MisfirePolicy defaultPolicy;
+
+    /**
+     * A schedule firing that did not happen on time.
+     *
+     * @param schedule the schedule
+     * @param scheduledAt the minute it should have fired
+     */
+    public record MissedFiring(Schedule schedule, LocalDateTime scheduledAt) {}
+
+    public ScheduleMisfireResolver(
+            ScheduleTriggerResolver triggerResolver,
+            ScheduleTargetResolver targetResolver,
+            @Value("${scheduler.misfire.default-policy:fire_latest_per_target}") String defaultPolicy) {
+        this.triggerResolver = triggerResolver;
+        this.targetResolver = targetResolver;
+        this.defaultPolicy = MisfirePolicy.fromName(defaultPolicy).orElse(MisfirePolicy.FIRE_LATEST_PER_TARGET);
+    }
+
+    /**
+     * Find the firings that fall between two minutes, both exclusive.
+     *
+     * @param schedules candidate schedules
+     * @param after the last processed minute
+     * @param before the minute now being processed
+     * @return missed firings ordered by scheduled time
+     */
+    public List<MissedFiring> findMissed(Collection<Schedule> schedules, LocalDateTime after, LocalDateTime before) {
+        List<MissedFiring> missed = new ArrayList<>();
+        for (Schedule schedule : schedules) {
+            for (LocalDate date = after.toLocalDate(); !date.isAfter(before.toLocalDate()); date = date.plusDays(1)) {
+                triggerResolver.resolveFireTime(schedule, date)
+                    .map(time -> time.truncatedTo(ChronoUnit.MINUTES))
+                    .filter(time -> time.isAfter(after) && time.isBefore(before))
+                    .ifPresent(time -> missed.add(new MissedFiring(schedule, time)));
+            }
+        }
+        missed.sort(Comparator.comparing(MissedFiring::scheduledAt));
+        return missed;
+    }
+
+    /**
+     * Apply each schedule's misfire policy.
+     *
+     * <p>Only the latest missed firing of a schedule is considered. Schedules
+     * that are due in the current minute are dropped, and their LEDs count
+     * as already covered by a later firing.</p>
+     *
+     * @param missed missed firings
+     * @param dueNow schedules firing in the current minute
+     * @return the firings to replay, oldest first
+     */
+    public List<MissedFiring> selectFirings(List<MissedFiring> missed, Collection<Schedule> dueNow) {
+        Set<UUID> dueIds = new HashSet<>();
+        Set<Integer> covered = new HashSet<>();
+        for (Schedule schedule : dueNow) {
+            dueIds.add(schedule.getId());
+            covered.addAll(targetResolver.getAffectedLeds(schedule));
+        }
+
+        Map<UUID, MissedFiring> latestPerSchedule = new LinkedHashMap<>();
+        for (MissedFiring firing : missed) {
+            if (!dueIds.contains(firing.schedule().getId())) {
+                latestPerSchedule.merge(firing.schedule().getId(), firing,
+                    (a, b) -> a.scheduledAt().isAfter(b.scheduledAt()) ? a : b);
+            }
+        }
+
+        List<MissedFiring> newestFirst = new ArrayList<>(latestPerSchedule.values());
+        newestFirst.sort(Comparator.comparing(MissedFiring::scheduledAt).reversed());
+
+        List<MissedFiring> selected = new ArrayList<>();
+        for (MissedFiring firing : newestFirst) {
+            MisfirePolicy policy = policyFor(firing.schedule());
+            Set<Integer> leds = targetResolver.getAffectedLeds(firing.schedule());
+            boolean keep = switch (policy) {
+                case SKIP -> false;
+                case FIRE_ONCE_NOW -> true;
+                case FIRE_LATEST_PER_TARGET -> !covered.containsAll(leds);
+            };
+            if (keep) {
+                selected.add(firing);
+                covered.addAll(leds);
+            } else {
+                log.info("Dropping missed firing of '{}' at {} (policy {})",
+                    firing.schedule().getName(), firing.scheduledAt(), policy);
+            }
+        }
+
+        selected.sort(Comparator.comparing(MissedFiring::scheduledAt));
+        return selected;
+    }
+
+    /**
+     * Get the misfire policy of a schedule, falling back to the default.
+     */
+    public MisfirePolicy policyFor(Schedule schedule) {
+        Map<String, Object> config = schedule.getTriggerConfig();
+        Object name = config != null ? config.get("misfire_policy") : null;
+        return MisfirePolicy.fromName(name != null ? name.toString() : null).orElse(defaultPolicy);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleActionPlanner.PlannedCommand;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Runs schedules against a virtual clock to preview what the lights will do.
+ *
+ * <p>Instead of ticking minute by minute, the simulator jumps straight from
+ * one fire time to the next. Fire times come from the same
+ * {@link ScheduleTriggerResolver} the live scheduler uses, and actions are
+ * turned into LED commands by the same {@link ScheduleActionPlanner}, so a
+ * simulation matches what would really be published. {@link ScheduleConditions}
+ * depend on live state and are not evaluated.</p>
+ *
+ * <p>Fire times of different days are resolved in parallel on a fork-join
+ * pool; the resulting firings are then applied in order to build the
+ * per-LED state timeline.</p>
+ *
+
+ * @see ScheduleTriggerResolver
+ */
+@Service
+@Slf4j
+public class ScheduleSimulator {
+
+    private final ScheduleTriggerResolver triggerResolver;
+    private final ScheduleActionPlanner actionPlanner;
+    private final Clock clock;
+    private final int maxDays;
+    private final ForkJoinPool pool;
+
+    /**
+     * A schedule firing in the simulation.
+     */
+    public record SimulatedFiring(LocalDateTime at, UUID scheduleId, String scheduleName,
+                                  String triggerType, List<Integer> ledIndices) {}
+
+    /**
+     * The state of one LED after a firing changed it.
+     */
+    public record LedStateChange(LocalDateTime at, UUID scheduleId, String scheduleName,
+                                 Map<String, Object> state) {}
+
+    /**
+     * Result of a simulation run.
+     *
+     * @param from start of the simulated range (inclusive)
+     * @param to end of the simulated range (exclusive)
+     * @param scheduleCount number of schedules simulated
+     * @param firings all firings in time order
+     * @param timeline per-LED state changes in time order
+     * @param finalState state of each LED at the end of the range
+     * @param elapsedMs wall-clock time the simulation took
+     */
+    public record SimulationResult(LocalDateTime from, LocalDateTime to, int scheduleCount,
+                                   List<SimulatedFiring> firings,
+                                   Map<Integer, List<LedStateChange>> timeline,
+                                   Map<Integer, Map<String, Object>> finalState,
+                                   long elapsedMs) {}
+
+    private record PendingFiring(LocalDateTime at, int order, Schedule schedule) {}
+
+    public ScheduleSimulator(
+            ScheduleTriggerResolver triggerResolver,
+            ScheduleActionPlanner actionPlanner,
+            Clock clock,
+            @Value("${scheduler.simulation.max-days:92}") int maxDays,
+            @Value("${scheduler.simulation.parallelism:0}") int parallelism) {
+        this.triggerResolver = triggerResolver;
+        this.actionPlanner = actionPlanner;
+        this.clock = clock;
+        this.maxDays = maxDays;
+        this.pool = parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Simulate schedules from the current minute for a number of days.
+     *
+     * @param schedules the schedules to simulate
+     * @param days number of days
+     * @return the simulation result
+     * @throws IllegalArgumentException if days is not between 1 and the configured maximum
+     */
+    public SimulationResult simulate(List<Schedule> schedules, int days) {
+        return simulate(schedules, LocalDateTime.now(clock).truncatedTo(ChronoUnit.MINUTES), days);
+    }
+
+    /**
+     * Simulate schedules from a start time for a number of days.
+     *
+     * @param schedules the schedules to simulate
+     * @param from start of the range (inclusive)
+     * @param days number of days
+     * @return the simulation result
+     * @throws IllegalArgumentException if days is not between 1 and the configured maximum
+     */
+    public SimulationResult simulate(List<Schedule> schedules, LocalDateTime from, int days) {
+        // Checked before plusDays, which throws DateTimeException for out-of-range values
+        if (days < 1 || days > maxDays) {
+            throw new IllegalArgumentException("Simulation days must be between 1 and " + maxDays);
+        }
+        return simulate(schedules, from, from.plusDays(days));
+    }
+
+    /**
+     * Simulate schedules over a time range.
+     *
+     * @param schedules the schedules to simulate, in priority order for equal fire times
+     * @param from start of the range (inclusive)
+     * @param to end of the range (exclusive)
+     * @return the simulation result
+     * @throws IllegalArgumentException if the range is empty or longer than the configured maximum
+     */
+    public SimulationResult simulate(List<Schedule> schedules, LocalDateTime from, LocalDateTime to) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("Simulation end must be after its start");
+        }
+        if (ChronoUnit.DAYS.between(from.toLocalDate(), to.toLocalDate()) > maxDays) {
+            throw new IllegalArgumentException("Simulation range is limited to " + maxDays + " days");
+        }
+
+        long started = System.nanoTime();
+
+        // Scenes are looked up once, not per firing
+        Map<Schedule, List<PlannedCommand>> plans = new IdentityHashMap<>();
+        for (Schedule schedule : schedules) {
+            plans.put(schedule, planActions(schedule));
+        }
+
+        List<PendingFiring> pending = pool.submit(() -> from.toLocalDate()
+            .datesUntil(to.toLocalDate().plusDays(1))
+            .parallel()
+            .flatMap(date -> firingsOn(date, schedules, from, to))
+            .sorted(Comparator.comparing(PendingFiring::at).thenComparingInt(PendingFiring::order))
+            .toList()).join();
+
+        List<SimulatedFiring> firings = new ArrayList<>(pending.size());
+        Map<Integer, List<LedStateChange>> timeline = new TreeMap<>();
+        Map<Integer, Map<String, Object>> state = new TreeMap<>();
+
+        for (PendingFiring firing : pending) {
+            Schedule schedule = firing.schedule();
+            List<Integer> leds = new ArrayList<>();
+            for (PlannedCommand planned : plans.get(schedule)) {
+                for (Integer led : planned.ledIndices()) {
+                    Map<String, Object> ledState = new LinkedHashMap<>(state.getOrDefault(led, Map.of()));
+                    ledState.putAll(planned.command());
+                    state.put(led, ledState);
+                    timeline.computeIfAbsent(led, l -> new ArrayList<>())
+                        .add(new LedStateChange(firing.at(), schedule.getId(), schedule.getName(), ledState));
+                    if (!leds.contains(led)) {
+                        leds.add(led);
+                    }
+                }
+            }
+            firings.add(new SimulatedFiring(
+                firing.at(), schedule.getId(), schedule.getName(), schedule.getTriggerType(), leds));
+        }
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        log.info("Simulated {} schedules from {} to {}: {} firings in {}ms",
+            schedules.size(), from, to, firings.size(), elapsedMs);
+        return new SimulationResult(from, to, schedules.size(), firings, timeline, state, elapsedMs);
+    }
+
+    private Stream<PendingFiring> firingsOn(LocalDate date, List<Schedule> schedules,
+                                            LocalDateTime from, LocalDateTime to) {
+        List<PendingFiring> firings = new ArrayList<>();
+        for (int i = 0; i < schedules.size(); i++) {
+            Schedule schedule = schedules.get(i);
+            int order = i;
+            triggerResolver.resolveFireTime(schedule, date)
+                .map(time -> time.truncatedTo(ChronoUnit.MINUTES))
+                .filter(time -> !time.isBefore(from) && time.isBefore(to))
+                .ifPresent(time -> firings.add(new PendingFiring(time, order, schedule)));
+        }
+        return firings.stream();
+    }
+
+    private List<PlannedCommand> planActions(Schedule schedule) {
+        List<PlannedCommand> planned = new ArrayList<>();
+        if (schedule.getActions() != null) {
+            for (Map<String, Object> action : schedule.getActions()) {
+                actionPlanner.plan(action).ifPresent(planned::add);
+            }
+        }
+        return planned;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accumulates schedule firing statistics and writes them in bulk.
+ *
+ * <p>Firings only bump {@code trigger_count} and {@code last_triggered_at},
+ * so instead of saving the whole {@code Schedule} row (with its JSONB
+ * columns) after every firing, the scheduler records firings here and
+ * flushes them once per tick with a single
+ * {@code UPDATE ... FROM (VALUES ...)} statement.</p>
+ *
+ * <p>The count is incremented in SQL, so concurrent edits to a schedule
+ * are never overwritten by a stale copy of the entity.</p>
+ *
+
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduleStatsBuffer {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<UUID, PendingStats> pending = new ConcurrentHashMap<>();
+
+    private record PendingStats(LocalDateTime lastTriggeredAt, int firings) {
+
+        PendingStats merge(PendingStats other) {
+            LocalDateTime latest = lastTriggeredAt.isAfter(other.lastTriggeredAt)
+                ? lastTriggeredAt : other.lastTriggeredAt;
+            return new PendingStats(latest, firings + other.firings);
+        }
+    }
+
+    /**
+     * Record one firing of a schedule.
+     *
+     * @param scheduleId the schedule ID
+     * @param triggeredAt when it fired
+     */
+    public void record(UUID scheduleId, LocalDateTime triggeredAt) {
+        pending.merge(scheduleId, new PendingStats(triggeredAt, 1), PendingStats::merge);
+    }
+
+    /**
+     * Write all recorded firings to the database.
+     *
+     * <p>Entries that fail to write are put back and retried on the next flush.</p>
+     *
+     * @return the number of schedules updated
+     */
+    public int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Map.Entry<UUID, PendingStats>> batch = new ArrayList<>();
+        for (UUID id : new ArrayList<>(pending.keySet())) {
+            PendingStats stats = pending.remove(id);
+            if (stats != null) {
+                batch.add(Map.entry(id, stats));
+            }
+        }
+
+        int updated = 0;
+        for (int from = 0; from < batch.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Map.Entry<UUID, PendingStats>> chunk =
+                batch.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, batch.size()));
+            try {
+                updated += writeChunk(chunk);
+            } catch (Exception e) {
+                log.warn("Could not write stats for {} schedules, will retry: {}", chunk.size(), e.getMessage());
+                chunk.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), PendingStats::merge));
+            }
+        }
+        log.debug("Flushed firing stats for {} schedules", updated);
+        return updated;
+    }
+
+    private int writeChunk(List<Map.Entry<UUID, PendingStats>> chunk) {
+        String values = String.join(", ",
+            Collections.nCopies(chunk.size(), "(CAST(? AS uuid), CAST(? AS timestamp), CAST(? AS integer))"));
+        String sql = "UPDATE smartlighting.schedules s"
+            + " SET last_triggered_at = GREATEST(s.last_triggered_at, v.last_triggered_at),"
+            + " trigger_count = COALESCE(s.trigger_count, 0) + v.firings"
+            + " FROM (VALUES " + values + ") AS v(id, last_triggered_at, firings)"
+            + " WHERE s.id = v.id";
+
+        List<Object> params = new ArrayList<>(chunk.size() * 3);
+        for (Map.Entry<UUID, PendingStats> entry : chunk) {
+            params.add(entry.getKey());
+            params.add(Timestamp.valueOf(entry.getValue().lastTriggeredAt()));
+            params.add(entry.getValue().firings());
+        }
+        return jdbcTemplate.update(sql, params.toArray());
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+}
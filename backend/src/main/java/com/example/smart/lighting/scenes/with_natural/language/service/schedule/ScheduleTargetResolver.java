@@ -0,0 +1,107 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Scene;
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Resolves schedule targets and scenes to LED indices.
+ *
+
+ * @see Schedule
+ */
+@Component
+@RequiredArgsConstructor
+public class ScheduleTargetResolver {
+
+    /** Number of LEDs driven by the controller. */
+    public static final int LED_COUNT = 5;
+
+    private static final List<Integer> ALL_LEDS = List.of(0, 1, 2, 3, 4);
+
+    private final SceneCatalog sceneCatalog;
+
+    /**
+     * Find a scene by ID or, failing that, by name.
+     *
+     * @param sceneIdOrName the scene ID or name
+     * @return the scene, or empty if not found
+     */
+    public Optional<Scene> findScene(String sceneIdOrName) {
+        try {
+            UUID sceneId = UUID.fromString(sceneIdOrName);
+            return sceneCatalog.findById(sceneId);
+        } catch (IllegalArgumentException e) {
+            // Not a UUID, try by name
+            return sceneCatalog.findByName(sceneIdOrName);
+        }
+    }
+
+    /**
+     * Get LED indices for a target.
+     */
+    public List<Integer> getLedIndicesForTarget(Object target) {
+        if (target == null || "all".equalsIgnoreCase(target.toString())) {
+            return ALL_LEDS;
+        }
+
+        String room = target.toString().toLowerCase().replace(" ", "_").replace("-", "_");
+
+        return switch (room) {
+            case "kitchen" -> List.of(0);
+            case "bedroom" -> List.of(1);
+            case "bathroom", "bath" -> List.of(2);
+            case "hallway" -> List.of(3);
+            case "living_room", "living" -> List.of(4);
+            default -> ALL_LEDS;
+        };
+    }
+
+    /**
+     * Get the LEDs a scene action affects: the action's target, or the
+     * scene's default target, or all LEDs.
+     */
+    public List<Integer> getLedIndicesForScene(Scene scene, Object targetRoom) {
+        if (targetRoom != null && !targetRoom.toString().isBlank()) {
+            return getLedIndicesForTarget(targetRoom);
+        }
+        Map<String, Object> settings = scene.getSettingsJson();
+        return getLedIndicesForTarget(settings != null ? settings.getOrDefault("target", "all") : "all");
+    }
+
+    /**
+     * Get every LED a schedule's actions touch.
+     *
+     * @param schedule the schedule
+     * @return the affected LED indices
+     */
+    public Set<Integer> getAffectedLeds(Schedule schedule) {
+        Set<Integer> leds = new LinkedHashSet<>();
+        List<Map<String, Object>> actions = schedule.getActions();
+        if (actions == null) {
+            return leds;
+        }
+
+        for (Map<String, Object> action : actions) {
+            Object target = action.get("target");
+            if ("scene".equals(action.get("type"))) {
+                Object sceneRef = action.getOrDefault("scene_id", action.get("scene"));
+                Optional<Scene> scene = sceneRef != null ? findScene(sceneRef.toString()) : Optional.empty();
+                leds.addAll(scene.map(s -> getLedIndicesForScene(s, target))
+                    .orElseGet(() -> getLedIndicesForTarget(target)));
+            } else {
+                leds.addAll(getLedIndicesForTarget(target));
+            }
+        }
+        return leds;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarEventService.SolarLocation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Resolves when a schedule fires on a given day.
+ *
+ * <p>Time schedules fire at their configured "at" time. Sun schedules fire
+ * at the cached solar event plus their "offset_minutes". Both honour the
+ * optional weekday filter, so the scheduler can treat every trigger type
+ * through the same fire-time lookup.</p>
+ *
+
+ * @see SolarEventService
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduleTriggerResolver {
+
+    private static final DateTimeFormatter HH_MM = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter HH_MM_SS = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private static final Map<String, DayOfWeek> DAY_MAP = Map.of(
+        "mon", DayOfWeek.MONDAY,
+        "tue", DayOfWeek.TUESDAY,
+        "wed", DayOfWeek.WEDNESDAY,
+        "thu", DayOfWeek.THURSDAY,
+        "fri", DayOfWeek.FRIDAY,
+        "sat", DayOfWeek.SATURDAY,
+        "sun", DayOfWeek.SUNDAY
+    );
+
+    private final SolarEventService solarEventService;
+
+    /**
+     * Resolve the local date-time at which a schedule fires on a date.
+     *
+     * @param schedule the schedule
+     * @param date the local date
+     * @return the fire time, or empty if the schedule does not fire that day
+     */
+    public Optional<LocalDateTime> resolveFireTime(Schedule schedule, LocalDate date) {
+        Map<String, Object> config = schedule.getTriggerConfig();
+        if (config == null || !matchesWeekday(config, date.getDayOfWeek())) {
+            return Optional.empty();
+        }
+
+        String triggerType = schedule.getTriggerType();
+        if ("time".equals(triggerType)) {
+            return resolveTime(schedule, config).map(date::atTime);
+        }
+        if ("sun".equals(triggerType)) {
+            return resolveSunTime(schedule, config, date);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Check whether a schedule is due in the minute containing {@code now}.
+     *
+     * @param schedule the schedule
+     * @param now the current local date-time
+     * @return true if the schedule fires within this minute
+     */
+    public boolean isDueAt(Schedule schedule, LocalDateTime now) {
+        return resolveFireTime(schedule, now.toLocalDate())
+            .filter(fireTime -> fireTime.getHour() == now.getHour()
+                && fireTime.getMinute() == now.getMinute())
+            .isPresent();
+    }
+
+    /**
+     * Read the time of day from a time trigger config.
+     *
+     * @param config the trigger config, with an "at" or "time" key in HH:mm or HH:mm:ss format
+     * @return the time, or empty if neither key is set
+     * @throws DateTimeParseException if the configured value is not a valid time
+     */
+    public static Optional<LocalTime> configuredTime(Map<String, Object> config) {
+        // Support both "at" and "time" keys
+        Object atTime = config.get("at");
+        if (atTime == null) {
+            atTime = config.get("time");
+        }
+        if (atTime == null) {
+            return Optional.empty();
+        }
+
+        // Handle HH:MM or HH:MM:SS format
+        String timeStr = atTime.toString();
+        return Optional.of(timeStr.length() == 5
+            ? LocalTime.parse(timeStr, HH_MM)
+            : LocalTime.parse(timeStr, HH_MM_SS));
+    }
+
+    private Optional<LocalTime> resolveTime(Schedule schedule, Map<String, Object> config) {
+        try {
+            return configuredTime(config);
+        } catch (DateTimeParseException e) {
+            log.warn("Invalid time format in schedule {}: {}", schedule.getId(), e.getParsedString());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<LocalDateTime> resolveSunTime(Schedule schedule, Map<String, Object> config, LocalDate date) {
+        Object eventName = config.get("event");
+        Optional<SolarEvent> event = SolarEvent.fromName(eventName != null ? eventName.toString() : null);
+        if (event.isEmpty()) {
+            log.warn("Unknown sun event in schedule {}: {}", schedule.getId(), eventName);
+            return Optional.empty();
+        }
+
+        Object offsetObj = config.getOrDefault("offset_minutes", config.get("offsetMinutes"));
+        int offsetMinutes = offsetObj instanceof Number n ? n.intValue() : 0;
+
+        SolarLocation location = solarEventService.resolveLocation(config);
+        return solarEventService.getEventTime(event.get(), date, location)
+            .map(time -> time.plusMinutes(offsetMinutes))
+            .filter(time -> time.toLocalDate().equals(date));
+    }
+
+    private boolean matchesWeekday(Map<String, Object> config, DayOfWeek day) {
+        // Support both "weekdays" and "days" keys
+        Object weekdaysObj = config.get("weekdays");
+        if (weekdaysObj == null) {
+            weekdaysObj = config.get("days");
+        }
+
+        // If no weekdays specified or empty list, assume every day
+        if (!(weekdaysObj instanceof List<?> weekdays) || weekdays.isEmpty()) {
+            return true;
+        }
+
+        return weekdays.stream()
+            .filter(Objects::nonNull)
+            .map(d -> {
+                // Support both formats: "MONDAY" and "mon"
+                String dayStr = d.toString().toLowerCase();
+                return dayStr.length() > 3 ? dayStr.substring(0, 3) : dayStr;
+            })
+            .map(DAY_MAP::get)
+            .filter(Objects::nonNull)
+            .anyMatch(d -> d == day);
+    }
+}
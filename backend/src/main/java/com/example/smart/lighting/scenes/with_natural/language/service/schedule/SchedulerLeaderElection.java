@@ -0,0 +1,222 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lease-based leader election for the schedule runner, backed by Redis.
+ *
+ * <p>Every instance tries to take a Redis key with {@code SET NX PX}. The
+ * holder renews the lease on each heartbeat; if it stops renewing, the key
+ * expires and another instance takes over within one lease period. Each new
+ * leadership increments a fencing token, which the scheduler stamps on its
+ * LED commands so devices can ignore a deposed leader.</p>
+ *
+ * <p>Devices remember the highest token they have seen, so tokens must never
+ * go backwards. The highest issued token is also kept in the database, and a
+ * new leader takes the larger of the Redis counter and the stored token plus
+ * one, reseeding Redis if it fell behind, e.g. after a restart without
+ * persistence. A leader that cannot store its token gives the lease up
+ * again.</p>
+ *
+ * <p>The heartbeat runs on its own thread rather than Spring's shared task
+ * scheduler, so a long scheduler tick (a slow schedule or a catch-up batch)
+ * cannot hold up renewal and let the lease expire while this instance is
+ * still dispatching.</p>
+ *
+ * <p>Leadership is also dropped locally once the lease could have expired
+ * without a successful renewal, so a leader cut off from Redis stops firing
+ * before a successor starts.</p>
+ *
+ * <p>With {@code scheduler.leader.enabled=false} the instance always acts as
+ * leader, for single-instance deployments.</p>
+ *
+
+ * @see ScheduleIndex
+ */
+@Component
+@Slf4j
+public class SchedulerLeaderElection {
+
+    private static final String LEADER_KEY = "smartlighting:scheduler:leader";
+    private static final String FENCING_KEY = "smartlighting:scheduler:fencing";
+    private static final String SCHEDULER_NAME = "schedules";
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    private static final RedisScript<Long> RAISE_SCRIPT = new DefaultRedisScript<>(
+        "if tonumber(redis.call('get', KEYS[1]) or '0') < tonumber(ARGV[1]) then "
+            + "redis.call('set', KEYS[1], ARGV[1]) return 1 else return 0 end", Long.class);
+
+    private static final String ISSUE_TOKEN_SQL = "INSERT INTO smartlighting.scheduler_fencing"
+        + " (scheduler_name, fencing_token, updated_at) VALUES (?, ?, CURRENT_TIMESTAMP)"
+        + " ON CONFLICT (scheduler_name) DO UPDATE SET"
+        + " fencing_token = GREATEST(scheduler_fencing.fencing_token + 1, EXCLUDED.fencing_token),"
+        + " updated_at = CURRENT_TIMESTAMP"
+        + " RETURNING fencing_token";
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Duration leaseDuration;
+    private final long heartbeatMs;
+    private final String instanceId;
+    private final ScheduledExecutorService heartbeatExecutor;
+
+    private volatile boolean leader;
+    private volatile long leaseValidUntilNanos;
+    private volatile long fencingToken;
+
+    public SchedulerLeaderElection(
+            StringRedisTemplate redisTemplate,
+            JdbcTemplate jdbcTemplate,
+            @Value("${scheduler.leader.enabled:true}") boolean enabled,
+            @Value("${scheduler.leader.lease-ms:6000}") long leaseMs,
+            @Value("${scheduler.leader.heartbeat-ms:2000}") long heartbeatMs) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.leaseDuration = Duration.ofMillis(leaseMs);
+        this.heartbeatMs = Math.max(1, heartbeatMs);
+        this.instanceId = hostName() + ":" + UUID.randomUUID();
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-leader-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            heartbeatExecutor.scheduleAtFixedRate(this::heartbeat, 0, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Acquire or renew the lease. Runs on every instance.
+     */
+    void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        try {
+            if (leader) {
+                Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(LEADER_KEY),
+                    instanceId, String.valueOf(leaseDuration.toMillis()));
+                if (renewed != null && renewed == 1L) {
+                    leaseValidUntilNanos = now + leaseDuration.toNanos();
+                } else {
+                    stepDown("lease lost");
+                }
+                return;
+            }
+
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(LEADER_KEY, instanceId, leaseDuration);
+            if (Boolean.TRUE.equals(acquired)) {
+                Long counter = redisTemplate.opsForValue().increment(FENCING_KEY);
+                long token;
+                try {
+                    token = issueToken(counter != null ? counter : 0L);
+                } catch (Exception e) {
+                    log.warn("Could not store scheduler fencing token, giving up the lease: {}", e.getMessage());
+                    redisTemplate.execute(RELEASE_SCRIPT, List.of(LEADER_KEY), instanceId);
+                    return;
+                }
+                fencingToken = token;
+                leaseValidUntilNanos = now + leaseDuration.toNanos();
+                leader = true;
+                log.info("Instance {} became scheduler leader (fencing token {})", instanceId, fencingToken);
+            }
+        } catch (Exception e) {
+            log.warn("Scheduler leader heartbeat failed: {}", e.getMessage());
+            if (leader && System.nanoTime() > leaseValidUntilNanos) {
+                stepDown("lease expired without renewal");
+            }
+        }
+    }
+
+    /**
+     * Check whether this instance currently holds a valid lease.
+     */
+    public boolean isLeader() {
+        if (!enabled) {
+            return true;
+        }
+        return leader && System.nanoTime() < leaseValidUntilNanos;
+    }
+
+    /**
+     * Get the fencing token of the current leadership term.
+     *
+     * @return the token, or 0 when leader election is disabled
+     */
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    private long issueToken(long counter) {
+        Long token = jdbcTemplate.queryForObject(ISSUE_TOKEN_SQL, Long.class, SCHEDULER_NAME, counter);
+        long issued = token != null ? token : counter;
+        if (issued > counter) {
+            redisTemplate.execute(RAISE_SCRIPT, List.of(FENCING_KEY), String.valueOf(issued));
+            log.warn("Redis fencing counter {} was behind the stored token, reseeded at {}", counter, issued);
+        }
+        return issued;
+    }
+
+    private void stepDown(String reason) {
+        leader = false;
+        log.warn("Instance {} stepped down as scheduler leader: {}", instanceId, reason);
+    }
+
+    @PreDestroy
+    void release() {
+        heartbeatExecutor.shutdownNow();
+        try {
+            // Let an in-flight heartbeat finish so it cannot take the lease after this
+            heartbeatExecutor.awaitTermination(leaseDuration.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (enabled && leader) {
+            leader = false;
+            try {
+                redisTemplate.execute(RELEASE_SCRIPT, List.of(LEADER_KEY), instanceId);
+                log.info("Released scheduler leadership");
+            } catch (Exception e) {
+                log.warn("Could not release scheduler leadership: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
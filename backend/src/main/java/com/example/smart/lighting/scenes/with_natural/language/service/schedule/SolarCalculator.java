@@ -0,0 +1,179 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Offline calculator for sunrise, sunset, dawn, dusk and solar noon.
+ *
+ * <p>Implements the NOAA solar position equations in plain Java, so no
+ * network service is needed. Each event is refined with a second pass at
+ * the approximate event time, which keeps results within about a minute
+ * of the published NOAA tables outside the polar regions.</p>
+ *
+ * <p>Events that do not happen on a given day (polar day or night) are
+ * simply absent from the result.</p>
+ *
+
+ * @see SolarEvent
+ */
+@Component
+public class SolarCalculator {
+
+    private static final double JULIAN_UNIX_EPOCH = 2440587.5;
+    private static final double JULIAN_J2000 = 2451545.0;
+    private static final double DAYS_PER_CENTURY = 36525.0;
+    private static final double MINUTES_PER_DAY = 1440.0;
+    private static final int REFINEMENT_PASSES = 2;
+
+    /**
+     * Solar events for one day at one location, in local time.
+     *
+     * @param date the local date
+     * @param events event times; events that do not occur are absent
+     */
+    public record SolarDay(LocalDate date, Map<SolarEvent, LocalDateTime> events) {
+
+        /**
+         * Get the local time of an event, if it occurs on this day.
+         */
+        public Optional<LocalDateTime> get(SolarEvent event) {
+            return Optional.ofNullable(events.get(event));
+        }
+    }
+
+    /**
+     * Calculate all solar events for a date and location.
+     *
+     * @param date the local date
+     * @param latitude latitude in degrees (north positive)
+     * @param longitude longitude in degrees (east positive)
+     * @param zone the time zone results are expressed in
+     * @return the solar events of that day
+     */
+    public SolarDay calculate(LocalDate date, double latitude, double longitude, ZoneId zone) {
+        Map<SolarEvent, LocalDateTime> events = new EnumMap<>(SolarEvent.class);
+        for (SolarEvent event : SolarEvent.values()) {
+            calculateEvent(date, latitude, longitude, event)
+                .map(minutes -> toLocal(date, minutes, zone))
+                .ifPresent(time -> events.put(event, time));
+        }
+        return new SolarDay(date, Collections.unmodifiableMap(events));
+    }
+
+    /**
+     * Calculate the UTC minute-of-day of a single event.
+     *
+     * @return minutes after UTC midnight of {@code date}, or empty if the
+     *     sun never reaches the event's zenith that day
+     */
+    Optional<Double> calculateEvent(LocalDate date, double latitude, double longitude, SolarEvent event) {
+        double minutes = 720.0 - 4.0 * longitude;
+
+        for (int pass = 0; pass < REFINEMENT_PASSES; pass++) {
+            double julianCentury = (julianDay(date, minutes) - JULIAN_J2000) / DAYS_PER_CENTURY;
+            double declination = sunDeclination(julianCentury);
+            double solarNoon = 720.0 - 4.0 * longitude - equationOfTime(julianCentury);
+
+            if (event == SolarEvent.SOLAR_NOON) {
+                minutes = solarNoon;
+                continue;
+            }
+
+            double latRad = Math.toRadians(latitude);
+            double cosHourAngle = (Math.cos(Math.toRadians(event.getZenith()))
+                - Math.sin(latRad) * Math.sin(declination))
+                / (Math.cos(latRad) * Math.cos(declination));
+            if (cosHourAngle < -1.0 || cosHourAngle > 1.0) {
+                return Optional.empty();
+            }
+
+            double hourAngle = Math.toDegrees(Math.acos(cosHourAngle));
+            minutes = event.isMorning() ? solarNoon - 4.0 * hourAngle : solarNoon + 4.0 * hourAngle;
+        }
+
+        return Optional.of(minutes);
+    }
+
+    private double julianDay(LocalDate date, double minutesUtc) {
+        return date.toEpochDay() + JULIAN_UNIX_EPOCH + minutesUtc / MINUTES_PER_DAY;
+    }
+
+    /**
+     * Sun declination in radians.
+     */
+    private double sunDeclination(double t) {
+        double obliquity = Math.toRadians(obliquityCorrection(t));
+        double apparentLongitude = Math.toRadians(apparentLongitude(t));
+        return Math.asin(Math.sin(obliquity) * Math.sin(apparentLongitude));
+    }
+
+    /**
+     * Equation of time in minutes.
+     */
+    private double equationOfTime(double t) {
+        double epsilon = Math.toRadians(obliquityCorrection(t));
+        double l0 = Math.toRadians(geomMeanLongitude(t));
+        double e = eccentricity(t);
+        double m = Math.toRadians(geomMeanAnomaly(t));
+
+        double y = Math.tan(epsilon / 2.0);
+        y *= y;
+
+        double eq = y * Math.sin(2.0 * l0)
+            - 2.0 * e * Math.sin(m)
+            + 4.0 * e * y * Math.sin(m) * Math.cos(2.0 * l0)
+            - 0.5 * y * y * Math.sin(4.0 * l0)
+            - 1.25 * e * e * Math.sin(2.0 * m);
+        return Math.toDegrees(eq) * 4.0;
+    }
+
+    private double geomMeanLongitude(double t) {
+        double l0 = 280.46646 + t * (36000.76983 + t * 0.0003032);
+        return ((l0 % 360.0) + 360.0) % 360.0;
+    }
+
+    private double geomMeanAnomaly(double t) {
+        return 357.52911 + t * (35999.05029 - 0.0001537 * t);
+    }
+
+    private double eccentricity(double t) {
+        return 0.016708634 - t * (0.000042037 + 0.0000001267 * t);
+    }
+
+    private double equationOfCenter(double t) {
+        double m = Math.toRadians(geomMeanAnomaly(t));
+        return Math.sin(m) * (1.914602 - t * (0.004817 + 0.000014 * t))
+            + Math.sin(2.0 * m) * (0.019993 - 0.000101 * t)
+            + Math.sin(3.0 * m) * 0.000289;
+    }
+
+    private double apparentLongitude(double t) {
+        double trueLongitude = geomMeanLongitude(t) + equationOfCenter(t);
+        double omega = Math.toRadians(125.04 - 1934.136 * t);
+        return trueLongitude - 0.00569 - 0.00478 * Math.sin(omega);
+    }
+
+    private double obliquityCorrection(double t) {
+        double seconds = 21.448 - t * (46.8150 + t * (0.00059 - t * 0.001813));
+        double meanObliquity = 23.0 + (26.0 + seconds / 60.0) / 60.0;
+        double omega = Math.toRadians(125.04 - 1934.136 * t);
+        return meanObliquity + 0.00256 * Math.cos(omega);
+    }
+
+    private LocalDateTime toLocal(LocalDate date, double minutesUtc, ZoneId zone) {
+        long seconds = Math.round(minutesUtc * 60.0);
+        return date.atStartOfDay(ZoneOffset.UTC)
+            .plusSeconds(seconds)
+            .withZoneSameInstant(zone)
+            .toLocalDateTime();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Solar events that sun-triggered schedules can be attached to.
+ *
+ * <p>Each event is defined by the solar zenith angle at which it occurs and
+ * whether it happens before or after solar noon. Dawn and dusk use civil
+ * twilight (sun 6 degrees below the horizon).</p>
+ *
+
+ * @see SolarCalculator
+ */
+public enum SolarEvent {
+
+    DAWN(96.0, true),
+    SUNRISE(90.833, true),
+    SOLAR_NOON(90.0, false),
+    SUNSET(90.833, false),
+    DUSK(96.0, false);
+
+    private final double zenith;
+    private final boolean morning;
+
+    SolarEvent(double zenith, boolean morning) {
+        this.zenith = zenith;
+        this.morning = morning;
+    }
+
+    /**
+     * Zenith angle in degrees at which the event occurs.
+     */
+    public double getZenith() {
+        return zenith;
+    }
+
+    /**
+     * Whether the event happens before solar noon.
+     */
+    public boolean isMorning() {
+        return morning;
+    }
+
+    /**
+     * Parse an event name as stored in a schedule's trigger config.
+     * Accepts "sunrise", "sunset", "dawn", "dusk", "noon" and "solar_noon".
+     *
+     * @param name the event name (case-insensitive)
+     * @return the matching event, or empty if unknown
+     */
+    public static Optional<SolarEvent> fromName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        String normalized = name.trim().toLowerCase(Locale.ROOT).replace("-", "_").replace(" ", "_");
+        return switch (normalized) {
+            case "dawn" -> Optional.of(DAWN);
+            case "sunrise" -> Optional.of(SUNRISE);
+            case "noon", "solar_noon" -> Optional.of(SOLAR_NOON);
+            case "sunset" -> Optional.of(SUNSET);
+            case "dusk" -> Optional.of(DUSK);
+            default -> Optional.empty();
+        };
+    }
+}
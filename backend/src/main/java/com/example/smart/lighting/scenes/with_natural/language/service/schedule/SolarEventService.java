@@ -0,0 +1,163 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.repository.ScheduleRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarCalculator.SolarDay;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the day's solar events for every configured location.
+ *
+ * <p>Solar events are precomputed once at midnight (and at startup) for the
+ * default location and for any location overridden in a sun schedule's
+ * trigger config. Schedule checks then only do map lookups, so no
+ * trigonometry runs on the per-minute scheduler path.</p>
+ *
+ * <p>Only today and tomorrow are kept in the cache; other dates are
+ * computed on demand without being stored.</p>
+ *
+
+ * @see SolarCalculator
+ * @see ScheduleTriggerResolver
+ */
+@Service
+@Slf4j
+public class SolarEventService {
+
+    private final SolarCalculator solarCalculator;
+    private final ScheduleRepository scheduleRepository;
+    private final ZoneId zone;
+    private final SolarLocation defaultLocation;
+
+    private final Map<CacheKey, SolarDay> cache = new ConcurrentHashMap<>();
+
+    /**
+     * A geographic location used for solar calculations.
+     *
+     * @param latitude latitude in degrees (north positive)
+     * @param longitude longitude in degrees (east positive)
+     */
+    public record SolarLocation(double latitude, double longitude) {}
+
+    private record CacheKey(LocalDate date, SolarLocation location) {}
+
+    public SolarEventService(
+            SolarCalculator solarCalculator,
+            ScheduleRepository scheduleRepository,
+            @Value("${app.timezone}") String timezone,
+            @Value("${app.location.latitude}") double latitude,
+            @Value("${app.location.longitude}") double longitude) {
+        this.solarCalculator = solarCalculator;
+        this.scheduleRepository = scheduleRepository;
+        this.zone = ZoneId.of(timezone);
+        this.defaultLocation = new SolarLocation(latitude, longitude);
+    }
+
+    /**
+     * Precompute today's events once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        precompute(LocalDate.now(zone));
+    }
+
+    /**
+     * Drop yesterday's events and precompute today's at midnight.
+     */
+    @Scheduled(cron = "0 0 0 * * *", zone = "${app.timezone}")
+    public void refreshForNewDay() {
+        LocalDate today = LocalDate.now(zone);
+        cache.keySet().removeIf(key -> key.date().isBefore(today));
+        precompute(today);
+    }
+
+    private void precompute(LocalDate date) {
+        Set<SolarLocation> locations = new LinkedHashSet<>();
+        locations.add(defaultLocation);
+        try {
+            for (Schedule schedule : scheduleRepository.findEnabledSunSchedules()) {
+                locations.add(resolveLocation(schedule.getTriggerConfig()));
+            }
+        } catch (Exception e) {
+            log.warn("Could not load sun schedules for solar precompute: {}", e.getMessage());
+        }
+
+        for (SolarLocation location : locations) {
+            SolarDay day = getSolarDay(date, location);
+            log.info("Solar events for {} at ({}, {}): {}",
+                date, location.latitude(), location.longitude(), day.events());
+        }
+    }
+
+    /**
+     * Get the solar events for a date and location, from cache when possible.
+     *
+     * @param date the local date
+     * @param location the location
+     * @return the solar events of that day
+     */
+    public SolarDay getSolarDay(LocalDate date, SolarLocation location) {
+        LocalDate today = LocalDate.now(zone);
+        if (date.isBefore(today) || date.isAfter(today.plusDays(1))) {
+            return solarCalculator.calculate(date, location.latitude(), location.longitude(), zone);
+        }
+        return cache.computeIfAbsent(new CacheKey(date, location),
+            key -> solarCalculator.calculate(date, location.latitude(), location.longitude(), zone));
+    }
+
+    /**
+     * Get the local time of a solar event.
+     *
+     * @param event the solar event
+     * @param date the local date
+     * @param location the location
+     * @return the event time, or empty if the event does not occur that day
+     */
+    public Optional<LocalDateTime> getEventTime(SolarEvent event, LocalDate date, SolarLocation location) {
+        return getSolarDay(date, location).get(event);
+    }
+
+    /**
+     * Resolve the location for a trigger config. A config may override the
+     * default location with "latitude" and "longitude" keys.
+     *
+     * @param triggerConfig the schedule trigger config
+     * @return the configured location, or the default location
+     */
+    public SolarLocation resolveLocation(Map<String, Object> triggerConfig) {
+        if (triggerConfig != null
+            && triggerConfig.get("latitude") instanceof Number lat
+            && triggerConfig.get("longitude") instanceof Number lon) {
+            return new SolarLocation(lat.doubleValue(), lon.doubleValue());
+        }
+        return defaultLocation;
+    }
+
+    /**
+     * Get the default installation location.
+     */
+    public SolarLocation getDefaultLocation() {
+        return defaultLocation;
+    }
+
+    /**
+     * Get the zone solar events are expressed in.
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+}
@@ -0,0 +1,489 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.entity.ScheduleChangedEvent;
+import com.example.smart.lighting.scenes.with_natural.language.repository.ScheduleRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleActionPlanner.PlannedCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Per-LED state timeline of the week, compiled from every enabled schedule.
+ *
+ * <p>Each LED has a piecewise-constant timeline stored as parallel arrays:
+ * the sorted write minutes (counted from Monday 00:00), the packed LED state
+ * after each write, and the schedule that wrote it. "State of LED x at t",
+ * "who last wrote LED x" and contradiction checks are binary searches over
+ * these arrays, so they cost O(log n) regardless of how many schedules
+ * exist. The week wraps, so Monday morning inherits Sunday night's state.</p>
+ *
+ * <p>Unlike the target-name comparison in the conflict detector, the
+ * timeline works on the LEDs each action really drives, including scene
+ * default targets, multi-action schedules and sun triggers.</p>
+ *
+ * <p>Schedule changes only recompile the LEDs the schedule touched; readers
+ * always see a complete snapshot.</p>
+ *
+ * @see ScheduleActionPlanner
+ * @see ScheduleTriggerResolver
+ */
+@Component
+@Slf4j
+public class WeeklyLedTimeline {
+
+    /** Minutes in a week; the timeline wraps from Sunday night to Monday morning. */
+    public static final int MINUTES_PER_WEEK = 7 * 24 * 60;
+
+    private static final long ON_BIT = 1L;
+    private static final int BRIGHTNESS_SHIFT = 1;
+    private static final int RGB_SHIFT = 9;
+    private static final long RGB_SET_BIT = 1L << 33;
+    private static final int COLOR_TEMP_SHIFT = 34;
+    private static final long COLOR_TEMP_SET_BIT = 1L << 50;
+
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleTriggerResolver triggerResolver;
+    private final ScheduleActionPlanner actionPlanner;
+    private final Clock clock;
+    private final int contradictionWindowMinutes;
+
+    private final Map<UUID, CompiledSchedule> compiled = new HashMap<>();
+    private volatile LedTrack[] tracks = emptyTracks();
+
+    /**
+     * The state of one LED after a write.
+     *
+     * @param on whether the LED is on
+     * @param brightness brightness percentage, or null if never set
+     * @param rgb colour, or null if never set
+     * @param colorTemp colour temperature in kelvin, or null if never set
+     */
+    public record LedState(boolean on, Integer brightness, List<Integer> rgb, Integer colorTemp) {}
+
+    /**
+     * A schedule writing an LED at a minute of the week.
+     *
+     * @param led the LED index
+     * @param minuteOfWeek minutes since Monday 00:00
+     * @param scheduleId the writing schedule
+     * @param scheduleName the writing schedule's name
+     * @param state the LED state after the write
+     */
+    public record LedWrite(int led, int minuteOfWeek, UUID scheduleId, String scheduleName, LedState state) {}
+
+    /**
+     * Two writes from different schedules that switch an LED on and off
+     * within the contradiction window.
+     *
+     * @param led the LED index
+     * @param minutesApart minutes between the two writes
+     * @param earlier the write that is reversed
+     * @param later the write that reverses it
+     */
+    public record Contradiction(int led, int minutesApart, LedWrite earlier, LedWrite later) {}
+
+    private record Write(int led, int minute, int order, long delta) {}
+
+    private record CompiledSchedule(Schedule schedule, List<Write> writes) {}
+
+    private record Entry(Write write, Schedule schedule) {}
+
+    private record LedTrack(int[] minutes, long[] states, Schedule[] writers) {
+
+        int size() {
+            return minutes.length;
+        }
+    }
+
+    public WeeklyLedTimeline(
+            ScheduleRepository scheduleRepository,
+            ScheduleTriggerResolver triggerResolver,
+            ScheduleActionPlanner actionPlanner,
+            Clock clock,
+            @Value("${timeline.contradiction-window-minutes:30}") int contradictionWindowMinutes) {
+        this.scheduleRepository = scheduleRepository;
+        this.triggerResolver = triggerResolver;
+        this.actionPlanner = actionPlanner;
+        this.clock = clock;
+        this.contradictionWindowMinutes = contradictionWindowMinutes;
+    }
+
+    /**
+     * Recompile every enabled schedule for the current week.
+     *
+     * <p>Runs periodically so sun times follow the season and changes made
+     * by other backend instances are picked up.</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${conflict.index.rebuild-interval-ms:300000}",
+        initialDelayString = "${conflict.index.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        List<Schedule> schedules = scheduleRepository.findByEnabledTrue();
+        LocalDate monday = currentMonday();
+        Map<UUID, CompiledSchedule> fresh = new HashMap<>();
+        for (Schedule schedule : schedules) {
+            compile(schedule, monday).ifPresent(c -> fresh.put(schedule.getId(), c));
+        }
+
+        synchronized (this) {
+            compiled.clear();
+            compiled.putAll(fresh);
+            LedTrack[] rebuilt = emptyTracks();
+            for (int led = 0; led < rebuilt.length; led++) {
+                rebuilt[led] = buildTrack(led);
+            }
+            tracks = rebuilt;
+        }
+        log.info("LED timeline compiled from {} schedules", fresh.size());
+    }
+
+    /**
+     * Recompile the LEDs touched by a changed schedule once it is committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        Schedule schedule = event.schedule();
+        if (schedule.getId() == null) {
+            return;
+        }
+        Optional<CompiledSchedule> updated = event.deleted() || !Boolean.TRUE.equals(schedule.getEnabled())
+            ? Optional.empty()
+            : compile(schedule, currentMonday());
+
+        synchronized (this) {
+            Set<Integer> affected = new TreeSet<>();
+            Optional.ofNullable(compiled.remove(schedule.getId()))
+                .ifPresent(old -> old.writes().forEach(w -> affected.add(w.led())));
+            updated.ifPresent(c -> {
+                compiled.put(schedule.getId(), c);
+                c.writes().forEach(w -> affected.add(w.led()));
+            });
+
+            LedTrack[] next = tracks.clone();
+            for (int led : affected) {
+                next[led] = buildTrack(led);
+            }
+            tracks = next;
+        }
+    }
+
+    /**
+     * Get the last write to an LED at or before a minute of the week.
+     *
+     * @param led the LED index
+     * @param minuteOfWeek minutes since Monday 00:00
+     * @return the write, or empty if no schedule ever writes this LED
+     */
+    public Optional<LedWrite> lastWriteAt(int led, int minuteOfWeek) {
+        LedTrack track = track(led);
+        if (track.size() == 0) {
+            return Optional.empty();
+        }
+        int index = upperBound(track.minutes(), normalize(minuteOfWeek)) - 1;
+        return Optional.of(toWrite(led, track, index < 0 ? track.size() - 1 : index));
+    }
+
+    /**
+     * Get the last write to an LED at or before a local date-time.
+     */
+    public Optional<LedWrite> lastWriteAt(int led, LocalDateTime time) {
+        return lastWriteAt(led, minuteOfWeek(time));
+    }
+
+    /**
+     * Get the scheduled state of an LED at a local date-time.
+     *
+     * @param led the LED index
+     * @param time the local date-time
+     * @return the state, or empty if no schedule ever writes this LED
+     */
+    public Optional<LedState> stateAt(int led, LocalDateTime time) {
+        return lastWriteAt(led, time).map(LedWrite::state);
+    }
+
+    /**
+     * Find the writes a schedule would contradict if it were saved.
+     *
+     * <p>For every LED write of the schedule, the neighbouring writes on that
+     * LED are found by binary search; a neighbour from another schedule
+     * within the window that sets the opposite on/off state is an effective
+     * contradiction.</p>
+     *
+     * @param schedule the schedule to check (need not be saved)
+     * @return contradictions, closest first
+     */
+    public List<Contradiction> findContradictions(Schedule schedule) {
+        Optional<CompiledSchedule> candidate = compile(schedule, currentMonday());
+        if (candidate.isEmpty()) {
+            return List.of();
+        }
+
+        LedTrack[] snapshot = tracks;
+        List<Contradiction> result = new ArrayList<>();
+        for (Write write : candidate.get().writes()) {
+            LedTrack track = snapshot[write.led()];
+            if (track.size() == 0) {
+                continue;
+            }
+            boolean on = (write.delta() & ON_BIT) != 0;
+            LedWrite own = new LedWrite(write.led(), write.minute(), schedule.getId(), schedule.getName(),
+                decode(write.delta()));
+            int upper = upperBound(track.minutes(), write.minute());
+            findNeighbour(track, upper - 1, -1, schedule.getId()).ifPresent(i -> {
+                int gap = Math.floorMod(write.minute() - track.minutes()[i], MINUTES_PER_WEEK);
+                if (gap <= contradictionWindowMinutes && isOn(track.states()[i]) != on) {
+                    result.add(new Contradiction(write.led(), gap, toWrite(write.led(), track, i), own));
+                }
+            });
+            findNeighbour(track, upper, 1, schedule.getId()).ifPresent(i -> {
+                int gap = Math.floorMod(track.minutes()[i] - write.minute(), MINUTES_PER_WEEK);
+                if (gap <= contradictionWindowMinutes && isOn(track.states()[i]) != on) {
+                    result.add(new Contradiction(write.led(), gap, own, toWrite(write.led(), track, i)));
+                }
+            });
+        }
+        result.sort(Comparator.comparingInt(Contradiction::minutesApart));
+        return result;
+    }
+
+    /**
+     * Find every place where one schedule's on/off write is reversed by
+     * another schedule within the window.
+     *
+     * @return contradictions, closest first
+     */
+    public List<Contradiction> findAllContradictions() {
+        LedTrack[] snapshot = tracks;
+        List<Contradiction> result = new ArrayList<>();
+        for (int led = 0; led < snapshot.length; led++) {
+            LedTrack track = snapshot[led];
+            for (int i = 0; i < track.size() && track.size() > 1; i++) {
+                int next = (i + 1) % track.size();
+                int gap = Math.floorMod(track.minutes()[next] - track.minutes()[i], MINUTES_PER_WEEK);
+                if (gap <= contradictionWindowMinutes
+                    && !track.writers()[i].getId().equals(track.writers()[next].getId())
+                    && isOn(track.states()[i]) != isOn(track.states()[next])) {
+                    result.add(new Contradiction(led, gap, toWrite(led, track, i), toWrite(led, track, next)));
+                }
+            }
+        }
+        result.sort(Comparator.comparingInt(Contradiction::minutesApart));
+        return result;
+    }
+
+    /**
+     * Get a compiled schedule by ID.
+     *
+     * @param scheduleId the schedule ID
+     * @return the schedule, or empty if it writes no LED this week
+     */
+    public synchronized Optional<Schedule> getSchedule(UUID scheduleId) {
+        return Optional.ofNullable(compiled.get(scheduleId)).map(CompiledSchedule::schedule);
+    }
+
+    /**
+     * Minutes since Monday 00:00 for a local date-time.
+     */
+    public static int minuteOfWeek(LocalDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * 1440 + time.getHour() * 60 + time.getMinute();
+    }
+
+    private Optional<CompiledSchedule> compile(Schedule schedule, LocalDate monday) {
+        List<Map<String, Object>> actions = schedule.getActions();
+        if (actions == null || actions.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<PlannedCommand> commands = new ArrayList<>();
+        for (Map<String, Object> action : actions) {
+            actionPlanner.plan(action).ifPresent(commands::add);
+        }
+
+        List<Write> writes = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            Optional<LocalDateTime> fireTime = triggerResolver.resolveFireTime(schedule, monday.plusDays(day));
+            if (fireTime.isEmpty()) {
+                continue;
+            }
+            int minute = minuteOfWeek(fireTime.get());
+            int order = 0;
+            for (PlannedCommand command : commands) {
+                if (!(command.command().get("on") instanceof Boolean)) {
+                    continue;
+                }
+                long delta = encode(command.command());
+                for (int led : command.ledIndices()) {
+                    writes.add(new Write(led, minute, order++, delta));
+                }
+            }
+        }
+        return writes.isEmpty() ? Optional.empty() : Optional.of(new CompiledSchedule(schedule, writes));
+    }
+
+    private LedTrack buildTrack(int led) {
+        List<Entry> entries = new ArrayList<>();
+        for (CompiledSchedule c : compiled.values()) {
+            for (Write write : c.writes()) {
+                if (write.led() == led) {
+                    entries.add(new Entry(write, c.schedule()));
+                }
+            }
+        }
+        entries.sort(Comparator.<Entry>comparingInt(e -> e.write().minute())
+            .thenComparing(e -> e.schedule().getId())
+            .thenComparingInt(e -> e.write().order()));
+
+        int size = entries.size();
+        int[] minutes = new int[size];
+        long[] states = new long[size];
+        Schedule[] writers = new Schedule[size];
+        long state = 0L;
+        // Two passes so the first writes of the week inherit Sunday night's state
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < size; i++) {
+                Entry entry = entries.get(i);
+                state = merge(state, entry.write().delta());
+                minutes[i] = entry.write().minute();
+                states[i] = state;
+                writers[i] = entry.schedule();
+            }
+        }
+        return new LedTrack(minutes, states, writers);
+    }
+
+    private Optional<Integer> findNeighbour(LedTrack track, int start, int step, UUID excluded) {
+        for (int n = 0; n < track.size(); n++) {
+            int i = Math.floorMod(start + n * step, track.size());
+            UUID writerId = track.writers()[i].getId();
+            if (excluded == null || !excluded.equals(writerId)) {
+                return Optional.of(i);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private LedWrite toWrite(int led, LedTrack track, int index) {
+        Schedule writer = track.writers()[index];
+        return new LedWrite(led, track.minutes()[index], writer.getId(), writer.getName(),
+            decode(track.states()[index]));
+    }
+
+    private LedTrack track(int led) {
+        LedTrack[] snapshot = tracks;
+        if (led < 0 || led >= snapshot.length) {
+            throw new IllegalArgumentException("LED index must be between 0 and " + (snapshot.length - 1));
+        }
+        return snapshot[led];
+    }
+
+    private LocalDate currentMonday() {
+        return LocalDate.now(clock).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static LedTrack[] emptyTracks() {
+        LedTrack[] empty = new LedTrack[ScheduleTargetResolver.LED_COUNT];
+        Arrays.fill(empty, new LedTrack(new int[0], new long[0], new Schedule[0]));
+        return empty;
+    }
+
+    private static int normalize(int minuteOfWeek) {
+        return Math.floorMod(minuteOfWeek, MINUTES_PER_WEEK);
+    }
+
+    /**
+     * Index of the first element greater than {@code key}.
+     */
+    private static int upperBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // State packing: bit 0 on, bits 1-8 brightness + 1, bits 9-32 rgb, bit 33 rgb set,
+    // bits 34-49 colour temperature, bit 50 colour temperature set
+
+    static long encode(Map<String, Object> command) {
+        long packed = Boolean.TRUE.equals(command.get("on")) ? ON_BIT : 0L;
+        if (command.get("brightness") instanceof Number brightness) {
+            long value = Math.max(0, Math.min(100, brightness.intValue())) + 1L;
+            packed |= value << BRIGHTNESS_SHIFT;
+        }
+        if (command.get("rgb") instanceof List<?> rgb && rgb.size() == 3
+            && rgb.stream().allMatch(Number.class::isInstance)) {
+            long value = 0;
+            for (Object channel : rgb) {
+                value = (value << 8) | (Math.max(0, Math.min(255, ((Number) channel).intValue())));
+            }
+            packed |= (value << RGB_SHIFT) | RGB_SET_BIT;
+        }
+        if (command.get("color_temp") instanceof Number kelvin) {
+            long value = Math.max(0, Math.min(0xFFFF, kelvin.intValue()));
+            packed |= (value << COLOR_TEMP_SHIFT) | COLOR_TEMP_SET_BIT;
+        }
+        return packed;
+    }
+
+    static LedState decode(long packed) {
+        long brightness = (packed >>> BRIGHTNESS_SHIFT) & 0xFF;
+        List<Integer> rgb = null;
+        if ((packed & RGB_SET_BIT) != 0) {
+            int value = (int) ((packed >>> RGB_SHIFT) & 0xFFFFFF);
+            rgb = List.of((value >> 16) & 0xFF, (value >> 8) & 0xFF, value & 0xFF);
+        }
+        Integer colorTemp = (packed & COLOR_TEMP_SET_BIT) != 0
+            ? (int) ((packed >>> COLOR_TEMP_SHIFT) & 0xFFFF)
+            : null;
+        return new LedState(isOn(packed), brightness == 0 ? null : (int) brightness - 1, rgb, colorTemp);
+    }
+
+    /**
+     * Apply a write to a previous state: on/off always changes, other
+     * fields only when the write sets them.
+     */
+    static long merge(long previous, long delta) {
+        long result = delta;
+        if (((delta >>> BRIGHTNESS_SHIFT) & 0xFF) == 0) {
+            result |= previous & (0xFFL << BRIGHTNESS_SHIFT);
+        }
+        if ((delta & RGB_SET_BIT) == 0) {
+            result |= previous & ((0xFFFFFFL << RGB_SHIFT) | RGB_SET_BIT);
+        }
+        if ((delta & COLOR_TEMP_SET_BIT) == 0) {
+            result |= previous & ((0xFFFFL << COLOR_TEMP_SHIFT) | COLOR_TEMP_SET_BIT);
+        }
+        return result;
+    }
+
+    private static boolean isOn(long packed) {
+        return (packed & ON_BIT) != 0;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.search;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Device;
+import com.example.smart.lighting.scenes.with_natural.language.entity.Room;
+import com.example.smart.lighting.scenes.with_natural.language.entity.Scene;
+import com.example.smart.lighting.scenes.with_natural.language.repository.DeviceRepository;
+import com.example.smart.lighting.scenes.with_natural.language.repository.RoomRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Fuzzy name resolution for scenes, rooms and devices.
+ *
+ * <p>Keeps one {@link TrigramIndex} per kind of name. The indexes are built at
+ * startup, updated entry by entry by the scene, room and device controllers
+ * after every create, update or delete, and rebuilt periodically to pick up
+ * changes made by other backend instances. A rebuild swaps in fresh indexes,
+ * so searches never see a half-built one.</p>
+ *
+ * <p>The rooms the LED strip is wired to are always indexed, even without a
+ * database row, because they are the rooms NLP commands can address. Room
+ * matches carry a {@link NameMatch#key() key} in the form NLP targets use,
+ * such as {@code living_room}; a database room and a built-in room with the
+ * same key are reported once.</p>
+ *
+
+ * @see TrigramIndex
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NameIndex {
+
+    /**
+     * Rooms the NLP executor maps to LED indices.
+     */
+    static final List<String> BUILT_IN_ROOMS = List.of("kitchen", "bedroom", "bathroom", "hallway", "living_room");
+
+    private final SceneCatalog sceneCatalog;
+    private final RoomRepository roomRepository;
+    private final DeviceRepository deviceRepository;
+
+    @Value("${search.names.min-score:0.5}")
+    private double minScore = 0.5;
+
+    private volatile Map<Kind, TrigramIndex<NameMatch>> indexes;
+
+    /**
+     * The kinds of indexed names.
+     */
+    public enum Kind {
+        SCENE, ROOM, DEVICE
+    }
+
+    /**
+     * A named entity matching a query.
+     *
+     * @param kind the kind of entity
+     * @param id the entity ID, or null for built-in rooms without a database row
+     * @param name the display name
+     * @param key the name as NLP commands refer to it
+     * @param score the similarity to the query, from 0 to 1
+     */
+    public record NameMatch(Kind kind, UUID id, String name, String key, double score) {}
+
+    /**
+     * Rebuild every index from the scene catalog and the database and swap them in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${search.names.rebuild-interval-ms:300000}",
+        initialDelayString = "${search.names.rebuild-interval-ms:300000}")
+    public synchronized void rebuild() {
+        Map<Kind, TrigramIndex<NameMatch>> fresh = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            fresh.put(kind, new TrigramIndex<>());
+        }
+
+        for (String room : BUILT_IN_ROOMS) {
+            String name = room.replace('_', ' ');
+            fresh.get(Kind.ROOM).put(builtInKey(room), name, new NameMatch(Kind.ROOM, null, name, room, 0));
+        }
+        for (Scene scene : sceneCatalog.getActiveScenes()) {
+            putScene(fresh, scene);
+        }
+        for (Room room : roomRepository.findAll()) {
+            putRoom(fresh, room);
+        }
+        for (Device device : deviceRepository.findAll()) {
+            putDevice(fresh, device);
+        }
+
+        indexes = fresh;
+        log.info("Name index built with {} scenes, {} rooms and {} devices",
+            fresh.get(Kind.SCENE).size(), fresh.get(Kind.ROOM).size(), fresh.get(Kind.DEVICE).size());
+    }
+
+    /**
+     * Index a scene, or drop it if it is no longer active.
+     */
+    public void put(Scene scene) {
+        if (Boolean.TRUE.equals(scene.getIsActive())) {
+            putScene(current(), scene);
+        } else {
+            remove(Kind.SCENE, scene.getId());
+        }
+    }
+
+    /**
+     * Index a room under its current name.
+     */
+    public void put(Room room) {
+        putRoom(current(), room);
+    }
+
+    /**
+     * Index a device under its current name.
+     */
+    public void put(Device device) {
+        putDevice(current(), device);
+    }
+
+    /**
+     * Remove an entity from the index.
+     *
+     * @param kind the kind of entity
+     * @param id the entity ID
+     */
+    public void remove(Kind kind, UUID id) {
+        current().get(kind).remove(id.toString());
+    }
+
+    /**
+     * Search names for type-ahead suggestions.
+     *
+     * @param query the text typed so far
+     * @param kinds the kinds of names to search
+     * @param limit the maximum number of matches
+     * @return matches ordered by score, best first
+     */
+    public List<NameMatch> search(String query, Collection<Kind> kinds, int limit) {
+        Map<Kind, TrigramIndex<NameMatch>> current = current();
+        List<NameMatch> matches = new ArrayList<>();
+        for (Kind kind : kinds) {
+            // Over-fetch so duplicates collapsed below do not shorten the list
+            for (TrigramIndex.Hit<NameMatch> hit : current.get(kind).search(query, 0.0, limit * 2)) {
+                NameMatch value = hit.value();
+                matches.add(new NameMatch(kind, value.id(), value.name(), value.key(), hit.score()));
+            }
+        }
+
+        Set<String> seen = new HashSet<>();
+        return matches.stream()
+            .sorted(Comparator.comparingDouble(NameMatch::score).reversed()
+                .thenComparing(match -> match.id() == null))
+            .filter(match -> seen.add(match.kind() + ":" + match.key()))
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * Resolve a possibly misspelled name to the best-matching entity.
+     *
+     * @param kind the kind of entity
+     * @param name the name as given
+     * @return the best match, or empty if none scores at least the configured minimum
+     */
+    public Optional<NameMatch> resolve(Kind kind, String name) {
+        return search(name, List.of(kind), 1).stream()
+            .filter(match -> match.score() >= minScore)
+            .findFirst();
+    }
+
+    /**
+     * Whether NLP commands can address a room, i.e. the executor maps its key to LEDs.
+     *
+     * @param key the room key, as in {@link NameMatch#key()}
+     */
+    public static boolean isLedRoom(String key) {
+        return BUILT_IN_ROOMS.contains(key);
+    }
+
+    /**
+     * The names of the indexed rooms NLP commands can address, ordered by key.
+     * A database room's name is preferred over the built-in name for the same key.
+     */
+    public List<String> ledRoomNames() {
+        Map<String, NameMatch> rooms = new TreeMap<>();
+        for (NameMatch room : current().get(Kind.ROOM).values()) {
+            if (isLedRoom(room.key())) {
+                rooms.merge(room.key(), room, (a, b) -> a.id() != null ? a : b);
+            }
+        }
+        return rooms.values().stream().map(NameMatch::name).toList();
+    }
+
+    /**
+     * Convert a room name to the form NLP targets use, e.g. "Living Room" to {@code living_room}.
+     */
+    public static String roomKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT).replace(' ', '_').replace('-', '_');
+    }
+
+    private Map<Kind, TrigramIndex<NameMatch>> current() {
+        Map<Kind, TrigramIndex<NameMatch>> current = indexes;
+        if (current == null) {
+            // First use before ApplicationReadyEvent
+            rebuild();
+            current = indexes;
+        }
+        return current;
+    }
+
+    private static void putScene(Map<Kind, TrigramIndex<NameMatch>> target, Scene scene) {
+        target.get(Kind.SCENE).put(scene.getId().toString(), scene.getName(),
+            new NameMatch(Kind.SCENE, scene.getId(), scene.getName(), scene.getName(), 0));
+    }
+
+    private static void putRoom(Map<Kind, TrigramIndex<NameMatch>> target, Room room) {
+        target.get(Kind.ROOM).put(room.getId().toString(), room.getName(),
+            new NameMatch(Kind.ROOM, room.getId(), room.getName(), roomKey(room.getName()), 0));
+    }
+
+    private static void putDevice(Map<Kind, TrigramIndex<NameMatch>> target, Device device) {
+        target.get(Kind.DEVICE).put(device.getId().toString(), device.getName(),
+            new NameMatch(Kind.DEVICE, device.getId(), device.getName(), device.getName(), 0));
+    }
+
+    private static String builtInKey(String room) {
+        return "builtin:" + room;
+    }
+}
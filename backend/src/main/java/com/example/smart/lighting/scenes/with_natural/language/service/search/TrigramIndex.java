@@ -0,0 +1,208 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe in-memory trigram index over short names.
+ *
+ * <p>Names are compacted to lowercase letters and digits, so "Movie-Night",
+ * "movie night" and "movienight" are the same name, then padded and split
+ * into character trigrams. Each trigram keeps a posting set of the entries
+ * containing it, so a search only scores entries that share at least one
+ * trigram with the query.</p>
+ *
+ * <p>The score is the Dice coefficient of the two trigram sets. An exact
+ * compacted match scores 1, and a query that is a prefix of a name scores at
+ * least {@value #PREFIX_BASE}, growing with how much of the name it covers,
+ * so type-ahead queries rank names that start with what was typed first.</p>
+ *
+ * <p>Entries are added, replaced and removed one at a time under a write
+ * lock; searches share a read lock.</p>
+ *
+
+ * @param <T> the value stored with each entry
+ */
+public class TrigramIndex<T> {
+
+    static final double PREFIX_BASE = 0.5;
+
+    /**
+     * A scored search result.
+     *
+     * @param key the entry key
+     * @param name the indexed name
+     * @param value the value stored with the entry
+     * @param score the similarity to the query, from 0 to 1
+     */
+    public record Hit<T>(String key, String name, T value, double score) {}
+
+    private record Entry<T>(String name, String compact, Set<String> trigrams, T value) {}
+
+    private final Map<String, Entry<T>> entries = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Add an entry, replacing any entry with the same key.
+     *
+     * @param key the unique entry key
+     * @param name the name to index
+     * @param value the value returned with hits
+     */
+    public void put(String key, String name, T value) {
+        String compact = name == null ? "" : compact(name);
+        Entry<T> entry = new Entry<>(name, compact, trigrams(compact), value);
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            if (compact.isEmpty()) {
+                return;
+            }
+            entries.put(key, entry);
+            for (String trigram : entry.trigrams()) {
+                postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove an entry if present.
+     *
+     * @param key the entry key
+     */
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the entries most similar to a query.
+     *
+     * @param query the text to match
+     * @param minScore the lowest score to return
+     * @param limit the maximum number of hits
+     * @return hits ordered by score, best first, then by name
+     */
+    public List<Hit<T>> search(String query, double minScore, int limit) {
+        String compact = query == null ? "" : compact(query);
+        if (compact.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Set<String> queryTrigrams = trigrams(compact);
+
+        List<Hit<T>> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> shared = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                for (String key : postings.getOrDefault(trigram, Set.of())) {
+                    shared.merge(key, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                Entry<T> entry = entries.get(candidate.getKey());
+                double score = score(compact, queryTrigrams.size(), entry, candidate.getValue());
+                if (score >= minScore) {
+                    hits.add(new Hit<>(candidate.getKey(), entry.name(), entry.value(), score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return hits.stream()
+            .sorted(Comparator.comparingDouble((Hit<T> hit) -> hit.score()).reversed()
+                .thenComparing(Hit::name, String.CASE_INSENSITIVE_ORDER))
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * Get the values of every indexed entry, in no particular order.
+     */
+    public List<T> values() {
+        lock.readLock().lock();
+        try {
+            return entries.values().stream().map(Entry::value).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of indexed entries.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String key) {
+        Entry<T> previous = entries.remove(key);
+        if (previous == null) {
+            return;
+        }
+        for (String trigram : previous.trigrams()) {
+            Set<String> keys = postings.get(trigram);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static double score(String query, int queryTrigrams, Entry<?> entry, int shared) {
+        if (entry.compact().equals(query)) {
+            return 1.0;
+        }
+        double dice = 2.0 * shared / (queryTrigrams + entry.trigrams().size());
+        if (entry.compact().startsWith(query)) {
+            // Below 1 so an exact match always ranks first
+            double coverage = (double) query.length() / entry.compact().length();
+            return Math.max(dice, PREFIX_BASE + (1 - PREFIX_BASE) * coverage * 0.99);
+        }
+        return dice;
+    }
+
+    /**
+     * Reduce a name to lowercase letters and digits.
+     */
+    static String compact(String name) {
+        StringBuilder compact = new StringBuilder(name.length());
+        name.toLowerCase(Locale.ROOT).codePoints()
+            .filter(Character::isLetterOrDigit)
+            .forEach(compact::appendCodePoint);
+        return compact.toString();
+    }
+
+    private static Set<String> trigrams(String compact) {
+        // Two leading blanks weight the start of the name, as type-ahead queries are prefixes
+        String padded = "  " + compact + " ";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.sensor;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming window statistics of sensor readings, fed from MQTT ingest.
+ *
+ * <p>Every reading updates two series: {@code sensor.<metric>}, across all
+ * sensors, and {@code sensor.<sensorId>.<metric>}. Each series keeps a
+ * {@link SensorWindow}, and its min, max, mean and EWMA are published to the
+ * {@link AutomationEngine} as {@code <series>.min}, {@code .max},
+ * {@code .mean} and {@code .ewma}, next to the raw reading. Rules and
+ * schedule conditions use them like any other sensor entity, so "average
+ * temperature above 26" needs no query against {@code sensor_readings}.</p>
+ *
+ * <p>Retained readings only seed the raw entities: they are old and would
+ * skew the windows.</p>
+ *
+
+ * @see SensorWindow
+ * @see ThresholdDetector
+ */
+@Component
+@Slf4j
+public class SensorAggregator {
+
+    private final AutomationEngine automationEngine;
+    private final Clock clock;
+    private final Duration length;
+    private final int buckets;
+    private final Duration halfLife;
+    private final Map<String, SensorWindow> windows = new ConcurrentHashMap<>();
+
+    public SensorAggregator(
+            AutomationEngine automationEngine,
+            Clock clock,
+            MeterRegistry meterRegistry,
+            @Value("${sensors.window.seconds:300}") long windowSeconds,
+            @Value("${sensors.window.buckets:30}") int buckets,
+            @Value("${sensors.ewma.half-life-seconds:60}") long halfLifeSeconds) {
+        this.automationEngine = automationEngine;
+        this.clock = clock;
+        this.length = Duration.ofSeconds(windowSeconds);
+        this.buckets = buckets;
+        this.halfLife = Duration.ofSeconds(halfLifeSeconds);
+        // Fail at startup rather than on the first reading
+        newWindow();
+        meterRegistry.gauge("sensor.windows", windows, Map::size);
+    }
+
+    /**
+     * Feed a sensor reading.
+     *
+     * @param sensorId the sensor id from the MQTT topic
+     * @param metric the metric name, e.g. {@code luminosity}
+     * @param value the reading
+     * @param retained whether the reading is a retained message from the broker
+     */
+    public void record(String sensorId, String metric, double value, boolean retained) {
+        automationEngine.onSensorReading(sensorId, metric, value, retained);
+        if (retained) {
+            return;
+        }
+        long now = clock.millis();
+        publish("sensor." + metric, value, now);
+        publish("sensor." + sensorId + "." + metric, value, now);
+    }
+
+    /**
+     * The current window statistics of every series, sorted by series.
+     */
+    public Map<String, SensorWindow.Stats> getStats() {
+        long now = clock.millis();
+        Map<String, SensorWindow.Stats> stats = new TreeMap<>();
+        windows.forEach((series, window) -> stats.put(series, window.stats(now)));
+        return stats;
+    }
+
+    private void publish(String series, double value, long now) {
+        SensorWindow window = windows.computeIfAbsent(series, s -> newWindow());
+        window.add(value, now);
+        SensorWindow.Stats stats = window.stats(now);
+        automationEngine.onMeasurement(series + ".min", stats.min());
+        automationEngine.onMeasurement(series + ".max", stats.max());
+        automationEngine.onMeasurement(series + ".mean", stats.mean());
+        automationEngine.onMeasurement(series + ".ewma", stats.ewma());
+    }
+
+    private SensorWindow newWindow() {
+        return new SensorWindow(length, buckets, halfLife);
+    }
+}
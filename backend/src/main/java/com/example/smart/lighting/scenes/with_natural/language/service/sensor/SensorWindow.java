@@ -0,0 +1,162 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.sensor;
+
+import java.time.Duration;
+
+/**
+ * Sliding-window statistics of one sensor series, in constant memory.
+ *
+ * <p>The window is a ring of time buckets, each holding the count, sum,
+ * minimum and maximum of the readings that fell into it. Adding a reading
+ * updates its bucket and the running totals in O(1); buckets that slide out
+ * of the window are subtracted as time moves forward. Only when an expiring
+ * bucket held the window minimum or maximum are the live buckets rescanned,
+ * which is bounded by the bucket count.</p>
+ *
+ * <p>The EWMA is time-decayed rather than per-reading, so a sensor that
+ * reports in bursts is not weighted towards the burst.</p>
+ *
+
+ * @see SensorAggregator
+ */
+public final class SensorWindow {
+
+    /**
+     * Statistics of the readings in the window.
+     *
+     * @param count number of readings
+     * @param min lowest reading
+     * @param max highest reading
+     * @param mean arithmetic mean
+     * @param ewma exponentially weighted moving average, over all readings so far
+     * @param last latest reading
+     */
+    public record Stats(long count, double min, double max, double mean, double ewma, double last) {}
+
+    private final int buckets;
+    private final long bucketMillis;
+    private final double tauMillis;
+    private final int[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+
+    private long head = Long.MIN_VALUE;
+    private long count;
+    private double sum;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private double ewma = Double.NaN;
+    private long lastAt = Long.MIN_VALUE;
+    private double last = Double.NaN;
+
+    /**
+     * Create an empty window.
+     *
+     * @param length how far back the window reaches
+     * @param buckets how many buckets the window is split into
+     * @param halfLife how long it takes a reading to lose half its weight in the EWMA
+     */
+    public SensorWindow(Duration length, int buckets, Duration halfLife) {
+        if (buckets < 1 || length.toMillis() < buckets) {
+            throw new IllegalArgumentException("Window of " + length + " cannot have " + buckets + " buckets");
+        }
+        if (halfLife.isNegative() || halfLife.isZero()) {
+            throw new IllegalArgumentException("EWMA half-life must be positive");
+        }
+        this.buckets = buckets;
+        this.bucketMillis = length.toMillis() / buckets;
+        this.tauMillis = halfLife.toMillis() / Math.log(2);
+        this.counts = new int[buckets];
+        this.sums = new double[buckets];
+        this.mins = new double[buckets];
+        this.maxs = new double[buckets];
+    }
+
+    /**
+     * Add a reading. Readings older than the latest one are counted as if
+     * they arrived with it.
+     *
+     * @param value the reading
+     * @param at when it was taken, in epoch milliseconds
+     */
+    public synchronized void add(double value, long at) {
+        long time = Math.max(at, lastAt);
+        advance(time);
+        int slot = slot(head);
+        counts[slot]++;
+        sums[slot] += value;
+        mins[slot] = Math.min(mins[slot], value);
+        maxs[slot] = Math.max(maxs[slot], value);
+
+        count++;
+        sum += value;
+        min = count == 1 ? value : Math.min(min, value);
+        max = count == 1 ? value : Math.max(max, value);
+
+        if (Double.isNaN(ewma)) {
+            ewma = value;
+        } else {
+            ewma += (1 - Math.exp(-(time - lastAt) / tauMillis)) * (value - ewma);
+        }
+        last = value;
+        lastAt = time;
+    }
+
+    /**
+     * The statistics of the window ending now. Min, max and mean are NaN when
+     * no reading is left in the window.
+     *
+     * @param now the current time, in epoch milliseconds
+     */
+    public synchronized Stats stats(long now) {
+        if (now > head) {
+            advance(now);
+        }
+        return new Stats(count, min, max, count == 0 ? Double.NaN : sum / count, ewma, last);
+    }
+
+    private void advance(long now) {
+        long start = now - Math.floorMod(now, bucketMillis);
+        if (start <= head) {
+            return;
+        }
+        boolean rescan = false;
+        // Recycle the slots between the old head and now, never more than one lap
+        long lap = (buckets - 1) * bucketMillis;
+        long from = head == Long.MIN_VALUE ? start - lap : Math.max(head + bucketMillis, start - lap);
+        for (long bucket = from; bucket <= start; bucket += bucketMillis) {
+            int slot = slot(bucket);
+            if (counts[slot] > 0) {
+                count -= counts[slot];
+                sum -= sums[slot];
+                rescan |= mins[slot] <= min || maxs[slot] >= max;
+            }
+            counts[slot] = 0;
+            sums[slot] = 0;
+            mins[slot] = Double.POSITIVE_INFINITY;
+            maxs[slot] = Double.NEGATIVE_INFINITY;
+        }
+        head = start;
+        if (count == 0) {
+            sum = 0;
+        }
+        if (rescan) {
+            rescanExtremes();
+        }
+    }
+
+    private void rescanExtremes() {
+        min = Double.NaN;
+        max = Double.NaN;
+        for (int slot = 0; slot < buckets; slot++) {
+            if (counts[slot] > 0) {
+                min = Double.isNaN(min) ? mins[slot] : Math.min(min, mins[slot]);
+                max = Double.isNaN(max) ? maxs[slot] : Math.max(max, maxs[slot]);
+            }
+        }
+    }
+
+    private int slot(long bucketStart) {
+        return (int) Math.floorMod(bucketStart / bucketMillis, buckets);
+    }
+}
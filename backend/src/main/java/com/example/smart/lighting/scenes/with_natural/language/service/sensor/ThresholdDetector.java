@@ -0,0 +1,107 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.sensor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Edge detector for a value entering a range, with hysteresis and a hold time.
+ *
+ * <p>The detector becomes active once the value has stayed above
+ * {@code above} and below {@code below} for the hold time, and reports
+ * {@link Edge#ENTERED} once for that crossing. It is only re-armed when the
+ * value moves back past a bound by more than the hysteresis, so a reading
+ * hovering around a threshold does not fire over and over. Any reading out of
+ * range before the hold time is up restarts the hold.</p>
+ *
+
+ * @see SensorWindow
+ */
+public final class ThresholdDetector {
+
+    /**
+     * What a reading did to the detector.
+     */
+    public enum Edge {
+        /** No change. */
+        NONE,
+        /** The value has been in range for the hold time. */
+        ENTERED,
+        /** The value has moved out of range by more than the hysteresis. */
+        LEFT
+    }
+
+    private final Double above;
+    private final Double below;
+    private final double hysteresis;
+    private final Duration hold;
+
+    private boolean active;
+    private LocalDateTime inRangeSince;
+
+    /**
+     * Create a detector that is not active.
+     *
+     * @param above the exclusive lower bound, or null
+     * @param below the exclusive upper bound, or null
+     * @param hysteresis how far past a bound the value must go back to re-arm
+     * @param hold how long the value must stay in range
+     */
+    public ThresholdDetector(Double above, Double below, double hysteresis, Duration hold) {
+        if (above == null && below == null) {
+            throw new IllegalArgumentException("Threshold needs above or below");
+        }
+        if (hysteresis < 0 || hold.isNegative()) {
+            throw new IllegalArgumentException("Hysteresis and hold time must not be negative");
+        }
+        this.above = above;
+        this.below = below;
+        this.hysteresis = hysteresis;
+        this.hold = hold;
+    }
+
+    /**
+     * Feed a reading.
+     *
+     * @param value the reading
+     * @param at when it was taken
+     * @return the edge it caused, if any
+     */
+    public synchronized Edge update(double value, LocalDateTime at) {
+        if (active) {
+            if ((above != null && value <= above - hysteresis) || (below != null && value >= below + hysteresis)) {
+                active = false;
+                inRangeSince = null;
+                return Edge.LEFT;
+            }
+            return Edge.NONE;
+        }
+        if ((above != null && value <= above) || (below != null && value >= below)) {
+            inRangeSince = null;
+            return Edge.NONE;
+        }
+        if (inRangeSince == null) {
+            inRangeSince = at;
+        }
+        if (Duration.between(inRangeSince, at).compareTo(hold) >= 0) {
+            active = true;
+            return Edge.ENTERED;
+        }
+        return Edge.NONE;
+    }
+
+    /**
+     * Whether the value has been in range for the hold time and not left it since.
+     */
+    public synchronized boolean isActive() {
+        return active;
+    }
+
+    /**
+     * How long the value has been in range, or zero when it is not.
+     *
+     * @param now the current time
+     */
+    public synchronized Duration timeInRange(LocalDateTime now) {
+        return inRangeSince == null ? Duration.ZERO : Duration.between(inRangeSince, now);
+    }
+}
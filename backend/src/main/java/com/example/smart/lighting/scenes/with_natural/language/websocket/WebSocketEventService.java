@@ -23,6 +23,8 @@ import java.util.UUID;
  *   <li>{@code /topic/sensors} - Sensor data updates (temperature, humidity, etc.)</li>
  *   <li>{@code /topic/rules} - Automation rule triggers</li>
  *   <li>{@code /topic/system} - System-level events</li>
+ *   <li>{@code /topic/conflicts} - Completed AI conflict analyses</li>
+ *   <li>{@code /topic/nlp} - Early previews of NLP commands still being parsed</li>
  * </ul>
  *
 
@@ -417,4 +419,46 @@ public class WebSocketEventService {
         messagingTemplate.convertAndSend("/topic/schedules", message);
         log.info("Broadcasted schedule triggered: {} (count: {})", scheduleName, triggerCount);
     }
+
+    /**
+     * Broadcasts that the AI ranking of a conflict analysis has finished.
+     *
+     * @param analysisId the analysis ID returned with the parse response
+     * @param analysis the final analysis
+     */
+    public void broadcastConflictAnalysis(String analysisId, Object analysis) {
+        WebSocketMessage message = WebSocketMessage.builder()
+            .type("CONFLICT_ANALYSIS_COMPLETE")
+            .data(Map.of(
+                "analysisId", analysisId,
+                "analysis", analysis
+            ))
+            .timestamp(System.currentTimeMillis())
+            .build();
+
+        messagingTemplate.convertAndSend("/topic/conflicts", message);
+        log.debug("Broadcasted conflict analysis: {}", analysisId);
+    }
+
+    /**
+     * Broadcasts a preview of an NLP command while OpenAI is still responding.
+     *
+     * @param requestId the request ID sent by the client with the parse request
+     * @param parsed the fields parsed so far
+     * @param preview the human-readable preview
+     */
+    public void broadcastNlpPreview(String requestId, Object parsed, String preview) {
+        WebSocketMessage message = WebSocketMessage.builder()
+            .type("NLP_PREVIEW")
+            .data(Map.of(
+                "requestId", requestId,
+                "parsed", parsed,
+                "preview", preview
+            ))
+            .timestamp(System.currentTimeMillis())
+            .build();
+
+        messagingTemplate.convertAndSend("/topic/nlp", message);
+        log.debug("Broadcasted NLP preview for request: {}", requestId);
+    }
 }
@@ -0,0 +1,11 @@
+-- V15: Scheduler high-water mark
+-- Records the last minute the schedule runner processed so that firings missed
+-- during downtime or long pauses can be caught up on the next run.
+
+SET search_path TO smartlighting;
+
+CREATE TABLE IF NOT EXISTS scheduler_state (
+    scheduler_name VARCHAR(50) PRIMARY KEY,
+    last_processed_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,12 @@
+-- V16: Scheduler fencing token
+-- Records the highest fencing token issued to a scheduler leader so that the
+-- Redis counter can be reseeded when Redis restarts without persistence;
+-- devices ignore commands carrying a token lower than one they have seen.
+
+SET search_path TO smartlighting;
+
+CREATE TABLE IF NOT EXISTS scheduler_fencing (
+    scheduler_name VARCHAR(50) PRIMARY KEY,
+    fencing_token BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
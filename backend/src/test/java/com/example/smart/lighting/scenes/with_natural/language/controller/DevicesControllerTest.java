@@ -5,6 +5,7 @@ import com.example.smart.lighting.scenes.with_natural.language.entity.Device;
 import com.example.smart.lighting.scenes.with_natural.language.entity.Room;
 import com.example.smart.lighting.scenes.with_natural.language.repository.DeviceRepository;
 import com.example.smart.lighting.scenes.with_natural.language.repository.RoomRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -38,6 +39,9 @@ class DevicesControllerTest {
     @Mock
     private RoomRepository roomRepository;
 
+    @Mock
+    private NameIndex nameIndex;
+
     @InjectMocks
     private DevicesController devicesController;
 
@@ -151,6 +155,7 @@ class DevicesControllerTest {
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
             assertThat(response.getBody().getName()).isEqualTo("Main Light");
             verify(deviceRepository).save(any(Device.class));
+            verify(nameIndex).put(testDevice);
         }
 
         @Test
@@ -261,6 +266,7 @@ class DevicesControllerTest {
 
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
             verify(deviceRepository).deleteById(deviceId);
+            verify(nameIndex).remove(NameIndex.Kind.DEVICE, deviceId);
         }
 
         @Test
@@ -0,0 +1,132 @@
+package com.example.smart.lighting.scenes.with_natural.language.service;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Automation;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationEngine;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationRunner;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SchedulerLeaderElection;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarEventService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("AutomationService Tests")
+class AutomationServiceTest {
+
+    private static final String NIGHT_DIM = """
+        - id: night_dim
+          alias: Night Dim
+          triggers:
+            - trigger: time
+              at: "22:00:00"
+          actions:
+            - action: light.turn_on
+              data:
+                brightness: 20
+        """;
+
+    private static final String AWAY = """
+        - id: away
+          alias: Away
+          triggers:
+            - trigger: state
+              entity_id: all
+              to: not_home
+          actions:
+            - action: light.turn_off
+        """;
+
+    @TempDir
+    Path rulesDir;
+
+    private Path rulesFile;
+    private SimpleMeterRegistry meterRegistry;
+    private AutomationEngine engine;
+    private AutomationService automationService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        rulesFile = rulesDir.resolve("automations.yaml");
+        Files.writeString(rulesFile, NIGHT_DIM);
+        meterRegistry = new SimpleMeterRegistry();
+        engine = new AutomationEngine(mock(AutomationRunner.class), mock(SolarEventService.class),
+            mock(SchedulerLeaderElection.class), Clock.systemUTC(), meterRegistry);
+        automationService = new AutomationService(engine, new DefaultResourceLoader(), meterRegistry,
+            Clock.systemUTC());
+        ReflectionTestUtils.setField(automationService, "rulesFilePath", rulesFile.toUri().toString());
+        ReflectionTestUtils.setField(automationService, "rulesEnabled", true);
+        automationService.init();
+    }
+
+    @Test
+    @DisplayName("should swap in the new rules when the whole file compiles")
+    void shouldReloadValidFile() throws IOException {
+        Files.writeString(rulesFile, NIGHT_DIM + AWAY);
+
+        assertThat(automationService.reloadAutomations()).isEqualTo(2);
+
+        assertThat(automationService.getAllAutomations()).extracting(Automation::getId)
+            .containsExactly("night_dim", "away");
+        assertThat(engine.getSnapshot().subscriptions()).containsKeys("time.22:00", "all");
+        assertThat(meterRegistry.get("automation.rules").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("automation.reload").tag("outcome", "success").timer().count())
+            .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should keep the running rules when a rule in the file is invalid")
+    void shouldKeepRulesOnInvalidRule() throws IOException {
+        Files.writeString(rulesFile, AWAY + """
+            - id: broken
+              triggers:
+                - trigger: time
+                  at: "25:00"
+              actions:
+                - action: light.turn_on
+            """);
+
+        assertThatThrownBy(() -> automationService.reloadAutomations())
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("broken");
+
+        assertThat(automationService.getAllAutomations()).extracting(Automation::getId)
+            .containsExactly("night_dim");
+        assertThat(meterRegistry.get("automation.reload").tag("outcome", "failure").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should keep the running rules when the file is not valid YAML or is missing")
+    void shouldKeepRulesOnUnreadableFile() throws IOException {
+        Files.writeString(rulesFile, "- id: [unclosed");
+        assertThatThrownBy(() -> automationService.reloadAutomations()).isInstanceOf(IllegalStateException.class);
+
+        Files.delete(rulesFile);
+        assertThatThrownBy(() -> automationService.reloadAutomations())
+            .hasMessageContaining("not found");
+
+        assertThat(automationService.getAutomation("night_dim")).isNotNull();
+    }
+
+    @Test
+    @DisplayName("should reject duplicate automation ids")
+    void shouldRejectDuplicateIds() throws IOException {
+        Files.writeString(rulesFile, NIGHT_DIM + NIGHT_DIM);
+
+        assertThatThrownBy(() -> automationService.reloadAutomations())
+            .hasMessageContaining("Duplicate automation id 'night_dim'");
+        assertThat(automationService.getAllAutomations()).hasSize(1);
+    }
+}
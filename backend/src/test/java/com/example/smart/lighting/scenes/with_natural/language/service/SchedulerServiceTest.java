@@ -0,0 +1,112 @@
+package com.example.smart.lighting.scenes.with_natural.language.service;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleActionPlanner;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleConditions;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleDispatcher;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleHighWaterMark;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleIndex;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleMisfireResolver;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleStatsBuffer;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SchedulerLeaderElection;
+import com.example.smart.lighting.scenes.with_natural.language.websocket.WebSocketEventService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SchedulerService Tests")
+class SchedulerServiceTest {
+
+    private static final LocalDateTime SEVEN = LocalDateTime.of(2024, 6, 3, 7, 0);
+
+    @Mock
+    private MqttService mqttService;
+
+    @Mock
+    private WebSocketEventService webSocketEventService;
+
+    @Mock
+    private SceneCommandTracker sceneCommandTracker;
+
+    @Mock
+    private ScheduleActionPlanner actionPlanner;
+
+    @Mock
+    private ScheduleMisfireResolver misfireResolver;
+
+    @Mock
+    private ScheduleHighWaterMark highWaterMark;
+
+    @Mock
+    private ScheduleDispatcher scheduleDispatcher;
+
+    @Mock
+    private ScheduleIndex scheduleIndex;
+
+    @Mock
+    private SchedulerLeaderElection leaderElection;
+
+    @Mock
+    private ScheduleStatsBuffer scheduleStatsBuffer;
+
+    @Mock
+    private ScheduleConditions scheduleConditions;
+
+    private SchedulerService schedulerService;
+
+    @BeforeEach
+    void setUp() {
+        schedulerService = new SchedulerService(mqttService, webSocketEventService, sceneCommandTracker,
+            actionPlanner, misfireResolver, highWaterMark, scheduleDispatcher, scheduleIndex, leaderElection,
+            scheduleStatsBuffer, scheduleConditions, Clock.fixed(SEVEN.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+
+        Schedule morning = Schedule.builder().name("Morning").build();
+        when(highWaterMark.get()).thenReturn(Optional.of(SEVEN.minusMinutes(1)));
+        when(scheduleIndex.getDueAt(SEVEN)).thenReturn(List.of(morning));
+        doAnswer(invocation -> {
+            List<Schedule> schedules = invocation.getArgument(0);
+            Consumer<Schedule> fire = invocation.getArgument(1);
+            schedules.forEach(fire);
+            return null;
+        }).when(scheduleDispatcher).dispatch(anyList(), any());
+    }
+
+    @Test
+    @DisplayName("should advance the high-water mark once the minute is dispatched")
+    void shouldAdvanceAfterDispatch() {
+        when(leaderElection.isLeader()).thenReturn(true);
+
+        schedulerService.checkSchedules();
+
+        verify(highWaterMark).advanceTo(SEVEN);
+    }
+
+    @Test
+    @DisplayName("should leave the high-water mark when leadership is lost mid-tick")
+    void shouldNotAdvanceAfterLosingLease() {
+        when(leaderElection.isLeader()).thenReturn(true, false);
+
+        schedulerService.checkSchedules();
+
+        verify(scheduleConditions, never()).hold(any(), any());
+        verify(highWaterMark, never()).advanceTo(any());
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Automation;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SchedulerLeaderElection;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarEvent;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarEventService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("AutomationEngine Tests")
+class AutomationEngineTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-06-02T22:00:00Z"), ZoneOffset.UTC);
+
+    private final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+    private final AutomationRunner runner = mock(AutomationRunner.class);
+    private final SolarEventService solarEventService = mock(SolarEventService.class);
+    private final SchedulerLeaderElection leaderElection = mock(SchedulerLeaderElection.class);
+    private AutomationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        when(leaderElection.isLeader()).thenReturn(true);
+        engine = new AutomationEngine(runner, solarEventService, leaderElection, CLOCK, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("should fire numeric_state triggers only when the value crosses into range")
+    void shouldFireOnCrossing() {
+        CompiledAutomation bright = install("""
+            id: bright
+            triggers:
+              - trigger: numeric_state
+                entity_id: sensor.luminosity
+                above: 800
+            actions:
+              - action: light.turn_on
+            """);
+
+        for (double lux : new double[] {500, 900, 950, 700, 850}) {
+            engine.onSensorReading("living-room", "luminosity", lux, false);
+        }
+
+        verify(runner, times(2)).submit(bright);
+        assertThat(engine.getStates()).containsEntry("sensor.living-room.luminosity", 850.0);
+    }
+
+    @Test
+    @DisplayName("should re-arm numeric_state triggers with hysteresis only past the margin")
+    void shouldApplyHysteresis() {
+        CompiledAutomation dark = install("""
+            id: dark
+            triggers:
+              - trigger: numeric_state
+                entity_id: sensor.hall.luminosity.mean
+                below: 50
+                hysteresis: 10
+            actions:
+              - action: light.turn_on
+            """);
+
+        for (double lux : new double[] {60, 45, 55, 48, 65, 40}) {
+            engine.onMeasurement("sensor.hall.luminosity.mean", lux);
+        }
+
+        verify(runner, times(2)).submit(dark);
+    }
+
+    @Test
+    @DisplayName("should seed state from retained messages without firing")
+    void shouldNotFireOnRetained() {
+        CompiledAutomation bright = install("""
+            id: bright
+            triggers:
+              - trigger: numeric_state
+                entity_id: sensor.desk.luminosity
+                above: 800
+            actions:
+              - action: light.turn_on
+            """);
+
+        engine.onSensorReading("desk", "luminosity", 900, true);
+        engine.onSensorReading("desk", "luminosity", 950, false);
+
+        verify(runner, never()).submit(bright);
+    }
+
+    @Test
+    @DisplayName("should check conditions against the in-memory light states")
+    void shouldEvaluateConditions() {
+        CompiledAutomation dim = install("""
+            id: dim
+            triggers:
+              - trigger: time
+                at: "22:00:00"
+            conditions:
+              - condition: state
+                entity_id: light.all
+                state: "on"
+            actions:
+              - action: light.turn_on
+            """);
+
+        engine.tick();
+        verify(runner, never()).submit(dim);
+
+        engine.onStateChange("light.2", "on", true);
+        engine.tick();
+        verify(runner).submit(dim);
+
+        engine.onStateChange("light.2", "off", false);
+        engine.tick();
+        verify(runner).submit(dim);
+    }
+
+    @Test
+    @DisplayName("should fire state triggers on the matching transition")
+    void shouldFireStateTrigger() {
+        CompiledAutomation away = install("""
+            id: away
+            triggers:
+              - trigger: state
+                entity_id: all
+                to: not_home
+            actions:
+              - action: light.turn_off
+            """);
+
+        engine.onStateChange("all", "home", false);
+        engine.onStateChange("all", "not_home", false);
+        engine.onStateChange("all", "not_home", false);
+
+        verify(runner).submit(away);
+    }
+
+    @Test
+    @DisplayName("should fire sun triggers at the event time plus the offset")
+    void shouldFireSunTrigger() {
+        when(solarEventService.getEventTime(eq(SolarEvent.SUNSET), eq(LocalDate.of(2025, 6, 2)), any()))
+            .thenReturn(Optional.of(LocalDateTime.of(2025, 6, 2, 22, 30, 12)));
+        CompiledAutomation evening = install("""
+            id: evening
+            triggers:
+              - trigger: sun
+                event: sunset
+                offset: "-00:30:00"
+            actions:
+              - action: light.turn_on
+            """);
+
+        engine.tick();
+
+        verify(runner).submit(evening);
+    }
+
+    @Test
+    @DisplayName("should not fire when another instance is the scheduler leader")
+    void shouldOnlyFireOnLeader() {
+        when(leaderElection.isLeader()).thenReturn(false);
+        CompiledAutomation away = install("""
+            id: away
+            triggers:
+              - trigger: state
+                entity_id: all
+                to: not_home
+            actions:
+              - action: light.turn_off
+            """);
+
+        engine.onStateChange("all", "not_home", false);
+
+        verify(runner, never()).submit(away);
+        assertThat(engine.getStates()).containsEntry("all", "not_home");
+    }
+
+    @Test
+    @DisplayName("should reject unsupported rules at compile time")
+    void shouldRejectUnsupportedRules() {
+        assertThatThrownBy(() -> compile("""
+            id: templated
+            triggers:
+              - trigger: time
+                at: "07:00:00"
+            conditions:
+              - condition: template
+                value_template: "{{ true }}"
+            actions:
+              - action: light.turn_on
+            """))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("templated")
+            .hasMessageContaining("template");
+
+        assertThatThrownBy(() -> compile("""
+            id: bad_mode
+            mode: sometimes
+            triggers:
+              - trigger: time
+                at: "07:00:00"
+            actions:
+              - action: light.turn_on
+            """))
+            .hasMessageContaining("unknown mode");
+    }
+
+    private CompiledAutomation install(String yaml) {
+        CompiledAutomation automation = compile(yaml);
+        engine.install(AutomationSnapshot.of(List.of(automation), Instant.EPOCH));
+        return automation;
+    }
+
+    private CompiledAutomation compile(String yaml) {
+        try {
+            return AutomationCompiler.compile(yamlMapper.readValue(yaml, Automation.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.AutomationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("AutomationRulesWatcher Tests")
+class AutomationRulesWatcherTest {
+
+    @TempDir
+    Path rulesDir;
+
+    private final AutomationService automationService = mock(AutomationService.class);
+    private Path rulesFile;
+    private AutomationRulesWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        rulesFile = rulesDir.resolve("automations.yaml");
+        Files.writeString(rulesFile, "[]");
+        when(automationService.isRulesEnabled()).thenReturn(true);
+        when(automationService.getRulesFile()).thenReturn(Optional.of(rulesFile));
+        watcher = new AutomationRulesWatcher(automationService, true, 100);
+        watcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    @DisplayName("should reload once after a burst of writes to the rules file")
+    void shouldReloadOnChange() throws IOException {
+        Files.writeString(rulesFile, "- id: a");
+        Files.writeString(rulesFile, "- id: b");
+
+        verify(automationService, timeout(5000)).reloadAutomations();
+        verify(automationService, after(500).times(1)).reloadAutomations();
+    }
+
+    @Test
+    @DisplayName("should ignore other files in the directory")
+    void shouldIgnoreOtherFiles() throws IOException {
+        Files.writeString(rulesDir.resolve("notes.txt"), "hello");
+
+        verify(automationService, after(500).never()).reloadAutomations();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.automation;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Automation;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationRunner.Outcome;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.CompiledAutomation.RunMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("AutomationRunner Tests")
+class AutomationRunnerTest {
+
+    private final AutomationActions actions = mock(AutomationActions.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger interrupted = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private AutomationRunner runner;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        meterRegistry = new SimpleMeterRegistry();
+        runner = new AutomationRunner(actions, meterRegistry, 4);
+        doAnswer(invocation -> {
+            started.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                throw e;
+            }
+            return null;
+        }).when(actions).run(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.shutdown();
+    }
+
+    @Test
+    @DisplayName("should drop triggers of a running single automation")
+    void shouldSkipWhileRunning() throws InterruptedException {
+        CompiledAutomation automation = automation(RunMode.SINGLE, 10);
+
+        assertThat(runner.submit(automation)).isEqualTo(Outcome.STARTED);
+        waitUntil(() -> started.get() == 1);
+        assertThat(runner.submit(automation)).isEqualTo(Outcome.SKIPPED);
+
+        release.countDown();
+        waitUntil(() -> runner.running("test") == 0);
+        assertThat(started).hasValue(1);
+        assertThat(meterRegistry.get("automation.runs").tag("outcome", "skipped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should cancel the running run of a restart automation")
+    void shouldRestart() throws InterruptedException {
+        CompiledAutomation automation = automation(RunMode.RESTART, 10);
+
+        runner.submit(automation);
+        waitUntil(() -> started.get() == 1);
+        assertThat(runner.submit(automation)).isEqualTo(Outcome.RESTARTED);
+
+        waitUntil(() -> started.get() == 2 && interrupted.get() == 1);
+        assertThat(runner.running("test")).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("should queue runs of a queued automation up to max")
+    void shouldQueue() throws InterruptedException {
+        CompiledAutomation automation = automation(RunMode.QUEUED, 2);
+
+        assertThat(runner.submit(automation)).isEqualTo(Outcome.STARTED);
+        assertThat(runner.submit(automation)).isEqualTo(Outcome.QUEUED);
+        assertThat(runner.submit(automation)).isEqualTo(Outcome.SKIPPED);
+        waitUntil(() -> started.get() == 1);
+
+        release.countDown();
+        waitUntil(() -> started.get() == 2 && runner.running("test") == 0);
+    }
+
+    @Test
+    @DisplayName("should run parallel automations side by side up to max")
+    void shouldRunInParallel() throws InterruptedException {
+        CompiledAutomation automation = automation(RunMode.PARALLEL, 2);
+
+        assertThat(runner.submit(automation)).isEqualTo(Outcome.STARTED);
+        assertThat(runner.submit(automation)).isEqualTo(Outcome.STARTED);
+        assertThat(runner.submit(automation)).isEqualTo(Outcome.SKIPPED);
+        waitUntil(() -> started.get() == 2);
+        release.countDown();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out waiting").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static CompiledAutomation automation(RunMode mode, int max) {
+        Automation source = new Automation();
+        source.setId("test");
+        return new CompiledAutomation(source, List.of(), List.of(), mode, max);
+    }
+}
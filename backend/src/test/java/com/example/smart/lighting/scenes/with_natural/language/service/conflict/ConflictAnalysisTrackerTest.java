@@ -0,0 +1,112 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.conflict;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.ConflictAnalysisDto;
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictAnalysisResult;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictDetection;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictResolution;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ScheduleConflict;
+import com.example.smart.lighting.scenes.with_natural.language.websocket.WebSocketEventService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ConflictAnalysisTracker Tests")
+class ConflictAnalysisTrackerTest {
+
+    @Mock
+    private ConflictAiEnhancer aiEnhancer;
+
+    @Mock
+    private WebSocketEventService webSocketEventService;
+
+    private ConflictAnalysisTracker tracker;
+    private Schedule schedule;
+    private ConflictDetection detection;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new ConflictAnalysisTracker(aiEnhancer, webSocketEventService, 1, 10, 10);
+        schedule = Schedule.builder().name("New").triggerType("time").build();
+        ScheduleConflict conflict = new ScheduleConflict(
+            UUID.randomUUID(), "New", UUID.randomUUID(), "Existing", "contradiction",
+            "On and off at the same time", "high",
+            List.of(new ConflictResolution("adjust_new", "Move", "adjust_time", Map.of())));
+        detection = new ConflictDetection(
+            new ConflictAnalysisResult(true, List.of(conflict), "Found 1 potential conflict(s)."), List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.shutdown();
+    }
+
+    @Test
+    @DisplayName("should complete immediately when AI is not configured")
+    void shouldCompleteWithoutAi() {
+        when(aiEnhancer.isConfigured()).thenReturn(false);
+
+        ConflictAnalysisDto dto = tracker.track(schedule, detection);
+
+        assertThat(dto.getStatus()).isEqualTo(ConflictAnalysisTracker.STATUS_COMPLETE);
+        assertThat(dto.getAnalysisId()).isNull();
+        assertThat(dto.getConflicts()).hasSize(1);
+        verify(webSocketEventService, never()).broadcastConflictAnalysis(any(), any());
+    }
+
+    @Test
+    @DisplayName("should return pending analysis and publish the AI result later")
+    void shouldPublishAiResultAsynchronously() {
+        ConflictAnalysisResult enhanced = new ConflictAnalysisResult(
+            true, detection.result().conflicts(), "Conflicts with Existing");
+        when(aiEnhancer.isConfigured()).thenReturn(true);
+        when(aiEnhancer.findCached(any(), anyList(), anyList())).thenReturn(Optional.empty());
+        when(aiEnhancer.enhanceWithAI(any(), anyList(), anyList())).thenReturn(enhanced);
+
+        ConflictAnalysisDto pending = tracker.track(schedule, detection);
+
+        assertThat(pending.getStatus()).isEqualTo(ConflictAnalysisTracker.STATUS_PENDING);
+        assertThat(pending.getAnalysisId()).isNotNull();
+        assertThat(pending.getConflicts()).hasSize(1);
+
+        verify(webSocketEventService, timeout(2000))
+            .broadcastConflictAnalysis(eq(pending.getAnalysisId()), any());
+        ConflictAnalysisDto done = tracker.get(pending.getAnalysisId()).orElseThrow();
+        assertThat(done.getStatus()).isEqualTo(ConflictAnalysisTracker.STATUS_COMPLETE);
+        assertThat(done.getSummary()).isEqualTo("Conflicts with Existing");
+    }
+
+    @Test
+    @DisplayName("should return cached AI analysis without going async")
+    void shouldUseCachedAnalysis() {
+        ConflictAnalysisResult cached = new ConflictAnalysisResult(
+            true, detection.result().conflicts(), "Cached summary");
+        when(aiEnhancer.isConfigured()).thenReturn(true);
+        when(aiEnhancer.findCached(any(), anyList(), anyList())).thenReturn(Optional.of(cached));
+
+        ConflictAnalysisDto dto = tracker.track(schedule, detection);
+
+        assertThat(dto.getStatus()).isEqualTo(ConflictAnalysisTracker.STATUS_COMPLETE);
+        assertThat(dto.getSummary()).isEqualTo("Cached summary");
+        verify(aiEnhancer, never()).enhanceWithAI(any(), anyList(), anyList());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.conflict;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.entity.ScheduleChangedEvent;
+import com.example.smart.lighting.scenes.with_natural.language.service.ScheduleConflictService.ConflictAnalysisResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ConflictEnhancementCache Tests")
+class ConflictEnhancementCacheTest {
+
+    private ConflictEnhancementCache cache;
+    private Schedule existing;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ConflictEnhancementCache(new ObjectMapper(), new SimpleMeterRegistry(), 100, 60);
+        existing = Schedule.builder()
+            .id(UUID.randomUUID())
+            .name("Existing")
+            .triggerType("time")
+            .updatedAt(LocalDateTime.of(2024, 6, 1, 12, 0))
+            .build();
+    }
+
+    @Test
+    @DisplayName("should produce the same signature regardless of map key order")
+    void shouldProduceCanonicalSignature() {
+        Map<String, Object> config1 = new HashMap<>();
+        config1.put("at", "07:00");
+        config1.put("weekdays", List.of("mon"));
+        Map<String, Object> config2 = new LinkedHashMap<>();
+        config2.put("weekdays", List.of("mon"));
+        config2.put("at", "07:00");
+
+        String first = cache.signature(newSchedule(config1), List.of(), List.of(existing));
+        String second = cache.signature(newSchedule(config2), List.of(), List.of(existing));
+
+        assertThat(first).isEqualTo(second);
+    }
+
+    @Test
+    @DisplayName("should change signature when a conflicting schedule is updated")
+    void shouldIncludeScheduleVersion() {
+        Schedule candidate = newSchedule(Map.of("at", "07:00"));
+        String before = cache.signature(candidate, List.of(), List.of(existing));
+
+        existing.setUpdatedAt(existing.getUpdatedAt().plusMinutes(1));
+
+        assertThat(cache.signature(candidate, List.of(), List.of(existing))).isNotEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("should evict entries involving a changed schedule")
+    void shouldInvalidateOnScheduleChange() {
+        ConflictAnalysisResult result = new ConflictAnalysisResult(true, List.of(), "cached");
+        cache.put("key", result, Set.of(existing.getId()));
+        assertThat(cache.get("key")).contains(result);
+
+        cache.onScheduleChanged(new ScheduleChangedEvent(existing, false));
+
+        assertThat(cache.get("key")).isEmpty();
+    }
+
+    private Schedule newSchedule(Map<String, Object> config) {
+        return Schedule.builder()
+            .name("New")
+            .triggerType("time")
+            .triggerConfig(config)
+            .actions(List.of(Map.of("type", "light", "intent", "light.on")))
+            .build();
+    }
+}
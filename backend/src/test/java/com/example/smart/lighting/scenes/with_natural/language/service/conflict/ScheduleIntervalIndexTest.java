@@ -0,0 +1,131 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.conflict;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.entity.ScheduleChangedEvent;
+import com.example.smart.lighting.scenes.with_natural.language.repository.ScheduleRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.conflict.ConflictDetector.ConflictInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ScheduleIntervalIndex Tests")
+class ScheduleIntervalIndexTest {
+
+    @Mock
+    private ScheduleRepository scheduleRepository;
+
+    private ScheduleIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ScheduleIntervalIndex(scheduleRepository, new ConflictDetector());
+    }
+
+    @Test
+    @DisplayName("should find schedules across midnight on consecutive days")
+    void shouldWrapAroundMidnight() {
+        Schedule lateMonday = schedule("23:50", List.of("mon"), "kitchen");
+        Schedule earlyTuesday = schedule("00:10", List.of("tue"), "kitchen");
+        Schedule earlyWednesday = schedule("00:10", List.of("wed"), "kitchen");
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of(earlyTuesday, earlyWednesday));
+        index.rebuild();
+
+        List<ConflictInfo> conflicts = index.findOverlapping(lateMonday);
+
+        assertThat(conflicts).extracting(ConflictInfo::schedule2).containsExactly(earlyTuesday);
+        assertThat(conflicts.get(0).minutesDiff()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("should wrap from Sunday night to Monday morning")
+    void shouldWrapAroundWeek() {
+        Schedule sunday = schedule("23:45", List.of("sunday"), "all");
+        Schedule monday = schedule("00:05", List.of("MONDAY"), "bedroom");
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of(monday));
+        index.rebuild();
+
+        assertThat(index.findOverlapping(sunday)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("should ignore schedules on unrelated targets")
+    void shouldFilterByTarget() {
+        Schedule kitchen = schedule("07:00", List.of(), "kitchen");
+        Schedule bedroom = schedule("07:05", List.of(), "bedroom");
+        Schedule all = schedule("07:10", List.of(), "all");
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of(bedroom, all));
+        index.rebuild();
+
+        assertThat(index.findOverlapping(kitchen)).extracting(ConflictInfo::schedule2).containsExactly(all);
+    }
+
+    @Test
+    @DisplayName("should apply schedule changes incrementally")
+    void shouldUpdateIncrementally() {
+        Schedule existing = schedule("07:00", List.of(), "kitchen");
+        Schedule probe = schedule("07:15", List.of(), "kitchen");
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of());
+        index.rebuild();
+
+        index.onScheduleChanged(new ScheduleChangedEvent(existing, false));
+        assertThat(index.findOverlapping(probe)).hasSize(1);
+
+        existing.setTriggerConfig(Map.of("at", "12:00"));
+        index.onScheduleChanged(new ScheduleChangedEvent(existing, false));
+        assertThat(index.findOverlapping(probe)).isEmpty();
+
+        index.onScheduleChanged(new ScheduleChangedEvent(existing, true));
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("should report every conflicting pair once in the audit")
+    void shouldAuditAllPairs() {
+        Schedule a = schedule("07:00", List.of(), "kitchen");
+        Schedule b = schedule("07:20", List.of(), "kitchen");
+        Schedule c = schedule("07:40", List.of(), "all");
+        Schedule d = schedule("18:00", List.of(), "kitchen");
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of(a, b, c, d));
+        index.rebuild();
+
+        List<ConflictInfo> conflicts = index.auditAll();
+
+        assertThat(conflicts).hasSize(2);
+        assertThat(conflicts).allMatch(info -> info.minutesDiff() == 20);
+    }
+
+    @Test
+    @DisplayName("should index schedules that use the time key")
+    void shouldReadTimeKey() {
+        Schedule existing = schedule("07:00", List.of(), "kitchen");
+        existing.setTriggerConfig(Map.of("time", "07:00:00"));
+        Schedule probe = schedule("07:10", List.of(), "kitchen");
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of(existing));
+        index.rebuild();
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.findOverlapping(probe)).extracting(ConflictInfo::minutesDiff).containsExactly(10L);
+    }
+
+    private Schedule schedule(String at, List<String> weekdays, String target) {
+        return Schedule.builder()
+            .id(UUID.randomUUID())
+            .name(at + " " + target)
+            .enabled(true)
+            .triggerType("time")
+            .triggerConfig(Map.of("at", at, "weekdays", weekdays))
+            .actions(List.of(Map.of("type", "light", "intent", "light.on", "target", target)))
+            .build();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.ChatRequest;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.LlmException;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.LlmRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("GuardedLlmProvider Tests")
+class GuardedLlmProviderTest {
+
+    private static final ChatRequest REQUEST = new ChatRequest("system", "turn on", 0.3, null, true);
+
+    private SimpleMeterRegistry meterRegistry;
+    private LlmCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new LlmCircuitBreaker(Clock.systemUTC(), meterRegistry, 20, 10, 0.5, 10_000, 30_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("should reject calls beyond the bulkhead without calling the provider")
+    void shouldLimitConcurrentCalls() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        FakeProvider provider = new FakeProvider(() -> pending);
+        GuardedLlmProvider guarded = guarded(provider, 0, 1, false);
+
+        CompletableFuture<String> first = guarded.chatAsync("nlp.parse", REQUEST);
+        assertThatThrownBy(() -> guarded.chat("nlp.parse", REQUEST))
+            .isInstanceOf(LlmException.class)
+            .hasMessageContaining("busy");
+        assertThat(provider.calls).hasValue(1);
+
+        pending.complete("{}");
+        assertThat(first.join()).isEqualTo("{}");
+        assertThat(guarded.chatAsync("nlp.parse", REQUEST)).isDone();
+        assertThat(meterRegistry.get("llm.rejected").tag("reason", "bulkhead").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should apply the signed-in user's token bucket")
+    void shouldApplyUserQuota() {
+        FakeProvider provider = new FakeProvider(() -> CompletableFuture.completedFuture("{}"));
+        GuardedLlmProvider guarded = guarded(provider, 2, 4, false);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("alex@example.com", null, List.of()));
+
+        guarded.chat("nlp.parse", REQUEST);
+        guarded.chat("nlp.parse", REQUEST);
+
+        assertThatThrownBy(() -> guarded.chat("nlp.parse", REQUEST))
+            .isInstanceOf(LlmException.class)
+            .hasMessageContaining("Too many AI requests");
+
+        SecurityContextHolder.clearContext();
+        assertThat(guarded.chat("conflict.rank", REQUEST)).isEqualTo("{}");
+    }
+
+    @Test
+    @DisplayName("should charge a shared call to the user's quota without calling the provider")
+    void shouldChargeSharedCalls() {
+        FakeProvider provider = new FakeProvider(() -> CompletableFuture.completedFuture("{}"));
+        GuardedLlmProvider guarded = guarded(provider, 1, 4, false);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("sam@example.com", null, List.of()));
+
+        guarded.chargeShared("nlp.parse");
+
+        assertThatThrownBy(() -> guarded.chargeShared("nlp.parse"))
+            .isInstanceOf(LlmRejectedException.class)
+            .hasMessageContaining("Too many AI requests");
+        assertThat(provider.calls).hasValue(0);
+        assertThat(meterRegistry.get("llm.rejected").tag("reason", "quota").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should fail fast once the circuit opens")
+    void shouldFailFastWhenCircuitOpen() {
+        FakeProvider provider = new FakeProvider(() -> CompletableFuture.failedFuture(new LlmException("HTTP 503")));
+        GuardedLlmProvider guarded = guarded(provider, 0, 4, false);
+
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> guarded.chat("nlp.parse", REQUEST)).hasMessage("HTTP 503");
+        }
+
+        assertThatThrownBy(() -> guarded.chat("nlp.parse", REQUEST)).hasMessageContaining("unavailable");
+        assertThat(provider.calls).hasValue(10);
+    }
+
+    @Test
+    @DisplayName("should hedge a call that outlives the observed p95 and return the first answer")
+    void shouldHedgeSlowCalls() {
+        AtomicInteger call = new AtomicInteger();
+        FakeProvider provider = new FakeProvider(() -> call.incrementAndGet() == 21
+            ? new CompletableFuture<>()
+            : CompletableFuture.supplyAsync(() -> "{\"n\": " + call.get() + "}",
+                CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS)));
+        GuardedLlmProvider guarded = guarded(provider, 0, 4, true);
+        for (int i = 0; i < 20; i++) {
+            guarded.chat("nlp.parse", REQUEST);
+        }
+
+        assertThat(guarded.chat("nlp.parse", REQUEST)).isEqualTo("{\"n\": 22}");
+        assertThat(meterRegistry.get("llm.hedged").counter().count()).isEqualTo(1);
+    }
+
+    private GuardedLlmProvider guarded(LlmProvider provider, int quota, int maxConcurrent, boolean hedging) {
+        LlmUserQuota userQuota = new LlmUserQuota(Clock.systemUTC(), meterRegistry, quota, 1);
+        return new GuardedLlmProvider(provider, circuitBreaker, userQuota, meterRegistry, maxConcurrent, 0, hedging);
+    }
+
+    private static final class FakeProvider implements LlmProvider {
+
+        private final Supplier<CompletableFuture<String>> response;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        FakeProvider(Supplier<CompletableFuture<String>> response) {
+            this.response = response;
+        }
+
+        @Override
+        public boolean isConfigured() {
+            return true;
+        }
+
+        @Override
+        public String getModel() {
+            return "fake";
+        }
+
+        @Override
+        public CompletableFuture<String> chatAsync(String operation, ChatRequest request) {
+            calls.incrementAndGet();
+            return response.get();
+        }
+
+        @Override
+        public CompletableFuture<String> chatStreamAsync(String operation, ChatRequest request,
+                                                         Consumer<String> onDelta) {
+            return chatAsync(operation, request);
+        }
+    }
+}
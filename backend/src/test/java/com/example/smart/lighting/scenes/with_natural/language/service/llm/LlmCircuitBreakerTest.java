@@ -0,0 +1,112 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmCircuitBreaker.State;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.LlmException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("LlmCircuitBreaker Tests")
+class LlmCircuitBreakerTest {
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private LlmCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        meterRegistry = new SimpleMeterRegistry();
+        breaker = new LlmCircuitBreaker(clock, meterRegistry, 4, 4, 0.5, 1000, 30_000);
+    }
+
+    @Test
+    @DisplayName("should open once half of the window failed or was slow")
+    void shouldOpenOnFailureRate() {
+        call(true, 10);
+        call(false, 10);
+        call(true, 10);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        call(true, 5000);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(meterRegistry.get("llm.circuit.state").gauge().value()).isEqualTo(2);
+        assertThatThrownBy(breaker::acquirePermission)
+            .isInstanceOf(LlmException.class)
+            .hasMessageContaining("retry in 30s");
+    }
+
+    @Test
+    @DisplayName("should let one trial call through after the open period")
+    void shouldProbeWhenHalfOpen() {
+        tripOpen();
+        clock.advance(30_000);
+
+        breaker.acquirePermission();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(LlmException.class);
+
+        breaker.record(10, true);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+        breaker.acquirePermission();
+    }
+
+    @Test
+    @DisplayName("should open again when the trial call fails")
+    void shouldReopenOnFailedTrial() {
+        tripOpen();
+        clock.advance(30_000);
+        breaker.acquirePermission();
+
+        breaker.record(10, false);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(LlmException.class);
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            call(false, 10);
+        }
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    private void call(boolean success, long durationMs) {
+        breaker.acquirePermission();
+        breaker.record(durationMs, success);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-01-01T12:00:00Z");
+
+        void advance(long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.ChatRequest;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.LlmException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("LocalLlmProvider Tests")
+class LocalLlmProviderTest {
+
+    private static final ChatRequest REQUEST = new ChatRequest("system", "say \"hi\"", 0.3, null, true);
+
+    private MockEnvironment environment;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        environment = new MockEnvironment();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("should answer with the default template after the configured latency")
+    void shouldAnswerWithDefaultTemplate() {
+        LocalLlmProvider provider = new LocalLlmProvider(environment, meterRegistry, 50, 50, 0.0, 1);
+
+        long start = System.nanoTime();
+        String content = provider.chat("nlp.parse", REQUEST);
+
+        assertThat(content).contains("\"intent\": \"light.on\"");
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(45);
+        assertThat(meterRegistry.get("llm.request").tag("operation", "nlp.parse").tag("outcome", "success")
+            .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should render configured templates and stream them in fragments")
+    void shouldStreamConfiguredTemplate() {
+        environment.setProperty("llm.local.responses.openai.service", "{\"echo\": \"{{input}}\"}");
+        LocalLlmProvider provider = new LocalLlmProvider(environment, meterRegistry, 1, 1, 0.0, 1);
+        List<String> deltas = new ArrayList<>();
+
+        String content = provider.chatStream("openai.service", REQUEST, deltas::add);
+
+        assertThat(content).isEqualTo("{\"echo\": \"say \\\"hi\\\"\"}");
+        assertThat(deltas).hasSizeGreaterThan(1);
+        assertThat(String.join("", deltas)).isEqualTo(content);
+    }
+
+    @Test
+    @DisplayName("should inject failures at the configured error rate")
+    void shouldInjectFailures() {
+        LocalLlmProvider provider = new LocalLlmProvider(environment, meterRegistry, 1, 1, 1.0, 1);
+
+        assertThatThrownBy(() -> provider.chat("conflict.rank", REQUEST))
+            .isInstanceOf(LlmException.class)
+            .hasMessageContaining("HTTP 503");
+        assertThat(meterRegistry.get("llm.request").tag("outcome", "error").timer().count()).isEqualTo(1);
+    }
+}
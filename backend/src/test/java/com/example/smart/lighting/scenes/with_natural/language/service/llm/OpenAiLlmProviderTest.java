@@ -0,0 +1,148 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.llm;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.ChatRequest;
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.LlmException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("OpenAiLlmProvider Tests")
+class OpenAiLlmProviderTest {
+
+    private static final String COMPLETION = """
+        {"choices": [{"message": {"role": "assistant", "content": "{\\"intent\\": \\"light.on\\"}"}}],
+         "usage": {"total_tokens": 42}}
+        """;
+
+    private static final String EVENT_STREAM = """
+        data: {"choices": [{"delta": {"role": "assistant"}}]}
+
+        data: {"choices": [{"delta": {"content": "{\\"intent\\": "}}]}
+
+        data: {"choices": [{"delta": {"content": "\\"light.on\\"}"}}]}
+
+        data: {"choices": [], "usage": {"total_tokens": 7}}
+
+        data: [DONE]
+
+        """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicReference<JsonNode> lastRequest = new AtomicReference<>();
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private OpenAiLlmProvider client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            lastRequest.set(objectMapper.readTree(exchange.getRequestBody()));
+            boolean stream = lastRequest.get().path("stream").asBoolean();
+            byte[] body = (stream ? EVENT_STREAM : COMPLETION).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        client = newClient("test-key");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("should return the first choice and record latency and token metrics")
+    void shouldCompleteChat() {
+        String content = client.chatAsync("nlp.parse",
+            new ChatRequest("system", "turn on the lights", 0.3, 500, true)).join();
+
+        assertThat(content).isEqualTo("{\"intent\": \"light.on\"}");
+        assertThat(lastRequest.get().path("model").asText()).isEqualTo("gpt-test");
+        assertThat(lastRequest.get().path("max_tokens").asInt()).isEqualTo(500);
+        assertThat(lastRequest.get().path("response_format").path("type").asText()).isEqualTo("json_object");
+        assertThat(meterRegistry.get("llm.request").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("llm.response.headers").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("llm.tokens").counter().count()).isEqualTo(42.0);
+    }
+
+    @Test
+    @DisplayName("should stream content deltas in order")
+    void shouldStreamChat() {
+        List<String> deltas = new ArrayList<>();
+
+        String content = client.chatStream("nlp.parse",
+            new ChatRequest("system", "turn on the lights", 0.3, 500, false), deltas::add);
+
+        assertThat(deltas).containsExactly("{\"intent\": ", "\"light.on\"}");
+        assertThat(content).isEqualTo("{\"intent\": \"light.on\"}");
+        assertThat(lastRequest.get().path("stream").asBoolean()).isTrue();
+        assertThat(meterRegistry.get("llm.response.first-token").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("llm.tokens").counter().count()).isEqualTo(7.0);
+    }
+
+    @Test
+    @DisplayName("should fail a stream with LlmException on an HTTP error")
+    void shouldFailStreamOnHttpError() {
+        status.set(429);
+        List<String> deltas = new ArrayList<>();
+
+        assertThatThrownBy(() -> client.chatStream("nlp.parse",
+            new ChatRequest("system", "hi", 0.3, null, false), deltas::add))
+            .isInstanceOf(LlmException.class)
+            .hasMessageContaining("429");
+        assertThat(deltas).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should fail with LlmException on an HTTP error")
+    void shouldFailOnHttpError() {
+        status.set(503);
+
+        assertThatThrownBy(() -> client.chat("nlp.parse", new ChatRequest("system", "hi", 0.3, null, false)))
+            .isInstanceOf(LlmException.class)
+            .hasMessageContaining("503");
+        assertThat(lastRequest.get().has("max_tokens")).isFalse();
+        assertThat(meterRegistry.get("llm.request").tag("outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not call the API without a key")
+    void shouldRequireApiKey() {
+        OpenAiLlmProvider unconfigured = newClient("");
+
+        assertThat(unconfigured.isConfigured()).isFalse();
+        assertThatThrownBy(() -> unconfigured.chat("nlp.parse", new ChatRequest("system", "hi", 0.3, null, false)))
+            .isInstanceOf(LlmException.class);
+        assertThat(lastRequest.get()).isNull();
+    }
+
+    private OpenAiLlmProvider newClient(String apiKey) {
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/";
+        return new OpenAiLlmProvider(objectMapper, meterRegistry, apiKey, "gpt-test", baseUrl, 1000, 5000);
+    }
+}
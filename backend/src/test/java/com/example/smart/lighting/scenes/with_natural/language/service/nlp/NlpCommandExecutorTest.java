@@ -0,0 +1,93 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
+import com.example.smart.lighting.scenes.with_natural.language.service.MqttService;
+import com.example.smart.lighting.scenes.with_natural.language.service.SceneCommandTracker;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NlpCommandExecutor Tests")
+class NlpCommandExecutorTest {
+
+    @Mock
+    private MqttService mqttService;
+
+    @Mock
+    private SceneCatalog sceneCatalog;
+
+    @Mock
+    private SceneCommandTracker sceneCommandTracker;
+
+    private NlpCommandExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new NlpCommandExecutor(mqttService, sceneCatalog, sceneCommandTracker, new NlpColorUtils());
+    }
+
+    @Test
+    @DisplayName("should merge a batch per LED into one publish with one correlation ID")
+    @SuppressWarnings("unchecked")
+    void shouldExecuteBatch() {
+        when(sceneCommandTracker.registerCommand(isNull(), anyString(), anyInt())).thenReturn("corr-1");
+
+        List<String> results = executor.executeBatch(List.of(
+            command("light.off", "all", Map.of()),
+            command("light.brightness", "bedroom", Map.of("brightness", 20))));
+
+        assertThat(results).containsExactly("Command sent to 5 light(s)", "Command sent to 1 light(s)");
+        verify(sceneCommandTracker).registerCommand(null, "NLP batch: NLP: light.off, NLP: light.brightness", 5);
+
+        ArgumentCaptor<Map<Integer, Map<String, Object>>> published = ArgumentCaptor.forClass(Map.class);
+        verify(mqttService).publishLedBatch(published.capture(), eq("corr-1"));
+        assertThat(published.getValue()).containsOnlyKeys(0, 1, 2, 3, 4);
+        assertThat(published.getValue().get(0)).isEqualTo(Map.of("on", false));
+        assertThat(published.getValue().get(1)).isEqualTo(Map.of("on", true, "brightness", 20));
+        verify(mqttService, never()).publishLedCommand(anyInt(), anyMap());
+    }
+
+    @Test
+    @DisplayName("should publish a single command to each LED of its target")
+    void shouldExecuteImmediateCommand() {
+        when(sceneCommandTracker.registerCommand(null, "NLP: light.on", 1)).thenReturn("corr-2");
+
+        String result = executor.executeImmediateCommand(command("light.on", "kitchen", Map.of()));
+
+        assertThat(result).isEqualTo("Command sent to 1 light(s)");
+        verify(mqttService).publishLedCommand(0, Map.of("on", true, "correlationId", "corr-2"));
+    }
+
+    @Test
+    @DisplayName("should refuse a room with no LEDs rather than drive every light")
+    void shouldRejectUnmappedRoom() {
+        assertThatThrownBy(() -> executor.executeImmediateCommand(command("light.off", "garage", Map.of())))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("garage");
+        verify(mqttService, never()).publishLedCommand(anyInt(), anyMap());
+    }
+
+    private static ParsedCommand command(String intent, String target, Map<String, Object> params) {
+        return ParsedCommand.builder().intent(intent).target(target).params(params).build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.NlpCommand;
+import com.example.smart.lighting.scenes.with_natural.language.repository.NlpCommandRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NlpHistoryWriter Tests")
+class NlpHistoryWriterTest {
+
+    @Mock
+    private NlpCommandRepository nlpCommandRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("should queue records without writing and save them in batches on flush")
+    @SuppressWarnings("unchecked")
+    void shouldWriteInBatches() {
+        NlpHistoryWriter writer = new NlpHistoryWriter(nlpCommandRepository, meterRegistry, 10, 2, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(writer.enqueue(command("turn on " + i))).isTrue();
+        }
+        verify(nlpCommandRepository, never()).saveAll(anyList());
+        assertThat(writer.pendingCount()).isEqualTo(5);
+
+        assertThat(writer.flush()).isEqualTo(5);
+
+        ArgumentCaptor<List<NlpCommand>> batches = ArgumentCaptor.forClass(List.class);
+        verify(nlpCommandRepository, times(3)).saveAll(batches.capture());
+        assertThat(batches.getAllValues()).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(batches.getAllValues().get(0).get(0).getRawInput()).isEqualTo("turn on 0");
+        assertThat(writer.pendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should drop and count records when the queue is full")
+    void shouldDropWhenFull() {
+        NlpHistoryWriter writer = new NlpHistoryWriter(nlpCommandRepository, meterRegistry, 2, 10, 0);
+
+        writer.enqueue(command("a"));
+        writer.enqueue(command("b"));
+
+        assertThat(writer.enqueue(command("c"))).isFalse();
+        assertThat(meterRegistry.get("nlp.history.dropped").tag("reason", "queue_full").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("nlp.history.queue").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should drop and count a batch that fails to write")
+    void shouldDropFailedBatch() {
+        NlpHistoryWriter writer = new NlpHistoryWriter(nlpCommandRepository, meterRegistry, 10, 10, 0);
+        when(nlpCommandRepository.saveAll(anyList())).thenThrow(new IllegalStateException("database down"));
+        writer.enqueue(command("a"));
+        writer.enqueue(command("b"));
+
+        assertThat(writer.flush()).isZero();
+        assertThat(meterRegistry.get("nlp.history.dropped").tag("reason", "write_failed").counter().count())
+            .isEqualTo(2);
+        assertThat(writer.pendingCount()).isZero();
+    }
+
+    private static NlpCommand command(String text) {
+        return NlpCommand.builder().rawInput(text).executed(true).build();
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpClassifierDto;
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ScheduleConfig;
+import com.example.smart.lighting.scenes.with_natural.language.entity.NlpCommand;
+import com.example.smart.lighting.scenes.with_natural.language.repository.NlpCommandRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageImpl;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("NlpIntentClassifier Tests")
+class NlpIntentClassifierTest {
+
+    private static final List<String> ROOMS = List.of("kitchen", "bedroom", "bathroom", "hallway", "living_room");
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-06-01T12:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    Path modelDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final NlpCommandRepository repository = mock(NlpCommandRepository.class);
+    private final NlpCommandParser commandParser = mock(NlpCommandParser.class);
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        when(repository.findAllByOrderByCreatedAtDesc(any()))
+            .thenReturn(new PageImpl<>(history()));
+    }
+
+    @Test
+    @DisplayName("should answer familiar commands without OpenAI in active mode")
+    void shouldClassifyFamiliarCommands() {
+        NlpIntentClassifier classifier = classifier("active");
+        NlpClassifierDto status = classifier.train();
+
+        assertThat(status.getTrained()).isTrue();
+        assertThat(status.getExamples()).isEqualTo(history().size() - 1);
+        assertThat(status.getTrainedAt()).isEqualTo(CLOCK.instant());
+
+        ParsedCommand off = classifier.classify("switch off the bedroom lights").orElseThrow();
+        assertThat(off.getIntent()).isEqualTo("light.off");
+        assertThat(off.getTarget()).isEqualTo("bedroom");
+        assertThat(off.getParams()).isEmpty();
+        assertThat(meterRegistry.get("nlp.classifier.served").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should take brightness from the text rather than from training")
+    void shouldReadBrightnessFromText() {
+        NlpIntentClassifier classifier = classifier("active");
+        classifier.train();
+
+        ParsedCommand dim = classifier.classify("dim the hallway to 25%").orElseThrow();
+
+        assertThat(dim.getIntent()).isEqualTo("light.brightness");
+        assertThat(dim.getTarget()).isEqualTo("hallway");
+        assertThat(dim.getParams()).containsEntry("brightness", 25);
+    }
+
+    @Test
+    @DisplayName("should leave scheduled and unfamiliar commands to OpenAI")
+    void shouldAbstain() {
+        NlpIntentClassifier classifier = classifier("active");
+        classifier.train();
+
+        assertThat(classifier.classify("turn off the kitchen lights at 9pm")).isEmpty();
+        assertThat(classifier.classify("what is the weather like tomorrow")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should only measure agreement in shadow mode")
+    void shouldShadow() {
+        NlpIntentClassifier classifier = classifier("shadow");
+        classifier.train();
+
+        assertThat(classifier.classify("switch off the bedroom lights")).isEmpty();
+        classifier.shadow("switch off the bedroom lights", command("light.off", "bedroom", null, Map.of()));
+        classifier.shadow("switch off the bedroom lights", command("light.on", "bedroom", null, Map.of()));
+
+        assertThat(meterRegistry.get("nlp.classifier.shadow").tag("outcome", "agree").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("nlp.classifier.shadow").tag("outcome", "disagree").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should load the saved model at startup")
+    void shouldReloadSavedModel() {
+        classifier("active").train();
+
+        NlpIntentClassifier restarted = classifier("active");
+        assertThat(restarted.status().getTrained()).isFalse();
+        restarted.load();
+
+        assertThat(restarted.status().getTrained()).isTrue();
+        assertThat(restarted.classify("kitchen lights off")).get()
+            .extracting(ParsedCommand::getTarget).isEqualTo("kitchen");
+    }
+
+    @Test
+    @DisplayName("should not learn multi-command utterances saved once per command")
+    void shouldSkipConflictingHistory() {
+        List<NlpCommand> history = new ArrayList<>(history());
+        String batch = "turn off the kitchen and turn on the bedroom";
+        history.add(record(batch, command("light.off", "kitchen", null, Map.of())));
+        history.add(record(batch, command("light.on", "bedroom", null, Map.of())));
+        when(repository.findAllByOrderByCreatedAtDesc(any())).thenReturn(new PageImpl<>(history));
+
+        NlpClassifierDto status = classifier("active").train();
+
+        assertThat(status.getExamples()).isEqualTo(history().size() - 1);
+    }
+
+    @Test
+    @DisplayName("should not learn or replay numbers it cannot read from the text")
+    void shouldSkipLiteralNumbers() {
+        List<NlpCommand> history = new ArrayList<>(history());
+        for (String room : ROOMS) {
+            history.add(record("set the " + room.replace('_', ' ') + " to 2700k",
+                command("light.color_temp", room, null, Map.of("color_temp", 2700))));
+        }
+        when(repository.findAllByOrderByCreatedAtDesc(any())).thenReturn(new PageImpl<>(history));
+        NlpIntentClassifier classifier = classifier("active");
+
+        NlpClassifierDto status = classifier.train();
+
+        assertThat(status.getExamples()).isEqualTo(history().size() - 1);
+        assertThat(classifier.classify("set the kitchen to 6500k")).isEmpty();
+        assertThat(classifier.classify("make the kitchen red at 30%")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should refuse to train on too little history")
+    void shouldRequireHistory() {
+        when(repository.findAllByOrderByCreatedAtDesc(any()))
+            .thenReturn(new PageImpl<>(history().subList(0, 10)));
+
+        assertThatThrownBy(() -> classifier("active").train())
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Need at least 50");
+    }
+
+    private NlpIntentClassifier classifier(String mode) {
+        return new NlpIntentClassifier(objectMapper, repository, commandParser, meterRegistry, CLOCK, mode,
+            modelDir.resolve("model.json").toString());
+    }
+
+    private List<NlpCommand> history() {
+        List<NlpCommand> history = new ArrayList<>();
+        int step = 0;
+        for (String room : ROOMS) {
+            String name = room.replace('_', ' ');
+            history.add(record("turn off the " + name + " lights", command("light.off", room, null, Map.of())));
+            history.add(record("switch off " + name, command("light.off", room, null, Map.of())));
+            history.add(record(name + " lights off", command("light.off", room, null, Map.of())));
+            history.add(record("turn on the " + name + " lights", command("light.on", room, null, Map.of())));
+            history.add(record("switch on " + name, command("light.on", room, null, Map.of())));
+            history.add(record(name + " lights on", command("light.on", room, null, Map.of())));
+            for (int i = 0; i < 3; i++) {
+                int brightness = 10 + (step++ * 15) % 90;
+                history.add(record("dim the " + name + " to " + brightness + "%",
+                    command("light.brightness", room, null, Map.of("brightness", brightness))));
+            }
+            history.add(record("make the " + name + " red",
+                command("light.color", room, null, Map.of("rgb", List.of(255, 0, 0)))));
+            ParsedCommand scheduled = command("light.off", room, null, Map.of());
+            scheduled.setSchedule(ScheduleConfig.builder().time("22:00").build());
+            history.add(record("turn off the " + name + " lights at 10pm", scheduled));
+        }
+        for (int i = 0; i < 4; i++) {
+            history.add(record("movie time", command("scene.apply", null, "Movie Night", Map.of())));
+            history.add(record("start movie night", command("scene.apply", null, "Movie Night", Map.of())));
+        }
+        // Not executed, so never learned from
+        NlpCommand rejected = record("turn off the garage", command("light.off", "garage", null, Map.of()));
+        rejected.setExecuted(false);
+        history.add(rejected);
+        return history;
+    }
+
+    private NlpCommand record(String text, ParsedCommand parsed) {
+        return NlpCommand.builder()
+            .rawInput(text)
+            .parsedJson(objectMapper.convertValue(parsed, new TypeReference<>() {}))
+            .executed(true)
+            .build();
+    }
+
+    private static ParsedCommand command(String intent, String target, String scene, Map<String, Object> params) {
+        return ParsedCommand.builder()
+            .intent(intent)
+            .target(target)
+            .scene(scene)
+            .params(new HashMap<>(params))
+            .confidence(0.95)
+            .build();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("NlpLocalParser Tests")
+class NlpLocalParserTest {
+
+    private static final List<String> SCENES = List.of("Movie", "Movie Night", "Relax");
+
+    private NlpLocalParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new NlpLocalParser(new NlpColorUtils(), true, 0.9);
+    }
+
+    @Test
+    @DisplayName("should parse on/off commands for a room")
+    void shouldParseOnOff() {
+        assertThat(parser.parse("Turn off kitchen lights", SCENES)).get()
+            .satisfies(parsed -> {
+                assertThat(parsed.getIntent()).isEqualTo("light.off");
+                assertThat(parsed.getTarget()).isEqualTo("kitchen");
+                assertThat(parsed.getSchedule()).isNull();
+            });
+        assertThat(parser.parse("turn on the lights", SCENES)).get()
+            .extracting(ParsedCommand::getTarget).isEqualTo("all");
+    }
+
+    @Test
+    @DisplayName("should parse brightness, colour and colour temperature")
+    void shouldParseLightSettings() {
+        assertThat(parser.parse("set bedroom to 30%", SCENES)).get()
+            .satisfies(parsed -> {
+                assertThat(parsed.getIntent()).isEqualTo("light.brightness");
+                assertThat(parsed.getParams()).containsEntry("brightness", 30);
+            });
+        assertThat(parser.parse("set the living room to blue", SCENES)).get()
+            .satisfies(parsed -> {
+                assertThat(parsed.getIntent()).isEqualTo("light.color");
+                assertThat(parsed.getTarget()).isEqualTo("living_room");
+                assertThat(parsed.getParams()).containsEntry("rgb", List.of(0, 0, 255));
+            });
+        assertThat(parser.parse("make the hallway warm white", SCENES)).get()
+            .extracting(ParsedCommand::getParams).isEqualTo(Map.of("color_temp", 2700));
+    }
+
+    @Test
+    @DisplayName("should prefer the longest matching scene name")
+    void shouldParseScenes() {
+        assertThat(parser.parse("Movie night!", SCENES)).get()
+            .satisfies(parsed -> {
+                assertThat(parsed.getIntent()).isEqualTo("scene.apply");
+                assertThat(parsed.getScene()).isEqualTo("Movie Night");
+                assertThat(parsed.getTarget()).isNull();
+            });
+        assertThat(parser.parse("apply relax scene in the bedroom", SCENES)).get()
+            .extracting(ParsedCommand::getTarget).isEqualTo("bedroom");
+    }
+
+    @Test
+    @DisplayName("should parse time, sun and recurrence phrases")
+    void shouldParseSchedules() {
+        assertThat(parser.parse("turn off the bedroom at 10:30pm every weekday", SCENES)).get()
+            .satisfies(parsed -> {
+                assertThat(parsed.getSchedule().getTime()).isEqualTo("22:30");
+                assertThat(parsed.getSchedule().getRecurrence()).isEqualTo("weekdays");
+            });
+        assertThat(parser.parse("turn on kitchen at 7am on mondays and fridays", SCENES)).get()
+            .satisfies(parsed -> assertThat(parsed.getSchedule().getRecurrence()).isEqualTo(List.of("mon", "fri")));
+        assertThat(parser.parse("turn on hallway 30 minutes before sunset", SCENES)).get()
+            .satisfies(parsed -> {
+                assertThat(parsed.getSchedule().getTrigger()).isEqualTo("sunset");
+                assertThat(parsed.getSchedule().getOffsetMinutes()).isEqualTo(-30);
+            });
+    }
+
+    @Test
+    @DisplayName("should read a bare hour with an evening recurrence as the evening")
+    void shouldParseEveningHours() {
+        assertThat(parser.parse("turn off the lights every night at 10", SCENES)).get()
+            .satisfies(parsed -> assertThat(parsed.getSchedule().getTime()).isEqualTo("22:00"));
+        assertThat(parser.parse("turn on the kitchen every evening at 7", SCENES)).get()
+            .satisfies(parsed -> assertThat(parsed.getSchedule().getTime()).isEqualTo("19:00"));
+        assertThat(parser.parse("dim the bedroom to 10% nightly at 9:30", SCENES)).get()
+            .satisfies(parsed -> assertThat(parsed.getSchedule().getTime()).isEqualTo("21:30"));
+        assertThat(parser.parse("turn on the kitchen every morning at 7", SCENES)).get()
+            .satisfies(parsed -> assertThat(parsed.getSchedule().getTime()).isEqualTo("07:00"));
+        assertThat(parser.parse("turn off the lights every night at 12", SCENES)).isEmpty();
+        assertThat(parser.parse("turn off the lights every night at 2", SCENES)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should leave ambiguous or unknown commands to the LLM")
+    void shouldFallBack() {
+        assertThat(parser.parse("dim the bedroom", SCENES)).isEmpty();
+        assertThat(parser.parse("turn off the kitchen and bedroom", SCENES)).isEmpty();
+        assertThat(parser.parse("turn off bedroom to 30%", SCENES)).isEmpty();
+        assertThat(parser.parse("turn on the lights every day", SCENES)).isEmpty();
+        assertThat(parser.parse("turn on the lights at 25:00", SCENES)).isEmpty();
+        assertThat(parser.parse("make it cozy in here", SCENES)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should split an utterance into several commands")
+    void shouldParseAll() {
+        assertThat(parser.parseAll("turn off the kitchen and set the bedroom to 20%, then relax", SCENES)).get()
+            .satisfies(commands -> {
+                assertThat(commands).extracting(ParsedCommand::getIntent)
+                    .containsExactly("light.off", "light.brightness", "scene.apply");
+                assertThat(commands.get(0).getTarget()).isEqualTo("kitchen");
+                assertThat(commands.get(1).getParams()).containsEntry("brightness", 20);
+                assertThat(commands.get(2).getScene()).isEqualTo("Relax");
+            });
+        assertThat(parser.parseAll("turn on kitchen at 7am on mondays and fridays", SCENES)).isEmpty();
+        assertThat(parser.parseAll("turn off the kitchen and bedroom", SCENES)).isEmpty();
+
+        // Clauses without a room continue with the previous clause's room
+        assertThat(parser.parseAll("turn on the kitchen and set it to 50%", SCENES)).isEmpty();
+        assertThat(parser.parse("turn on the kitchen and set it to 50%", SCENES)).get()
+            .extracting(ParsedCommand::getTarget).isEqualTo("kitchen");
+        assertThat(parser.parseAll("turn the kitchen red and blue", SCENES)).get()
+            .satisfies(commands -> {
+                assertThat(commands).extracting(command -> command.getParams().get("color"))
+                    .containsExactly("red", "blue");
+                assertThat(commands).extracting(ParsedCommand::getTarget).containsOnly("kitchen");
+            });
+        assertThat(parser.parseAll("dim the bedroom to 20% then warm white", SCENES)).get()
+            .satisfies(commands -> assertThat(commands).extracting(ParsedCommand::getTarget)
+                .containsExactly("bedroom", "bedroom"));
+        assertThat(parser.parseAll("make it blue and turn off the kitchen", SCENES)).isEmpty();
+    }
+}
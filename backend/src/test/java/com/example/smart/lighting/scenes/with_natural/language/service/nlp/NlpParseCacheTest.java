@@ -0,0 +1,90 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NlpParseCache Tests")
+class NlpParseCacheTest {
+
+    private static final String CATALOG = "catalog-v1";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Test
+    @DisplayName("should share an entry across case, whitespace and punctuation")
+    void shouldNormalizeText() {
+        NlpParseCache cache = newCache(false);
+
+        assertThat(cache.key("Good  night!", CATALOG)).isEqualTo(cache.key("good night", CATALOG));
+        assertThat(cache.key("set bedroom to 30%", CATALOG)).isNotEqualTo(cache.key("set bedroom to 3", CATALOG));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("should miss once the scene catalog changes")
+    void shouldKeyOnSceneCatalog() {
+        NlpParseCache cache = newCache(false);
+        cache.put(cache.key("movie time", CATALOG), command());
+
+        assertThat(cache.get(cache.key("Movie time", CATALOG))).isPresent();
+        assertThat(cache.get(cache.key("movie time", "catalog-v2"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should return a copy that callers can modify")
+    void shouldReturnCopies() {
+        NlpParseCache cache = newCache(false);
+        String key = cache.key("movie time", CATALOG);
+        cache.put(key, command());
+
+        cache.get(key).orElseThrow().getParams().put("brightness", 10);
+
+        assertThat(cache.get(key)).get().extracting(ParsedCommand::getParams).isEqualTo(Map.of());
+    }
+
+    @Test
+    @DisplayName("should fall back to Redis on a local miss")
+    void shouldReadThroughRedis() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(command());
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(json);
+        NlpParseCache cache = newCache(true);
+
+        assertThat(cache.get(cache.key("movie time", CATALOG))).get()
+            .extracting(ParsedCommand::getScene).isEqualTo("Movie Night");
+    }
+
+    private NlpParseCache newCache(boolean redisEnabled) {
+        return new NlpParseCache(new ObjectMapper(), new SimpleMeterRegistry(), redisTemplate, 100, 60, redisEnabled);
+    }
+
+    private ParsedCommand command() {
+        return ParsedCommand.builder()
+            .intent("scene.apply")
+            .scene("Movie Night")
+            .params(new HashMap<>())
+            .confidence(0.95)
+            .build();
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.llm.LlmProvider.LlmRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("NlpRequestCoalescer Tests")
+class NlpRequestCoalescerTest {
+
+    private static final Runnable NO_CHARGE = () -> { };
+
+    private SimpleMeterRegistry meterRegistry;
+    private NlpRequestCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new NlpRequestCoalescer(meterRegistry, 5000);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("should share one call between concurrent identical requests")
+    void shouldCoalesceConcurrentRequests() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        Future<String> leader = executor.submit(() -> coalescer.coalesce("good morning", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "{\"intent\": \"scene.apply\"}";
+        }, NO_CHARGE));
+        waitUntilInFlight();
+        Future<String> follower = executor.submit(() -> coalescer.coalesce("good morning", () -> {
+            calls.incrementAndGet();
+            return "unexpected";
+        }, NO_CHARGE));
+        waitUntilCoalesced();
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("{\"intent\": \"scene.apply\"}");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("{\"intent\": \"scene.apply\"}");
+        assertThat(calls).hasValue(1);
+        assertThat(coalescer.inFlightCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should pass the leader's failure to followers and then allow a retry")
+    void shouldShareFailures() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> coalescer.coalesce("good night", () -> {
+            await(release);
+            throw new IllegalStateException("OpenAI returned HTTP 503");
+        }, NO_CHARGE));
+        waitUntilInFlight();
+        Future<String> follower = executor.submit(
+            () -> coalescer.coalesce("good night", () -> "unexpected", NO_CHARGE));
+        waitUntilCoalesced();
+        release.countDown();
+
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("OpenAI returned HTTP 503");
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("OpenAI returned HTTP 503");
+        assertThat(coalescer.coalesce("good night", () -> "retried", NO_CHARGE)).isEqualTo("retried");
+    }
+
+    @Test
+    @DisplayName("should release followers when the leader dies with an Error")
+    void shouldReleaseFollowersOnError() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> coalescer.coalesce("lights off", () -> {
+            await(release);
+            throw new StackOverflowError("deep");
+        }, NO_CHARGE));
+        waitUntilInFlight();
+        Future<String> follower = executor.submit(
+            () -> coalescer.coalesce("lights off", () -> "unexpected", NO_CHARGE));
+        waitUntilCoalesced();
+        release.countDown();
+
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(IllegalStateException.class)
+            .hasRootCauseInstanceOf(StackOverflowError.class);
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        assertThat(coalescer.inFlightCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should stop waiting on a leader that hangs")
+    void shouldBoundFollowerWait() throws Exception {
+        NlpRequestCoalescer impatient = new NlpRequestCoalescer(meterRegistry, 50);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> impatient.coalesce("movie time", () -> {
+            await(release);
+            return "late";
+        }, NO_CHARGE));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (impatient.inFlightCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> impatient.coalesce("movie time", () -> "unexpected", NO_CHARGE))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Timed out");
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("late");
+    }
+
+    @Test
+    @DisplayName("should refuse a follower over its own quota without touching the leader")
+    void shouldChargeFollowers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> coalescer.coalesce("dim the hall", () -> {
+            await(release);
+            return "{\"intent\": \"light.brightness\"}";
+        }, NO_CHARGE));
+        waitUntilInFlight();
+        Future<String> follower = executor.submit(() -> coalescer.coalesce("dim the hall", () -> "unexpected", () -> {
+            throw new LlmRejectedException("Too many AI requests; try again in 3s");
+        }));
+
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(LlmRejectedException.class);
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("{\"intent\": \"light.brightness\"}");
+    }
+
+    @Test
+    @DisplayName("should let a follower make the call when the leader is refused at admission")
+    void shouldRetryAfterRejectedLeader() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger charges = new AtomicInteger();
+
+        Future<String> leader = executor.submit(() -> coalescer.coalesce("red kitchen", () -> {
+            await(release);
+            throw new LlmRejectedException("Too many AI requests; try again in 5s");
+        }, NO_CHARGE));
+        waitUntilInFlight();
+        Future<String> follower = executor.submit(() -> coalescer.coalesce("red kitchen",
+            () -> "{\"intent\": \"light.color\"}", charges::incrementAndGet));
+        waitUntilCoalesced();
+        release.countDown();
+
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("{\"intent\": \"light.color\"}");
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(LlmRejectedException.class);
+        assertThat(charges).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("should not coalesce different keys")
+    void shouldKeepKeysApart() {
+        assertThat(coalescer.coalesce("a", () -> "first", NO_CHARGE)).isEqualTo("first");
+        assertThat(coalescer.coalesce("a", () -> "second", NO_CHARGE)).isEqualTo("second");
+        assertThat(meterRegistry.get("nlp.parse.coalesced").counter().count()).isZero();
+    }
+
+    private void waitUntilInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.inFlightCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private void waitUntilCoalesced() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("nlp.parse.coalesced").counter().count() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
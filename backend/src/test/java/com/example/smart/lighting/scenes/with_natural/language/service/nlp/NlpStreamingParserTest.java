@@ -0,0 +1,85 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.nlp;
+
+import com.example.smart.lighting.scenes.with_natural.language.dto.NlpCommandDto.ParsedCommand;
+import com.example.smart.lighting.scenes.with_natural.language.repository.DeviceRepository;
+import com.example.smart.lighting.scenes.with_natural.language.repository.RoomRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("NlpStreamingParser Tests")
+class NlpStreamingParserTest {
+
+    private static final String RESPONSE = """
+        ```json
+        {
+          "intent": "light.off",
+          "target": "living_room",
+          "params": {},
+          "scene": null,
+          "schedule": {"time": "07:00", "trigger": null, "offsetMinutes": null, "recurrence": ["mon", "fri"]},
+          "confidence": 0.9
+        }
+        ```""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("should complete top-level fields as fragments arrive")
+    void shouldParseIncrementally() {
+        NlpStreamingParser parser = new NlpStreamingParser(objectMapper.getFactory());
+
+        assertThat(parser.feed("```json\n{\"intent\": \"light.o")).isFalse();
+        assertThat(parser.fields()).isEmpty();
+        assertThat(parser.feed("ff\", \"target\": ")).isTrue();
+        assertThat(parser.fields()).containsExactly(Map.entry("intent", "light.off"));
+        assertThat(parser.feed("\"all\", \"params\": {\"rgb\": [255, 0")).isTrue();
+        assertThat(parser.fields()).containsOnlyKeys("intent", "target");
+        assertThat(parser.feed(", 0]}, \"confidence\": 0.9}\n```")).isTrue();
+
+        assertThat(parser.isComplete()).isTrue();
+        assertThat(parser.fields().get("params")).isEqualTo(Map.of("rgb", List.of(255, 0, 0)));
+        assertThat(parser.fields().get("confidence")).isEqualTo(0.9);
+    }
+
+    @Test
+    @DisplayName("should allow a preview before the schedule has arrived")
+    void shouldPreviewBeforeCompletion() {
+        NameIndex nameIndex = new NameIndex(mock(SceneCatalog.class), mock(RoomRepository.class),
+            mock(DeviceRepository.class));
+        NlpCommandParser commandParser = new NlpCommandParser(objectMapper, new NlpColorUtils(), nameIndex);
+        NlpStreamingParser parser = new NlpStreamingParser(objectMapper.getFactory());
+
+        int firstPreviewAt = -1;
+        for (int i = 0; i < RESPONSE.length(); i += 4) {
+            parser.feed(RESPONSE.substring(i, Math.min(RESPONSE.length(), i + 4)));
+            if (firstPreviewAt < 0 && commandParser.parsePartial(parser.fields()) != null) {
+                firstPreviewAt = i;
+            }
+        }
+
+        assertThat(firstPreviewAt).isPositive().isLessThan(RESPONSE.indexOf("\"schedule\""));
+        ParsedCommand full = commandParser.parsePartial(parser.fields());
+        assertThat(commandParser.generatePreview(full))
+            .isEqualTo("Turn OFF living room lights at 07:00, on Monday, Friday");
+    }
+
+    @Test
+    @DisplayName("should stop quietly on malformed input")
+    void shouldStopOnMalformedInput() {
+        NlpStreamingParser parser = new NlpStreamingParser(objectMapper.getFactory());
+
+        assertThat(parser.feed("{\"intent\": \"light.on\", oops")).isTrue();
+        assertThat(parser.feed("\"target\": \"all\"}")).isFalse();
+        assertThat(parser.isComplete()).isFalse();
+        assertThat(parser.fields()).containsOnlyKeys("intent");
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.scene;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Scene;
+import com.example.smart.lighting.scenes.with_natural.language.repository.SceneRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SceneCatalog Tests")
+class SceneCatalogTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Mock
+    private SceneRepository sceneRepository;
+
+    @InjectMocks
+    private SceneCatalog catalog;
+
+    @Test
+    @DisplayName("should resolve active scenes by ID and by name ignoring case")
+    void shouldIndexActiveScenes() {
+        Scene relax = scene("Relax", true);
+        Scene movie = scene("Movie Night", true);
+        when(sceneRepository.findAll()).thenReturn(List.of(relax, movie));
+
+        assertThat(catalog.getActiveSceneNames()).containsExactly("Movie Night", "Relax");
+        assertThat(catalog.findByName("  movie NIGHT ")).get().extracting(Scene::getId).isEqualTo(movie.getId());
+        assertThat(catalog.findById(relax.getId())).get().extracting(Scene::getName).isEqualTo("Relax");
+        assertThat(catalog.findByName("Party")).isEmpty();
+        verify(sceneRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("should keep deleted scenes reachable by ID only")
+    void shouldKeepDeletedScenesById() {
+        Scene deleted = scene("Old Party", false);
+        when(sceneRepository.findAll()).thenReturn(List.of(deleted));
+
+        assertThat(catalog.getActiveScenes()).isEmpty();
+        assertThat(catalog.findByName("Old Party")).isEmpty();
+        assertThat(catalog.findById(deleted.getId())).isPresent();
+    }
+
+    @Test
+    @DisplayName("should change version only when active scenes change")
+    void shouldVersionCatalog() {
+        Scene relax = scene("Relax", true);
+        when(sceneRepository.findAll()).thenReturn(List.of(relax));
+        String initial = catalog.version();
+
+        catalog.reload();
+        assertThat(catalog.version()).isEqualTo(initial);
+
+        Scene renamed = scene("Unwind", true);
+        renamed.setId(relax.getId());
+        when(sceneRepository.findAll()).thenReturn(List.of(renamed));
+        catalog.reload();
+        assertThat(catalog.version()).isNotEqualTo(initial);
+        assertThat(catalog.findByName("Relax")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should hand out read-only copies of scene settings")
+    void shouldDetachScenes() {
+        Scene relax = scene("Relax", true);
+        when(sceneRepository.findAll()).thenReturn(List.of(relax));
+
+        Map<String, Object> settings = catalog.findByName("relax").orElseThrow().getSettingsJson();
+        relax.getSettingsJson().put("brightness", 100);
+
+        assertThat(settings).containsEntry("brightness", 40);
+        assertThatThrownBy(() -> settings.put("brightness", 10)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private Scene scene(String name, boolean active) {
+        return Scene.builder()
+            .id(UUID.randomUUID())
+            .name(name)
+            .settingsJson(new HashMap<>(Map.of("brightness", 40)))
+            .isActive(active)
+            .updatedAt(UPDATED)
+            .build();
+    }
+}
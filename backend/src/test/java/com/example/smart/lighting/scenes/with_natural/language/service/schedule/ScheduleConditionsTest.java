@@ -0,0 +1,65 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ScheduleConditions Tests")
+class ScheduleConditionsTest {
+
+    private static final LocalDateTime EVENING = LocalDateTime.of(2025, 6, 2, 19, 30);
+
+    private final AutomationEngine engine = mock(AutomationEngine.class);
+    private final ScheduleConditions conditions = new ScheduleConditions(engine, new ObjectMapper());
+
+    @Test
+    @DisplayName("should check sensor conditions against the live window statistics")
+    void shouldCheckSensorConditions() {
+        Schedule schedule = schedule(Map.of("type", "sensor", "entity_id", "sensor.luminosity.mean", "below", 50));
+
+        when(engine.getState("sensor.luminosity.mean")).thenReturn(35.0);
+        assertThat(conditions.hold(schedule, EVENING)).isTrue();
+
+        when(engine.getState("sensor.luminosity.mean")).thenReturn(120.0);
+        assertThat(conditions.hold(schedule, EVENING)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should not fire on a sensor that has not reported yet")
+    void shouldRequireReading() {
+        Schedule schedule = schedule(Map.of("type", "sensor", "entity_id", "sensor.temperature.ewma", "above", 26));
+
+        assertThat(conditions.hold(schedule, EVENING)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should check time windows and ignore unknown condition types")
+    void shouldCheckTimeConditions() {
+        assertThat(conditions.hold(schedule(Map.of("type", "time", "after", "06:00", "before", "22:00"),
+            Map.of("type", "weather", "state", "rain")), EVENING)).isTrue();
+        assertThat(conditions.hold(schedule(Map.of("type", "time", "after", "20:00")), EVENING)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should not fire on an invalid condition")
+    void shouldRejectInvalidConditions() {
+        assertThat(conditions.hold(schedule(Map.of("type", "sensor", "entity_id", "sensor.luminosity")), EVENING))
+            .isFalse();
+        assertThat(conditions.hold(schedule(Map.of("type", "time", "after", "evening")), EVENING)).isFalse();
+    }
+
+    @SafeVarargs
+    private static Schedule schedule(Map<String, Object>... conditions) {
+        return Schedule.builder().name("Evening").conditions(List.of(conditions)).build();
+    }
+}
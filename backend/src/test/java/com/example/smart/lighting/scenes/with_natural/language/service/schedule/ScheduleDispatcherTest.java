@@ -0,0 +1,160 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ScheduleDispatcher Tests")
+class ScheduleDispatcherTest {
+
+    @Mock
+    private SceneCatalog sceneCatalog;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ScheduleDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new ScheduleDispatcher(new ScheduleTargetResolver(sceneCatalog), meterRegistry, 4, 200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("should group schedules that share LEDs into one lane")
+    void shouldGroupOverlappingSchedules() {
+        Schedule kitchen = schedule("kitchen");
+        Schedule bedroom = schedule("bedroom");
+        Schedule all = schedule("all");
+        Schedule hallway = schedule("hallway");
+
+        assertThat(dispatcher.buildLanes(List.of(kitchen, bedroom))).hasSize(2);
+        assertThat(dispatcher.buildLanes(List.of(kitchen, bedroom, all, hallway)))
+            .containsExactly(List.of(kitchen, bedroom, all, hallway));
+    }
+
+    @Test
+    @DisplayName("should keep order within a lane")
+    void shouldKeepOrderWithinLane() {
+        Schedule first = schedule("kitchen");
+        Schedule second = schedule("kitchen");
+        Schedule third = schedule("kitchen");
+        List<Schedule> fired = new CopyOnWriteArrayList<>();
+
+        dispatcher.dispatch(List.of(first, second, third), fired::add);
+
+        assertThat(fired).containsExactly(first, second, third);
+        assertThat(meterRegistry.timer("scheduler.fire.spread").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should interrupt a hanging schedule and only then fire the next one in its lane")
+    void shouldIsolateHangingSchedule() {
+        Schedule hanging = schedule("kitchen");
+        Schedule afterHanging = schedule("kitchen");
+        Schedule other = schedule("bedroom");
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        long start = System.nanoTime();
+        dispatcher.dispatch(List.of(hanging, afterHanging, other), schedule -> {
+            if (schedule == hanging) {
+                try {
+                    Thread.sleep(2000);
+                    events.add("hanging finished");
+                } catch (InterruptedException e) {
+                    events.add("hanging interrupted");
+                }
+            } else if (schedule == afterHanging) {
+                events.add(Thread.currentThread().isInterrupted() ? "after interrupted" : "after");
+            } else {
+                events.add("other");
+            }
+        });
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+        assertThat(events).containsExactlyInAnyOrder("hanging interrupted", "after", "other");
+        assertThat(events.indexOf("hanging interrupted")).isLessThan(events.indexOf("after"));
+        assertThat(meterRegistry.counter("scheduler.schedule.timeouts").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("should keep a lane blocked until a schedule that ignores the interrupt returns")
+    void shouldNotOverlapUninterruptibleSchedule() {
+        Schedule stubborn = schedule("kitchen");
+        Schedule next = schedule("kitchen");
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        dispatcher.dispatch(List.of(stubborn, next), schedule -> {
+            if (schedule == stubborn) {
+                long until = System.nanoTime() + Duration.ofMillis(400).toNanos();
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+                events.add("stubborn");
+            } else {
+                events.add("next");
+            }
+        });
+
+        assertThat(events).containsExactly("stubborn", "next");
+        assertThat(meterRegistry.counter("scheduler.schedule.timeouts").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("should stop waiting for a lane that overruns and skip the rest of it")
+    void shouldBoundTickOnOverrun() throws InterruptedException {
+        Schedule stuck = schedule("kitchen");
+        Schedule next = schedule("kitchen");
+        Schedule other = schedule("bedroom");
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        long start = System.nanoTime();
+        dispatcher.dispatch(List.of(stuck, next, other), schedule -> {
+            if (schedule == stuck) {
+                long until = System.nanoTime() + Duration.ofMillis(2000).toNanos();
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+                events.add("stuck");
+            } else {
+                events.add(schedule == next ? "next" : "other");
+            }
+        });
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1900));
+        assertThat(events).containsExactly("other");
+        assertThat(meterRegistry.counter("scheduler.dispatch.overruns").count()).isEqualTo(1.0);
+
+        Thread.sleep(1000);
+        assertThat(events).containsExactly("other", "stuck");
+    }
+
+    private Schedule schedule(String target) {
+        return Schedule.builder()
+            .id(UUID.randomUUID())
+            .name(target)
+            .triggerType("time")
+            .actions(List.of(Map.of("type", "light", "intent", "light.on", "target", target)))
+            .build();
+    }
+}
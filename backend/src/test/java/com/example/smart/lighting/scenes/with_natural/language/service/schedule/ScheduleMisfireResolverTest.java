@@ -0,0 +1,108 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleMisfireResolver.MissedFiring;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ScheduleMisfireResolver Tests")
+class ScheduleMisfireResolverTest {
+
+    private static final LocalDateTime HWM = LocalDateTime.of(2024, 6, 3, 6, 0);
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 3, 9, 0);
+
+    @Mock
+    private SolarEventService solarEventService;
+
+    @Mock
+    private SceneCatalog sceneCatalog;
+
+    private ScheduleMisfireResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new ScheduleMisfireResolver(
+            new ScheduleTriggerResolver(solarEventService),
+            new ScheduleTargetResolver(sceneCatalog),
+            "fire_latest_per_target");
+    }
+
+    @Test
+    @DisplayName("should find firings strictly between the high-water mark and now")
+    void shouldFindMissedFirings() {
+        Schedule atMark = timeSchedule("06:00", "kitchen", null);
+        Schedule missed = timeSchedule("07:30", "kitchen", null);
+        Schedule dueNow = timeSchedule("09:00", "kitchen", null);
+
+        List<MissedFiring> result = resolver.findMissed(List.of(atMark, missed, dueNow), HWM, NOW);
+
+        assertThat(result).extracting(MissedFiring::schedule).containsExactly(missed);
+        assertThat(result.get(0).scheduledAt()).isEqualTo(LocalDateTime.of(2024, 6, 3, 7, 30));
+    }
+
+    @Test
+    @DisplayName("should only replay the latest firing per target")
+    void shouldReplayLatestPerTarget() {
+        Schedule early = timeSchedule("07:00", "kitchen", null);
+        Schedule late = timeSchedule("08:00", "kitchen", null);
+        Schedule bedroom = timeSchedule("07:15", "bedroom", null);
+
+        List<MissedFiring> missed = resolver.findMissed(List.of(early, late, bedroom), HWM, NOW);
+        List<MissedFiring> selected = resolver.selectFirings(missed, List.of());
+
+        assertThat(selected).extracting(MissedFiring::schedule).containsExactly(bedroom, late);
+    }
+
+    @Test
+    @DisplayName("should honour skip and fire-once-now policies")
+    void shouldHonourPerSchedulePolicies() {
+        Schedule skipped = timeSchedule("07:00", "hallway", "skip");
+        Schedule fireOnce = timeSchedule("07:00", "kitchen", "fire-once-now");
+        Schedule later = timeSchedule("08:00", "all", null);
+
+        List<MissedFiring> missed = resolver.findMissed(List.of(skipped, fireOnce, later), HWM, NOW);
+        List<MissedFiring> selected = resolver.selectFirings(missed, List.of());
+
+        assertThat(selected).extracting(MissedFiring::schedule).containsExactly(fireOnce, later);
+    }
+
+    @Test
+    @DisplayName("should drop missed firings superseded by a schedule due now")
+    void shouldDropFiringsCoveredByDueSchedules() {
+        Schedule missedKitchen = timeSchedule("07:00", "kitchen", null);
+        Schedule dueAll = timeSchedule("09:00", "all", null);
+
+        List<MissedFiring> missed = resolver.findMissed(List.of(missedKitchen, dueAll), HWM, NOW);
+
+        assertThat(resolver.selectFirings(missed, List.of(dueAll))).isEmpty();
+    }
+
+    private Schedule timeSchedule(String at, String target, String policy) {
+        Map<String, Object> config = new HashMap<>();
+        config.put("at", at);
+        if (policy != null) {
+            config.put("misfire_policy", policy);
+        }
+        return Schedule.builder()
+            .id(UUID.randomUUID())
+            .name(at + " " + target)
+            .triggerType("time")
+            .triggerConfig(config)
+            .actions(List.of(Map.of("type", "light", "intent", "light.on", "target", target)))
+            .build();
+    }
+}
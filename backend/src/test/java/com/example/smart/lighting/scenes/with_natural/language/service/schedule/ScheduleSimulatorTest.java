@@ -0,0 +1,103 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleSimulator.SimulatedFiring;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.ScheduleSimulator.SimulationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ScheduleSimulator Tests")
+class ScheduleSimulatorTest {
+
+    private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+    /** Monday 2024-06-03 00:00 local time. */
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 6, 3, 0, 0);
+
+    @Mock
+    private SolarEventService solarEventService;
+
+    @Mock
+    private SceneCatalog sceneCatalog;
+
+    private ScheduleSimulator simulator;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(MONDAY.atZone(PARIS).toInstant(), PARIS);
+        simulator = new ScheduleSimulator(
+            new ScheduleTriggerResolver(solarEventService),
+            new ScheduleActionPlanner(new ScheduleTargetResolver(sceneCatalog)),
+            clock, 92, 0);
+    }
+
+    @Test
+    @DisplayName("should fire weekday schedules on five of seven days")
+    void shouldHonourWeekdays() {
+        Schedule morning = schedule("07:00", List.of("mon", "tue", "wed", "thu", "fri"), "light.on", "kitchen");
+
+        SimulationResult result = simulator.simulate(List.of(morning), 7);
+
+        assertThat(result.firings()).hasSize(5);
+        assertThat(result.firings()).extracting(SimulatedFiring::at)
+            .allMatch(at -> at.getHour() == 7 && at.getDayOfWeek().getValue() <= 5);
+    }
+
+    @Test
+    @DisplayName("should build the per-LED timeline in time order")
+    void shouldBuildTimeline() {
+        Schedule on = schedule("07:00", List.of(), "light.on", "bedroom");
+        Schedule off = schedule("23:00", List.of(), "light.off", "bedroom");
+
+        SimulationResult result = simulator.simulate(List.of(off, on), MONDAY, MONDAY.plusDays(2));
+
+        assertThat(result.firings()).extracting(SimulatedFiring::scheduleName)
+            .containsExactly("07:00", "23:00", "07:00", "23:00");
+        assertThat(result.timeline()).containsOnlyKeys(1);
+        assertThat(result.timeline().get(1)).hasSize(4);
+        assertThat(result.finalState().get(1)).containsEntry("on", false);
+    }
+
+    @Test
+    @DisplayName("should reject ranges longer than the limit")
+    void shouldRejectLongRanges() {
+        assertThatThrownBy(() -> simulator.simulate(List.of(), MONDAY, MONDAY.plusDays(365)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("should reject day counts outside the limit before computing the range")
+    void shouldRejectDayCounts() {
+        assertThatThrownBy(() -> simulator.simulate(List.of(), MONDAY, Integer.MAX_VALUE))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> simulator.simulate(List.of(), 0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> simulator.simulate(List.of(), -3))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Schedule schedule(String at, List<String> weekdays, String intent, String target) {
+        return Schedule.builder()
+            .id(UUID.randomUUID())
+            .name(at)
+            .triggerType("time")
+            .triggerConfig(Map.of("at", at, "weekdays", weekdays))
+            .actions(List.of(Map.of("type", "light", "intent", intent, "target", target)))
+            .build();
+    }
+}
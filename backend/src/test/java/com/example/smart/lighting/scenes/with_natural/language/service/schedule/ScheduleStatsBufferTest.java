@@ -0,0 +1,77 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ScheduleStatsBuffer Tests")
+class ScheduleStatsBufferTest {
+
+    private static final LocalDateTime SEVEN = LocalDateTime.of(2024, 6, 3, 7, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ScheduleStatsBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new ScheduleStatsBuffer(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("should write all firings of a tick in one statement")
+    void shouldWriteOneStatementPerFlush() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        buffer.record(first, SEVEN);
+        buffer.record(first, SEVEN.plusMinutes(1));
+        buffer.record(second, SEVEN);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(2);
+
+        assertThat(buffer.flush()).isEqualTo(2);
+
+        ArgumentCaptor<Object[]> params = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(1)).update(anyString(), params.capture());
+        assertThat(params.getValue()).hasSize(6).contains(first, second, 2, 1);
+    }
+
+    @Test
+    @DisplayName("should not hit the database when nothing fired")
+    void shouldSkipEmptyFlush() {
+        assertThat(buffer.flush()).isZero();
+
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("should keep firings for the next flush when the write fails")
+    void shouldRetryFailedWrites() {
+        UUID id = UUID.randomUUID();
+        buffer.record(id, SEVEN);
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+            .thenThrow(new DataAccessResourceFailureException("down"))
+            .thenReturn(1);
+
+        assertThat(buffer.flush()).isZero();
+        assertThat(buffer.flush()).isEqualTo(1);
+    }
+}
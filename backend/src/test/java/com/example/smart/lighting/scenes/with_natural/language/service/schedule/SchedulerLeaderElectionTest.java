@@ -0,0 +1,121 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SchedulerLeaderElection Tests")
+class SchedulerLeaderElectionTest {
+
+    private static final List<String> LEADER_KEY = List.of("smartlighting:scheduler:leader");
+    private static final List<String> FENCING_KEY = List.of("smartlighting:scheduler:fencing");
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SchedulerLeaderElection election;
+
+    @BeforeEach
+    void setUp() {
+        election = new SchedulerLeaderElection(redisTemplate, jdbcTemplate, true, 6000, 2000);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq("smartlighting:scheduler:leader"), anyString(), any(Duration.class)))
+            .thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("should take the Redis counter when it is ahead of the stored token")
+    void shouldUseRedisCounter() {
+        when(valueOperations.increment("smartlighting:scheduler:fencing")).thenReturn(5L);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("schedules"), eq(5L))).thenReturn(5L);
+
+        election.heartbeat();
+
+        assertThat(election.isLeader()).isTrue();
+        assertThat(election.getFencingToken()).isEqualTo(5);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), eq(FENCING_KEY), any());
+    }
+
+    @Test
+    @DisplayName("should continue from the stored token after Redis lost its counter")
+    void shouldReseedFencingCounter() {
+        when(valueOperations.increment("smartlighting:scheduler:fencing")).thenReturn(1L);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("schedules"), eq(1L))).thenReturn(8L);
+
+        election.heartbeat();
+
+        assertThat(election.isLeader()).isTrue();
+        assertThat(election.getFencingToken()).isEqualTo(8);
+        verify(redisTemplate).execute(any(RedisScript.class), eq(FENCING_KEY), eq("8"));
+    }
+
+    @Test
+    @DisplayName("should give the lease up when the token cannot be stored")
+    void shouldNotLeadWithoutStoredToken() {
+        when(valueOperations.increment("smartlighting:scheduler:fencing")).thenReturn(3L);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("schedules"), eq(3L)))
+            .thenThrow(new DataAccessResourceFailureException("database down"));
+
+        election.heartbeat();
+
+        assertThat(election.isLeader()).isFalse();
+        verify(redisTemplate).execute(any(RedisScript.class), eq(LEADER_KEY), anyString());
+    }
+
+    @Test
+    @DisplayName("should keep renewing the lease while a slow scheduler tick runs")
+    void shouldRenewDuringSlowTick() throws Exception {
+        SchedulerLeaderElection shortLease = new SchedulerLeaderElection(redisTemplate, jdbcTemplate, true, 200, 20);
+        when(valueOperations.increment("smartlighting:scheduler:fencing")).thenReturn(1L);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("schedules"), eq(1L))).thenReturn(1L);
+        lenient().when(redisTemplate.execute(any(RedisScript.class), eq(LEADER_KEY), anyString(), eq("200")))
+            .thenReturn(1L);
+
+        // Stands in for Spring's single task scheduler thread
+        ExecutorService taskScheduler = Executors.newSingleThreadExecutor();
+        try {
+            shortLease.start();
+            Future<Boolean> tick = taskScheduler.submit(() -> {
+                Thread.sleep(600);
+                return shortLease.isLeader();
+            });
+
+            assertThat(tick.get()).isTrue();
+            verify(redisTemplate, atLeast(5)).execute(any(RedisScript.class), eq(LEADER_KEY), anyString(), eq("200"));
+        } finally {
+            taskScheduler.shutdownNow();
+            shortLease.release();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.SolarCalculator.SolarDay;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SolarCalculator Tests")
+class SolarCalculatorTest {
+
+    private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+    private final SolarCalculator calculator = new SolarCalculator();
+
+    @Test
+    @DisplayName("should match published sunrise and sunset for Paris at the summer solstice")
+    void shouldMatchParisSummerSolstice() {
+        LocalDate date = LocalDate.of(2024, 6, 21);
+
+        SolarDay day = calculator.calculate(date, 48.8566, 2.3522, PARIS);
+
+        assertWithinTwoMinutes(day.get(SolarEvent.SUNRISE).orElseThrow(), date.atTime(5, 47));
+        assertWithinTwoMinutes(day.get(SolarEvent.SUNSET).orElseThrow(), date.atTime(21, 58));
+    }
+
+    @Test
+    @DisplayName("should match published sunrise and sunset for London at the spring equinox")
+    void shouldMatchLondonEquinox() {
+        LocalDate date = LocalDate.of(2024, 3, 20);
+
+        SolarDay day = calculator.calculate(date, 51.5074, -0.1278, LONDON);
+
+        assertWithinTwoMinutes(day.get(SolarEvent.SUNRISE).orElseThrow(), date.atTime(6, 2));
+        assertWithinTwoMinutes(day.get(SolarEvent.SUNSET).orElseThrow(), date.atTime(18, 14));
+    }
+
+    @Test
+    @DisplayName("should order dawn, sunrise, noon, sunset and dusk")
+    void shouldOrderEvents() {
+        SolarDay day = calculator.calculate(LocalDate.of(2024, 10, 1), 48.8566, 2.3522, PARIS);
+
+        assertThat(day.get(SolarEvent.DAWN).orElseThrow()).isBefore(day.get(SolarEvent.SUNRISE).orElseThrow());
+        assertThat(day.get(SolarEvent.SUNRISE).orElseThrow()).isBefore(day.get(SolarEvent.SOLAR_NOON).orElseThrow());
+        assertThat(day.get(SolarEvent.SOLAR_NOON).orElseThrow()).isBefore(day.get(SolarEvent.SUNSET).orElseThrow());
+        assertThat(day.get(SolarEvent.SUNSET).orElseThrow()).isBefore(day.get(SolarEvent.DUSK).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("should omit sunset during the polar day")
+    void shouldOmitSunsetDuringPolarDay() {
+        SolarDay day = calculator.calculate(
+            LocalDate.of(2024, 6, 21), 69.6492, 18.9553, ZoneId.of("Europe/Oslo"));
+
+        assertThat(day.get(SolarEvent.SUNSET)).isEmpty();
+        assertThat(day.get(SolarEvent.SOLAR_NOON)).isPresent();
+    }
+
+    @Test
+    @DisplayName("should parse event names from trigger config")
+    void shouldParseEventNames() {
+        assertThat(SolarEvent.fromName("Sunset")).contains(SolarEvent.SUNSET);
+        assertThat(SolarEvent.fromName("solar-noon")).contains(SolarEvent.SOLAR_NOON);
+        assertThat(SolarEvent.fromName("dusk")).contains(SolarEvent.DUSK);
+        assertThat(SolarEvent.fromName("moonrise")).isEmpty();
+        assertThat(SolarEvent.fromName(null)).isEmpty();
+    }
+
+    private void assertWithinTwoMinutes(LocalDateTime actual, LocalDateTime expected) {
+        assertThat(Duration.between(expected, actual).abs()).isLessThanOrEqualTo(Duration.ofMinutes(2));
+    }
+}
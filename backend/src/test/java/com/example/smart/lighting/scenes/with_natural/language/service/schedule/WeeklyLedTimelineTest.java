@@ -0,0 +1,142 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.schedule;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Schedule;
+import com.example.smart.lighting.scenes.with_natural.language.entity.ScheduleChangedEvent;
+import com.example.smart.lighting.scenes.with_natural.language.repository.ScheduleRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.WeeklyLedTimeline.Contradiction;
+import com.example.smart.lighting.scenes.with_natural.language.service.schedule.WeeklyLedTimeline.LedState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("WeeklyLedTimeline Tests")
+class WeeklyLedTimelineTest {
+
+    private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+    /** Wednesday 2024-06-05 12:00 local time. */
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 5, 12, 0);
+    private static final int BEDROOM = 1;
+
+    @Mock
+    private ScheduleRepository scheduleRepository;
+
+    @Mock
+    private SolarEventService solarEventService;
+
+    @Mock
+    private SceneCatalog sceneCatalog;
+
+    private WeeklyLedTimeline timeline;
+
+    @BeforeEach
+    void setUp() {
+        timeline = new WeeklyLedTimeline(
+            scheduleRepository,
+            new ScheduleTriggerResolver(solarEventService),
+            new ScheduleActionPlanner(new ScheduleTargetResolver(sceneCatalog)),
+            Clock.fixed(NOW.atZone(PARIS).toInstant(), PARIS),
+            30);
+    }
+
+    @Test
+    @DisplayName("should answer LED state and last writer, wrapping around the week")
+    void shouldAnswerStateQueries() {
+        Schedule on = schedule("07:00", "light.on", Map.of());
+        Schedule off = schedule("23:00", "light.off", Map.of());
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of(on, off));
+
+        timeline.rebuild();
+
+        LocalDateTime mondayNight = LocalDateTime.of(2024, 6, 3, 3, 0);
+        assertThat(timeline.lastWriteAt(BEDROOM, mondayNight)).get()
+            .satisfies(write -> {
+                assertThat(write.scheduleId()).isEqualTo(off.getId());
+                assertThat(write.minuteOfWeek()).isEqualTo(6 * 1440 + 23 * 60);
+            });
+        assertThat(timeline.stateAt(BEDROOM, NOW)).get().extracting(LedState::on).isEqualTo(true);
+        assertThat(timeline.stateAt(0, NOW)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should keep fields a later write does not set")
+    void shouldMergePartialWrites() {
+        Schedule dim = schedule("07:00", "light.brightness", Map.of("brightness", 40));
+        Schedule on = schedule("08:00", "light.on", Map.of());
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of(dim, on));
+
+        timeline.rebuild();
+
+        assertThat(timeline.stateAt(BEDROOM, NOW)).get()
+            .isEqualTo(new LedState(true, 40, null, null));
+    }
+
+    @Test
+    @DisplayName("should find effective on/off contradictions for a new schedule")
+    void shouldFindContradictions() {
+        Schedule on = schedule("22:50", "light.on", Map.of());
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of(on));
+        timeline.rebuild();
+
+        Schedule candidate = schedule("23:00", "light.off", Map.of());
+        candidate.setId(null);
+        List<Contradiction> contradictions = timeline.findContradictions(candidate);
+
+        assertThat(contradictions).isNotEmpty()
+            .allSatisfy(c -> {
+                assertThat(c.minutesApart()).isEqualTo(10);
+                assertThat(c.earlier().scheduleId()).isEqualTo(on.getId());
+            });
+        assertThat(timeline.findContradictions(schedule("12:00", "light.off", Map.of()))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should drop a deleted schedule from its LEDs")
+    void shouldUpdateIncrementally() {
+        Schedule on = schedule("07:00", "light.on", Map.of());
+        Schedule off = schedule("07:10", "light.off", Map.of());
+        when(scheduleRepository.findByEnabledTrue()).thenReturn(List.of(on, off));
+        timeline.rebuild();
+        assertThat(timeline.findAllContradictions()).hasSize(7);
+
+        timeline.onScheduleChanged(new ScheduleChangedEvent(off, true));
+
+        assertThat(timeline.findAllContradictions()).isEmpty();
+        assertThat(timeline.stateAt(BEDROOM, NOW)).get().extracting(LedState::on).isEqualTo(true);
+    }
+
+    @Test
+    @DisplayName("should round-trip packed LED state")
+    void shouldPackState() {
+        long packed = WeeklyLedTimeline.encode(Map.of(
+            "on", true, "brightness", 75, "rgb", List.of(255, 128, 0), "color_temp", 2700));
+
+        assertThat(WeeklyLedTimeline.decode(packed))
+            .isEqualTo(new LedState(true, 75, List.of(255, 128, 0), 2700));
+    }
+
+    private Schedule schedule(String at, String intent, Map<String, Object> params) {
+        return Schedule.builder()
+            .id(UUID.randomUUID())
+            .name(at + " " + intent)
+            .enabled(true)
+            .triggerType("time")
+            .triggerConfig(Map.of("at", at))
+            .actions(List.of(Map.of("type", "light", "intent", intent, "target", "bedroom", "params", params)))
+            .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.search;
+
+import com.example.smart.lighting.scenes.with_natural.language.entity.Device;
+import com.example.smart.lighting.scenes.with_natural.language.entity.Room;
+import com.example.smart.lighting.scenes.with_natural.language.entity.Scene;
+import com.example.smart.lighting.scenes.with_natural.language.repository.DeviceRepository;
+import com.example.smart.lighting.scenes.with_natural.language.repository.RoomRepository;
+import com.example.smart.lighting.scenes.with_natural.language.service.scene.SceneCatalog;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex.Kind;
+import com.example.smart.lighting.scenes.with_natural.language.service.search.NameIndex.NameMatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NameIndex Tests")
+class NameIndexTest {
+
+    @Mock
+    private SceneCatalog sceneCatalog;
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @InjectMocks
+    private NameIndex nameIndex;
+
+    private Scene movieNight;
+    private Room livingRoom;
+
+    @BeforeEach
+    void setUp() {
+        movieNight = Scene.builder().id(UUID.randomUUID()).name("Movie Night").isActive(true).build();
+        livingRoom = Room.builder().id(UUID.randomUUID()).name("Living Room").build();
+        Room garage = Room.builder().id(UUID.randomUUID()).name("Garage").build();
+        Device desk = Device.builder().id(UUID.randomUUID()).name("Desk Lamp").build();
+
+        when(sceneCatalog.getActiveScenes()).thenReturn(List.of(movieNight));
+        when(roomRepository.findAll()).thenReturn(List.of(livingRoom, garage));
+        when(deviceRepository.findAll()).thenReturn(List.of(desk));
+        nameIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("should resolve misspelled scene and room names")
+    void shouldResolveFuzzyNames() {
+        assertThat(nameIndex.resolve(Kind.SCENE, "movie nite")).get()
+            .extracting(NameMatch::name).isEqualTo("Movie Night");
+        assertThat(nameIndex.resolve(Kind.ROOM, "livingroom")).get()
+            .satisfies(match -> {
+                assertThat(match.key()).isEqualTo("living_room");
+                assertThat(match.id()).isEqualTo(livingRoom.getId());
+            });
+        assertThat(nameIndex.resolve(Kind.ROOM, "bedrom")).get()
+            .extracting(NameMatch::key).isEqualTo("bedroom");
+        assertThat(nameIndex.resolve(Kind.SCENE, "party")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should report a database room and the built-in room with the same key once")
+    void shouldCollapseDuplicateRooms() {
+        List<NameMatch> matches = nameIndex.search("living", EnumSet.of(Kind.ROOM), 10);
+
+        assertThat(matches).singleElement().extracting(NameMatch::id).isEqualTo(livingRoom.getId());
+    }
+
+    @Test
+    @DisplayName("should apply scene changes without a rebuild")
+    void shouldUpdateIncrementally() {
+        Scene reading = Scene.builder().id(UUID.randomUUID()).name("Reading").isActive(true).build();
+        nameIndex.put(reading);
+        assertThat(nameIndex.search("rea", EnumSet.allOf(Kind.class), 5))
+            .extracting(NameMatch::name).containsExactly("Reading");
+
+        movieNight.setIsActive(false);
+        nameIndex.put(movieNight);
+        assertThat(nameIndex.resolve(Kind.SCENE, "Movie Night")).isEmpty();
+
+        nameIndex.remove(Kind.SCENE, reading.getId());
+        assertThat(nameIndex.resolve(Kind.SCENE, "Reading")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should only offer rooms that are wired to LEDs")
+    void shouldListLedRooms() {
+        assertThat(nameIndex.resolve(Kind.ROOM, "garage")).get()
+            .extracting(NameMatch::key).matches(key -> !NameIndex.isLedRoom(key));
+        assertThat(nameIndex.ledRoomNames())
+            .containsExactly("bathroom", "bedroom", "hallway", "kitchen", "Living Room");
+    }
+
+    @Test
+    @DisplayName("should search only the requested kinds")
+    void shouldFilterByKind() {
+        assertThat(nameIndex.search("desk", EnumSet.of(Kind.DEVICE), 5))
+            .extracting(NameMatch::kind).containsExactly(Kind.DEVICE);
+        assertThat(nameIndex.search("desk", EnumSet.of(Kind.SCENE, Kind.ROOM), 5)).isEmpty();
+    }
+}
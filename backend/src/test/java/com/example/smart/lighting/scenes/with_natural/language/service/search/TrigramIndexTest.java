@@ -0,0 +1,79 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TrigramIndex Tests")
+class TrigramIndexTest {
+
+    private final TrigramIndex<String> index = new TrigramIndex<>();
+
+    @Test
+    @DisplayName("should treat case, spaces and punctuation as the same name")
+    void shouldMatchCompactedNames() {
+        index.put("1", "Movie Night", "movie");
+
+        assertThat(index.search("movie-night", 0.5, 5))
+            .singleElement()
+            .satisfies(hit -> {
+                assertThat(hit.value()).isEqualTo("movie");
+                assertThat(hit.score()).isEqualTo(1.0);
+            });
+        assertThat(index.search("MOVIENIGHT", 0.5, 5)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("should rank misspellings by similarity")
+    void shouldRankMisspellings() {
+        index.put("bed", "Bedroom", "bed");
+        index.put("bath", "Bathroom", "bath");
+        index.put("kitchen", "Kitchen", "kitchen");
+
+        assertThat(index.search("bedrom", 0.0, 5))
+            .extracting(TrigramIndex.Hit::key)
+            .startsWith("bed")
+            .doesNotContain("kitchen");
+        assertThat(index.search("bedrom", 0.5, 5)).extracting(TrigramIndex.Hit::key).containsExactly("bed");
+    }
+
+    @Test
+    @DisplayName("should rank names starting with a typed prefix first")
+    void shouldRankPrefixes() {
+        index.put("1", "Relax", "relax");
+        index.put("2", "Reading", "reading");
+        index.put("3", "Movie Night", "movie");
+
+        assertThat(index.search("rea", 0.0, 5)).first()
+            .satisfies(hit -> {
+                assertThat(hit.key()).isEqualTo("2");
+                assertThat(hit.score()).isGreaterThanOrEqualTo(TrigramIndex.PREFIX_BASE).isLessThan(1.0);
+            });
+        assertThat(index.search("mo", 0.0, 5)).extracting(TrigramIndex.Hit::key).containsExactly("3");
+    }
+
+    @Test
+    @DisplayName("should replace and remove entries incrementally")
+    void shouldUpdateIncrementally() {
+        index.put("1", "Relax", "relax");
+        index.put("1", "Unwind", "unwind");
+
+        assertThat(index.search("relax", 0.3, 5)).isEmpty();
+        assertThat(index.search("unwind", 0.3, 5)).extracting(TrigramIndex.Hit::value).containsExactly("unwind");
+
+        index.remove("1");
+        assertThat(index.search("unwind", 0.0, 5)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("should ignore blank names and queries")
+    void shouldIgnoreBlanks() {
+        index.put("1", " - ", "blank");
+
+        assertThat(index.size()).isZero();
+        assertThat(index.search("  ", 0.0, 5)).isEmpty();
+        assertThat(index.search(null, 0.0, 5)).isEmpty();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.sensor;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.automation.AutomationEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("SensorAggregator Tests")
+class SensorAggregatorTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-06-02T18:00:00Z"), ZoneOffset.UTC);
+
+    private final AutomationEngine engine = mock(AutomationEngine.class);
+    private final SensorAggregator aggregator = new SensorAggregator(engine, CLOCK, new SimpleMeterRegistry(),
+        300, 30, 60);
+
+    @Test
+    @DisplayName("should publish window statistics per sensor and across sensors")
+    void shouldPublishStatistics() {
+        aggregator.record("hall", "temperature", 25, false);
+        aggregator.record("kitchen", "temperature", 28, false);
+
+        verify(engine).onSensorReading("kitchen", "temperature", 28, false);
+        verify(engine).onMeasurement("sensor.temperature.mean", 26.5);
+        verify(engine).onMeasurement("sensor.temperature.max", 28);
+        verify(engine).onMeasurement("sensor.kitchen.temperature.mean", 28);
+        assertThat(aggregator.getStats()).containsOnlyKeys(
+            "sensor.temperature", "sensor.hall.temperature", "sensor.kitchen.temperature");
+    }
+
+    @Test
+    @DisplayName("should keep retained readings out of the windows")
+    void shouldSkipRetained() {
+        aggregator.record("hall", "temperature", 25, true);
+
+        verify(engine).onSensorReading("hall", "temperature", 25, true);
+        verify(engine, never()).onMeasurement(anyString(), anyDouble());
+        assertThat(aggregator.getStats()).isEmpty();
+    }
+}
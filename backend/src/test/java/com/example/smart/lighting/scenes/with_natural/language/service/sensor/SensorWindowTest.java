@@ -0,0 +1,78 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.sensor;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.sensor.SensorWindow.Stats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("SensorWindow Tests")
+class SensorWindowTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final SensorWindow window = new SensorWindow(Duration.ofMinutes(5), 30, Duration.ofMinutes(1));
+
+    @Test
+    @DisplayName("should track min, max and mean of the readings in the window")
+    void shouldAggregateReadings() {
+        window.add(10, T0);
+        window.add(30, T0 + 20_000);
+        window.add(20, T0 + 60_000);
+
+        Stats stats = window.stats(T0 + 60_000);
+
+        assertThat(stats.count()).isEqualTo(3);
+        assertThat(stats.min()).isEqualTo(10);
+        assertThat(stats.max()).isEqualTo(30);
+        assertThat(stats.mean()).isEqualTo(20);
+        assertThat(stats.last()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("should drop readings that slide out of the window")
+    void shouldExpireOldReadings() {
+        window.add(10, T0);
+        window.add(30, T0 + 20_000);
+        window.add(20, T0 + 60_000);
+
+        Stats later = window.stats(T0 + 305_000);
+        assertThat(later.count()).isEqualTo(2);
+        assertThat(later.min()).isEqualTo(20);
+        assertThat(later.mean()).isEqualTo(25);
+
+        Stats empty = window.stats(T0 + 600_000);
+        assertThat(empty.count()).isZero();
+        assertThat(empty.mean()).isNaN();
+        assertThat(empty.last()).isEqualTo(20);
+
+        window.add(5, T0 + 601_000);
+        assertThat(window.stats(T0 + 601_000).max()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("should decay the EWMA by elapsed time rather than by reading")
+    void shouldDecayEwmaByTime() {
+        window.add(0, T0);
+        window.add(100, T0 + 60_000);
+        assertThat(window.stats(T0 + 60_000).ewma()).isCloseTo(50, within(1e-9));
+
+        // A burst a moment later barely moves it
+        window.add(100, T0 + 60_100);
+        window.add(100, T0 + 60_200);
+        assertThat(window.stats(T0 + 60_200).ewma()).isCloseTo(50, within(0.5));
+    }
+
+    @Test
+    @DisplayName("should reject a window with more buckets than milliseconds")
+    void shouldValidateConfiguration() {
+        assertThatThrownBy(() -> new SensorWindow(Duration.ofMillis(10), 30, Duration.ofMinutes(1)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SensorWindow(Duration.ofMinutes(5), 30, Duration.ZERO))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.smart.lighting.scenes.with_natural.language.service.sensor;
+
+import com.example.smart.lighting.scenes.with_natural.language.service.sensor.ThresholdDetector.Edge;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ThresholdDetector Tests")
+class ThresholdDetectorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 10, 17, 0);
+
+    @Test
+    @DisplayName("should fire once the value has stayed in range for the hold time")
+    void shouldWaitForHoldTime() {
+        ThresholdDetector detector = new ThresholdDetector(null, 50.0, 0, Duration.ofMinutes(2));
+
+        assertThat(feed(detector, 60, 40, 45, 52, 40, 40, 40))
+            .containsExactly(Edge.NONE, Edge.NONE, Edge.NONE, Edge.NONE, Edge.NONE, Edge.NONE, Edge.ENTERED);
+        assertThat(detector.isActive()).isTrue();
+        assertThat(detector.timeInRange(START.plusMinutes(7))).isEqualTo(Duration.ofMinutes(3));
+    }
+
+    @Test
+    @DisplayName("should only re-arm after leaving the range by the hysteresis")
+    void shouldApplyHysteresis() {
+        ThresholdDetector detector = new ThresholdDetector(26.0, null, 0.5, Duration.ZERO);
+
+        assertThat(feed(detector, 25, 26.2, 25.8, 26.4, 25.4, 26.1))
+            .containsExactly(Edge.NONE, Edge.ENTERED, Edge.NONE, Edge.NONE, Edge.LEFT, Edge.ENTERED);
+    }
+
+    private static List<Edge> feed(ThresholdDetector detector, double... values) {
+        List<Edge> edges = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            edges.add(detector.update(values[i], START.plusMinutes(i)));
+        }
+        return edges;
+    }
+}
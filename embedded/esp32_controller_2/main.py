@@ -60,6 +60,8 @@ class SystemState:
         self.global_mode = _cfg("GLOBAL_MODE", "auto")
         self.lights_on = True
         self.current_page = 0
+        # Highest scheduler fencing token seen; commands from a deposed leader carry a lower one
+        self.fencing_token = 0
         self.start_time = time.ticks_ms()
         
         # OLED power management
@@ -216,6 +218,64 @@ def _room_to_led_index(room_name):
     return None
 
 
+async def _apply_led_set(led_idx, cmd):
+    """Apply a JSON set command to one LED and acknowledge it"""
+    # JSON command: {"on": true, "rgb": [r,g,b], "brightness": 50, "color_temp": 4000, "mode": "manual", "correlationId": "uuid"}
+
+    # Drop scheduler commands from a stale leader
+    fencing = cmd.get("fencingToken")
+    if fencing is not None:
+        if fencing < state.fencing_token:
+            log(_SRC, f"LED {led_idx} stale fencing token {fencing} < {state.fencing_token}")
+            return
+        state.fencing_token = fencing
+
+    # Extract correlation ID for acknowledgment
+    correlation_id = cmd.get("correlationId")
+
+    # Set mode to manual if specified
+    if cmd.get("mode") == "manual":
+        state.global_mode = "manual"
+
+    # Apply power state
+    if "on" in cmd:
+        state.set_led_state(led_idx, on=cmd["on"])
+
+    # Apply RGB color
+    if "rgb" in cmd:
+        rgb = cmd["rgb"]
+        if isinstance(rgb, list) and len(rgb) >= 3:
+            state.set_led_state(led_idx, rgb=(rgb[0], rgb[1], rgb[2]))
+
+    # Apply brightness (as base_brightness for manual control)
+    if "brightness" in cmd:
+        br = max(0, min(100, int(cmd["brightness"])))
+        state.set_led_state(led_idx, base_brightness=br, brightness=br)
+
+    # Apply color temperature (store for reference, affects color calculation)
+    if "color_temp" in cmd:
+        ct = int(cmd["color_temp"])
+        state.set_led_state(led_idx, color_temp=ct)
+
+    # Handle mode switching
+    if cmd.get("mode") == "manual":
+        # Disable sensor-based auto adjustments for this LED in manual mode
+        state.set_led_state(led_idx, has_sensor=False)
+    elif cmd.get("mode") == "auto":
+        # Re-enable sensor-based auto adjustments
+        # LEDs 0 (living room) and 1 (bedroom) have sensors
+        has_sens = led_idx in [0, 1]
+        state.set_led_state(led_idx, has_sensor=has_sens)
+        log(_SRC, f"LED {led_idx} switched to AUTO mode (sensor: {has_sens})")
+
+    # Send acknowledgment if correlation ID present
+    if correlation_id and _mqtt_sl:
+        try:
+            await _mqtt_sl.publish_scene_ack(correlation_id, led_idx, success=True)
+        except Exception as ack_err:
+            log(_SRC, f"ACK send failed: {ack_err}")
+
+
 async def on_mqtt_command(topic, msg):
     """Handle MQTT commands"""
     try:
@@ -253,6 +313,21 @@ async def on_mqtt_command(topic, msg):
             except ValueError:
                 pass
         
+        # Batched LED commands: smartlight/command/batch
+        # {"correlationId": "uuid", "leds": [{"led": 0, "on": true, ...}, ...]}
+        elif topic.endswith("/command/batch"):
+            import json
+            batch = json.loads(msg)
+            correlation_id = batch.get("correlationId")
+            for entry in batch.get("leds", []):
+                try:
+                    led_idx = int(entry.get("led", -1))
+                    if 0 <= led_idx < _cfg("NUM_LEDS", 5):
+                        entry["correlationId"] = correlation_id
+                        await _apply_led_set(led_idx, entry)
+                except (ValueError, TypeError) as e:
+                    log(_SRC, f"Batch entry error: {e}")
+        
         # Per-LED control: smartlight/led/{index}/{action}
         # Actions: power, brightness, color, set (JSON command)
         elif "/led/" in topic and len(parts) >= 4:
@@ -270,55 +345,10 @@ async def on_mqtt_command(topic, msg):
                         r, g, b = [int(x) for x in msg.split(",")]
                         state.set_led_state(led_idx, rgb=(r, g, b))
                     elif action == "set":
-                        # JSON command: {"on": true, "rgb": [r,g,b], "brightness": 50, "color_temp": 4000, "mode": "manual", "correlationId": "uuid"}
                         import json
                         cmd = json.loads(msg)
                         log(_SRC, f"LED {led_idx} SET cmd: {cmd}")
-                        
-                        # Extract correlation ID for acknowledgment
-                        correlation_id = cmd.get("correlationId")
-                        
-                        # Set mode to manual if specified
-                        if cmd.get("mode") == "manual":
-                            state.global_mode = "manual"
-                        
-                        # Apply power state
-                        if "on" in cmd:
-                            state.set_led_state(led_idx, on=cmd["on"])
-                        
-                        # Apply RGB color
-                        if "rgb" in cmd:
-                            rgb = cmd["rgb"]
-                            if isinstance(rgb, list) and len(rgb) >= 3:
-                                state.set_led_state(led_idx, rgb=(rgb[0], rgb[1], rgb[2]))
-                        
-                        # Apply brightness (as base_brightness for manual control)
-                        if "brightness" in cmd:
-                            br = max(0, min(100, int(cmd["brightness"])))
-                            state.set_led_state(led_idx, base_brightness=br, brightness=br)
-                        
-                        # Apply color temperature (store for reference, affects color calculation)
-                        if "color_temp" in cmd:
-                            ct = int(cmd["color_temp"])
-                            state.set_led_state(led_idx, color_temp=ct)
-                        
-                        # Handle mode switching
-                        if cmd.get("mode") == "manual":
-                            # Disable sensor-based auto adjustments for this LED in manual mode
-                            state.set_led_state(led_idx, has_sensor=False)
-                        elif cmd.get("mode") == "auto":
-                            # Re-enable sensor-based auto adjustments
-                            # LEDs 0 (living room) and 1 (bedroom) have sensors
-                            has_sens = led_idx in [0, 1]
-                            state.set_led_state(led_idx, has_sensor=has_sens)
-                            log(_SRC, f"LED {led_idx} switched to AUTO mode (sensor: {has_sens})")
-                        
-                        # Send acknowledgment if correlation ID present
-                        if correlation_id and _mqtt_sl:
-                            try:
-                                await _mqtt_sl.publish_scene_ack(correlation_id, led_idx, success=True)
-                            except Exception as ack_err:
-                                log(_SRC, f"ACK send failed: {ack_err}")
+                        await _apply_led_set(led_idx, cmd)
             except (ValueError, IndexError) as e:
                 log(_SRC, f"LED cmd error: {e}")
         
@@ -37,8 +37,12 @@ export const nlpApi = {
    *
    * For scheduled commands, also checks for conflicts with existing schedules.
    *
+   * When a requestId is given, early previews tagged with it are pushed on
+   * the /topic/nlp WebSocket topic while OpenAI is still responding.
+   *
    * @async
    * @param {string} text - Natural language command
+   * @param {string} [requestId] - Client-generated ID for early previews
    * @returns {Promise<Object>} Parsed command preview
    * @property {string} text - Original command text
    * @property {Object} parsed - Structured command data
@@ -51,9 +55,11 @@ export const nlpApi = {
    * @property {string} [error] - Error message if invalid
    * @property {boolean} isScheduled - Whether this creates a schedule
    * @property {Object} [conflictAnalysis] - Schedule conflict information
+   * @property {string} [conflictAnalysis.status] - 'pending' while AI ranking runs, then 'complete'
+   * @property {string} [conflictAnalysis.analysisId] - ID of the pending AI analysis
    */
-  async parse(text) {
-    const response = await apiClient.post('/api/nlp/parse', { text })
+  async parse(text, requestId) {
+    const response = await apiClient.post('/api/nlp/parse', { text, requestId })
     return response.data
   },
 
@@ -91,6 +97,22 @@ export const nlpApi = {
     return response.data
   },
 
+  /**
+   * Gets the current state of a pending conflict analysis.
+   *
+   * The AI-ranked analysis is also pushed on the /topic/conflicts
+   * WebSocket topic; polling is the fallback when not connected.
+   *
+   * @async
+   * @param {string} analysisId - Analysis ID from parse()
+   * @returns {Promise<Object>} Conflict analysis
+   * @property {string} status - 'pending' or 'complete'
+   */
+  async getConflictAnalysis(analysisId) {
+    const response = await apiClient.get(`/api/nlp/conflicts/${analysisId}`)
+    return response.data
+  },
+
   /**
    * Applies a resolution to a schedule conflict.
    *
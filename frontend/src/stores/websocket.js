@@ -6,6 +6,7 @@
  * - Device state changes (on/off, brightness, color)
  * - Scene application events and acknowledgments
  * - Schedule CRUD events (create, update, delete, toggle, triggered)
+ * - Completed AI conflict analyses for parsed schedule commands
  *
  * Uses SockJS for WebSocket transport with automatic reconnection.
  *
@@ -98,6 +99,18 @@ const lastScheduleChange = ref(null)
  */
 const lastSceneChange = ref(null)
 
+/**
+ * Last completed AI conflict analysis.
+ * Contains analysisId and the final analysis.
+ */
+const lastConflictAnalysis = ref(null)
+
+/**
+ * Last early preview of an NLP command still being parsed.
+ * Contains requestId, parsed and preview.
+ */
+const lastNlpPreview = ref(null)
+
 /** WebSocket connection status */
 const connected = ref(false)
 
@@ -329,6 +342,41 @@ function subscribeToTopics() {
     }
   })
 
+  // Subscribe to AI conflict analysis results
+  stompClient.subscribe('/topic/conflicts', message => {
+    try {
+      const data = JSON.parse(message.body)
+      log('Conflict analysis:', data)
+
+      if (data.type === 'CONFLICT_ANALYSIS_COMPLETE') {
+        lastConflictAnalysis.value = {
+          analysisId: data.data?.analysisId,
+          analysis: data.data?.analysis
+        }
+      }
+    } catch (e) {
+      logError('Error parsing conflict message:', e)
+    }
+  })
+
+  // Subscribe to early NLP previews
+  stompClient.subscribe('/topic/nlp', message => {
+    try {
+      const data = JSON.parse(message.body)
+      log('NLP preview:', data)
+
+      if (data.type === 'NLP_PREVIEW') {
+        lastNlpPreview.value = {
+          requestId: data.data?.requestId,
+          parsed: data.data?.parsed,
+          preview: data.data?.preview
+        }
+      }
+    } catch (e) {
+      logError('Error parsing NLP preview message:', e)
+    }
+  })
+
   log('Subscribed to all topics')
 }
 
@@ -423,6 +471,28 @@ export function clearLastSceneChange() {
   lastSceneChange.value = null
 }
 
+/**
+ * Clears the last conflict analysis notification.
+ *
+ * Call this after merging the analysis into the parse result.
+ *
+ * @returns {void}
+ */
+export function clearLastConflictAnalysis() {
+  lastConflictAnalysis.value = null
+}
+
+/**
+ * Clears the last NLP preview.
+ *
+ * Call this once the full parse result has arrived.
+ *
+ * @returns {void}
+ */
+export function clearLastNlpPreview() {
+  lastNlpPreview.value = null
+}
+
 /**
  * Composable function to access WebSocket state and methods.
  *
@@ -444,6 +514,8 @@ export function useWebSocket() {
     scheduleEvents,
     lastScheduleTriggered,
     lastScheduleChange,
+    lastConflictAnalysis,
+    lastNlpPreview,
     connect: connectWebSocket,
     disconnect: disconnectWebSocket,
     getSensorData,
@@ -452,6 +524,8 @@ export function useWebSocket() {
     clearLastSceneChange,
     isScenePending,
     clearLastScheduleTriggered,
-    clearLastScheduleChange
+    clearLastScheduleChange,
+    clearLastConflictAnalysis,
+    clearLastNlpPreview
   }
 }